@@ -23,6 +23,9 @@ public class ProductCriteria extends Criteria {
 	private Long manufacturerId = null;
 	
 	private Long ownerId = null;
+	
+	/** opaque keyset position, an empty cursor requests the first page **/
+	private String cursor = null;
 
 	public String getProductName() {
 		return productName;
@@ -97,6 +100,14 @@ public class ProductCriteria extends Criteria {
 		this.ownerId = ownerId;
 	}
 
+	public String getCursor() {
+		return cursor;
+	}
+
+	public void setCursor(String cursor) {
+		this.cursor = cursor;
+	}
+
 
 
 }
@@ -14,12 +14,19 @@ public class ProductList extends EntityList {
 	 */
 	private static final long serialVersionUID = 7267292601646149482L;
 	private List<Product> products = new ArrayList<Product>();
+	private String nextCursor;
 	public List<Product> getProducts() {
 		return products;
 	}
 	public void setProducts(List<Product> products) {
 		this.products = products;
 	}
+	public String getNextCursor() {
+		return nextCursor;
+	}
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
 
 
 }
@@ -24,6 +24,7 @@ import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import javax.validation.Valid;
 
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.OrderBy;
 import org.hibernate.annotations.Type;
 
@@ -143,17 +144,21 @@ public class Order extends SalesManagerEntity<Long, Order> {
 	//@OneToMany(mappedBy = "order")
 	//private Set<OrderAccount> orderAccounts = new HashSet<OrderAccount>();
 	
+	@BatchSize(size = 50)
 	@OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
 	private Set<OrderProduct> orderProducts = new LinkedHashSet<OrderProduct>();
 	
+	@BatchSize(size = 50)
 	@OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
 	@OrderBy(clause = "sort_order asc")
 	private Set<OrderTotal> orderTotal = new LinkedHashSet<OrderTotal>();
 	
+	@BatchSize(size = 50)
 	@OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
 	@OrderBy(clause = "ORDER_STATUS_HISTORY_ID asc")
 	private Set<OrderStatusHistory> orderHistory = new LinkedHashSet<OrderStatusHistory>();
 	
+	@BatchSize(size = 50)
 	@OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
 	private Set<OrderAttribute> orderAttributes = new LinkedHashSet<OrderAttribute>();
 	
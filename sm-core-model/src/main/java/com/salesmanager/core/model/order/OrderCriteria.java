@@ -7,6 +7,8 @@ public class OrderCriteria extends Criteria {
 	private String customerName;
 	private String paymentMethod;
 	private Long customerId;
+	/** opaque keyset position, an empty cursor requests the first page **/
+	private String cursor = null;
 	public void setPaymentMethod(String paymentMethod) {
 		this.paymentMethod = paymentMethod;
 	}
@@ -27,6 +29,12 @@ public class OrderCriteria extends Criteria {
     {
         this.customerId = customerId;
     }
+	public String getCursor() {
+		return cursor;
+	}
+	public void setCursor(String cursor) {
+		this.cursor = cursor;
+	}
    
 	
 	
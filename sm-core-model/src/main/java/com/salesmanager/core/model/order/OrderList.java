@@ -11,6 +11,8 @@ public class OrderList extends EntityList {
 	 */
 	private static final long serialVersionUID = -6645927228659963628L;
 	private List<Order> orders;
+	private List<OrderListItem> items;
+	private String nextCursor;
 
 	public void setOrders(List<Order> orders) {
 		this.orders = orders;
@@ -20,4 +22,23 @@ public class OrderList extends EntityList {
 		return orders;
 	}
 
+	/**
+	 * Orders of a list screen, without their products and totals
+	 */
+	public List<OrderListItem> getItems() {
+		return items;
+	}
+
+	public void setItems(List<OrderListItem> items) {
+		this.items = items;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
 }
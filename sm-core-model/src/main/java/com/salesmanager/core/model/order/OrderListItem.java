@@ -0,0 +1,115 @@
+package com.salesmanager.core.model.order;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Date;
+
+import com.salesmanager.core.model.order.orderstatus.OrderStatus;
+
+/**
+ * Columns of an order shown in order lists, read without loading the
+ * order products, totals and attributes
+ */
+public class OrderListItem implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private Long id;
+	private Date datePurchased;
+	private OrderStatus status;
+	private BigDecimal total;
+	private String paymentModuleCode;
+	private Long customerId;
+	private String customerEmailAddress;
+	private String firstName;
+	private String lastName;
+
+	public OrderListItem() {
+	}
+
+	public OrderListItem(Long id, Date datePurchased, OrderStatus status, BigDecimal total, String paymentModuleCode,
+			Long customerId, String customerEmailAddress, String firstName, String lastName) {
+		this.id = id;
+		this.datePurchased = datePurchased;
+		this.status = status;
+		this.total = total;
+		this.paymentModuleCode = paymentModuleCode;
+		this.customerId = customerId;
+		this.customerEmailAddress = customerEmailAddress;
+		this.firstName = firstName;
+		this.lastName = lastName;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public Date getDatePurchased() {
+		return datePurchased;
+	}
+
+	public void setDatePurchased(Date datePurchased) {
+		this.datePurchased = datePurchased;
+	}
+
+	public OrderStatus getStatus() {
+		return status;
+	}
+
+	public void setStatus(OrderStatus status) {
+		this.status = status;
+	}
+
+	public BigDecimal getTotal() {
+		return total;
+	}
+
+	public void setTotal(BigDecimal total) {
+		this.total = total;
+	}
+
+	public String getPaymentModuleCode() {
+		return paymentModuleCode;
+	}
+
+	public void setPaymentModuleCode(String paymentModuleCode) {
+		this.paymentModuleCode = paymentModuleCode;
+	}
+
+	public Long getCustomerId() {
+		return customerId;
+	}
+
+	public void setCustomerId(Long customerId) {
+		this.customerId = customerId;
+	}
+
+	public String getCustomerEmailAddress() {
+		return customerEmailAddress;
+	}
+
+	public void setCustomerEmailAddress(String customerEmailAddress) {
+		this.customerEmailAddress = customerEmailAddress;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public void setFirstName(String firstName) {
+		this.firstName = firstName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+
+	public void setLastName(String lastName) {
+		this.lastName = lastName;
+	}
+
+}
@@ -16,6 +16,8 @@ import javax.persistence.OneToMany;
 import javax.persistence.Table;
 import javax.persistence.TableGenerator;
 
+import org.hibernate.annotations.BatchSize;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.salesmanager.core.constants.SchemaConstant;
 import com.salesmanager.core.model.generic.SalesManagerEntity;
@@ -49,12 +51,15 @@ public class OrderProduct extends SalesManagerEntity<Long, OrderProduct> {
 	@JoinColumn(name = "ORDER_ID", nullable = false)
 	private Order order;
 
+	@BatchSize(size = 50)
 	@OneToMany(mappedBy = "orderProduct", cascade = CascadeType.ALL)
 	private Set<OrderProductAttribute> orderAttributes = new HashSet<OrderProductAttribute>();
 
+	@BatchSize(size = 50)
 	@OneToMany(mappedBy = "orderProduct", cascade = CascadeType.ALL)
 	private Set<OrderProductPrice> prices = new HashSet<OrderProductPrice>();
 
+	@BatchSize(size = 50)
 	@OneToMany(mappedBy = "orderProduct", cascade = CascadeType.ALL)
 	private Set<OrderProductDownload> downloads = new HashSet<OrderProductDownload>();
 	
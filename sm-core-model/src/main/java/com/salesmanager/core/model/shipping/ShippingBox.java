@@ -0,0 +1,92 @@
+package com.salesmanager.core.model.shipping;
+
+import org.json.simple.JSONAware;
+import org.json.simple.JSONObject;
+
+/**
+ * A box size available for packing, in addition to the box of the
+ * ShippingConfiguration
+ */
+public class ShippingBox implements JSONAware {
+
+	private String code;
+	private int boxWidth = 0;
+	private int boxHeight = 0;
+	private int boxLength = 0;
+	private double boxWeight = 0;
+	private double maxWeight = 0;
+
+	public ShippingBox() {
+	}
+
+	public ShippingBox(String code, int boxWidth, int boxLength, int boxHeight, double boxWeight, double maxWeight) {
+		this.code = code;
+		this.boxWidth = boxWidth;
+		this.boxLength = boxLength;
+		this.boxHeight = boxHeight;
+		this.boxWeight = boxWeight;
+		this.maxWeight = maxWeight;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public String toJSONString() {
+		JSONObject data = new JSONObject();
+		data.put("code", this.getCode());
+		data.put("boxWidth", this.getBoxWidth());
+		data.put("boxHeight", this.getBoxHeight());
+		data.put("boxLength", this.getBoxLength());
+		data.put("boxWeight", this.getBoxWeight());
+		data.put("maxWeight", this.getMaxWeight());
+		return data.toJSONString();
+	}
+
+	public String getCode() {
+		return code;
+	}
+
+	public void setCode(String code) {
+		this.code = code;
+	}
+
+	public int getBoxWidth() {
+		return boxWidth;
+	}
+
+	public void setBoxWidth(int boxWidth) {
+		this.boxWidth = boxWidth;
+	}
+
+	public int getBoxHeight() {
+		return boxHeight;
+	}
+
+	public void setBoxHeight(int boxHeight) {
+		this.boxHeight = boxHeight;
+	}
+
+	public int getBoxLength() {
+		return boxLength;
+	}
+
+	public void setBoxLength(int boxLength) {
+		this.boxLength = boxLength;
+	}
+
+	public double getBoxWeight() {
+		return boxWeight;
+	}
+
+	public void setBoxWeight(double boxWeight) {
+		this.boxWeight = boxWeight;
+	}
+
+	public double getMaxWeight() {
+		return maxWeight;
+	}
+
+	public void setMaxWeight(double maxWeight) {
+		this.maxWeight = maxWeight;
+	}
+
+}
@@ -1,6 +1,8 @@
 package com.salesmanager.core.model.shipping;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.json.simple.JSONAware;
 import org.json.simple.JSONObject;
@@ -25,6 +27,8 @@ public class ShippingConfiguration implements JSONAware {
 	private int boxLength = 0;
 	private double boxWeight = 0;
 	private double maxWeight = 0;
+	/** other box sizes for box packaging **/
+	private List<ShippingBox> boxes = new ArrayList<ShippingBox>();
 	
 	//free shipping
 	private boolean freeShippingEnabled = false;
@@ -193,6 +197,9 @@ public class ShippingConfiguration implements JSONAware {
 		data.put("boxLength", this.getBoxLength());
 		data.put("boxWeight", this.getBoxWeight());
 		data.put("maxWeight", this.getMaxWeight());
+		if(!boxes.isEmpty()) {
+			data.put("boxes", this.getBoxes());
+		}
 		data.put("freeShippingEnabled", this.freeShippingEnabled);
 		data.put("orderTotalFreeShipping", this.orderTotalFreeShipping);
 		data.put("handlingFees", this.handlingFees);
@@ -253,6 +260,16 @@ public class ShippingConfiguration implements JSONAware {
 	}
 
 
+	public List<ShippingBox> getBoxes() {
+		return boxes;
+	}
+
+
+	public void setBoxes(List<ShippingBox> boxes) {
+		this.boxes = boxes != null ? boxes : new ArrayList<ShippingBox>();
+	}
+
+
 	public boolean isFreeShippingEnabled() {
 		return freeShippingEnabled;
 	}
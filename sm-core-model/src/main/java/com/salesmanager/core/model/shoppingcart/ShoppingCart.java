@@ -25,6 +25,7 @@ import javax.persistence.TableGenerator;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import javax.persistence.Transient;
+import javax.persistence.Version;
 
 import com.salesmanager.core.constants.SchemaConstant;
 import com.salesmanager.core.model.common.audit.AuditListener;
@@ -86,9 +87,24 @@ public class ShoppingCart extends SalesManagerEntity<Long, ShoppingCart> impleme
 	@Column(name = "PROMO_ADDED")
 	private Date promoAdded;
 
+	/**
+	 * Concurrent updates of the same cart fail instead of overwriting each other
+	 */
+	@Version
+	@Column(name = "CART_VERSION", columnDefinition = "integer default 0")
+	private Integer version;
+
 	@Transient
 	private boolean obsolete = false;//when all items are obsolete
     
+	public Integer getVersion() {
+		return version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
 	@Override
 	public AuditSection getAuditSection() {
 		return auditSection;
@@ -23,4 +23,13 @@ public interface ShippingQuoteModule {
 	
 	public List<ShippingOption> getShippingQuotes(ShippingQuote quote, List<PackageDetails> packages, BigDecimal orderTotal, Delivery delivery, ShippingOrigin origin, MerchantStore store, IntegrationConfiguration configuration, IntegrationModule module, ShippingConfiguration shippingConfiguration, Locale locale) throws IntegrationException;
 
+	/**
+	 * Quotes of a carrier requested over the network are fetched in parallel
+	 * with the other carriers when rates are aggregated, modules calculating
+	 * the quote locally run in the request thread
+	 */
+	default boolean isRemote() {
+		return true;
+	}
+
 }
@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
+import javax.annotation.PostConstruct;
+
 import org.drools.decisiontable.DecisionTableProviderImpl;
 import org.kie.api.KieServices;
 import org.kie.api.builder.KieBuilder;
@@ -14,6 +16,7 @@ import org.kie.api.builder.ReleaseId;
 import org.kie.api.io.Resource;
 import org.kie.api.runtime.KieContainer;
 import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.StatelessKieSession;
 import org.kie.internal.builder.DecisionTableConfiguration;
 import org.kie.internal.builder.DecisionTableInputType;
 import org.kie.internal.builder.KnowledgeBuilderFactory;
@@ -31,6 +34,16 @@ public class DroolsBeanFactory {
 	@Value("${config.shipping.rule.shippingModuleDecision}")
 	private String shippingDecision;
 	
+	@Value("${config.rules.checkInterval:60000}")
+	private long checkInterval;
+	
+	private DroolsRuleRegistry ruleRegistry;
+	
+	@PostConstruct
+	public void init() {
+		ruleRegistry = new DroolsRuleRegistry(checkInterval);
+	}
+	
 
     private static final String RULES_PATH = "com/salesmanager/drools/rules/";
     private KieServices kieServices = KieServices.Factory.get();
@@ -83,22 +96,19 @@ public class DroolsBeanFactory {
 
     }
 
+    /**
+     * Session created from the shared KieBase compiled for this resource
+     * Caller is responsible for disposing the session
+     */
     public KieSession getKieSession(Resource dt) {
-        KieFileSystem kieFileSystem = kieServices.newKieFileSystem()
-            .write(dt);
-
-       KieBuilder kieBuilder = kieServices.newKieBuilder(kieFileSystem)
-            .buildAll();
-
-        KieRepository kieRepository = kieServices.getRepository();
-
-        ReleaseId krDefaultReleaseId = kieRepository.getDefaultReleaseId();
-
-        KieContainer kieContainer = kieServices.newKieContainer(krDefaultReleaseId);
-
-        KieSession ksession = kieContainer.newKieSession();
+        return ruleRegistry.getKieBase(dt).newKieSession();
+    }
 
-        return ksession;
+    /**
+     * Cheap stateless session created from the shared KieBase compiled for this resource
+     */
+    public StatelessKieSession getStatelessKieSession(Resource dt) {
+        return ruleRegistry.getKieBase(dt).newStatelessKieSession();
     }
 
     /*
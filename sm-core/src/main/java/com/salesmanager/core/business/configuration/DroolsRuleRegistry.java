@@ -0,0 +1,150 @@
+package com.salesmanager.core.business.configuration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.IOUtils;
+import org.kie.api.KieBase;
+import org.kie.api.io.Resource;
+import org.kie.api.io.ResourceType;
+import org.kie.internal.io.ResourceFactory;
+import org.kie.internal.utils.KieHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds one compiled KieBase per rule resource (drl or decision table).
+ * A resource is compiled on first use, sessions are then created from the
+ * shared KieBase. The resource content is checked at most once per check
+ * interval and the KieBase is rebuilt only when its checksum changes.
+ */
+public class DroolsRuleRegistry {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DroolsRuleRegistry.class);
+
+	private final ConcurrentMap<String, CompiledRules> rules = new ConcurrentHashMap<String, CompiledRules>();
+
+	private final long checkInterval;
+
+	/**
+	 * @param checkInterval
+	 *            milliseconds between two checksum verifications of a resource,
+	 *            a negative value disables reloading
+	 */
+	public DroolsRuleRegistry(long checkInterval) {
+		this.checkInterval = checkInterval;
+	}
+
+	public KieBase getKieBase(Resource resource) {
+
+		String key = resource.getSourcePath();
+		if (key == null) {
+			throw new IllegalArgumentException("Rule resource requires a source path");
+		}
+
+		CompiledRules compiled = rules.get(key);
+		if (compiled != null && !expired(compiled)) {
+			return compiled.kieBase;
+		}
+
+		return rules.compute(key, (path, current) -> load(path, resource, current)).kieBase;
+
+	}
+
+	/**
+	 * Removes every compiled KieBase, next calls will compile the resources
+	 * again
+	 */
+	public void clear() {
+		rules.clear();
+	}
+
+	private boolean expired(CompiledRules compiled) {
+		return checkInterval >= 0 && System.currentTimeMillis() - compiled.checked > checkInterval;
+	}
+
+	private CompiledRules load(String path, Resource resource, CompiledRules current) {
+
+		if (current != null && !expired(current)) {
+			// refreshed by another thread
+			return current;
+		}
+
+		byte[] content;
+		try {
+			content = read(resource);
+		} catch (IOException e) {
+			if (current != null) {
+				LOGGER.error("Cannot read rule resource " + path + ", keeping compiled rules", e);
+				current.checked = System.currentTimeMillis();
+				return current;
+			}
+			throw new IllegalStateException("Cannot read rule resource " + path, e);
+		}
+
+		long checksum = checksum(content);
+		if (current != null && current.checksum == checksum) {
+			current.checked = System.currentTimeMillis();
+			return current;
+		}
+
+		try {
+			KieBase kieBase = compile(path, content);
+			LOGGER.info("Compiled rule resource " + path);
+			return new CompiledRules(kieBase, checksum);
+		} catch (IllegalStateException e) {
+			if (current != null) {
+				LOGGER.error("Cannot compile rule resource " + path + ", keeping compiled rules", e);
+				current.checked = System.currentTimeMillis();
+				return current;
+			}
+			throw e;
+		}
+
+	}
+
+	private KieBase compile(String path, byte[] content) {
+
+		ResourceType type = ResourceType.determineResourceType(path);
+		if (type == null) {
+			throw new IllegalStateException("Unsupported rule resource type " + path);
+		}
+
+		KieHelper helper = new KieHelper();
+		helper.addResource(ResourceFactory.newByteArrayResource(content).setSourcePath(path), type);
+
+		try {
+			return helper.build();
+		} catch (RuntimeException e) {
+			throw new IllegalStateException("Errors while compiling rule resource " + path, e);
+		}
+	}
+
+	private byte[] read(Resource resource) throws IOException {
+		try (InputStream in = resource.getInputStream()) {
+			return IOUtils.toByteArray(in);
+		}
+	}
+
+	private long checksum(byte[] content) {
+		CRC32 crc = new CRC32();
+		crc.update(content);
+		return crc.getValue();
+	}
+
+	private static class CompiledRules {
+
+		private final KieBase kieBase;
+		private final long checksum;
+		private volatile long checked = System.currentTimeMillis();
+
+		CompiledRules(KieBase kieBase, long checksum) {
+			this.kieBase = kieBase;
+			this.checksum = checksum;
+		}
+	}
+
+}
@@ -0,0 +1,36 @@
+package com.salesmanager.core.business.configuration;
+
+import javax.inject.Inject;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.salesmanager.core.business.modules.executor.ManagedExecutor;
+import com.salesmanager.core.business.modules.executor.ManagedExecutors;
+
+/**
+ * Named executors of the core as beans, @Async("indexingExecutor") selects
+ * one. Executors are drained by ManagedExecutors, not by the bean factory.
+ */
+@Configuration
+public class ExecutorsConfiguration {
+
+	@Inject
+	private ManagedExecutors executors;
+
+	@Bean(destroyMethod = "")
+	public ManagedExecutor indexingExecutor() {
+		return executors.get(ManagedExecutors.INDEXING);
+	}
+
+	@Bean(destroyMethod = "")
+	public ManagedExecutor emailExecutor() {
+		return executors.get(ManagedExecutors.EMAIL);
+	}
+
+	@Bean(destroyMethod = "")
+	public ManagedExecutor eventsExecutor() {
+		return executors.get(ManagedExecutors.EVENTS);
+	}
+
+}
@@ -0,0 +1,12 @@
+package com.salesmanager.core.business.modules.cache;
+
+/**
+ * Computes the value of a cache entry on a miss or a refresh,
+ * a null value is returned to the callers and not cached
+ */
+@FunctionalInterface
+public interface CacheLoader<T> {
+
+	T load() throws Exception;
+
+}
@@ -0,0 +1,138 @@
+package com.salesmanager.core.business.modules.cache;
+
+import java.io.Serializable;
+
+/**
+ * Counters of the object cache since the application started
+ */
+public class CacheStatistics implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private long localHits;
+	private long sharedHits;
+	private long misses;
+	private long puts;
+	private long evictions;
+	private long remoteInvalidations;
+	private long localSize;
+	private int stores;
+	private long loads;
+	private long coalesced;
+	private long refreshes;
+	private long refreshFailures;
+	private long refreshesDropped;
+
+	public long getLocalHits() {
+		return localHits;
+	}
+
+	public void setLocalHits(long localHits) {
+		this.localHits = localHits;
+	}
+
+	public long getSharedHits() {
+		return sharedHits;
+	}
+
+	public void setSharedHits(long sharedHits) {
+		this.sharedHits = sharedHits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public void setMisses(long misses) {
+		this.misses = misses;
+	}
+
+	public long getPuts() {
+		return puts;
+	}
+
+	public void setPuts(long puts) {
+		this.puts = puts;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public void setEvictions(long evictions) {
+		this.evictions = evictions;
+	}
+
+	public long getRemoteInvalidations() {
+		return remoteInvalidations;
+	}
+
+	public void setRemoteInvalidations(long remoteInvalidations) {
+		this.remoteInvalidations = remoteInvalidations;
+	}
+
+	public long getLocalSize() {
+		return localSize;
+	}
+
+	public void setLocalSize(long localSize) {
+		this.localSize = localSize;
+	}
+
+	public int getStores() {
+		return stores;
+	}
+
+	public void setStores(int stores) {
+		this.stores = stores;
+	}
+
+	public long getLoads() {
+		return loads;
+	}
+
+	public void setLoads(long loads) {
+		this.loads = loads;
+	}
+
+	/**
+	 * Misses served by a load started by another caller
+	 */
+	public long getCoalesced() {
+		return coalesced;
+	}
+
+	public void setCoalesced(long coalesced) {
+		this.coalesced = coalesced;
+	}
+
+	public long getRefreshes() {
+		return refreshes;
+	}
+
+	public void setRefreshes(long refreshes) {
+		this.refreshes = refreshes;
+	}
+
+	public long getRefreshFailures() {
+		return refreshFailures;
+	}
+
+	public void setRefreshFailures(long refreshFailures) {
+		this.refreshFailures = refreshFailures;
+	}
+
+	public long getRefreshesDropped() {
+		return refreshesDropped;
+	}
+
+	public void setRefreshesDropped(long refreshesDropped) {
+		this.refreshesDropped = refreshesDropped;
+	}
+
+	public double getHitRatio() {
+		long requests = localHits + sharedHits + misses;
+		return requests == 0 ? 0 : (double) (localHits + sharedHits) / requests;
+	}
+
+}
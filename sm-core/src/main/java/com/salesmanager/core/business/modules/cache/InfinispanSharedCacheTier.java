@@ -0,0 +1,194 @@
+package com.salesmanager.core.business.modules.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.context.Flag;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryModified;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryRemoved;
+import org.infinispan.notifications.cachelistener.event.CacheEntryEvent;
+import org.infinispan.notifications.cachelistener.event.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replicated Infinispan cache joined by every node of the cluster
+ * (JGroups configuration in jgroupsConfiguration).
+ *
+ * Values that cannot be serialized stay in the local tier of the node that
+ * loaded them, for those keys only an invalidation message is replicated.
+ */
+public class InfinispanSharedCacheTier implements SharedCacheTier {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(InfinispanSharedCacheTier.class);
+
+	private static final String OBJECT_CACHE = "com.shopizer.SHARED_OBJECT_CACHE";
+	private static final String INVALIDATION_CACHE = "com.shopizer.SHARED_INVALIDATION";
+
+	private static final String KEY_MESSAGE = "k:";
+	private static final String PREFIX_MESSAGE = "p:";
+
+	/** invalidation messages only need to reach the nodes once **/
+	private static final long INVALIDATION_LIFESPAN = 60;
+
+	private String clusterName = "shopizer";
+	private String jgroupsConfiguration = "default-configs/default-jgroups-tcp.xml";
+	private long maxEntries = 10000;
+	private long defaultTtl = 1200;
+
+	private EmbeddedCacheManager manager;
+	private Cache<String, Object> objects;
+	private Cache<String, Long> invalidations;
+
+	private volatile InvalidationListener listener;
+
+	@PostConstruct
+	public void start() {
+
+		GlobalConfigurationBuilder global = GlobalConfigurationBuilder.defaultClusteredBuilder();
+		global.transport().clusterName(clusterName).addProperty("configurationFile", jgroupsConfiguration);
+		global.defaultCacheName(OBJECT_CACHE);
+
+		ConfigurationBuilder objectConfiguration = new ConfigurationBuilder();
+		objectConfiguration.clustering().cacheMode(CacheMode.REPL_ASYNC)
+			.memory().size(maxEntries)
+			.expiration().lifespan(defaultTtl, TimeUnit.SECONDS);
+
+		ConfigurationBuilder invalidationConfiguration = new ConfigurationBuilder();
+		invalidationConfiguration.clustering().cacheMode(CacheMode.REPL_ASYNC)
+			.expiration().lifespan(INVALIDATION_LIFESPAN, TimeUnit.SECONDS);
+
+		manager = new DefaultCacheManager(global.build(), objectConfiguration.build());
+		manager.defineConfiguration(INVALIDATION_CACHE, invalidationConfiguration.build());
+
+		objects = manager.getCache(OBJECT_CACHE);
+		invalidations = manager.getCache(INVALIDATION_CACHE);
+
+		RemoteChanges remoteChanges = new RemoteChanges();
+		objects.addListener(remoteChanges);
+		invalidations.addListener(remoteChanges);
+
+		LOGGER.info("Shared cache joined cluster " + clusterName + " members " + manager.getMembers());
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (manager != null) {
+			manager.stop();
+		}
+	}
+
+	@Override
+	public Object get(String key) {
+		return objects.get(key);
+	}
+
+	@Override
+	public void put(String key, Object value, int ttlSeconds) {
+
+		if (value instanceof Serializable) {
+			try {
+				if (ttlSeconds > 0) {
+					objects.put(key, value, ttlSeconds, TimeUnit.SECONDS);
+				} else {
+					objects.put(key, value);
+				}
+				return;
+			} catch (Exception e) {
+				LOGGER.debug("Cannot replicate cache entry " + key + ", " + e.getMessage());
+			}
+		}
+		//not shared, other nodes must drop their own copy
+		objects.remove(key);
+		invalidations.put(KEY_MESSAGE + key, System.currentTimeMillis());
+	}
+
+	@Override
+	public void evict(String key) {
+		objects.remove(key);
+		invalidations.put(KEY_MESSAGE + key, System.currentTimeMillis());
+	}
+
+	@Override
+	public void evictByPrefix(String prefix) {
+		//replicated, every node holds all the keys
+		List<String> keys = new ArrayList<String>();
+		for (String key : objects.getAdvancedCache().withFlags(Flag.CACHE_MODE_LOCAL).keySet()) {
+			if (key.startsWith(prefix)) {
+				keys.add(key);
+			}
+		}
+		for (String key : keys) {
+			objects.remove(key);
+		}
+		invalidations.put(PREFIX_MESSAGE + prefix, System.currentTimeMillis());
+	}
+
+	@Override
+	public void setInvalidationListener(InvalidationListener listener) {
+		this.listener = listener;
+	}
+
+	public void setClusterName(String clusterName) {
+		this.clusterName = clusterName;
+	}
+
+	public void setJgroupsConfiguration(String jgroupsConfiguration) {
+		this.jgroupsConfiguration = jgroupsConfiguration;
+	}
+
+	public void setMaxEntries(long maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	public void setDefaultTtl(long defaultTtl) {
+		this.defaultTtl = defaultTtl;
+	}
+
+	/**
+	 * Entries written or removed by another node
+	 */
+	@Listener
+	public class RemoteChanges {
+
+		@CacheEntryCreated
+		@CacheEntryModified
+		@CacheEntryRemoved
+		public void changed(CacheEntryEvent<String, ?> event) {
+
+			InvalidationListener l = listener;
+			if (event.isPre() || event.isOriginLocal() || l == null) {
+				return;
+			}
+
+			String key = event.getKey();
+			if (INVALIDATION_CACHE.equals(event.getCache().getName())) {
+				if (event.getType() == Event.Type.CACHE_ENTRY_REMOVED) {
+					return;
+				}
+				if (key.startsWith(PREFIX_MESSAGE)) {
+					l.invalidatePrefix(key.substring(PREFIX_MESSAGE.length()));
+				} else if (key.startsWith(KEY_MESSAGE)) {
+					l.invalidate(key.substring(KEY_MESSAGE.length()));
+				}
+			} else {
+				l.invalidate(key);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,29 @@
+package com.salesmanager.core.business.modules.cache;
+
+/**
+ * Single node deployment, the local object cache is the only tier
+ */
+public class NoSharedCacheTier implements SharedCacheTier {
+
+	@Override
+	public Object get(String key) {
+		return null;
+	}
+
+	@Override
+	public void put(String key, Object value, int ttlSeconds) {
+	}
+
+	@Override
+	public void evict(String key) {
+	}
+
+	@Override
+	public void evictByPrefix(String prefix) {
+	}
+
+	@Override
+	public void setInvalidationListener(InvalidationListener listener) {
+	}
+
+}
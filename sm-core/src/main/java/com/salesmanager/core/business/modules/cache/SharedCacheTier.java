@@ -0,0 +1,41 @@
+package com.salesmanager.core.business.modules.cache;
+
+/**
+ * Cache shared by all the nodes of a cluster, second level behind the
+ * local object cache of CacheUtils. Implementations notify the other nodes
+ * when a key is replaced or evicted so that they drop their local copy.
+ * Selected with config.cache.shared [ none | infinispan ]
+ */
+public interface SharedCacheTier {
+
+	/**
+	 * @return null when the key is not in the shared cache
+	 */
+	Object get(String key);
+
+	/**
+	 * @param ttlSeconds time to live, 0 uses the tier default
+	 */
+	void put(String key, Object value, int ttlSeconds);
+
+	void evict(String key);
+
+	/**
+	 * Evicts every key starting with prefix
+	 */
+	void evictByPrefix(String prefix);
+
+	/**
+	 * Receives invalidations published by the other nodes
+	 */
+	void setInvalidationListener(InvalidationListener listener);
+
+	interface InvalidationListener {
+
+		void invalidate(String key);
+
+		void invalidatePrefix(String prefix);
+
+	}
+
+}
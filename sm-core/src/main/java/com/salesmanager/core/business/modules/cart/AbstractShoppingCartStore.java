@@ -0,0 +1,123 @@
+package com.salesmanager.core.business.modules.cart;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.salesmanager.core.model.shoppingcart.ShoppingCart;
+import com.salesmanager.core.model.shoppingcart.ShoppingCartAttributeItem;
+import com.salesmanager.core.model.shoppingcart.ShoppingCartItem;
+
+/**
+ * Id assignment and serialization shared by the stores, implementations
+ * only keep the encoded carts by code and the code of each cart id.
+ */
+public abstract class AbstractShoppingCartStore implements ShoppingCartStore {
+
+	/** item id = cart id * ITEMS_PER_CART - item number **/
+	public static final long ITEMS_PER_CART = 1000;
+
+	// seeded from the clock so ids of a persistent store are not reused after a restart
+	private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() * 100);
+
+	protected long ttl = 60L * 24 * 3600;
+	protected long maxEntries = 100000;
+
+	/**
+	 * @return the id of the cart holding this item id
+	 */
+	public static Long cartId(Long itemId) {
+		return -((-itemId) / ITEMS_PER_CART);
+	}
+
+	protected abstract byte[] read(String code);
+
+	protected abstract String codeOf(Long id);
+
+	protected abstract void write(String code, Long id, byte[] value);
+
+	protected abstract void delete(String code, Long id);
+
+	@Override
+	public boolean isEnabled() {
+		return true;
+	}
+
+	@Override
+	public ShoppingCart get(String code) {
+		byte[] value = read(code);
+		return value == null ? null : ShoppingCartCodec.decode(value);
+	}
+
+	@Override
+	public ShoppingCart get(Long id) {
+		String code = codeOf(id);
+		return code == null ? null : get(code);
+	}
+
+	@Override
+	public void put(ShoppingCart cart) {
+
+		Date now = new Date();
+		if (cart.getId() == null || cart.getId().longValue() == 0) {
+			cart.setId(-sequence.incrementAndGet());
+			cart.getAuditSection().setDateCreated(now);
+		}
+		cart.getAuditSection().setDateModified(now);
+
+		Set<ShoppingCartItem> items = cart.getLineItems() == null ? new HashSet<ShoppingCartItem>() : cart.getLineItems();
+		long lastItem = 0;
+		for (ShoppingCartItem item : items) {
+			if (isItemOf(item, cart)) {
+				lastItem = Math.max(lastItem, -item.getId() - (-cart.getId()) * ITEMS_PER_CART);
+			}
+		}
+		for (ShoppingCartItem item : items) {
+			item.setShoppingCart(cart);
+			if (!isItemOf(item, cart)) {
+				if (++lastItem >= ITEMS_PER_CART) {
+					throw new IllegalStateException("Shopping cart " + cart.getShoppingCartCode() + " has too many items");
+				}
+				item.setId(cart.getId() * ITEMS_PER_CART - lastItem);
+			}
+			if (item.getAttributes() != null) {
+				long lastAttribute = 0;
+				for (ShoppingCartAttributeItem attribute : item.getAttributes()) {
+					if (attribute.getId() != null && attribute.getId() < 0) {
+						lastAttribute = Math.max(lastAttribute, -attribute.getId());
+					}
+				}
+				for (ShoppingCartAttributeItem attribute : item.getAttributes()) {
+					attribute.setShoppingCartItem(item);
+					if (attribute.getId() == null || attribute.getId() >= 0) {
+						attribute.setId(-(++lastAttribute));
+					}
+				}
+				// hash codes depend on the ids
+				item.setAttributes(new HashSet<ShoppingCartAttributeItem>(item.getAttributes()));
+			}
+		}
+		cart.setLineItems(new HashSet<ShoppingCartItem>(items));
+
+		write(cart.getShoppingCartCode(), cart.getId(), ShoppingCartCodec.encode(cart));
+	}
+
+	private boolean isItemOf(ShoppingCartItem item, ShoppingCart cart) {
+		return item.getId() != null && item.getId() < 0 && cartId(item.getId()).equals(cart.getId());
+	}
+
+	@Override
+	public void remove(ShoppingCart cart) {
+		delete(cart.getShoppingCartCode(), cart.getId());
+	}
+
+	public void setTtl(long ttl) {
+		this.ttl = ttl;
+	}
+
+	public void setMaxEntries(long maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+}
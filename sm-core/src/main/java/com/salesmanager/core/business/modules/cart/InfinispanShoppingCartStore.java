@@ -0,0 +1,92 @@
+package com.salesmanager.core.business.modules.cart;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.salesmanager.core.business.modules.cms.impl.VendorCacheManager;
+
+/**
+ * Carts persisted in an embedded Infinispan file store, they survive a
+ * restart of the node. At most maxEntries carts are held in memory, the
+ * others are read from the file.
+ *
+ * Carts expire ttl seconds after their last modification.
+ */
+public class InfinispanShoppingCartStore extends AbstractShoppingCartStore {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(InfinispanShoppingCartStore.class);
+
+	private static final String NAMED_CACHE = "com.shopizer.SHOPPING_CART_STORE";
+
+	private static final String CODE_KEY = "c:";
+	private static final String ID_KEY = "i:";
+
+	private String location = "./files/carts";
+
+	private Cache<String, Object> cache;
+
+	@PostConstruct
+	public void start() {
+
+		Configuration configuration = new ConfigurationBuilder()
+				.memory().size(maxEntries)
+				.expiration().lifespan(ttl, TimeUnit.SECONDS)
+				.persistence().passivation(false)
+				.addSingleFileStore()
+				.segmented(false)
+				.location(location)
+				.preload(false).shared(false)
+				.build();
+
+		VendorCacheManager.getInstance().getManager().defineConfiguration(NAMED_CACHE, configuration);
+		cache = VendorCacheManager.getInstance().getManager().getCache(NAMED_CACHE);
+		LOGGER.info("Shopping cart store started in " + location);
+	}
+
+	@Override
+	protected byte[] read(String code) {
+		return (byte[]) cache.get(CODE_KEY + code);
+	}
+
+	@Override
+	protected String codeOf(Long id) {
+		return (String) cache.get(ID_KEY + id);
+	}
+
+	@Override
+	protected void write(String code, Long id, byte[] value) {
+		cache.put(CODE_KEY + code, value);
+		cache.put(ID_KEY + id, code);
+	}
+
+	@Override
+	protected void delete(String code, Long id) {
+		cache.remove(CODE_KEY + code);
+		cache.remove(ID_KEY + id);
+	}
+
+	@Override
+	public int sweep() {
+		long before = size();
+		cache.getAdvancedCache().getExpirationManager().processExpiration();
+		return (int) Math.max(0, before - size());
+	}
+
+	@Override
+	public long size() {
+		// a code and an id entry per cart
+		return cache.size() / 2;
+	}
+
+	public void setLocation(String location) {
+		this.location = location;
+	}
+
+}
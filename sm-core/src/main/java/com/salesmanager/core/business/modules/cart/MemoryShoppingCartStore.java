@@ -0,0 +1,109 @@
+package com.salesmanager.core.business.modules.cart;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Carts kept in the memory of the node, lost on restart. Requires sticky
+ * sessions when several nodes serve the shop.
+ *
+ * The least recently used carts are dropped above maxEntries, carts not
+ * used during ttl seconds expire.
+ */
+public class MemoryShoppingCartStore extends AbstractShoppingCartStore {
+
+	private static class Entry {
+		final Long id;
+		final byte[] value;
+		volatile long lastAccess = System.currentTimeMillis();
+
+		Entry(Long id, byte[] value) {
+			this.id = id;
+			this.value = value;
+		}
+	}
+
+	private final Map<Long, String> codes = new HashMap<Long, String>();
+
+	// access ordered, the eldest entry is the least recently used
+	private final LinkedHashMap<String, Entry> carts = new LinkedHashMap<String, Entry>(1024, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			if (size() > maxEntries) {
+				codes.remove(eldest.getValue().id);
+				return true;
+			}
+			return false;
+		}
+	};
+
+	@Override
+	protected synchronized byte[] read(String code) {
+		Entry entry = carts.get(code);
+		if (entry == null) {
+			return null;
+		}
+		long now = System.currentTimeMillis();
+		if (expired(entry, now)) {
+			carts.remove(code);
+			codes.remove(entry.id);
+			return null;
+		}
+		entry.lastAccess = now;
+		return entry.value;
+	}
+
+	@Override
+	protected synchronized String codeOf(Long id) {
+		return codes.get(id);
+	}
+
+	@Override
+	protected synchronized void write(String code, Long id, byte[] value) {
+		Entry previous = carts.put(code, new Entry(id, value));
+		if (previous != null && !previous.id.equals(id)) {
+			codes.remove(previous.id);
+		}
+		codes.put(id, code);
+	}
+
+	@Override
+	protected synchronized void delete(String code, Long id) {
+		Entry entry = carts.remove(code);
+		if (entry != null) {
+			codes.remove(entry.id);
+		}
+	}
+
+	@Override
+	public synchronized int sweep() {
+		long now = System.currentTimeMillis();
+		int removed = 0;
+		Iterator<Entry> iterator = carts.values().iterator();
+		while (iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if (!expired(entry, now)) {
+				// the next ones were used more recently
+				break;
+			}
+			iterator.remove();
+			codes.remove(entry.id);
+			removed++;
+		}
+		return removed;
+	}
+
+	@Override
+	public synchronized long size() {
+		return carts.size();
+	}
+
+	private boolean expired(Entry entry, long now) {
+		return now - entry.lastAccess > ttl * 1000L;
+	}
+
+}
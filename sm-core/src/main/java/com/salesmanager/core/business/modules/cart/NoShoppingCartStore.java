@@ -0,0 +1,44 @@
+package com.salesmanager.core.business.modules.cart;
+
+import com.salesmanager.core.model.shoppingcart.ShoppingCart;
+
+/**
+ * Anonymous carts are saved in the database like customer carts
+ */
+public class NoShoppingCartStore implements ShoppingCartStore {
+
+	@Override
+	public boolean isEnabled() {
+		return false;
+	}
+
+	@Override
+	public ShoppingCart get(String code) {
+		return null;
+	}
+
+	@Override
+	public ShoppingCart get(Long id) {
+		return null;
+	}
+
+	@Override
+	public void put(ShoppingCart cart) {
+		throw new UnsupportedOperationException("Shopping cart store is not enabled");
+	}
+
+	@Override
+	public void remove(ShoppingCart cart) {
+	}
+
+	@Override
+	public int sweep() {
+		return 0;
+	}
+
+	@Override
+	public long size() {
+		return 0;
+	}
+
+}
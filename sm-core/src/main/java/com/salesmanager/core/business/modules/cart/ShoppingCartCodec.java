@@ -0,0 +1,144 @@
+package com.salesmanager.core.business.modules.cart;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.salesmanager.core.model.common.audit.AuditSection;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.shoppingcart.ShoppingCart;
+import com.salesmanager.core.model.shoppingcart.ShoppingCartAttributeItem;
+import com.salesmanager.core.model.shoppingcart.ShoppingCartItem;
+
+/**
+ * Compact binary form of a shopping cart: ids, codes and quantities only,
+ * products and prices are loaded again when the cart is read. A cart with a
+ * few items takes around 100 bytes.
+ */
+public final class ShoppingCartCodec {
+
+	private static final byte FORMAT = 1;
+
+	private ShoppingCartCodec() {
+	}
+
+	public static byte[] encode(ShoppingCart cart) {
+
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+			DataOutputStream out = new DataOutputStream(bytes);
+
+			out.writeByte(FORMAT);
+			out.writeLong(cart.getId());
+			out.writeUTF(cart.getShoppingCartCode());
+			out.writeInt(cart.getMerchantStore().getId());
+			writeString(out, cart.getIpAddress());
+			writeString(out, cart.getPromoCode());
+			writeDate(out, cart.getPromoAdded());
+			writeDate(out, cart.getAuditSection().getDateCreated());
+			writeDate(out, cart.getAuditSection().getDateModified());
+
+			Set<ShoppingCartItem> items = cart.getLineItems();
+			out.writeShort(items == null ? 0 : items.size());
+			if (items != null) {
+				for (ShoppingCartItem item : items) {
+					out.writeLong(item.getId());
+					out.writeLong(item.getProductId());
+					out.writeInt(item.getQuantity() == null ? 1 : item.getQuantity());
+					Set<ShoppingCartAttributeItem> attributes = item.getAttributes();
+					out.writeShort(attributes == null ? 0 : attributes.size());
+					if (attributes != null) {
+						for (ShoppingCartAttributeItem attribute : attributes) {
+							out.writeLong(attribute.getId());
+							out.writeLong(attribute.getProductAttributeId());
+						}
+					}
+				}
+			}
+			out.flush();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot encode shopping cart " + cart.getShoppingCartCode(), e);
+		}
+	}
+
+	/**
+	 * @return the cart, its merchant store only has an id
+	 */
+	public static ShoppingCart decode(byte[] value) {
+
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(value));
+
+			byte format = in.readByte();
+			if (format != FORMAT) {
+				throw new IllegalStateException("Unknown shopping cart format " + format);
+			}
+
+			ShoppingCart cart = new ShoppingCart();
+			cart.setId(in.readLong());
+			cart.setShoppingCartCode(in.readUTF());
+			MerchantStore store = new MerchantStore();
+			store.setId(in.readInt());
+			cart.setMerchantStore(store);
+			cart.setIpAddress(readString(in));
+			cart.setPromoCode(readString(in));
+			cart.setPromoAdded(readDate(in));
+			AuditSection audit = new AuditSection();
+			audit.setDateCreated(readDate(in));
+			audit.setDateModified(readDate(in));
+			cart.setAuditSection(audit);
+
+			int itemCount = in.readShort();
+			Set<ShoppingCartItem> items = new HashSet<ShoppingCartItem>();
+			for (int i = 0; i < itemCount; i++) {
+				ShoppingCartItem item = new ShoppingCartItem();
+				item.setShoppingCart(cart);
+				item.setId(in.readLong());
+				item.setProductId(in.readLong());
+				item.setQuantity(in.readInt());
+				int attributeCount = in.readShort();
+				Set<ShoppingCartAttributeItem> attributes = new HashSet<ShoppingCartAttributeItem>();
+				for (int j = 0; j < attributeCount; j++) {
+					ShoppingCartAttributeItem attribute = new ShoppingCartAttributeItem();
+					attribute.setShoppingCartItem(item);
+					attribute.setId(in.readLong());
+					attribute.setProductAttributeId(in.readLong());
+					attributes.add(attribute);
+				}
+				item.setAttributes(attributes);
+				items.add(item);
+			}
+			cart.setLineItems(items);
+			return cart;
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot decode shopping cart", e);
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static void writeDate(DataOutputStream out, Date value) throws IOException {
+		out.writeLong(value == null ? Long.MIN_VALUE : value.getTime());
+	}
+
+	private static Date readDate(DataInputStream in) throws IOException {
+		long time = in.readLong();
+		return time == Long.MIN_VALUE ? null : new Date(time);
+	}
+
+}
@@ -0,0 +1,47 @@
+package com.salesmanager.core.business.modules.cart;
+
+import com.salesmanager.core.model.shoppingcart.ShoppingCart;
+
+/**
+ * Key value storage of anonymous shopping carts. Carts of visitors are kept
+ * here until a customer is attached to them (login, registration), they are
+ * then saved in the database by ShoppingCartService.
+ *
+ * Stored carts, items and attributes get negative ids so they are never
+ * mistaken for database rows. The id of an item contains the id of its cart.
+ *
+ * Carts not used during the configured time to live expire.
+ */
+public interface ShoppingCartStore {
+
+	/**
+	 * @return false when anonymous carts are kept in the database
+	 */
+	boolean isEnabled();
+
+	/**
+	 * @return a detached cart without products nor merchant store, null if not found or expired
+	 */
+	ShoppingCart get(String code);
+
+	ShoppingCart get(Long id);
+
+	/**
+	 * Saves the cart, ids are assigned to new carts, items and attributes
+	 */
+	void put(ShoppingCart cart);
+
+	void remove(ShoppingCart cart);
+
+	/**
+	 * Removes expired carts
+	 * @return number of carts removed
+	 */
+	int sweep();
+
+	/**
+	 * @return number of carts stored
+	 */
+	long size();
+
+}
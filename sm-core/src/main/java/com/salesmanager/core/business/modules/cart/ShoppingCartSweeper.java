@@ -0,0 +1,36 @@
+package com.salesmanager.core.business.modules.cart;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.services.shoppingcart.ShoppingCartService;
+
+/**
+ * Removes abandoned anonymous carts and obsolete carts in the background,
+ * carts are not removed when they are read
+ */
+@Component
+public class ShoppingCartSweeper {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ShoppingCartSweeper.class);
+
+	@Inject
+	private ShoppingCartService shoppingCartService;
+
+	@Scheduled(initialDelayString = "${config.cart.store.sweepInterval:60000}", fixedDelayString = "${config.cart.store.sweepInterval:60000}")
+	public void sweep() {
+		try {
+			int removed = shoppingCartService.removeExpiredCarts();
+			if (removed > 0) {
+				LOGGER.debug("Removed " + removed + " expired shopping carts");
+			}
+		} catch (Exception e) {
+			LOGGER.error("Cannot remove expired shopping carts", e);
+		}
+	}
+
+}
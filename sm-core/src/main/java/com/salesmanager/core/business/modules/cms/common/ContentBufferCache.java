@@ -0,0 +1,154 @@
+package com.salesmanager.core.business.modules.cms.common;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Least recently used small contents (thumbnails, logos) held in direct
+ * buffers, outside of the heap. Only contents held in memory by the CMS
+ * backend are cached, files of the local backend are served from disk.
+ *
+ * Disabled when config.cms.buffer.maxSize is 0. Entries expire after
+ * timeToLive seconds so that changes made on another node are seen.
+ */
+@Component
+public class ContentBufferCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ContentBufferCache.class);
+
+	/** total bytes held, 0 disables the cache **/
+	@Value("${config.cms.buffer.maxSize:0}")
+	private long maxSize = 0;
+
+	@Value("${config.cms.buffer.maxEntrySize:65536}")
+	private long maxEntrySize = 65536;
+
+	@Value("${config.cms.buffer.timeToLive:300}")
+	private int timeToLive = 300;
+
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(64, 0.75f, true);
+	private long size = 0;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public boolean isEnabled() {
+		return maxSize > 0;
+	}
+
+	/**
+	 * @return null when the key is not cached or expired
+	 */
+	public ContentResource get(String key) {
+		if (!isEnabled()) {
+			return null;
+		}
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry != null && entry.expires > System.currentTimeMillis()) {
+				hits.incrementAndGet();
+				return entry.resource;
+			}
+			if (entry != null) {
+				remove(key);
+			}
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Copies the content to a direct buffer when it is small enough
+	 */
+	public void put(String key, ContentResource resource) {
+		if (!isEnabled() || resource == null || resource.getPath() != null || resource.getLength() > maxEntrySize) {
+			return;
+		}
+		ContentResource direct;
+		try {
+			direct = resource.isDirect() ? resource : resource.toDirect();
+		} catch (Exception e) {
+			LOGGER.warn("Cannot buffer content " + key, e);
+			return;
+		}
+		synchronized (this) {
+			remove(key);
+			entries.put(key, new Entry(direct, System.currentTimeMillis() + timeToLive * 1000L));
+			size += direct.getLength();
+			Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+			while (size > maxSize && eldest.hasNext()) {
+				size -= eldest.next().getValue().resource.getLength();
+				eldest.remove();
+			}
+		}
+	}
+
+	public synchronized void evict(String key) {
+		remove(key);
+	}
+
+	public synchronized void evictByPrefix(String prefix) {
+		Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<String, Entry> entry = iterator.next();
+			if (entry.getKey().startsWith(prefix)) {
+				size -= entry.getValue().resource.getLength();
+				iterator.remove();
+			}
+		}
+	}
+
+	public synchronized long getSize() {
+		return size;
+	}
+
+	public synchronized int getEntries() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	private void remove(String key) {
+		Entry entry = entries.remove(key);
+		if (entry != null) {
+			size -= entry.resource.getLength();
+		}
+	}
+
+	public void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public void setMaxEntrySize(long maxEntrySize) {
+		this.maxEntrySize = maxEntrySize;
+	}
+
+	public void setTimeToLive(int timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+	private static class Entry {
+
+		private final ContentResource resource;
+		private final long expires;
+
+		Entry(ContentResource resource, long expires) {
+			this.resource = resource;
+			this.expires = expires;
+		}
+	}
+
+}
@@ -0,0 +1,168 @@
+package com.salesmanager.core.business.modules.cms.common;
+
+import java.io.IOException;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.springframework.util.DigestUtils;
+
+import com.salesmanager.core.model.content.OutputContentFile;
+
+/**
+ * Content served by the CMS without being copied to a byte array. The
+ * content is either a file (local backend) or a read only buffer over the
+ * bytes held by the backend, it is written to a channel by region.
+ *
+ * The etag changes when the content changes, it is a digest of the bytes
+ * for buffers and of path, size and modification time for files.
+ */
+public class ContentResource {
+
+	private final String fileName;
+	private final String mimeType;
+	private final long length;
+	private final long lastModified;
+	private final String etag;
+	private final Path path;
+	private final ByteBuffer buffer;
+
+	private ContentResource(String fileName, String mimeType, long length, long lastModified, String etag, Path path, ByteBuffer buffer) {
+		this.fileName = fileName;
+		this.mimeType = mimeType;
+		this.length = length;
+		this.lastModified = lastModified;
+		this.etag = etag;
+		this.path = path;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * @return null when the file does not exist
+	 */
+	public static ContentResource fromPath(Path path) throws IOException {
+		if (!Files.isRegularFile(path)) {
+			return null;
+		}
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		String fileName = path.getFileName().toString();
+		long lastModified = attributes.lastModifiedTime().toMillis();
+		String etag = DigestUtils.md5DigestAsHex(
+				(path.toAbsolutePath().toString() + ":" + attributes.size() + ":" + attributes.lastModifiedTime().toString()).getBytes("UTF-8"));
+		return new ContentResource(fileName, mimeType(fileName), attributes.size(), lastModified, etag, path, null);
+	}
+
+	/**
+	 * Wraps the bytes without copying them, they must not be modified afterwards
+	 */
+	public static ContentResource fromBytes(String fileName, byte[] bytes) {
+		if (bytes == null) {
+			return null;
+		}
+		return new ContentResource(fileName, mimeType(fileName), bytes.length, 0, DigestUtils.md5DigestAsHex(bytes),
+				null, ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+	}
+
+	/**
+	 * For backends which only return OutputContentFile
+	 */
+	public static ContentResource fromOutputContentFile(OutputContentFile file) {
+		if (file == null || file.getFile() == null) {
+			return null;
+		}
+		ContentResource resource = fromBytes(file.getFileName(), file.getFile().toByteArray());
+		if (file.getMimeType() != null) {
+			resource = new ContentResource(resource.fileName, file.getMimeType(), resource.length, 0, resource.etag, null, resource.buffer);
+		}
+		return resource;
+	}
+
+	/**
+	 * Copy of this resource in a direct buffer, outside of the heap
+	 */
+	public ContentResource toDirect() throws IOException {
+		ByteBuffer direct = ByteBuffer.allocateDirect((int) length);
+		if (buffer != null) {
+			direct.put(buffer.duplicate());
+		} else {
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				while (direct.hasRemaining() && channel.read(direct) >= 0) {
+				}
+			}
+		}
+		direct.flip();
+		return new ContentResource(fileName, mimeType, length, lastModified, etag, null, direct.asReadOnlyBuffer());
+	}
+
+	/**
+	 * Writes count bytes starting at position, files are transferred by the
+	 * file channel without going through the heap
+	 */
+	public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+		if (path != null) {
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				long written = 0;
+				while (written < count) {
+					long n = channel.transferTo(position + written, count - written, target);
+					if (n <= 0) {
+						break;
+					}
+					written += n;
+				}
+				return written;
+			}
+		}
+		ByteBuffer region = buffer.duplicate();
+		region.position((int) position);
+		region.limit((int) (position + count));
+		long written = 0;
+		while (region.hasRemaining()) {
+			written += target.write(region);
+		}
+		return written;
+	}
+
+	private static String mimeType(String fileName) {
+		return fileName == null ? null : URLConnection.getFileNameMap().getContentTypeFor(fileName);
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public String getMimeType() {
+		return mimeType;
+	}
+
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * @return modification time in milliseconds, 0 when unknown
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	public String getEtag() {
+		return etag;
+	}
+
+	/**
+	 * @return the file, null when the content is in memory
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	public boolean isDirect() {
+		return buffer != null && buffer.isDirect();
+	}
+
+}
@@ -2,6 +2,7 @@ package com.salesmanager.core.business.modules.cms.content;
 
 import java.util.List;
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ContentResource;
 import com.salesmanager.core.model.content.FileContentType;
 import com.salesmanager.core.model.content.OutputContentFile;
 
@@ -22,4 +23,16 @@ public interface FileGet {
 
   public List<OutputContentFile> getFiles(final String merchantStoreCode,
       FileContentType fileContentType) throws ServiceException;
+
+  /**
+   * File content for streaming, backends able to serve the file without
+   * copying it override this method
+   * 
+   * @return null when the file does not exist
+   */
+  public default ContentResource getFileResource(final String merchantStoreCode,
+      FileContentType fileContentType, String contentName) throws ServiceException {
+    return ContentResource
+        .fromOutputContentFile(getFile(merchantStoreCode, fileContentType, contentName));
+  }
 }
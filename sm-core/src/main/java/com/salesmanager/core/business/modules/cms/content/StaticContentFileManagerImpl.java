@@ -5,6 +5,7 @@ package com.salesmanager.core.business.modules.cms.content;
 
 import java.util.List;
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ContentResource;
 import com.salesmanager.core.business.modules.cms.content.infinispan.CmsStaticContentFileManagerImpl;
 import com.salesmanager.core.model.content.FileContentType;
 import com.salesmanager.core.model.content.InputContentFile;
@@ -64,6 +65,12 @@ public class StaticContentFileManagerImpl extends StaticContentFileManager {
     return getFile.getFile(merchantStoreCode, fileContentType, contentName);
   }
 
+  @Override
+  public ContentResource getFileResource(String merchantStoreCode, FileContentType fileContentType,
+      String contentName) throws ServiceException {
+    return getFile.getFileResource(merchantStoreCode, fileContentType, contentName);
+  }
+
   @Override
   public List<String> getFileNames(String merchantStoreCode, FileContentType fileContentType)
       throws ServiceException {
@@ -18,6 +18,7 @@ import org.infinispan.tree.Node;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ContentResource;
 import com.salesmanager.core.business.modules.cms.content.ContentAssetsManager;
 import com.salesmanager.core.business.modules.cms.impl.CMSManager;
 import com.salesmanager.core.business.modules.cms.impl.CacheManager;
@@ -234,6 +235,31 @@ public class CmsStaticContentFileManagerImpl
   }
 
 
+  /**
+   * The file bytes stored in the tree are wrapped, not copied
+   */
+  @Override
+  public ContentResource getFileResource(final String merchantStoreCode,
+      final FileContentType fileContentType, final String contentFileName) throws ServiceException {
+
+    if (cacheManager.getTreeCache() == null) {
+      throw new ServiceException(
+          "CmsStaticContentFileManagerInfinispan has a null cacheManager.getTreeCache()");
+    }
+    try {
+
+      final Node<String, Object> merchantNode =
+          this.getNode(this.getNodePath(merchantStoreCode, fileContentType));
+
+      return ContentResource.fromBytes(contentFileName,
+          (byte[]) merchantNode.get(contentFileName));
+
+    } catch (final Exception e) {
+      LOGGER.error("Error while fetching file for {} merchant ", merchantStoreCode);
+      throw new ServiceException(e);
+    }
+  }
+
   @Override
   public List<OutputContentFile> getFiles(final String merchantStoreCode,
       final FileContentType staticContentType) throws ServiceException {
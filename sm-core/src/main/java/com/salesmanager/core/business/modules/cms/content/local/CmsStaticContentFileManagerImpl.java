@@ -18,6 +18,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.salesmanager.core.business.constants.Constants;
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ContentResource;
 import com.salesmanager.core.business.modules.cms.content.ContentAssetsManager;
 import com.salesmanager.core.business.modules.cms.impl.CMSManager;
 import com.salesmanager.core.business.modules.cms.impl.LocalCacheManagerImpl;
@@ -257,6 +258,31 @@ public class CmsStaticContentFileManagerImpl implements ContentAssetsManager {
   }
 
 
+  /**
+   * The file on disk, transferred by the file channel
+   */
+  @Override
+  public ContentResource getFileResource(final String merchantStoreCode,
+      final FileContentType fileContentType, final String contentFileName) throws ServiceException {
+
+    try {
+
+      Path root = Paths.get(buildRootPath()).toAbsolutePath().normalize();
+      Path path = root.resolve(merchantStoreCode).resolve(fileContentType.name())
+          .resolve(contentFileName).normalize();
+      if (!path.startsWith(root)) {
+        return null;
+      }
+
+      return ContentResource.fromPath(path);
+
+    } catch (final Exception e) {
+      LOGGER.error("Error while fetching file for {} merchant ", merchantStoreCode);
+      throw new ServiceException(e);
+    }
+
+  }
+
   @Override
   public List<OutputContentFile> getFiles(final String merchantStoreCode,
       final FileContentType staticContentType) throws ServiceException {
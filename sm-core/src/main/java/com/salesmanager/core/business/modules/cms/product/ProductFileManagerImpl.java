@@ -1,20 +1,24 @@
 package com.salesmanager.core.business.modules.cms.product;
 
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.FileNameMap;
 import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
 import java.util.List;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.salesmanager.core.business.constants.Constants;
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ContentResource;
 import com.salesmanager.core.business.utils.CoreConfiguration;
 import com.salesmanager.core.business.utils.ProductImageCropUtils;
 import com.salesmanager.core.business.utils.ProductImageSizeUtils;
@@ -37,8 +41,12 @@ public class ProductFileManagerImpl extends ProductFileManager {
 
   private CoreConfiguration configuration;
 
+  private ProductImageDerivativePipeline derivativePipeline;
+
   private final static String PRODUCT_IMAGE_HEIGHT_SIZE = "PRODUCT_IMAGE_HEIGHT_SIZE";
   private final static String PRODUCT_IMAGE_WIDTH_SIZE = "PRODUCT_IMAGE_WIDTH_SIZE";
+  private final static String PRODUCT_IMAGE_LARGE_HEIGHT_SIZE = "PRODUCT_IMAGE_LARGE_HEIGHT_SIZE";
+  private final static String PRODUCT_IMAGE_LARGE_WIDTH_SIZE = "PRODUCT_IMAGE_LARGE_WIDTH_SIZE";
   private final static String CROP_UPLOADED_IMAGES = "CROP_UPLOADED_IMAGES";
 
 
@@ -52,6 +60,16 @@ public class ProductFileManagerImpl extends ProductFileManager {
   }
 
 
+  public ProductImageDerivativePipeline getDerivativePipeline() {
+    return derivativePipeline;
+  }
+
+
+  public void setDerivativePipeline(ProductImageDerivativePipeline derivativePipeline) {
+    this.derivativePipeline = derivativePipeline;
+  }
+
+
   public ProductImageRemove getRemoveImage() {
     return removeImage;
   }
@@ -62,207 +80,182 @@ public class ProductFileManagerImpl extends ProductFileManager {
   }
 
 
+  /**
+   * Stores the uploaded image as the LARGE image and queues the creation of
+   * its derivatives. The upload is spooled to a temporary file, only its
+   * header is read here to validate the format.
+   */
   public void addProductImage(ProductImage productImage, ImageContentFile contentImage)
       throws ServiceException {
 
-
+    Path original = null;
     try {
 
-      /** copy to input stream **/
-      ByteArrayOutputStream baos = new ByteArrayOutputStream();
-      // Fake code simulating the copy
-      // You can generally do better with nio if you need...
-      // And please, unlike me, do something about the Exceptions :D
-      byte[] buffer = new byte[1024];
-      int len;
-      while ((len = contentImage.getFile().read(buffer)) > -1) {
-        baos.write(buffer, 0, len);
-      }
-      baos.flush();
-
-      // Open new InputStreams using the recorded bytes
-      // Can be repeated as many times as you wish
-      InputStream is1 = new ByteArrayInputStream(baos.toByteArray());
-      InputStream is2 = new ByteArrayInputStream(baos.toByteArray());
+      String extension = extension(contentImage.getFileName());
+      original = Files.createTempFile("product-image", "." + extension);
+      Files.copy(contentImage.getFile(), original, StandardCopyOption.REPLACE_EXISTING);
 
-      BufferedImage bufferedImage = ImageIO.read(is2);
-
-
-      if (bufferedImage == null) {
+      if (!isReadable(original)) {
         LOGGER.error("Cannot read image format for " + productImage.getProductImage());
         throw new Exception("Cannot read image format " + productImage.getProductImage());
       }
 
-      // contentImage.setBufferedImage(bufferedImage);
-      contentImage.setFile(is1);
-
-
       // upload original -- L
-      contentImage.setFileContentType(FileContentType.PRODUCTLG);
-      uploadImage.addProductImage(productImage, contentImage);
-
-      /*
-       * //default large InputContentImage largeContentImage = new
-       * InputContentImage(ImageContentType.PRODUCT);
-       * largeContentImage.setFile(contentImage.getFile());
-       * largeContentImage.setDefaultImage(productImage.isDefaultImage());
-       * largeContentImage.setImageName(new
-       * StringBuilder().append("L-").append(productImage.getProductImage()).toString());
-       * 
-       * 
-       * uploadImage.uploadProductImage(configuration, productImage, largeContentImage);
-       */
-
-      /*
-       * //default small InputContentImage smallContentImage = new
-       * InputContentImage(ImageContentType.PRODUCT);
-       * smallContentImage.setFile(contentImage.getFile());
-       * smallContentImage.setDefaultImage(productImage.isDefaultImage());
-       * smallContentImage.setImageName(new
-       * StringBuilder().append("S-").append(productImage.getProductImage()).toString());
-       * 
-       * uploadImage.uploadProductImage(configuration, productImage, smallContentImage);
-       */
-
-
-      // get template properties file
-
-      String slargeImageHeight = configuration.getProperty(PRODUCT_IMAGE_HEIGHT_SIZE);
-      String slargeImageWidth = configuration.getProperty(PRODUCT_IMAGE_WIDTH_SIZE);
-
-      // String ssmallImageHeight = configuration.getProperty("SMALL_IMAGE_HEIGHT_SIZE");
-      // String ssmallImageWidth = configuration.getProperty("SMALL_IMAGE_WIDTH_SIZE");
-
-      //Resizes
-      if (!StringUtils.isBlank(slargeImageHeight) && !StringUtils.isBlank(slargeImageWidth)) { // &&
-                                                                                               // !StringUtils.isBlank(ssmallImageHeight)
-                                                                                               // &&
-                                                                                               // !StringUtils.isBlank(ssmallImageWidth))
-                                                                                               // {
-
-
-        FileNameMap fileNameMap = URLConnection.getFileNameMap();
-
-        String contentType = fileNameMap.getContentTypeFor(contentImage.getFileName());
-        String extension = null;
-        if (contentType != null) {
-          extension = contentType.substring(contentType.indexOf('/') + 1, contentType.length());
-        }
-
-        if (extension == null) {
-          extension = "jpeg";
-        }
+      try (InputStream is = Files.newInputStream(original)) {
+        contentImage.setFile(is);
+        contentImage.setFileContentType(FileContentType.PRODUCTLG);
+        uploadImage.addProductImage(productImage, contentImage);
+      }
 
+      final Path spooled = original;
+      derivativePipeline.submit(productImage.getProduct().getMerchantStore().getCode(),
+          productImage.getProduct().getSku(), productImage.getProductImage(), () -> {
+            try {
+              addDerivatives(productImage, contentImage.getFileName(), spooled, extension);
+            } finally {
+              Files.deleteIfExists(spooled);
+            }
+          });
+      original = null;
 
-        int largeImageHeight = Integer.parseInt(slargeImageHeight);
-        int largeImageWidth = Integer.parseInt(slargeImageWidth);
 
-        if (largeImageHeight <= 0 || largeImageWidth <= 0) {
-          String sizeMsg =
-              "Image configuration set to an invalid value [PRODUCT_IMAGE_HEIGHT_SIZE] "
-                  + largeImageHeight + " , [PRODUCT_IMAGE_WIDTH_SIZE] " + largeImageWidth;
-          LOGGER.error(sizeMsg);
-          throw new ServiceException(sizeMsg);
-        }
-
-        if (!StringUtils.isBlank(configuration.getProperty(CROP_UPLOADED_IMAGES))
-            && configuration.getProperty(CROP_UPLOADED_IMAGES).equals(Constants.TRUE)) {
-          // crop image
-          ProductImageCropUtils utils =
-              new ProductImageCropUtils(bufferedImage, largeImageWidth, largeImageHeight);
-          if (utils.isCropeable()) {
-            bufferedImage = utils.getCroppedImage();
-          }
+    } catch (Exception e) {
+      throw new ServiceException(e);
+    } finally {
+      try {
+        productImage.getImage().close();
+      } catch (Exception ignore) {
+      }
+      if (original != null) {
+        try {
+          Files.deleteIfExists(original);
+        } catch (Exception ignore) {
         }
+      }
+    }
 
-        // do not keep a large image for now, just take care of the regular image and a small image
-
-        // resize large
-        // ByteArrayOutputStream output = new ByteArrayOutputStream();
-        BufferedImage largeResizedImage =
-            ProductImageSizeUtils.resizeWithRatio(bufferedImage, largeImageWidth, largeImageHeight);
-
-
-        File tempLarge =
-            File.createTempFile(new StringBuilder().append(productImage.getProduct().getId())
-                .append("tmpLarge").toString(), "." + extension);
-        ImageIO.write(largeResizedImage, extension, tempLarge);
-
-        try(FileInputStream isLarge = new FileInputStream(tempLarge)) {
-
-
-        // IOUtils.copy(isLarge, output);
-
-
-        ImageContentFile largeContentImage = new ImageContentFile();
-        largeContentImage.setFileContentType(FileContentType.PRODUCT);
-        largeContentImage.setFileName(productImage.getProductImage());
-        largeContentImage.setFile(isLarge);
-
-
-        // largeContentImage.setBufferedImage(bufferedImage);
-
-        // largeContentImage.setFile(output);
-        // largeContentImage.setDefaultImage(false);
-        // largeContentImage.setImageName(new
-        // StringBuilder().append("L-").append(productImage.getProductImage()).toString());
-
-
-        uploadImage.addProductImage(productImage, largeContentImage);
+  }
 
-        // output.flush();
-        // output.close();
+  /**
+   * SMALL image resized to PRODUCT_IMAGE_WIDTH_SIZE x PRODUCT_IMAGE_HEIGHT_SIZE
+   * and, when PRODUCT_IMAGE_LARGE_WIDTH_SIZE or PRODUCT_IMAGE_LARGE_HEIGHT_SIZE
+   * are set, LARGE image bounded to those sizes
+   */
+  private void addDerivatives(ProductImage productImage, String fileName, Path original,
+      String extension) throws Exception {
+
+    int smallImageWidth = size(PRODUCT_IMAGE_WIDTH_SIZE);
+    int smallImageHeight = size(PRODUCT_IMAGE_HEIGHT_SIZE);
+    int largeImageWidth = size(PRODUCT_IMAGE_LARGE_WIDTH_SIZE);
+    int largeImageHeight = size(PRODUCT_IMAGE_LARGE_HEIGHT_SIZE);
+
+    if (smallImageWidth <= 0 || smallImageHeight <= 0) {
+      // small will be the same as the original
+      upload(productImage, fileName, original, FileContentType.PRODUCT);
+      return;
+    }
 
-        tempLarge.delete();
+    BufferedImage bufferedImage = ImageIO.read(original.toFile());
+    if (bufferedImage == null) {
+      throw new Exception("Cannot read image format " + productImage.getProductImage());
+    }
 
-        // now upload original
+    if (largeImageWidth > 0 || largeImageHeight > 0) {
+      BufferedImage largeResizedImage =
+          ProductImageSizeUtils.resizeProgressive(bufferedImage, largeImageWidth, largeImageHeight);
+      if (largeResizedImage != bufferedImage) {
+        upload(productImage, fileName, largeResizedImage, extension, FileContentType.PRODUCTLG);
+        bufferedImage = largeResizedImage;
+      }
+    }
 
+    if (!StringUtils.isBlank(configuration.getProperty(CROP_UPLOADED_IMAGES))
+        && configuration.getProperty(CROP_UPLOADED_IMAGES).equals(Constants.TRUE)) {
+      // crop image
+      ProductImageCropUtils utils =
+          new ProductImageCropUtils(bufferedImage, smallImageWidth, smallImageHeight);
+      if (utils.isCropeable()) {
+        bufferedImage = utils.getCroppedImage();
+      }
+    }
 
+    BufferedImage smallResizedImage =
+        ProductImageSizeUtils.resizeProgressive(bufferedImage, smallImageWidth, smallImageHeight);
+    upload(productImage, fileName, smallResizedImage, extension, FileContentType.PRODUCT);
 
-        /*
-         * //resize small BufferedImage smallResizedImage = ProductImageSizeUtils.resize(cropped,
-         * smallImageWidth, smallImageHeight); File tempSmall = File.createTempFile(new
-         * StringBuilder().append(productImage.getProduct().getId()).append("tmpSmall").toString(),
-         * "." + extension ); ImageIO.write(smallResizedImage, extension, tempSmall);
-         *
-         * //byte[] is = IOUtils.toByteArray(new FileInputStream(tempSmall));
-         *
-         * FileInputStream isSmall = new FileInputStream(tempSmall);
-         *
-         * output = new ByteArrayOutputStream(); IOUtils.copy(isSmall, output);
-         *
-         *
-         * smallContentImage = new InputContentImage(ImageContentType.PRODUCT);
-         * smallContentImage.setFile(output); smallContentImage.setDefaultImage(false);
-         * smallContentImage.setImageName(new
-         * StringBuilder().append("S-").append(productImage.getProductImage()).toString());
-         *
-         * uploadImage.uploadProductImage(configuration, productImage, smallContentImage);
-         *
-         * output.flush(); output.close();
-         *
-         * tempSmall.delete();
-         */
+  }
 
+  private void upload(ProductImage productImage, String fileName, BufferedImage image,
+      String extension, FileContentType type) throws Exception {
 
-    }
-      } else {
-        // small will be the same as the original
-        contentImage.setFileContentType(FileContentType.PRODUCT);
-        uploadImage.addProductImage(productImage, contentImage);
+    Path temp = Files.createTempFile(new StringBuilder()
+        .append(productImage.getProduct().getId()).append("tmp").append(type.name()).toString(),
+        "." + extension);
+    try {
+      if (!ImageIO.write(image, extension, temp.toFile())) {
+        throw new Exception("No image writer for format " + extension);
       }
+      upload(productImage, fileName, temp, type);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
 
+  private void upload(ProductImage productImage, String fileName, Path file, FileContentType type)
+      throws Exception {
 
+    try (InputStream is = Files.newInputStream(file)) {
+      ImageContentFile image = new ImageContentFile();
+      image.setFileContentType(type);
+      image.setFileName(fileName);
+      image.setFile(is);
+      uploadImage.addProductImage(productImage, image);
+    }
+  }
 
-    } catch (Exception e) {
-      throw new ServiceException(e);
-    } finally {
+  /**
+   * Checks the image format from the file header without decoding the image
+   */
+  private boolean isReadable(Path file) throws IOException {
+    try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+      if (input == null) {
+        return false;
+      }
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+      if (!readers.hasNext()) {
+        return false;
+      }
+      ImageReader reader = readers.next();
       try {
-        productImage.getImage().close();
-      } catch (Exception ignore) {
+        reader.setInput(input);
+        return reader.getWidth(0) > 0 && reader.getHeight(0) > 0;
+      } finally {
+        reader.dispose();
       }
     }
+  }
 
+  private String extension(String fileName) {
+    FileNameMap fileNameMap = URLConnection.getFileNameMap();
+    String contentType = fileNameMap.getContentTypeFor(fileName);
+    if (contentType != null) {
+      return contentType.substring(contentType.indexOf('/') + 1, contentType.length());
+    }
+    return "jpeg";
+  }
+
+  private int size(String key) throws ServiceException {
+    String value = configuration.getProperty(key);
+    if (StringUtils.isBlank(value)) {
+      return 0;
+    }
+    int size = Integer.parseInt(value.trim());
+    if (size < 0) {
+      String sizeMsg = "Image configuration set to an invalid value [" + key + "] " + size;
+      LOGGER.error(sizeMsg);
+      throw new ServiceException(sizeMsg);
+    }
+    return size;
   }
 
 
@@ -351,10 +344,36 @@ public class ProductFileManagerImpl extends ProductFileManager {
 
 
 
+  /**
+   * The original is returned for the SMALL size until its derivative is created
+   */
   @Override
   public OutputContentFile getProductImage(String merchantStoreCode, String productCode,
       String imageName, ProductImageSize size) throws ServiceException {
-    return getImage.getProductImage(merchantStoreCode, productCode, imageName, size);
+    OutputContentFile image =
+        getImage.getProductImage(merchantStoreCode, productCode, imageName, size);
+    if (image == null && size == ProductImageSize.SMALL
+        && derivativePipeline.isPending(merchantStoreCode, productCode, imageName)) {
+      image = getImage.getProductImage(merchantStoreCode, productCode, imageName,
+          ProductImageSize.LARGE);
+    }
+    return image;
+  }
+
+  /**
+   * The original is returned for the SMALL size until its derivative is created
+   */
+  @Override
+  public ContentResource getProductImageResource(String merchantStoreCode, String productCode,
+      String imageName, ProductImageSize size) throws ServiceException {
+    ContentResource image =
+        getImage.getProductImageResource(merchantStoreCode, productCode, imageName, size);
+    if (image == null && size == ProductImageSize.SMALL
+        && derivativePipeline.isPending(merchantStoreCode, productCode, imageName)) {
+      image = getImage.getProductImageResource(merchantStoreCode, productCode, imageName,
+          ProductImageSize.LARGE);
+    }
+    return image;
   }
 
 
@@ -0,0 +1,76 @@
+package com.salesmanager.core.business.modules.cms.product;
+
+/**
+ * Generation of the derivatives (resized images) of an uploaded product image
+ */
+public class ProductImageDerivativeJob {
+
+	public enum Status {
+		QUEUED, RUNNING, DONE, FAILED
+	}
+
+	private final String storeCode;
+	private final String productCode;
+	private final String imageName;
+	private final long submitted = System.currentTimeMillis();
+	private volatile Status status = Status.QUEUED;
+	private volatile long finished;
+	private volatile String error;
+
+	ProductImageDerivativeJob(String storeCode, String productCode, String imageName) {
+		this.storeCode = storeCode;
+		this.productCode = productCode;
+		this.imageName = imageName;
+	}
+
+	public boolean isPending() {
+		return status == Status.QUEUED || status == Status.RUNNING;
+	}
+
+	void running() {
+		status = Status.RUNNING;
+	}
+
+	void done() {
+		finished = System.currentTimeMillis();
+		status = Status.DONE;
+	}
+
+	void failed(String error) {
+		this.error = error;
+		finished = System.currentTimeMillis();
+		status = Status.FAILED;
+	}
+
+	public String getStoreCode() {
+		return storeCode;
+	}
+
+	public String getProductCode() {
+		return productCode;
+	}
+
+	public String getImageName() {
+		return imageName;
+	}
+
+	public long getSubmitted() {
+		return submitted;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return completion time, 0 while the job is pending
+	 */
+	public long getFinished() {
+		return finished;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+}
@@ -0,0 +1,136 @@
+package com.salesmanager.core.business.modules.cms.product;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.modules.executor.ManagedExecutor;
+import com.salesmanager.core.business.modules.executor.ManagedExecutors;
+
+/**
+ * Generates product image derivatives after the upload request on the
+ * images executor. When its queue is full the uploading thread runs the
+ * job itself, which slows down bulk imports instead of exhausting memory.
+ *
+ * Jobs are tracked by store, product and image name; finished jobs are
+ * kept jobRetention seconds.
+ */
+@Component
+public class ProductImageDerivativePipeline {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProductImageDerivativePipeline.class);
+
+	@FunctionalInterface
+	public interface DerivativeTask {
+		void run() throws Exception;
+	}
+
+	@Value("${config.cms.image.jobRetention:3600}")
+	private int jobRetention = 3600;
+
+	@Inject
+	private ManagedExecutors executors;
+
+	private ManagedExecutor executor;
+
+	private final ConcurrentMap<String, ProductImageDerivativeJob> jobs = new ConcurrentHashMap<String, ProductImageDerivativeJob>();
+
+	private volatile long lastPurge = 0;
+
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+
+	@PostConstruct
+	public void start() {
+		if (executor == null) {
+			executor = executors.get(ManagedExecutors.IMAGES);
+		}
+	}
+
+	public ProductImageDerivativeJob submit(String storeCode, String productCode, String imageName, DerivativeTask task) {
+
+		purge();
+
+		ProductImageDerivativeJob job = new ProductImageDerivativeJob(storeCode, productCode, imageName);
+		jobs.put(key(storeCode, productCode, imageName), job);
+		executor.execute(() -> {
+			job.running();
+			try {
+				task.run();
+				job.done();
+				completed.incrementAndGet();
+			} catch (Exception e) {
+				LOGGER.error("Cannot create derivatives of image " + imageName + " for product " + productCode, e);
+				job.failed(e.getMessage());
+				failed.incrementAndGet();
+			}
+		});
+		return job;
+	}
+
+	/**
+	 * @return null when no job was submitted for this image recently
+	 */
+	public ProductImageDerivativeJob getJob(String storeCode, String productCode, String imageName) {
+		return jobs.get(key(storeCode, productCode, imageName));
+	}
+
+	public boolean isPending(String storeCode, String productCode, String imageName) {
+		ProductImageDerivativeJob job = getJob(storeCode, productCode, imageName);
+		return job != null && job.isPending();
+	}
+
+	public int getQueued() {
+		return executor.getQueued();
+	}
+
+	public int getRunning() {
+		return executor.getActive();
+	}
+
+	public long getCompleted() {
+		return completed.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+	private void purge() {
+		long now = System.currentTimeMillis();
+		if (now - lastPurge < 60000) {
+			return;
+		}
+		lastPurge = now;
+		long limit = now - jobRetention * 1000L;
+		Iterator<ProductImageDerivativeJob> iterator = jobs.values().iterator();
+		while (iterator.hasNext()) {
+			ProductImageDerivativeJob job = iterator.next();
+			if (!job.isPending() && job.getFinished() < limit) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private String key(String storeCode, String productCode, String imageName) {
+		return storeCode + "/" + productCode + "/" + imageName;
+	}
+
+	public void setExecutor(ManagedExecutor executor) {
+		this.executor = executor;
+	}
+
+	public void setJobRetention(int jobRetention) {
+		this.jobRetention = jobRetention;
+	}
+
+}
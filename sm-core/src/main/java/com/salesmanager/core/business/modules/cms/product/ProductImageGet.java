@@ -2,6 +2,7 @@ package com.salesmanager.core.business.modules.cms.product;
 
 import java.util.List;
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ContentResource;
 import com.salesmanager.core.business.modules.cms.common.ImageGet;
 import com.salesmanager.core.model.catalog.product.Product;
 import com.salesmanager.core.model.catalog.product.file.ProductImageSize;
@@ -29,5 +30,18 @@ public interface ProductImageGet extends ImageGet {
 
   public List<OutputContentFile> getImages(Product product) throws ServiceException;
 
+  /**
+   * Image content for streaming, backends able to serve the image without
+   * copying it override this method
+   * 
+   * @return null when the image does not exist
+   */
+  public default ContentResource getProductImageResource(final String merchantStoreCode,
+      final String productCode, final String imageName, final ProductImageSize size)
+      throws ServiceException {
+    return ContentResource
+        .fromOutputContentFile(getProductImage(merchantStoreCode, productCode, imageName, size));
+  }
+
 
 }
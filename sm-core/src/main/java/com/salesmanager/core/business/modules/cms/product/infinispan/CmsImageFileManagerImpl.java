@@ -17,6 +17,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.salesmanager.core.business.constants.Constants;
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ContentResource;
 import com.salesmanager.core.business.modules.cms.impl.CMSManager;
 import com.salesmanager.core.business.modules.cms.impl.CacheManager;
 import com.salesmanager.core.business.modules.cms.product.ProductAssetsManager;
@@ -381,6 +382,33 @@ public class CmsImageFileManagerImpl implements ProductAssetsManager {
     return getProductImage(merchantStoreCode, productCode, imageName, size.name());
   }
 
+  /**
+   * The image bytes stored in the tree are wrapped, not copied
+   */
+  @Override
+  public ContentResource getProductImageResource(String merchantStoreCode, String productCode,
+      String imageName, ProductImageSize size) throws ServiceException {
+
+    if (cacheManager.getTreeCache() == null) {
+      throw new ServiceException(
+          "CmsImageFileManagerInfinispan has a null cacheManager.getTreeCache()");
+    }
+    try {
+
+      StringBuilder nodePath = new StringBuilder();
+      nodePath.append(merchantStoreCode).append(Constants.SLASH).append(productCode)
+          .append(Constants.SLASH).append(size.name());
+
+      Node<String, Object> productNode = this.getNode(nodePath.toString());
+
+      return ContentResource.fromBytes(imageName, (byte[]) productNode.get(imageName));
+
+    } catch (Exception e) {
+      throw new ServiceException(e);
+    }
+
+  }
+
   private OutputContentFile getProductImage(String merchantStoreCode, String productCode,
       String imageName, String size) throws ServiceException {
 
@@ -12,6 +12,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.salesmanager.core.business.constants.Constants;
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ContentResource;
 import com.salesmanager.core.business.modules.cms.impl.CMSManager;
 import com.salesmanager.core.business.modules.cms.impl.LocalCacheManagerImpl;
 import com.salesmanager.core.business.modules.cms.product.ProductAssetsManager;
@@ -266,6 +267,30 @@ public class CmsImageFileManagerImpl
     return getProductImage(merchantStoreCode, productCode, imageName, size.name());
   }
 
+  /**
+   * The image file on disk, transferred by the file channel
+   */
+  @Override
+  public ContentResource getProductImageResource(String merchantStoreCode, String productCode,
+      String imageName, ProductImageSize size) throws ServiceException {
+
+    try {
+
+      Path root = Paths.get(buildRootPath()).toAbsolutePath().normalize();
+      Path path = root.resolve(merchantStoreCode).resolve(productCode)
+          .resolve(size == ProductImageSize.LARGE ? LARGE : SMALL).resolve(imageName).normalize();
+      if (!path.startsWith(root)) {
+        return null;
+      }
+
+      return ContentResource.fromPath(path);
+
+    } catch (Exception e) {
+      throw new ServiceException(e);
+    }
+
+  }
+
   private OutputContentFile getProductImage(String merchantStoreCode, String productCode,
       String imageName, String size) throws ServiceException {
 
@@ -0,0 +1,104 @@
+package com.salesmanager.core.business.modules.common;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single elasticsearch client shared by the event index processors.
+ * The client owns a connection pool and I/O reactor threads, it is
+ * created on first use and closed with the application context.
+ */
+@Component
+public class IndexClientProvider {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(IndexClientProvider.class);
+
+	@Value("${elasticsearch.server.host}")
+	private List<String> hosts;
+
+	@Value("${elasticsearch.server.protocole}")
+	private String protocol;
+
+	@Value("${elasticsearch.server.port}")
+	private int port;
+
+	@Value("${elasticsearch.security.enabled}")
+	private Boolean securityEnabled;
+
+	@Value("${elasticsearch.security.user}")
+	private String user;
+
+	@Value("${elasticsearch.security.password}")
+	private String password;
+
+	private volatile RestHighLevelClient client;
+
+	public RestHighLevelClient getClient() {
+		RestHighLevelClient c = client;
+		if (c == null) {
+			synchronized (this) {
+				c = client;
+				if (c == null) {
+					c = client = build();
+				}
+			}
+		}
+		return c;
+	}
+
+	@PreDestroy
+	public synchronized void close() {
+		if (client != null) {
+			try {
+				client.close();
+			} catch (IOException e) {
+				LOGGER.error("Cannot close elasticsearch client", e);
+			}
+			client = null;
+		}
+	}
+
+	private RestHighLevelClient build() {
+
+		List<HttpHost> nodes = hosts.stream().map(m -> new HttpHost(m, port, protocol)).collect(Collectors.toList());
+		RestClientBuilder builder = RestClient.builder(nodes.toArray(new HttpHost[nodes.size()]));
+
+		if (securityEnabled != null && securityEnabled.booleanValue()) {
+			final CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+			credentialsProvider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(user, password));
+			builder.setHttpClientConfigCallback(
+					httpClientBuilder -> httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider));
+		}
+
+		return new RestHighLevelClient(builder);
+	}
+
+	public void setHosts(List<String> hosts) {
+		this.hosts = hosts;
+	}
+
+	public void setProtocol(String protocol) {
+		this.protocol = protocol;
+	}
+
+	public void setPort(int port) {
+		this.port = port;
+	}
+
+}
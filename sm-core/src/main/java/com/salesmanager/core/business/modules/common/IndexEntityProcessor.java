@@ -1,19 +1,9 @@
 package com.salesmanager.core.business.modules.common;
 
-import java.util.List;
-import java.util.stream.Collectors;
-
-import org.apache.http.HttpHost;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
-import org.elasticsearch.client.RestClient;
-import org.elasticsearch.client.RestClientBuilder;
-import org.elasticsearch.client.RestHighLevelClient;
-import org.springframework.beans.factory.annotation.Value;
+import javax.inject.Inject;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.salesmanager.core.model.customer.Customer;
 import com.salesmanager.core.model.generic.SalesManagerEntity;
 
@@ -21,49 +11,21 @@ public class IndexEntityProcessor {
 	
 	protected static final String INDEX_NAME = "events_";
 	
-
-	@Value("${elasticsearch.server.host}")
-	private List<String> hosts;
-	
-	@Value("${elasticsearch.server.protocole}")
-	private String protocol;
-	
-	@Value("${elasticsearch.server.port}")
-	private int port;
-	
-	@Value("${elasticsearch.security.enabled}")
-	private Boolean securityEnabled;
-	
-	@Value("${elasticsearch.security.user}")
-	private String user;
-	
-	@Value("${elasticsearch.security.password}")
-	private String password;
-	
-	protected RestHighLevelClient client() throws Exception {
-		
-		List<HttpHost> nodes = getHosts().stream().map(m -> new HttpHost(m, getPort(), getProtocol())).collect(Collectors.toList());
-		RestClientBuilder builder = RestClient.builder(nodes.toArray(new HttpHost[nodes.size()]));
-		
-        final CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
-        credentialsProvider.setCredentials(AuthScope.ANY,
-            new UsernamePasswordCredentials(user,
-            		password));
-		
-        if (securityEnabled != null
-                && securityEnabled.booleanValue()) {
-              builder.setHttpClientConfigCallback(new RestClientBuilder.HttpClientConfigCallback() {
-                @Override
-                public HttpAsyncClientBuilder customizeHttpClient(
-                    HttpAsyncClientBuilder httpClientBuilder) {
-                  return httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider);
-                }
-              });
-        }
-
-		RestHighLevelClient client = new RestHighLevelClient(builder);		
-		return client;
-
+	/** thread safe once configured **/
+	private static final ObjectMapper MAPPER = new ObjectMapper()
+			.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+
+	@Inject
+	private IndexEventPipeline indexEventPipeline;
+	
+	/**
+	 * Serializes the event on the calling thread, while the entity is still
+	 * attached, and hands it to the bulk pipeline. Never waits for elasticsearch.
+	 */
+	protected void index(String storeCode, String id, Mapping mapping) throws Exception {
+		String json = MAPPER.writeValueAsString(mapping);
+		String indexName = new StringBuilder().append(INDEX_NAME).append(storeCode.toLowerCase()).toString();
+		indexEventPipeline.submit(indexName, id, json);
 	}
 	
 	protected class Mapping {
@@ -94,17 +56,4 @@ public class IndexEntityProcessor {
 		}
 	}
 
-	protected List<String> getHosts() {
-		return hosts;
-	}
-
-	protected String getProtocol() {
-		return protocol;
-	}
-
-	protected int getPort() {
-		return port;
-	}
-
-
 }
@@ -0,0 +1,381 @@
+package com.salesmanager.core.business.modules.common;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded in memory queue of event documents drained by a background
+ * thread. Events are sent to elasticsearch in bulk requests when
+ * bulkSize events are queued or flushInterval elapsed.
+ *
+ * When the queue is full or the cluster is not available events are
+ * dropped or spilled to a file, according to the overflow policy. Spilled
+ * events are sent again once the cluster accepts a bulk request.
+ */
+@Component
+public class IndexEventPipeline {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(IndexEventPipeline.class);
+
+	private static final String SPILL_FILE = "events.spill";
+	private static final String SEPARATOR = "\t";
+
+	public enum OverflowPolicy {
+		DROP, SPILL
+	}
+
+	@Inject
+	private IndexClientProvider clientProvider;
+
+	@Value("${elasticsearch.events.queueSize:10000}")
+	private int queueSize = 10000;
+
+	@Value("${elasticsearch.events.bulkSize:500}")
+	private int bulkSize = 500;
+
+	@Value("${elasticsearch.events.flushInterval:2000}")
+	private long flushInterval = 2000;
+
+	@Value("${elasticsearch.events.offerTimeout:0}")
+	private long offerTimeout = 0;
+
+	@Value("${elasticsearch.events.retryInterval:30000}")
+	private long retryInterval = 30000;
+
+	@Value("${elasticsearch.events.overflow:DROP}")
+	private OverflowPolicy overflow = OverflowPolicy.DROP;
+
+	@Value("${elasticsearch.events.spillLocation:./files/events}")
+	private String spillLocation = "./files/events";
+
+	private BlockingQueue<IndexEvent> queue;
+	private Thread worker;
+	private volatile boolean running;
+	private volatile long unavailableUntil = 0;
+
+	private final AtomicLong submitted = new AtomicLong();
+	private final AtomicLong indexed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong spilled = new AtomicLong();
+
+	@PostConstruct
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		queue = new ArrayBlockingQueue<IndexEvent>(queueSize);
+		running = true;
+		worker = new Thread(this::drain, "index-events");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Stops accepting events, sends or spills what is still queued
+	 */
+	@PreDestroy
+	public void stop() {
+		Thread w;
+		synchronized (this) {
+			if (!running) {
+				return;
+			}
+			running = false;
+			w = worker;
+		}
+		try {
+			w.join(flushInterval * 2 + 5000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Queues a document, never blocks more than offerTimeout
+	 * @return false when the event could not be queued
+	 */
+	public boolean submit(String index, String id, String json) {
+
+		IndexEvent event = new IndexEvent(index, id, json);
+		submitted.incrementAndGet();
+
+		boolean queued = false;
+		if (running) {
+			try {
+				queued = offerTimeout > 0 ? queue.offer(event, offerTimeout, TimeUnit.MILLISECONDS) : queue.offer(event);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		if (!queued) {
+			List<IndexEvent> rejected = new ArrayList<IndexEvent>(1);
+			rejected.add(event);
+			overflow(rejected);
+		}
+		return queued;
+	}
+
+	public int getQueueDepth() {
+		return queue == null ? 0 : queue.size();
+	}
+
+	public long getSubmitted() {
+		return submitted.get();
+	}
+
+	public long getIndexed() {
+		return indexed.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	public long getSpilled() {
+		return spilled.get();
+	}
+
+	private void drain() {
+
+		while (running || !queue.isEmpty()) {
+			try {
+				IndexEvent first = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					replaySpilled();
+					continue;
+				}
+
+				List<IndexEvent> batch = new ArrayList<IndexEvent>(bulkSize);
+				batch.add(first);
+				long deadline = System.currentTimeMillis() + flushInterval;
+				while (batch.size() < bulkSize && running) {
+					long wait = deadline - System.currentTimeMillis();
+					if (wait <= 0) {
+						break;
+					}
+					IndexEvent next = queue.poll(wait, TimeUnit.MILLISECONDS);
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+				queue.drainTo(batch, bulkSize - batch.size());
+
+				if (send(batch)) {
+					replaySpilled();
+				} else {
+					overflow(batch);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (Exception e) {
+				LOGGER.error("Error while sending index events", e);
+			}
+		}
+
+	}
+
+	/**
+	 * @return false when the cluster is not available
+	 */
+	private boolean send(List<IndexEvent> batch) {
+
+		if (System.currentTimeMillis() < unavailableUntil) {
+			return false;
+		}
+
+		BulkRequest request = new BulkRequest();
+		for (IndexEvent event : batch) {
+			request.add(new IndexRequest(event.index).id(event.id).source(event.json, XContentType.JSON));
+		}
+
+		try {
+			BulkResponse response = clientProvider.getClient().bulk(request, RequestOptions.DEFAULT);
+			int failures = 0;
+			if (response.hasFailures()) {
+				for (BulkItemResponse item : response.getItems()) {
+					if (item.isFailed()) {
+						failures++;
+						LOGGER.error("Cannot index event [" + item.getId() + "] " + item.getFailureMessage());
+					}
+				}
+			}
+			failed.addAndGet(failures);
+			indexed.addAndGet(batch.size() - failures);
+			return true;
+		} catch (Exception e) {
+			LOGGER.warn("Elasticsearch not available, " + batch.size() + " events not indexed " + e.getMessage());
+			unavailableUntil = System.currentTimeMillis() + retryInterval;
+			return false;
+		}
+	}
+
+	private void overflow(List<IndexEvent> events) {
+
+		if (overflow == OverflowPolicy.SPILL) {
+			try {
+				spill(events);
+				spilled.addAndGet(events.size());
+				return;
+			} catch (IOException e) {
+				LOGGER.error("Cannot spill index events to " + spillLocation, e);
+			}
+		}
+		dropped.addAndGet(events.size());
+	}
+
+	private synchronized void spill(List<IndexEvent> events) throws IOException {
+		Path directory = Paths.get(spillLocation);
+		Files.createDirectories(directory);
+		try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve(SPILL_FILE), StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			for (IndexEvent event : events) {
+				writer.write(event.index);
+				writer.write(SEPARATOR);
+				writer.write(event.id);
+				writer.write(SEPARATOR);
+				writer.write(event.json);
+				writer.newLine();
+			}
+		}
+	}
+
+	private void replaySpilled() {
+
+		if (overflow != OverflowPolicy.SPILL || System.currentTimeMillis() < unavailableUntil) {
+			return;
+		}
+
+		Path file = Paths.get(spillLocation, SPILL_FILE);
+		Path replay = Paths.get(spillLocation, SPILL_FILE + ".replay");
+		try {
+			synchronized (this) {
+				if (!Files.exists(file)) {
+					return;
+				}
+				Files.move(file, replay, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			List<IndexEvent> remaining = new ArrayList<IndexEvent>();
+			boolean available = true;
+			try (BufferedReader reader = Files.newBufferedReader(replay, StandardCharsets.UTF_8)) {
+				List<IndexEvent> batch = new ArrayList<IndexEvent>(bulkSize);
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String[] parts = line.split(SEPARATOR, 3);
+					if (parts.length < 3) {
+						continue;
+					}
+					IndexEvent event = new IndexEvent(parts[0], parts[1], parts[2]);
+					if (!available) {
+						remaining.add(event);
+						continue;
+					}
+					batch.add(event);
+					if (batch.size() == bulkSize) {
+						available = send(batch);
+						if (!available) {
+							remaining.addAll(batch);
+						}
+						batch = new ArrayList<IndexEvent>(bulkSize);
+					}
+				}
+				if (!batch.isEmpty()) {
+					if (!available || !send(batch)) {
+						remaining.addAll(batch);
+					}
+				}
+			}
+
+			if (!remaining.isEmpty()) {
+				spill(remaining);
+			}
+			Files.delete(replay);
+			LOGGER.info("Replayed spilled index events, " + remaining.size() + " still pending");
+
+		} catch (IOException e) {
+			LOGGER.error("Cannot replay spilled index events", e);
+		}
+	}
+
+	public void setClientProvider(IndexClientProvider clientProvider) {
+		this.clientProvider = clientProvider;
+	}
+
+	public void setQueueSize(int queueSize) {
+		this.queueSize = queueSize;
+	}
+
+	public void setBulkSize(int bulkSize) {
+		this.bulkSize = bulkSize;
+	}
+
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	public void setOfferTimeout(long offerTimeout) {
+		this.offerTimeout = offerTimeout;
+	}
+
+	public void setRetryInterval(long retryInterval) {
+		this.retryInterval = retryInterval;
+	}
+
+	public void setOverflow(OverflowPolicy overflow) {
+		this.overflow = overflow;
+	}
+
+	public void setSpillLocation(String spillLocation) {
+		this.spillLocation = spillLocation;
+	}
+
+	private static class IndexEvent {
+
+		private final String index;
+		private final String id;
+		private final String json;
+
+		IndexEvent(String index, String id, String json) {
+			this.index = index;
+			this.id = id;
+			this.json = json;
+		}
+	}
+
+}
@@ -0,0 +1,317 @@
+package com.salesmanager.core.business.modules.executor;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import com.salesmanager.core.model.common.UserContext;
+
+/**
+ * Executor dedicated to one purpose (indexing, email ...). Threads are
+ * named after the executor, the number of waiting tasks is bounded and
+ * tasks over the limit are handled according to the rejection policy.
+ *
+ * Tasks run with the MDC and the UserContext of the submitting thread.
+ * Queue depth, active tasks, wait and run times are kept for monitoring.
+ *
+ * In virtual mode (Java 21 and later) each task runs on a new virtual
+ * thread, threads + queueSize tasks at most are running or waiting.
+ */
+public class ManagedExecutor extends AbstractExecutorService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ManagedExecutor.class);
+
+	public enum RejectionPolicy {
+		/** the submitting thread runs the task **/
+		CALLER_RUNS,
+		/** RejectedExecutionException is thrown to the submitting thread **/
+		ABORT,
+		/** the task is dropped and logged **/
+		DISCARD
+	}
+
+	private final String name;
+	private final RejectionPolicy rejectionPolicy;
+	private final ExecutorService delegate;
+	private final ThreadPoolExecutor pool;
+	private final Semaphore permits;
+
+	private final AtomicInteger active = new AtomicInteger();
+	private final AtomicLong submitted = new AtomicLong();
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong waitNanos = new AtomicLong();
+	private final AtomicLong runNanos = new AtomicLong();
+	private final AtomicLong maxRunNanos = new AtomicLong();
+
+	public ManagedExecutor(String name, int threads, int queueSize, RejectionPolicy rejectionPolicy, boolean virtual) {
+		this.name = name;
+		this.rejectionPolicy = rejectionPolicy;
+
+		ExecutorService virtualExecutor = virtual ? newVirtualThreadPerTaskExecutor() : null;
+		if (virtualExecutor != null) {
+			this.delegate = virtualExecutor;
+			this.pool = null;
+			this.permits = new Semaphore(threads + queueSize);
+		} else {
+			if (virtual) {
+				LOGGER.warn("Virtual threads are not available on this runtime, executor " + name + " uses platform threads");
+			}
+			AtomicInteger count = new AtomicInteger();
+			this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)), r -> {
+						Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					}, new ThreadPoolExecutor.AbortPolicy());
+			this.pool.allowCoreThreadTimeOut(true);
+			this.delegate = pool;
+			this.permits = null;
+		}
+	}
+
+	@Override
+	public void execute(Runnable command) {
+
+		submitted.incrementAndGet();
+		ContextTask task = new ContextTask(command);
+
+		if (permits != null) {
+			if (!permits.tryAcquire()) {
+				reject(task);
+				return;
+			}
+			try {
+				delegate.execute(() -> {
+					try {
+						task.run();
+					} finally {
+						permits.release();
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				permits.release();
+				reject(task);
+			}
+			return;
+		}
+
+		try {
+			delegate.execute(task);
+		} catch (RejectedExecutionException e) {
+			reject(task);
+		}
+	}
+
+	private void reject(ContextTask task) {
+		rejected.incrementAndGet();
+		if (isShutdown()) {
+			throw new RejectedExecutionException("Executor " + name + " is shut down");
+		}
+		switch (rejectionPolicy) {
+		case CALLER_RUNS:
+			task.run();
+			break;
+		case DISCARD:
+			LOGGER.warn("Executor " + name + " is saturated, task discarded");
+			break;
+		default:
+			throw new RejectedExecutionException("Executor " + name + " is saturated");
+		}
+	}
+
+	/**
+	 * Stops accepting tasks and waits at most timeout seconds for the
+	 * submitted tasks to complete
+	 */
+	public void drain(int timeout) {
+		delegate.shutdown();
+		try {
+			if (!delegate.awaitTermination(timeout, TimeUnit.SECONDS)) {
+				List<Runnable> dropped = delegate.shutdownNow();
+				LOGGER.warn("Executor " + name + " stopped, " + dropped.size() + " tasks not executed");
+			}
+		} catch (InterruptedException e) {
+			delegate.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		delegate.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		return delegate.shutdownNow();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return delegate.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return delegate.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return delegate.awaitTermination(timeout, unit);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public boolean isVirtual() {
+		return pool == null;
+	}
+
+	/**
+	 * @return tasks waiting for a thread
+	 */
+	public int getQueued() {
+		if (pool != null) {
+			return pool.getQueue().size();
+		}
+		return 0;
+	}
+
+	public int getActive() {
+		return active.get();
+	}
+
+	public int getPoolSize() {
+		return pool != null ? pool.getPoolSize() : active.get();
+	}
+
+	public long getSubmitted() {
+		return submitted.get();
+	}
+
+	public long getCompleted() {
+		return completed.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	/**
+	 * @return total time tasks waited before running
+	 */
+	public long getWaitTime(TimeUnit unit) {
+		return unit.convert(waitNanos.get(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @return total time spent running tasks
+	 */
+	public long getRunTime(TimeUnit unit) {
+		return unit.convert(runNanos.get(), TimeUnit.NANOSECONDS);
+	}
+
+	public long getMaxRunTime(TimeUnit unit) {
+		return unit.convert(maxRunNanos.get(), TimeUnit.NANOSECONDS);
+	}
+
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Task carrying the context of the submitting thread
+	 */
+	private class ContextTask implements Runnable {
+
+		private final Runnable command;
+		private final Thread origin = Thread.currentThread();
+		private final Map<String, String> mdc = MDC.getCopyOfContextMap();
+		private final String ipAddress;
+		private final long created = System.nanoTime();
+
+		ContextTask(Runnable command) {
+			this.command = command;
+			UserContext userContext = UserContext.getCurrentInstance();
+			this.ipAddress = userContext != null ? userContext.getIpAddress() : null;
+		}
+
+		@Override
+		public void run() {
+
+			long start = System.nanoTime();
+			waitNanos.addAndGet(start - created);
+			active.incrementAndGet();
+
+			// the submitting thread already has its context
+			boolean propagate = Thread.currentThread() != origin;
+			Map<String, String> previous = null;
+			UserContext userContext = null;
+			if (propagate) {
+				previous = MDC.getCopyOfContextMap();
+				if (mdc != null) {
+					MDC.setContextMap(mdc);
+				} else {
+					MDC.clear();
+				}
+				if (ipAddress != null) {
+					userContext = UserContext.create();
+					userContext.setIpAddress(ipAddress);
+				}
+			}
+
+			try {
+				command.run();
+				completed.incrementAndGet();
+			} catch (RuntimeException | Error e) {
+				failed.incrementAndGet();
+				throw e;
+			} finally {
+				long duration = System.nanoTime() - start;
+				runNanos.addAndGet(duration);
+				maxRunNanos.accumulateAndGet(duration, Math::max);
+				active.decrementAndGet();
+				if (propagate) {
+					if (userContext != null) {
+						try {
+							userContext.close();
+						} catch (Exception ignore) {
+						}
+					}
+					if (previous != null) {
+						MDC.setContextMap(previous);
+					} else {
+						MDC.clear();
+					}
+				}
+			}
+		}
+	}
+
+}
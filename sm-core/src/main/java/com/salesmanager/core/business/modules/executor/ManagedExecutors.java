@@ -0,0 +1,162 @@
+package com.salesmanager.core.business.modules.executor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.modules.executor.ManagedExecutor.RejectionPolicy;
+
+/**
+ * Named executors of the application, each purpose has its own threads so
+ * a slow mail server does not hold indexing or image processing.
+ *
+ * Executors are configured with config.executor.&lt;name&gt;.threads,
+ * queueSize, rejection (CALLER_RUNS, ABORT, DISCARD) and virtual. Saturated
+ * executors make the caller run the task unless configured otherwise, a lost
+ * email or index update cannot be recovered. config.executor.virtual=true runs
+ * all executors on virtual threads when the runtime supports them. Pending
+ * tasks are given config.executor.drainTimeout seconds to complete on shutdown.
+ */
+@Component
+public class ManagedExecutors {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ManagedExecutors.class);
+
+	/** search index updates **/
+	public final static String INDEXING = "indexing";
+	/** customer and merchant emails **/
+	public final static String EMAIL = "email";
+	/** application events and @Async methods without executor name **/
+	public final static String EVENTS = "events";
+	/** product image derivatives **/
+	public final static String IMAGES = "images";
+	/** shipping carrier quotes, threads mostly wait for the carriers **/
+	public final static String SHIPPING = "shipping";
+
+	private final static String PREFIX = "config.executor.";
+
+	@Inject
+	private Environment environment;
+
+	private final Map<String, ManagedExecutor> executors = new ConcurrentHashMap<String, ManagedExecutor>();
+
+	private final List<Consumer<ManagedExecutor>> listeners = new CopyOnWriteArrayList<Consumer<ManagedExecutor>>();
+
+	/**
+	 * @return the executor of this name, created on first use
+	 */
+	public ManagedExecutor get(String name) {
+		ManagedExecutor executor = executors.get(name);
+		if (executor != null) {
+			return executor;
+		}
+		synchronized (this) {
+			executor = executors.get(name);
+			if (executor == null) {
+				executor = create(name);
+				executors.put(name, executor);
+				for (Consumer<ManagedExecutor> listener : listeners) {
+					listener.accept(executor);
+				}
+			}
+			return executor;
+		}
+	}
+
+	/**
+	 * The listener is given the executors already created, then each
+	 * executor when it is created
+	 */
+	public synchronized void addListener(Consumer<ManagedExecutor> listener) {
+		listeners.add(listener);
+		for (ManagedExecutor executor : executors.values()) {
+			listener.accept(executor);
+		}
+	}
+
+	public Collection<ManagedExecutor> getExecutors() {
+		return Collections.unmodifiableCollection(executors.values());
+	}
+
+	private ManagedExecutor create(String name) {
+
+		int threads = property(name, "threads", Integer.class, defaultThreads(name));
+		int queueSize = property(name, "queueSize", Integer.class, defaultQueueSize(name));
+		RejectionPolicy rejection = RejectionPolicy.valueOf(
+				property(name, "rejection", String.class, RejectionPolicy.CALLER_RUNS.name()).trim().toUpperCase());
+		boolean virtual = property(name, "virtual", Boolean.class,
+				property("virtual", Boolean.class, false));
+
+		LOGGER.info("Executor " + name + " threads=" + threads + " queueSize=" + queueSize
+				+ " rejection=" + rejection + (virtual ? " virtual" : ""));
+		return new ManagedExecutor(name, threads, queueSize, rejection, virtual);
+	}
+
+	/**
+	 * Lets queued tasks finish, all executors drain in parallel
+	 */
+	@PreDestroy
+	public void drain() {
+		int timeout = property("drainTimeout", Integer.class, 30);
+		List<Thread> drains = new ArrayList<Thread>();
+		for (ManagedExecutor executor : executors.values()) {
+			Thread t = new Thread(() -> executor.drain(timeout), executor.getName() + "-drain");
+			t.start();
+			drains.add(t);
+		}
+		for (Thread t : drains) {
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private int defaultThreads(String name) {
+		if (EMAIL.equals(name) || IMAGES.equals(name)) {
+			return 2;
+		}
+		if (SHIPPING.equals(name)) {
+			return Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+		}
+		return Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+	}
+
+	private int defaultQueueSize(String name) {
+		if (EVENTS.equals(name)) {
+			return 500;
+		}
+		return 1000;
+	}
+
+	private <T> T property(String name, String key, Class<T> type, T defaultValue) {
+		return property(name + "." + key, type, defaultValue);
+	}
+
+	private <T> T property(String key, Class<T> type, T defaultValue) {
+		if (environment == null) {
+			return defaultValue;
+		}
+		return environment.getProperty(PREFIX + key, type, defaultValue);
+	}
+
+	public void setEnvironment(Environment environment) {
+		this.environment = environment;
+	}
+
+}
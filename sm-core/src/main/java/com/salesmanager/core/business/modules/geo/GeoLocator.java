@@ -0,0 +1,256 @@
+package com.salesmanager.core.business.modules.geo;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.apache.commons.lang3.StringUtils;
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.modules.cms.impl.VendorCacheManager;
+
+/**
+ * Geocoding and distances of the config.geo.provider, memoized. Results are
+ * kept in a LRU map in front of an embedded Infinispan file store
+ * (config.geo.cache.location) so that they survive restarts; store origins
+ * and repeated destinations do not call the provider again before
+ * config.geo.cache.ttl seconds.
+ *
+ * When the provider fails or does not find a location, the
+ * config.geo.fallback provider answers. Its results are not kept, the
+ * provider is asked again on the next lookup.
+ */
+@Component("geoLocator")
+public class GeoLocator {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(GeoLocator.class);
+
+	private static final String NAMED_CACHE = "com.shopizer.GEO_CACHE";
+
+	/** a provider found nothing **/
+	private static final String NOT_FOUND = "";
+
+	@Inject
+	private List<GeoProvider> providers;
+
+	@Value("${config.geo.provider:google}")
+	private String provider = GoogleGeoProvider.CODE;
+
+	/** none disables the fallback **/
+	@Value("${config.geo.fallback:postalCode}")
+	private String fallback = PostalCodeGeoProvider.CODE;
+
+	@Value("${config.geo.cache.maxEntries:10000}")
+	private int maxEntries = 10000;
+
+	/** seconds **/
+	@Value("${config.geo.cache.ttl:2592000}")
+	private long ttl = 2592000;
+
+	/** blank keeps the results in memory only **/
+	@Value("${config.geo.cache.location:./files/geo}")
+	private String location;
+
+	private Cache<String, String> store;
+
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(256, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > maxEntries;
+		}
+	};
+
+	@PostConstruct
+	public void start() {
+
+		if (StringUtils.isBlank(location)) {
+			return;
+		}
+		try {
+			Configuration configuration = new ConfigurationBuilder()
+					.memory().size(maxEntries)
+					.expiration().lifespan(ttl, TimeUnit.SECONDS)
+					.persistence().passivation(false)
+					.addSingleFileStore()
+					.segmented(false)
+					.location(location)
+					.preload(false).shared(false)
+					.build();
+
+			VendorCacheManager.getInstance().getManager().defineConfiguration(NAMED_CACHE, configuration);
+			store = VendorCacheManager.getInstance().getManager().getCache(NAMED_CACHE);
+			LOGGER.info("Geo cache started in " + location);
+		} catch (Exception e) {
+			LOGGER.error("Cannot start the geo cache in " + location + ", results are kept in memory", e);
+		}
+	}
+
+	/**
+	 * Location of an address, kept by address
+	 * @param address full address, as written on a parcel
+	 */
+	public GeoPoint locateAddress(String address, String postalCode, String countryIsoCode) {
+		return locate("a:" + normalize(countryIsoCode) + ":" + normalize(address), address, postalCode, countryIsoCode);
+	}
+
+	/**
+	 * Location of a postal code, kept by postal code
+	 * @param address the postal code with the region and country
+	 */
+	public GeoPoint locatePostalCode(String address, String postalCode, String countryIsoCode) {
+		return locate("p:" + normalize(countryIsoCode) + ":" + normalize(postalCode), address, postalCode, countryIsoCode);
+	}
+
+	/**
+	 * @return distance in km, null when unknown
+	 */
+	public Double distance(GeoPoint origin, GeoPoint destination) {
+
+		//about 10 meters
+		String key = String.format(Locale.ROOT, "d:%.4f,%.4f;%.4f,%.4f", origin.getLatitude(), origin.getLongitude(),
+				destination.getLatitude(), destination.getLongitude());
+		GeoProvider primary = provider(provider);
+		String cached = primary != null ? get(key) : null;
+		if (cached != null && !NOT_FOUND.equals(cached)) {
+			return Double.valueOf(cached);
+		}
+		if (cached == null && primary != null) {
+			try {
+				Double distance = primary.distance(origin, destination);
+				put(key, distance != null ? distance.toString() : NOT_FOUND);
+				if (distance != null) {
+					return distance;
+				}
+			} catch (Exception e) {
+				LOGGER.warn("Cannot get the distance from " + primary.getCode() + " : " + e.getMessage());
+			}
+		}
+		GeoProvider secondary = provider(fallback);
+		if (secondary != null && secondary != primary) {
+			try {
+				return secondary.distance(origin, destination);
+			} catch (Exception e) {
+				LOGGER.warn("Cannot get the distance from " + secondary.getCode() + " : " + e.getMessage());
+			}
+		}
+		return null;
+	}
+
+	private GeoPoint locate(String key, String address, String postalCode, String countryIsoCode) {
+
+		GeoProvider primary = provider(provider);
+		String cached = primary != null ? get(key) : null;
+		if (cached != null && !NOT_FOUND.equals(cached)) {
+			return GeoPoint.parse(cached);
+		}
+		if (cached == null && primary != null) {
+			try {
+				GeoPoint point = primary.geocode(address, postalCode, countryIsoCode);
+				put(key, point != null ? point.toString() : NOT_FOUND);
+				if (point != null) {
+					return point;
+				}
+			} catch (Exception e) {
+				LOGGER.warn("Cannot geocode " + address + " with " + primary.getCode() + " : " + e.getMessage());
+			}
+		}
+		GeoProvider secondary = provider(fallback);
+		if (secondary != null && secondary != primary) {
+			try {
+				return secondary.geocode(address, postalCode, countryIsoCode);
+			} catch (Exception e) {
+				LOGGER.warn("Cannot geocode " + address + " with " + secondary.getCode() + " : " + e.getMessage());
+			}
+		}
+		return null;
+	}
+
+	private GeoProvider provider(String code) {
+		if (providers != null) {
+			for (GeoProvider geoProvider : providers) {
+				if (geoProvider.getCode().equals(code) && geoProvider.isAvailable()) {
+					return geoProvider;
+				}
+			}
+		}
+		return null;
+	}
+
+	private String get(String key) {
+		long now = System.currentTimeMillis();
+		synchronized (entries) {
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				if (entry.expires >= now) {
+					return entry.value;
+				}
+				entries.remove(key);
+			}
+		}
+		if (store == null) {
+			return null;
+		}
+		String value = store.get(key);
+		if (value != null) {
+			synchronized (entries) {
+				entries.put(key, new Entry(value, now + ttl * 1000));
+			}
+		}
+		return value;
+	}
+
+	private void put(String key, String value) {
+		synchronized (entries) {
+			entries.put(key, new Entry(value, System.currentTimeMillis() + ttl * 1000));
+		}
+		if (store != null) {
+			store.put(key, value);
+		}
+	}
+
+	private String normalize(String value) {
+		if (StringUtils.isBlank(value)) {
+			return "";
+		}
+		return StringUtils.deleteWhitespace(value).toUpperCase(Locale.ROOT);
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public void setProviders(List<GeoProvider> providers) {
+		this.providers = providers;
+	}
+
+	public void setLocation(String location) {
+		this.location = location;
+	}
+
+	private static class Entry {
+
+		private final String value;
+		private final long expires;
+
+		Entry(String value, long expires) {
+			this.value = value;
+			this.expires = expires;
+		}
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.salesmanager.core.business.modules.geo;
+
+import java.io.Serializable;
+
+/**
+ * Latitude and longitude in degrees
+ */
+public class GeoPoint implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** mean radius of the earth in km **/
+	private final static double EARTH_RADIUS = 6371.0088;
+
+	private final double latitude;
+	private final double longitude;
+
+	public GeoPoint(double latitude, double longitude) {
+		this.latitude = latitude;
+		this.longitude = longitude;
+	}
+
+	/**
+	 * @param value latitude,longitude
+	 */
+	public static GeoPoint parse(String value) {
+		int comma = value.indexOf(',');
+		return new GeoPoint(Double.parseDouble(value.substring(0, comma)), Double.parseDouble(value.substring(comma + 1)));
+	}
+
+	/**
+	 * Great-circle distance in km (haversine)
+	 */
+	public double distanceTo(GeoPoint other) {
+		double dLatitude = Math.toRadians(other.latitude - latitude);
+		double dLongitude = Math.toRadians(other.longitude - longitude);
+		double a = Math.sin(dLatitude / 2) * Math.sin(dLatitude / 2)
+				+ Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(other.latitude))
+				* Math.sin(dLongitude / 2) * Math.sin(dLongitude / 2);
+		return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+
+	public double getLatitude() {
+		return latitude;
+	}
+
+	public double getLongitude() {
+		return longitude;
+	}
+
+	@Override
+	public String toString() {
+		return latitude + "," + longitude;
+	}
+
+}
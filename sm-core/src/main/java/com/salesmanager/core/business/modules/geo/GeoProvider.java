@@ -0,0 +1,27 @@
+package com.salesmanager.core.business.modules.geo;
+
+/**
+ * Geocoding and distances between locations, selected by code with
+ * config.geo.provider and config.geo.fallback
+ */
+public interface GeoProvider {
+
+	String getCode();
+
+	/**
+	 * @return false when the provider is not configured
+	 */
+	boolean isAvailable();
+
+	/**
+	 * @param address full address, as written on a parcel
+	 * @return location of the address, null when not found
+	 */
+	GeoPoint geocode(String address, String postalCode, String countryIsoCode) throws Exception;
+
+	/**
+	 * @return distance in km, null when unknown
+	 */
+	Double distance(GeoPoint origin, GeoPoint destination) throws Exception;
+
+}
@@ -0,0 +1,94 @@
+package com.salesmanager.core.business.modules.geo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.maps.DistanceMatrixApi;
+import com.google.maps.GeoApiContext;
+import com.google.maps.GeocodingApi;
+import com.google.maps.model.DistanceMatrix;
+import com.google.maps.model.DistanceMatrixElement;
+import com.google.maps.model.GeocodingResult;
+import com.google.maps.model.LatLng;
+
+/**
+ * Google Geocoding and Distance Matrix apis, distances are driving distances
+ *
+ * Requires a google api-key for a server application with Geocoding and
+ * Distance Matrix enabled (config.shippingDistancePreProcessor.apiKey)
+ * https://console.developers.google.com
+ * https://developers.google.com/maps/documentation/webservices/client-library
+ */
+@Component("googleGeoProvider")
+public class GoogleGeoProvider implements GeoProvider {
+
+	public final static String CODE = "google";
+
+	@Value("${config.shippingDistancePreProcessor.apiKey:}")
+	private String apiKey;
+
+	/** ms **/
+	@Value("${config.geo.google.timeout:3000}")
+	private long timeout = 3000;
+
+	private volatile GeoApiContext context;
+
+	@Override
+	public String getCode() {
+		return CODE;
+	}
+
+	@Override
+	public boolean isAvailable() {
+		return !StringUtils.isBlank(apiKey);
+	}
+
+	@Override
+	public GeoPoint geocode(String address, String postalCode, String countryIsoCode) throws Exception {
+		GeocodingResult[] results = GeocodingApi.geocode(context(), address).await();
+		if (results == null || results.length == 0) {
+			return null;
+		}
+		LatLng location = results[0].geometry.location;
+		return new GeoPoint(location.lat, location.lng);
+	}
+
+	@Override
+	public Double distance(GeoPoint origin, GeoPoint destination) throws Exception {
+		DistanceMatrix matrix = DistanceMatrixApi.newRequest(context())
+				.origins(new LatLng(origin.getLatitude(), origin.getLongitude()))
+				.destinations(new LatLng(destination.getLatitude(), destination.getLongitude()))
+				.await();
+		if (matrix == null || matrix.rows.length == 0 || matrix.rows[0].elements.length == 0) {
+			return null;
+		}
+		DistanceMatrixElement element = matrix.rows[0].elements[0];
+		if (element.distance == null) {
+			return null;
+		}
+		return 0.001 * element.distance.inMeters;
+	}
+
+	private GeoApiContext context() {
+		//one context and its connections for every request
+		if (context == null) {
+			synchronized (this) {
+				if (context == null) {
+					context = new GeoApiContext().setApiKey(apiKey)
+							.setConnectTimeout(timeout, TimeUnit.MILLISECONDS)
+							.setReadTimeout(timeout, TimeUnit.MILLISECONDS)
+							.setRetryTimeout(timeout, TimeUnit.MILLISECONDS);
+				}
+			}
+		}
+		return context;
+	}
+
+	public void setApiKey(String apiKey) {
+		this.apiKey = apiKey;
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.salesmanager.core.business.modules.geo;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Offline provider locating the centroid of a postal code from a local
+ * table, distances are great-circle distances. A postal code not in the
+ * table is looked up by its prefixes (H3A 1V4, H3A1V, ..., H3A), so a table
+ * of regions such as canadian FSA or US 3 digit zip codes is enough.
+ *
+ * The table (config.geo.postalCodes) is a csv file of
+ * country,postalCode,latitude,longitude lines, # starts a comment.
+ */
+@Component("postalCodeGeoProvider")
+public class PostalCodeGeoProvider implements GeoProvider {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PostalCodeGeoProvider.class);
+
+	public final static String CODE = "postalCode";
+
+	private final static int MIN_PREFIX = 3;
+
+	@Value("${config.geo.postalCodes:classpath:reference/postalcodes.csv}")
+	private String location = "classpath:reference/postalcodes.csv";
+
+	private final Map<String, GeoPoint> centroids = new HashMap<String, GeoPoint>();
+
+	@PostConstruct
+	public void load() {
+		if (StringUtils.isBlank(location)) {
+			return;
+		}
+		Resource resource = new DefaultResourceLoader().getResource(location);
+		if (!resource.exists()) {
+			LOGGER.warn("Postal code table " + location + " not found");
+			return;
+		}
+		int lines = 0;
+		try (InputStream in = resource.getInputStream();
+				BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] columns = line.split(",");
+				if (columns.length < 4) {
+					LOGGER.warn("Invalid postal code line " + line);
+					continue;
+				}
+				put(columns[0], columns[1], Double.parseDouble(columns[2].trim()), Double.parseDouble(columns[3].trim()));
+				lines++;
+			}
+		} catch (Exception e) {
+			LOGGER.error("Cannot load postal code table " + location, e);
+		}
+		LOGGER.info("Loaded " + lines + " postal codes from " + location);
+	}
+
+	public synchronized void put(String countryIsoCode, String postalCode, double latitude, double longitude) {
+		centroids.put(key(countryIsoCode, normalize(postalCode)), new GeoPoint(latitude, longitude));
+	}
+
+	@Override
+	public String getCode() {
+		return CODE;
+	}
+
+	@Override
+	public synchronized boolean isAvailable() {
+		return !centroids.isEmpty();
+	}
+
+	@Override
+	public synchronized GeoPoint geocode(String address, String postalCode, String countryIsoCode) {
+		String code = normalize(postalCode);
+		for (int length = code.length(); length >= Math.min(MIN_PREFIX, code.length()) && length > 0; length--) {
+			GeoPoint centroid = centroids.get(key(countryIsoCode, code.substring(0, length)));
+			if (centroid != null) {
+				return centroid;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Double distance(GeoPoint origin, GeoPoint destination) {
+		return origin.distanceTo(destination);
+	}
+
+	private String key(String countryIsoCode, String postalCode) {
+		return StringUtils.trimToEmpty(countryIsoCode).toUpperCase(Locale.ROOT) + ":" + postalCode;
+	}
+
+	private String normalize(String postalCode) {
+		if (postalCode == null) {
+			return "";
+		}
+		return StringUtils.deleteWhitespace(postalCode).replace("-", "").toUpperCase(Locale.ROOT);
+	}
+
+	public void setLocation(String location) {
+		this.location = location;
+	}
+
+}
@@ -0,0 +1,268 @@
+package com.salesmanager.core.business.modules.integration.shipping.impl;
+
+import java.util.Arrays;
+
+/**
+ * Packs items into boxes by volume and weight. Items are given as arrays of
+ * dimensions and quantities, each item is placed as many units at a time as
+ * a box takes, no object is created by unit.
+ *
+ * A unit goes into a box when it takes at most 3/4 of the volume left in the
+ * box and the box can still carry its weight, the first unit of an empty box
+ * only has to fit the box dimensions, in any orientation. Items are packed
+ * largest first; a new box is of the smallest size taking every remaining
+ * unit of the item, or of the size taking the most units.
+ */
+public class BoxPacker {
+
+	public enum Algorithm {
+		/** into the first box taking the item **/
+		FIRST_FIT_DECREASING,
+		/** into the box the item leaves the least volume in **/
+		BEST_FIT_DECREASING
+	}
+
+	private final static double FILL = 0.75;
+	private final static double EPSILON = 1e-9;
+
+	private final Algorithm algorithm;
+	private final int boxTypes;
+	/** sorted dimensions of each box size, 3 by size **/
+	private final double[] boxDimensions;
+	private final double[] boxVolume;
+	private final double[] boxWeight;
+	private final double[] boxMaxWeight;
+
+	/**
+	 * @param boxWeight weight of each empty box
+	 * @param boxMaxWeight weight each box carries
+	 */
+	public BoxPacker(Algorithm algorithm, double[] boxWidth, double[] boxLength, double[] boxHeight,
+			double[] boxWeight, double[] boxMaxWeight) {
+		this.algorithm = algorithm;
+		this.boxTypes = boxWidth.length;
+		this.boxDimensions = new double[boxTypes * 3];
+		this.boxVolume = new double[boxTypes];
+		for (int t = 0; t < boxTypes; t++) {
+			sorted(boxWidth[t], boxLength[t], boxHeight[t], boxDimensions, t * 3);
+			boxVolume[t] = boxWidth[t] * boxLength[t] * boxHeight[t];
+		}
+		this.boxWeight = boxWeight.clone();
+		this.boxMaxWeight = boxMaxWeight.clone();
+	}
+
+	/**
+	 * @return true when a box size holds the item in some orientation
+	 */
+	public boolean fitsDimensions(double width, double length, double height) {
+		double[] item = sorted(width, length, height, new double[3], 0);
+		for (int t = 0; t < boxTypes; t++) {
+			if (fits(item, 0, t)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true when a box size holds the item and carries its weight
+	 */
+	public boolean fits(double width, double length, double height, double weight) {
+		double[] item = sorted(width, length, height, new double[3], 0);
+		for (int t = 0; t < boxTypes; t++) {
+			if (fits(item, 0, t) && weight <= boxMaxWeight[t]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param quantity units of each item
+	 * @throws IllegalArgumentException when an item fits no box size
+	 */
+	public Packing pack(double[] width, double[] length, double[] height, double[] weight, int[] quantity) {
+
+		int items = width.length;
+		double[] itemDimensions = new double[items * 3];
+		double[] volume = new double[items];
+		boolean[] fits = new boolean[items * boxTypes];
+		Integer[] order = new Integer[items];
+		for (int i = 0; i < items; i++) {
+			sorted(width[i], length[i], height[i], itemDimensions, i * 3);
+			volume[i] = width[i] * length[i] * height[i];
+			boolean any = false;
+			for (int t = 0; t < boxTypes; t++) {
+				fits[i * boxTypes + t] = fits(itemDimensions, i * 3, t) && weight[i] <= boxMaxWeight[t];
+				any |= fits[i * boxTypes + t];
+			}
+			if (!any && quantity[i] > 0) {
+				throw new IllegalArgumentException("Item " + i + " does not fit any box");
+			}
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(volume[b], volume[a]));
+
+		Packing packing = new Packing(16);
+		for (int o = 0; o < items; o++) {
+			int i = order[o];
+			int left = quantity[i];
+
+			if (algorithm == Algorithm.BEST_FIT_DECREASING) {
+				while (left > 0) {
+					int best = -1;
+					int bestUnits = 0;
+					double bestVolumeLeft = Double.MAX_VALUE;
+					for (int b = 0; b < packing.size; b++) {
+						if (!fits[i * boxTypes + packing.type[b]]) {
+							continue;
+						}
+						int units = units(packing.volumeLeft[b], packing.weightLeft[b], volume[i], weight[i], left);
+						if (units > 0) {
+							double volumeLeft = packing.volumeLeft[b] - units * volume[i];
+							if (volumeLeft < bestVolumeLeft) {
+								best = b;
+								bestUnits = units;
+								bestVolumeLeft = volumeLeft;
+							}
+						}
+					}
+					if (best < 0) {
+						break;
+					}
+					packing.place(best, bestUnits, volume[i], weight[i]);
+					left -= bestUnits;
+				}
+			} else {
+				for (int b = 0; b < packing.size && left > 0; b++) {
+					if (!fits[i * boxTypes + packing.type[b]]) {
+						continue;
+					}
+					int units = units(packing.volumeLeft[b], packing.weightLeft[b], volume[i], weight[i], left);
+					if (units > 0) {
+						packing.place(b, units, volume[i], weight[i]);
+						left -= units;
+					}
+				}
+			}
+
+			while (left > 0) {
+				int type = -1;
+				int typeUnits = 0;
+				for (int t = 0; t < boxTypes; t++) {
+					if (!fits[i * boxTypes + t]) {
+						continue;
+					}
+					int units = 1 + units(boxVolume[t] - volume[i], boxMaxWeight[t] - weight[i], volume[i], weight[i],
+							left - 1);
+					if (type < 0 || units > typeUnits || (units == typeUnits && boxVolume[t] < boxVolume[type])) {
+						type = t;
+						typeUnits = units;
+					}
+				}
+				int b = packing.open(type, boxVolume[type], boxMaxWeight[type], boxWeight[type]);
+				packing.place(b, typeUnits, volume[i], weight[i]);
+				left -= typeUnits;
+			}
+		}
+		return packing;
+	}
+
+	/**
+	 * Units of an item a box takes, at most wanted
+	 */
+	private static int units(double volumeLeft, double weightLeft, double volume, double weight, int wanted) {
+		if (wanted <= 0) {
+			return 0;
+		}
+		//the k-th unit added needs FILL * (volumeLeft - k * volume) >= volume
+		double byVolume = volumeLeft / volume - 1 / FILL;
+		if (byVolume < -EPSILON) {
+			return 0;
+		}
+		long units = (long) Math.floor(byVolume + EPSILON) + 1;
+		if (weight > 0) {
+			units = Math.min(units, (long) Math.floor(weightLeft / weight + EPSILON));
+		}
+		return (int) Math.min(units, wanted);
+	}
+
+	private boolean fits(double[] dimensions, int offset, int type) {
+		return dimensions[offset] <= boxDimensions[type * 3]
+				&& dimensions[offset + 1] <= boxDimensions[type * 3 + 1]
+				&& dimensions[offset + 2] <= boxDimensions[type * 3 + 2];
+	}
+
+	private static double[] sorted(double a, double b, double c, double[] target, int offset) {
+		double min = Math.min(a, Math.min(b, c));
+		double max = Math.max(a, Math.max(b, c));
+		target[offset] = min;
+		target[offset + 1] = a + b + c - min - max;
+		target[offset + 2] = max;
+		return target;
+	}
+
+	/**
+	 * Boxes used, by index in the order they were opened
+	 */
+	public static class Packing {
+
+		private int size;
+		private int[] type;
+		private int[] units;
+		private double[] volumeLeft;
+		private double[] weightLeft;
+		private double[] weight;
+
+		Packing(int capacity) {
+			type = new int[capacity];
+			units = new int[capacity];
+			volumeLeft = new double[capacity];
+			weightLeft = new double[capacity];
+			weight = new double[capacity];
+		}
+
+		private int open(int boxType, double volume, double maxWeight, double tare) {
+			if (size == type.length) {
+				int capacity = size * 2;
+				type = Arrays.copyOf(type, capacity);
+				units = Arrays.copyOf(units, capacity);
+				volumeLeft = Arrays.copyOf(volumeLeft, capacity);
+				weightLeft = Arrays.copyOf(weightLeft, capacity);
+				weight = Arrays.copyOf(weight, capacity);
+			}
+			type[size] = boxType;
+			volumeLeft[size] = volume;
+			weightLeft[size] = maxWeight;
+			weight[size] = tare;
+			return size++;
+		}
+
+		private void place(int box, int count, double volume, double itemWeight) {
+			units[box] += count;
+			volumeLeft[box] -= count * volume;
+			weightLeft[box] -= count * itemWeight;
+			weight[box] += count * itemWeight;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		/** box size of a box, index of the box dimensions given **/
+		public int getType(int box) {
+			return type[box];
+		}
+
+		/** units packed in a box **/
+		public int getUnits(int box) {
+			return units[box];
+		}
+
+		/** weight of a box and its content **/
+		public double getWeight(int box) {
+			return weight[box];
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.salesmanager.core.business.modules.integration.shipping.impl;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Http client shared by the shipping carriers. Connections to a carrier are
+ * pooled and kept alive between quotes so that a quote does not pay the
+ * TCP and TLS handshakes, requests give up after the connect and read
+ * timeouts instead of holding the checkout.
+ */
+@Component("carrierHttpClient")
+public class CarrierHttpClient {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CarrierHttpClient.class);
+
+	@Value("${config.shipping.http.connectTimeout:2000}")
+	private int connectTimeout = 2000;
+
+	@Value("${config.shipping.http.readTimeout:5000}")
+	private int readTimeout = 5000;
+
+	@Value("${config.shipping.http.maxConnections:100}")
+	private int maxConnections = 100;
+
+	@Value("${config.shipping.http.maxConnectionsPerCarrier:20}")
+	private int maxConnectionsPerRoute = 20;
+
+	/** idle connections are closed after this time (ms) **/
+	@Value("${config.shipping.http.idleTimeout:30000}")
+	private long idleTimeout = 30000;
+
+	private CloseableHttpClient client;
+
+	@PostConstruct
+	public void start() {
+
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(maxConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+		//connections closed by the carrier while idle in the pool
+		connectionManager.setValidateAfterInactivity(2000);
+
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(connectTimeout)
+				.setSocketTimeout(readTimeout)
+				//waiting for a connection of the pool
+				.setConnectionRequestTimeout(connectTimeout)
+				.build();
+
+		client = HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig)
+				.evictExpiredConnections()
+				.evictIdleConnections(idleTimeout, TimeUnit.MILLISECONDS)
+				.build();
+	}
+
+	/**
+	 * @param carrier name of the carrier for the errors
+	 * @return body of a 2xx response
+	 * @throws ClientProtocolException on any other status
+	 */
+	public String execute(HttpUriRequest request, String carrier) throws IOException {
+		ResponseHandler<String> handler = response -> {
+			int status = response.getStatusLine().getStatusCode();
+			HttpEntity entity = response.getEntity();
+			if (status >= 200 && status < 300) {
+				return entity != null ? EntityUtils.toString(entity) : null;
+			}
+			EntityUtils.consume(entity);
+			LOGGER.error("Communication Error with " + carrier + " quote " + status);
+			throw new ClientProtocolException(carrier + " quote communication error " + status);
+		};
+		return client.execute(request, handler);
+	}
+
+	@PreDestroy
+	public void close() {
+		if (client != null) {
+			try {
+				client.close();
+			} catch (IOException e) {
+				LOGGER.warn("Cannot close carrier http client", e);
+			}
+		}
+	}
+
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+}
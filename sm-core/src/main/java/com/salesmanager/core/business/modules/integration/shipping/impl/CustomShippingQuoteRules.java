@@ -10,7 +10,7 @@ import javax.inject.Inject;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
-import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.StatelessKieSession;
 import org.kie.internal.io.ResourceFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,6 +55,11 @@ public class CustomShippingQuoteRules implements ShippingQuoteModule {
 		return null;
 	}
 
+	@Override
+	public boolean isRemote() {
+		return false;
+	}
+
 	@Override
 	public List<ShippingOption> getShippingQuotes(ShippingQuote quote,
 			List<PackageDetails> packages, BigDecimal orderTotal,
@@ -142,13 +147,12 @@ public class CustomShippingQuoteRules implements ShippingQuoteModule {
 		LOGGER.debug("Setting input parameters " + inputParameters.toString());
 		
 		
-		KieSession kieSession=droolsBeanFactory.getKieSession(ResourceFactory.newClassPathResource("com/salesmanager/drools/rules/PriceByDistance.drl"));
+		StatelessKieSession kieSession=droolsBeanFactory.getStatelessKieSession(ResourceFactory.newClassPathResource("com/salesmanager/drools/rules/PriceByDistance.drl"));
 		
 		DecisionResponse resp = new DecisionResponse();
 		
-        kieSession.insert(inputParameters);
         kieSession.setGlobal("decision",resp);
-        kieSession.fireAllRules();
+        kieSession.execute(inputParameters);
         //System.out.println(resp.getCustomPrice());
 
 		if(resp.getCustomPrice() != null) {
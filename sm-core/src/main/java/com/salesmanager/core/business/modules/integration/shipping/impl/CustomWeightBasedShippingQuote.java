@@ -86,6 +86,11 @@ public class CustomWeightBasedShippingQuote implements ShippingQuoteModule {
 		
 	}
 
+	@Override
+	public boolean isRemote() {
+		return false;
+	}
+
 	@Override
 	public List<ShippingOption> getShippingQuotes(
 			ShippingQuote shippingQuote,
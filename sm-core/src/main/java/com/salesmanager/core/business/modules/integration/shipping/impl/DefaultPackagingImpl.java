@@ -2,18 +2,23 @@ package com.salesmanager.core.business.modules.integration.shipping.impl;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
 import javax.inject.Inject;
 
+import org.springframework.beans.factory.annotation.Value;
+
+import com.salesmanager.core.business.constants.ShippingConstants;
 import com.salesmanager.core.business.exception.ServiceException;
-import com.salesmanager.core.business.services.shipping.ShippingService;
+import com.salesmanager.core.business.services.system.MerchantConfigurationService;
 import com.salesmanager.core.business.services.system.MerchantLogService;
 import com.salesmanager.core.model.catalog.product.Product;
 import com.salesmanager.core.model.catalog.product.attribute.ProductAttribute;
 import com.salesmanager.core.model.merchant.MerchantStore;
 import com.salesmanager.core.model.shipping.PackageDetails;
+import com.salesmanager.core.model.shipping.ShippingBox;
 import com.salesmanager.core.model.shipping.ShippingConfiguration;
 import com.salesmanager.core.model.shipping.ShippingProduct;
 import com.salesmanager.core.model.system.MerchantLog;
@@ -23,16 +28,19 @@ public class DefaultPackagingImpl implements Packaging {
 
 	
 	@Inject
-	private ShippingService shippingService;
+	private MerchantLogService merchantLogService;
 	
 	@Inject
-	private MerchantLogService merchantLogService;
+	private MerchantConfigurationService merchantConfigurationService;
 	
 	/** default dimensions **/
 	private final static Double defaultWeight = 1D;
 	private final static Double defaultHeight = 4D;
 	private final static Double defaultLength = 4D;
 	private final static Double defaultWidth = 4D;
+
+	@Value("${config.shipping.packing.algorithm:FIRST_FIT_DECREASING}")
+	private BoxPacker.Algorithm packingAlgorithm = BoxPacker.Algorithm.FIRST_FIT_DECREASING;
 	
 	@Override
 	public List<PackageDetails> getBoxPackagesDetails(
@@ -44,37 +52,49 @@ public class DefaultPackagingImpl implements Packaging {
 			throw new ServiceException("Product list cannot be null !!");
 		}
 
-		double width = 0;
-		double length = 0;
-		double height = 0;
-		double weight = 0;
-		double maxweight = 0;
-
-		//int treshold = 0;
-		
-		
-		ShippingConfiguration shippingConfiguration = shippingService.getShippingConfiguration(store);
+		ShippingConfiguration shippingConfiguration = merchantConfigurationService.getSnapshot(store).getObject(ShippingConstants.SHIPPING_CONFIGURATION, ShippingConfiguration.class);
 		if(shippingConfiguration==null) {
 			throw new ServiceException("ShippingConfiguration not found for merchant " + store.getCode());
 		}
-		
-		width = new Double(shippingConfiguration.getBoxWidth()).doubleValue();
-		length = new Double(shippingConfiguration.getBoxLength()).doubleValue();
-		height = new Double(shippingConfiguration.getBoxHeight()).doubleValue();
-		weight = new Double(shippingConfiguration.getBoxWeight()).doubleValue();
-		maxweight = new Double(shippingConfiguration.getMaxWeight()).doubleValue();
-		
 
+		//box sizes, the configured box and the other sizes
+		List<ShippingBox> boxTypes = new ArrayList<ShippingBox>();
+		boxTypes.add(new ShippingBox(null, shippingConfiguration.getBoxWidth(), shippingConfiguration.getBoxLength(),
+				shippingConfiguration.getBoxHeight(), shippingConfiguration.getBoxWeight(), shippingConfiguration.getMaxWeight()));
+		boxTypes.addAll(shippingConfiguration.getBoxes());
+
+		int types = 0;
+		double[] boxWidth = new double[boxTypes.size()];
+		double[] boxLength = new double[boxTypes.size()];
+		double[] boxHeight = new double[boxTypes.size()];
+		double[] boxWeight = new double[boxTypes.size()];
+		double[] boxMaxWeight = new double[boxTypes.size()];
+		for(ShippingBox boxType : boxTypes) {
+			double maxVolume = (double)boxType.getBoxWidth() * boxType.getBoxLength() * boxType.getBoxHeight();
+			if (maxVolume == 0 || boxType.getMaxWeight() == 0) {
+				merchantLogService.save(new MerchantLog(store,"shipping","Check shipping box configuration, it has a volume of "
+								+ maxVolume + " and a maximum weight of "
+								+ boxType.getMaxWeight()
+								+ ". Those values must be greater than 0."));
+				continue;
+			}
+			boxWidth[types] = boxType.getBoxWidth();
+			boxLength[types] = boxType.getBoxLength();
+			boxHeight[types] = boxType.getBoxHeight();
+			boxWeight[types] = boxType.getBoxWeight();
+			boxMaxWeight[types] = boxType.getMaxWeight();
+			types++;
+		}
 
-		List<PackageDetails> boxes = new ArrayList<PackageDetails>();
-
-		// maximum number of boxes
-		int maxBox = 100;
-		int iterCount = 0;
-
-		List<Product> individualProducts = new ArrayList<Product>();
+		//units of each product
+		int items = 0;
+		double[] width = new double[products.size()];
+		double[] length = new double[products.size()];
+		double[] height = new double[products.size()];
+		double[] weight = new double[products.size()];
+		int[] quantity = new int[products.size()];
+		List<Product> shippedProducts = new ArrayList<Product>();
 
-		// need to put items individually
 		for(ShippingProduct shippingProduct : products){
 
 			Product product = shippingProduct.getProduct();
@@ -82,8 +102,6 @@ public class DefaultPackagingImpl implements Packaging {
 				continue;
 			}
 
-			int qty = shippingProduct.getQuantity();
-
 			Set<ProductAttribute> attrs = shippingProduct.getProduct().getAttributes();
 
 			// set attributes values
@@ -110,88 +128,34 @@ public class DefaultPackagingImpl implements Packaging {
 					}
 				}
 			}
-			
-
-
-			if (qty > 1) {
 
-				for (int i = 1; i <= qty; i++) {
-					Product temp = new Product();
-					temp.setProductHeight(h);
-					temp.setProductLength(l);
-					temp.setProductWidth(wd);
-					temp.setProductWeight(w);
-					temp.setAttributes(product.getAttributes());
-					temp.setDescriptions(product.getDescriptions());
-					individualProducts.add(temp);
-				}
-			} else {
-				Product temp = new Product();
-				temp.setProductHeight(h);
-				temp.setProductLength(l);
-				temp.setProductWidth(wd);
-				temp.setProductWeight(w);
-				temp.setAttributes(product.getAttributes());
-				temp.setDescriptions(product.getDescriptions());
-				individualProducts.add(temp);
-			}
-			iterCount++;
+			width[items] = wd.doubleValue();
+			length[items] = l.doubleValue();
+			height[items] = h.doubleValue();
+			weight[items] = w.doubleValue();
+			quantity[items] = Math.max(shippingProduct.getQuantity(), 1);
+			shippedProducts.add(product);
+			items++;
 		}
 
-		if (iterCount == 0) {
+		if (items == 0) {
 			return null;
 		}
 
-		int productCount = individualProducts.size();
-
-		List<PackingBox> boxesList = new ArrayList<PackingBox>();
-
-		//start the creation of boxes
-		PackingBox box = new PackingBox();
-		// set box max volume
-		double maxVolume = width * length * height;
-
-		if (maxVolume == 0 || maxweight == 0) {
-			
-			merchantLogService.save(new MerchantLog(store,"shipping","Check shipping box configuration, it has a volume of "
-							+ maxVolume + " and a maximum weight of "
-							+ maxweight
-							+ ". Those values must be greater than 0."));
-			
+		if (types == 0) {
 			throw new ServiceException("Product configuration exceeds box configuraton");
-			
-
 		}
-		
-		
-		box.setVolumeLeft(maxVolume);
-		box.setWeightLeft(maxweight);
-
-		boxesList.add(box);//assign first box
 
-		//int boxCount = 1;
-		List<Product> assignedProducts = new ArrayList<Product>();
-
-		// calculate the volume for the next object
-		if (assignedProducts.size() > 0) {
-			individualProducts.removeAll(assignedProducts);
-			assignedProducts = new ArrayList<Product>();
-		}
+		BoxPacker packer = new BoxPacker(packingAlgorithm,
+				Arrays.copyOf(boxWidth, types), Arrays.copyOf(boxLength, types), Arrays.copyOf(boxHeight, types),
+				Arrays.copyOf(boxWeight, types), Arrays.copyOf(boxMaxWeight, types));
 
-		boolean productAssigned = false;
+		for(int i = 0; i < items; i++) {
 
-		for(Product p : individualProducts) {
+			Product p = shippedProducts.get(i);
 
-			//Set<ProductAttribute> attributes = p.getAttributes();
-			productAssigned = false;
-
-			double productWeight = p.getProductWeight().doubleValue();
-
-
-			// validate if product fits in the box
-			if (p.getProductWidth().doubleValue() > width
-					|| p.getProductHeight().doubleValue() > height
-					|| p.getProductLength().doubleValue() > length) {
+			// validate if product fits in a box
+			if (!packer.fitsDimensions(width[i], length[i], height[i])) {
 				// log message to customer
 				merchantLogService.save(new MerchantLog(store,"shipping","Product "
 						+ p.getSku()
@@ -200,7 +164,7 @@ public class DefaultPackagingImpl implements Packaging {
 
 			}
 
-			if (productWeight > maxweight) {
+			if (!packer.fits(width[i], length[i], height[i], weight[i])) {
 				merchantLogService.save(new MerchantLog(store,"shipping","Product "
 						+ p.getSku()
 						+ " has a weight larger than the box maximum weight specified. Will use per item calculation."));
@@ -209,98 +173,29 @@ public class DefaultPackagingImpl implements Packaging {
 
 			}
 
-			double productVolume = (p.getProductWidth().doubleValue()
-					* p.getProductHeight().doubleValue() * p
-					.getProductLength().doubleValue());
-
-			if (productVolume == 0) {
+			if (width[i] * length[i] * height[i] == 0) {
 				
 				merchantLogService.save(new MerchantLog(store,"shipping","Product "
 						+ p.getSku()
 						+ " has one of the dimension set to 0 and therefore cannot calculate the volume"));
 				
 				throw new ServiceException("Product configuration exceeds box configuraton");
-				
-
-			}
-			
-			if (productVolume > maxVolume) {
-				
-				throw new ServiceException("Product configuration exceeds box configuraton");
-				
-			}
-
-			//List boxesList = boxesList;
-
-			// try each box
-			//Iterator boxIter = boxesList.iterator();
-			for (PackingBox pbox : boxesList) {
-				double volumeLeft = pbox.getVolumeLeft();
-				double weightLeft = pbox.getWeightLeft();
-
-				if ((volumeLeft * .75) >= productVolume
-						&& pbox.getWeightLeft() >= productWeight) {// fit the item
-																	// in this
-																	// box
-					// fit in the current box
-					volumeLeft = volumeLeft - productVolume;
-					pbox.setVolumeLeft(volumeLeft);
-					weightLeft = weightLeft - productWeight;
-					pbox.setWeightLeft(weightLeft);
-
-					assignedProducts.add(p);
-					productCount--;
-
-					double w = pbox.getWeight();
-					w = w + productWeight;
-					pbox.setWeight(w);
-					productAssigned = true;
-					maxBox--;
-					break;
-
-				}
 
 			}
-
-			if (!productAssigned) {// create a new box
-
-				box = new PackingBox();
-				// set box max volume
-				box.setVolumeLeft(maxVolume);
-				box.setWeightLeft(maxweight);
-
-				boxesList.add(box);
-
-				double volumeLeft = box.getVolumeLeft() - productVolume;
-				box.setVolumeLeft(volumeLeft);
-				double weightLeft = box.getWeightLeft() - productWeight;
-				box.setWeightLeft(weightLeft);
-				assignedProducts.add(p);
-				productCount--;
-				double w = box.getWeight();
-				w = w + productWeight;
-				box.setWeight(w);
-				maxBox--;
-			}
-
 		}
 
-		// now prepare the shipping info
-
-		// number of boxes
-
-		//Iterator ubIt = usedBoxesList.iterator();
-
-		System.out.println("###################################");
-		System.out.println("Number of boxes " + boxesList.size());
-		System.out.println("###################################");
+		BoxPacker.Packing packing = packer.pack(Arrays.copyOf(width, items), Arrays.copyOf(length, items),
+				Arrays.copyOf(height, items), Arrays.copyOf(weight, items), Arrays.copyOf(quantity, items));
 
-		for(PackingBox pb : boxesList) {
+		// now prepare the shipping info
+		List<PackageDetails> boxes = new ArrayList<PackageDetails>(packing.size());
+		for(int b = 0; b < packing.size(); b++) {
+			int type = packing.getType(b);
 			PackageDetails details = new PackageDetails();
-			details.setShippingHeight(height);
-			details.setShippingLength(length);
-			details.setShippingWeight(weight + box.getWeight());
-			details.setShippingWidth(width);
+			details.setShippingHeight(boxHeight[type]);
+			details.setShippingLength(boxLength[type]);
+			details.setShippingWeight(packing.getWeight(b));
+			details.setShippingWidth(boxWidth[type]);
 			details.setItemName(store.getCode());
 			boxes.add(details);
 		}
@@ -401,36 +296,3 @@ public class DefaultPackagingImpl implements Packaging {
 
 }
 
-
-class PackingBox {
-
-	private double volumeLeft;
-	private double weightLeft;
-	private double weight;
-
-	public double getVolumeLeft() {
-		return volumeLeft;
-	}
-
-	public void setVolumeLeft(double volumeLeft) {
-		this.volumeLeft = volumeLeft;
-	}
-
-	public double getWeight() {
-		return weight;
-	}
-
-	public void setWeight(double weight) {
-		this.weight = weight;
-	}
-
-	public double getWeightLeft() {
-		return weightLeft;
-	}
-
-	public void setWeightLeft(double weightLeft) {
-		this.weightLeft = weightLeft;
-	}
-
-}
-
@@ -54,6 +54,11 @@ public class PriceByDistanceShippingQuoteRules implements ShippingQuoteModule {
 		return null;
 	}
 
+	@Override
+	public boolean isRemote() {
+		return false;
+	}
+
 	@Override
 	public List<ShippingOption> getShippingQuotes(ShippingQuote quote,
 			List<PackageDetails> packages, BigDecimal orderTotal,
@@ -10,7 +10,7 @@ import javax.inject.Inject;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
-import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.StatelessKieSession;
 import org.kie.internal.io.ResourceFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -143,13 +143,12 @@ public class ShippingDecisionPreProcessorImpl implements ShippingQuotePrePostPro
 		 * New code
 		 */
 		
-		KieSession kieSession=droolsBeanFactory.getKieSession(ResourceFactory.newClassPathResource("com/salesmanager/drools/rules/ShippingDecision.drl"));
+		StatelessKieSession kieSession=droolsBeanFactory.getStatelessKieSession(ResourceFactory.newClassPathResource("com/salesmanager/drools/rules/ShippingDecision.drl"));
 		
 		DecisionResponse resp = new DecisionResponse();
 		
-        kieSession.insert(inputParameters);
         kieSession.setGlobal("decision",resp);
-        kieSession.fireAllRules();
+        kieSession.execute(inputParameters);
         //System.out.println(resp.getModuleName());
         inputParameters.setModuleName(resp.getModuleName());
 
@@ -4,21 +4,16 @@ import java.math.BigDecimal;
 import java.util.List;
 import java.util.Locale;
 
-import org.apache.commons.lang.Validate;
+import javax.inject.Inject;
+
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import com.google.maps.DistanceMatrixApi;
-import com.google.maps.GeoApiContext;
-import com.google.maps.GeocodingApi;
-import com.google.maps.model.Distance;
-import com.google.maps.model.DistanceMatrix;
-import com.google.maps.model.DistanceMatrixRow;
-import com.google.maps.model.GeocodingResult;
-import com.google.maps.model.LatLng;
+import com.salesmanager.core.business.modules.geo.GeoLocator;
+import com.salesmanager.core.business.modules.geo.GeoPoint;
 import com.salesmanager.core.model.common.Delivery;
 import com.salesmanager.core.model.merchant.MerchantStore;
 import com.salesmanager.core.model.shipping.PackageDetails;
@@ -38,7 +33,10 @@ import com.salesmanager.core.modules.integration.shipping.model.ShippingQuotePre
  * 
  * The module can be configured to use miles by changing distance.inMeters
  * 
- * To use this pre-processor you will need a google api-key
+ * Locations and distances come from the GeoLocator, memoized by origin
+ * address and destination postal code
+ * 
+ * To use this pre-processor with google you will need a google api-key
  * 
  * Access google developers console
  * https://console.developers.google.com/project
@@ -66,8 +64,8 @@ public class ShippingDistancePreProcessorImpl implements ShippingQuotePrePostPro
 	
 	private final static String MODULE_CODE = "shippingDistanceModule";
 
-	@Value("${config.shippingDistancePreProcessor.apiKey}")
-	private String apiKey;
+	@Inject
+	private GeoLocator geoLocator;
 
 	@Value("#{'${config.shippingDistancePreProcessor.acceptedZones}'.split(',')}") 
 	private List<String> allowedZonesCodes = null;
@@ -124,10 +122,6 @@ public class ShippingDistancePreProcessorImpl implements ShippingQuotePrePostPro
 			return;
 		}
 		
-		Validate.notNull(apiKey, "Requires the configuration of google apiKey");
-		
-		GeoApiContext context = new GeoApiContext().setApiKey(apiKey);
-		
 		//build origin address
 		StringBuilder originAddress = new StringBuilder();
 		
@@ -144,13 +138,9 @@ public class ShippingDistancePreProcessorImpl implements ShippingQuotePrePostPro
 		originAddress.append(origin.getCountry().getIsoCode());
 
 		
-		//build destination address
+		//destinations are located by postal code
 		StringBuilder destinationAddress = new StringBuilder();
 		
-		destinationAddress.append(delivery.getAddress()).append(BLANK);
-		if(!StringUtils.isBlank(delivery.getCity())) {
-			destinationAddress.append(delivery.getCity()).append(BLANK);
-		}
 		destinationAddress.append(delivery.getPostalCode()).append(BLANK);
 		
 		if(!StringUtils.isBlank(delivery.getState())) {
@@ -163,35 +153,25 @@ public class ShippingDistancePreProcessorImpl implements ShippingQuotePrePostPro
 		
 		
 		try {
-			GeocodingResult[] originAdressResult =  GeocodingApi.geocode(context,
-					originAddress.toString()).await();
+			GeoPoint originLocation = geoLocator.locateAddress(originAddress.toString(),
+					origin.getPostalCode(), origin.getCountry().getIsoCode());
 
-			GeocodingResult[] destinationAdressResult =  GeocodingApi.geocode(context,
-					destinationAddress.toString()).await();
+			GeoPoint destinationLocation = geoLocator.locatePostalCode(destinationAddress.toString(),
+					delivery.getPostalCode(), delivery.getCountry().getIsoCode());
 
-			if(originAdressResult.length>0 && destinationAdressResult.length>0) {
-				LatLng originLatLng = originAdressResult[0].geometry.location;
-				LatLng destinationLatLng = destinationAdressResult[0].geometry.location;
+			if(originLocation!=null && destinationLocation!=null) {
 				
-				delivery.setLatitude(String.valueOf(destinationLatLng.lat));
-				delivery.setLongitude(String.valueOf(destinationLatLng.lng));
+				delivery.setLatitude(String.valueOf(destinationLocation.getLatitude()));
+				delivery.setLongitude(String.valueOf(destinationLocation.getLongitude()));
 				
 				//keep latlng for further usage in order to display the map
 	
+				Double distance = geoLocator.distance(originLocation, destinationLocation);
 				
-				DistanceMatrix  distanceRequest = DistanceMatrixApi.newRequest(context)
-		 		.origins(new LatLng(originLatLng.lat, originLatLng.lng))
-		 		
-		 		.destinations(new LatLng(destinationLatLng.lat, destinationLatLng.lng))
-		 				.awaitIgnoreError();
-				
-				
-				if(distanceRequest!=null) {
-					DistanceMatrixRow distanceMax = distanceRequest.rows[0];
-					Distance distance = distanceMax.elements[0].distance;
-					quote.getQuoteInformations().put(Constants.DISTANCE_KEY, 0.001 * distance.inMeters);
+				if(distance!=null) {
+					quote.getQuoteInformations().put(Constants.DISTANCE_KEY, distance);
 				} else {
-				  LOGGER.error("Expected distance inner google api to return DistanceMatrix, it returned null. API key might not be working for this request");
+				  LOGGER.error("Expected a distance between " + originAddress + " and " + destinationAddress + ", no geo provider returned one. API key might not be working for this request");
 				}
 
 			}
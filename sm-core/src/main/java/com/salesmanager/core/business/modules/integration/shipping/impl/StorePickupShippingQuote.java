@@ -92,6 +92,11 @@ public class StorePickupShippingQuote implements ShippingQuoteModule, ShippingQu
 
 	}
 
+	@Override
+	public boolean isRemote() {
+		return false;
+	}
+
 	@Override
 	public List<ShippingOption> getShippingQuotes(
 			ShippingQuote shippingQuote,
@@ -1,7 +1,6 @@
 package com.salesmanager.core.business.modules.integration.shipping.impl;
 
 import java.io.BufferedReader;
-import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
 import java.math.BigDecimal;
@@ -11,19 +10,14 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
+import javax.inject.Inject;
+
 import org.apache.commons.digester.Digester;
 import org.apache.commons.lang.Validate;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,6 +47,9 @@ public class UPSShippingQuote implements ShippingQuoteModule {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger(UPSShippingQuote.class);
 
+	@Inject
+	private CarrierHttpClient httpClient;
+
 
 	@Override
 	public void validateModuleConfiguration(
@@ -380,7 +377,6 @@ public class UPSShippingQuote implements ShippingQuoteModule {
 			LOGGER.debug("UPS QUOTE REQUEST " + xmlbuffer.toString());
 
 
-			try(CloseableHttpClient httpclient = HttpClients.createDefault()) {
 			//HttpClient client = new HttpClient();
 			httppost = new HttpPost(protocol + "://" + host + ":" + port
 					+ url);
@@ -388,24 +384,7 @@ public class UPSShippingQuote implements ShippingQuoteModule {
 			//RequestEntity entity = new StringRequestEntity(
 			//		xmlbuffer.toString(), "text/plain", "UTF-8");
 			httppost.setEntity(entity);
-            // Create a custom response handler
-            ResponseHandler<String> responseHandler = new ResponseHandler<String>() {
-
-                @Override
-                public String handleResponse(
-                        final HttpResponse response) throws ClientProtocolException, IOException {
-                    int status = response.getStatusLine().getStatusCode();
-                    if (status >= 200 && status < 300) {
-                        HttpEntity entity = response.getEntity();
-                        return entity != null ? EntityUtils.toString(entity) : null;
-                    } else {
-                    	LOGGER.error("Communication Error with ups quote " + status);
-        				throw new ClientProtocolException("UPS quote communication error " + status);
-                    }
-                }
-
-            };
-			String data = httpclient.execute(httppost, responseHandler);
+            String data = httpClient.execute(httppost, "UPS");
 
 			//int result = response.getStatusLine().getStatusCode();
 			//int result = client.executeMethod(httppost);
@@ -622,7 +601,6 @@ public class UPSShippingQuote implements ShippingQuoteModule {
 
 
 			return shippingOptions;
-	}
 		} catch (Exception e1) {
 			LOGGER.error("UPS quote error",e1);
 			throw new IntegrationException(e1);
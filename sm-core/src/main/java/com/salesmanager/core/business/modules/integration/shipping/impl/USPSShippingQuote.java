@@ -1,6 +1,5 @@
 package com.salesmanager.core.business.modules.integration.shipping.impl;
 
-import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
 import java.math.BigDecimal;
@@ -16,14 +15,7 @@ import javax.inject.Inject;
 
 import org.apache.commons.digester.Digester;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,6 +56,9 @@ public class USPSShippingQuote implements ShippingQuoteModule {
 	
 	@Inject
 	private CountryService countryService;
+
+	@Inject
+	private CarrierHttpClient httpClient;
 	
 
 	@Override
@@ -425,7 +420,6 @@ public class USPSShippingQuote implements ShippingQuoteModule {
 
 			LOGGER.debug("USPS QUOTE REQUEST " + xmlbuffer.toString());
 			//HttpClient client = new HttpClient();
-			try(CloseableHttpClient httpclient = HttpClients.createDefault()) {
 			@SuppressWarnings("deprecation")
 			String encoded = java.net.URLEncoder.encode(xmlbuffer.toString());
 
@@ -442,24 +436,7 @@ public class USPSShippingQuote implements ShippingQuoteModule {
 			// StringRequestEntity(xmlbuffer.toString(),"text/plain","UTF-8");
 			// httpget.setRequestEntity(entity);
 
-            ResponseHandler<String> responseHandler = new ResponseHandler<String>() {
-
-                @Override
-                public String handleResponse(
-                        final HttpResponse response) throws ClientProtocolException, IOException {
-                    int status = response.getStatusLine().getStatusCode();
-                    if (status >= 200 && status < 300) {
-                        HttpEntity entity = response.getEntity();
-                        return entity != null ? EntityUtils.toString(entity) : null;
-                    } else {
-                    	LOGGER.error("Communication Error with ups quote " + status);
-        				throw new ClientProtocolException("UPS quote communication error " + status);
-                    }
-                }
-
-            };
-
-            String data = httpclient.execute(httpget, responseHandler);
+            String data = httpClient.execute(httpget, "USPS");
 /*			int result = client.executeMethod(httpget);
 			if (result != 200) {
 				LOGGER.error("Communication Error with usps quote " + result + " "
@@ -667,7 +644,6 @@ public class USPSShippingQuote implements ShippingQuoteModule {
 			}*/
 
 			return shippingOptions;
-			}
 
 		} catch (Exception e1) {
 			LOGGER.error("Error in USPS shipping quote ",e1);
@@ -5,7 +5,7 @@ import java.util.Date;
 
 import org.apache.commons.lang.Validate;
 import org.apache.commons.lang3.StringUtils;
-import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.StatelessKieSession;
 import org.kie.internal.io.ResourceFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -70,7 +70,7 @@ public class PromoCodeCalculatorModule implements OrderTotalPostProcessorModule
 			return null;
 		}
 		
-		KieSession kieSession=droolsBeanFactory.getKieSession(ResourceFactory.newClassPathResource("com/salesmanager/drools/rules/PromoCoupon.drl"));
+		StatelessKieSession kieSession=droolsBeanFactory.getStatelessKieSession(ResourceFactory.newClassPathResource("com/salesmanager/drools/rules/PromoCoupon.drl"));
 		
 		OrderTotalResponse resp = new OrderTotalResponse();
 		
@@ -78,9 +78,8 @@ public class PromoCodeCalculatorModule implements OrderTotalPostProcessorModule
 		inputParameters.setPromoCode(summary.getPromoCode());
 		inputParameters.setDate(new Date());
 		
-        kieSession.insert(inputParameters);
         kieSession.setGlobal("total",resp);
-        kieSession.fireAllRules();
+        kieSession.execute(inputParameters);
 
 		if(resp.getDiscount() != null) {
 			
@@ -0,0 +1,244 @@
+package com.salesmanager.core.business.modules.search;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shopizer.search.services.GetResponse;
+import com.shopizer.search.services.SearchRequest;
+import com.shopizer.search.services.SearchResponse;
+import com.shopizer.search.services.SearchService;
+
+/**
+ * In process search engine, alternative to the Elasticsearch backend.
+ * Selected with config.search.method=embedded
+ *
+ * Each product_[lang]_[store] collection is an in memory inverted index
+ * persisted to a segment file in config.search.embedded.location. Segments are
+ * replayed when the service starts and compacted when they contain more
+ * replaced or deleted records than live documents.
+ */
+public class EmbeddedSearchService extends SearchService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(EmbeddedSearchService.class);
+
+	private static final String SEGMENT_EXTENSION = ".seg";
+	private static final String PRODUCT_PREFIX = "product_";
+	private static final String KEYWORD_PREFIX = "keyword_";
+	private static final int COMPACTION_THRESHOLD = 1000;
+
+	private final SearchAnalyzer analyzer = new SearchAnalyzer();
+
+	private final ConcurrentMap<String, ProductIndex> indexes = new ConcurrentHashMap<String, ProductIndex>();
+	private final ConcurrentMap<String, IndexSegmentFile> segments = new ConcurrentHashMap<String, IndexSegmentFile>();
+
+	private String indexLocation;
+
+	private Path root;
+
+	@Override
+	public synchronized void initService() {
+
+		if (root != null) {
+			return;
+		}
+
+		try {
+			root = Paths.get(indexLocation);
+			Files.createDirectories(root);
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(root, "*" + SEGMENT_EXTENSION)) {
+				for (Path file : files) {
+					String name = file.getFileName().toString();
+					load(name.substring(0, name.length() - SEGMENT_EXTENSION.length()));
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot open embedded search indexes in " + indexLocation, e);
+		}
+
+		LOGGER.info("Embedded search started with " + indexes.size() + " indexes from " + root.toAbsolutePath());
+	}
+
+	@Override
+	public void index(String json, String collection) throws Exception {
+
+		Map<String, Object> fields = parse(json);
+		String id = (String) fields.get("id");
+		if (StringUtils.isBlank(id)) {
+			throw new IllegalArgumentException("Indexed object requires an id");
+		}
+
+		ProductIndex index = index(collection);
+		IndexSegmentFile segment = segments.get(collection);
+		synchronized (segment) {
+			segment.put(id, json);
+			index.put(id, fields);
+			compactIfRequired(collection, index, segment);
+		}
+	}
+
+	@Override
+	public void deleteObject(String collection, String id) throws Exception {
+
+		ProductIndex index = indexes.get(collection);
+		if (index == null) {
+			return;
+		}
+		IndexSegmentFile segment = segments.get(collection);
+		synchronized (segment) {
+			if (index.delete(id)) {
+				segment.delete(id);
+				compactIfRequired(collection, index, segment);
+			}
+		}
+	}
+
+	@Override
+	public GetResponse getObject(String collection, String id) throws Exception {
+		ProductIndex index = indexes.get(collection);
+		Map<String, Object> fields = index == null ? null : index.get(id);
+		if (fields == null) {
+			return null;
+		}
+		GetResponse response = new GetResponse(fields);
+		response.setObjectJson(JSONObject.toJSONString(fields));
+		return response;
+	}
+
+	@Override
+	public SearchResponse search(SearchRequest request) throws Exception {
+
+		String collection = request.getIndex();
+		List<String> collections = request.getCollections();
+		if (!CollectionUtils.isEmpty(collections)) {
+			collection = collections.get(0);
+		}
+
+		ProductIndex index = collection == null ? null : indexes.get(collection);
+		if (index == null) {
+			SearchResponse response = new SearchResponse();
+			response.setCount(0);
+			return response;
+		}
+
+		return index.search(request.getMatch(), request.getStart(), request.getSize());
+	}
+
+	/**
+	 * Collection keyword_[lang]_[store] completes from product_[lang]_[store]
+	 */
+	@Override
+	public SearchResponse searchAutoComplete(String collection, String word, int size) throws Exception {
+
+		String productCollection = collection;
+		if (collection != null && collection.startsWith(KEYWORD_PREFIX)) {
+			productCollection = PRODUCT_PREFIX + collection.substring(KEYWORD_PREFIX.length());
+		}
+
+		SearchResponse response = new SearchResponse();
+		ProductIndex index = indexes.get(productCollection);
+		String[] keywords = index == null ? new String[0] : index.autocomplete(word, size);
+		response.setInlineSearchList(keywords);
+		response.setCount(keywords.length);
+		return response;
+	}
+
+	@PreDestroy
+	public void close() {
+		for (IndexSegmentFile segment : segments.values()) {
+			try {
+				segment.close();
+			} catch (IOException e) {
+				LOGGER.error("Cannot close search segment " + segment.getPath(), e);
+			}
+		}
+	}
+
+	private ProductIndex index(String collection) throws IOException {
+		ProductIndex index = indexes.get(collection);
+		if (index != null) {
+			return index;
+		}
+		synchronized (this) {
+			if (root == null) {
+				initService();
+			}
+			index = indexes.get(collection);
+			if (index == null) {
+				index = load(collection);
+			}
+			return index;
+		}
+	}
+
+	private ProductIndex load(String collection) throws IOException {
+
+		if (!collection.matches("[\\w\\-]+")) {
+			throw new IllegalArgumentException("Invalid collection name " + collection);
+		}
+
+		ProductIndex index = new ProductIndex(collection, analyzer);
+		IndexSegmentFile segment = new IndexSegmentFile(root.resolve(collection + SEGMENT_EXTENSION));
+		segment.replay((id, json) -> {
+			if (json == null) {
+				index.delete(id);
+				return;
+			}
+			try {
+				index.put(id, parse(json));
+			} catch (Exception e) {
+				LOGGER.error("Skipping unreadable document " + id + " of search segment " + collection, e);
+			}
+		});
+
+		segments.put(collection, segment);
+		indexes.put(collection, index);
+		return index;
+	}
+
+	private void compactIfRequired(String collection, ProductIndex index, IndexSegmentFile segment)
+			throws IOException {
+
+		int live = index.size();
+		if (segment.getRecords() < COMPACTION_THRESHOLD || segment.getRecords() <= live * 2) {
+			return;
+		}
+
+		Map<String, String> documents = new LinkedHashMap<String, String>();
+		for (Map.Entry<String, Map<String, Object>> document : index.documents().entrySet()) {
+			documents.put(document.getKey(), JSONObject.toJSONString(document.getValue()));
+		}
+		segment.compact(documents);
+		LOGGER.debug("Compacted search segment " + collection + " to " + documents.size() + " documents");
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> parse(String json) throws Exception {
+		return (Map<String, Object>) new JSONParser().parse(json);
+	}
+
+	public String getIndexLocation() {
+		return indexLocation;
+	}
+
+	public void setIndexLocation(String indexLocation) {
+		this.indexLocation = indexLocation;
+	}
+
+}
@@ -0,0 +1,156 @@
+package com.salesmanager.core.business.modules.search;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Append only segment file of an embedded search index.
+ * Each record is [operation][id length][id][json length][json], a delete
+ * record has no json. The file is memory mapped when the index is loaded
+ * and rewritten with live documents only when it is compacted.
+ */
+public class IndexSegmentFile implements Closeable {
+
+	private static final byte PUT = 1;
+	private static final byte DELETE = 0;
+
+	private final Path path;
+	private FileChannel channel;
+	private int records = 0;
+
+	public IndexSegmentFile(Path path) throws IOException {
+		this.path = path;
+		open();
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Number of records, including replaced and deleted documents
+	 */
+	public synchronized int getRecords() {
+		return records;
+	}
+
+	/**
+	 * Replays the segment, put records receive the json, delete records a null
+	 * json. A truncated last record is ignored.
+	 */
+	public synchronized void replay(BiConsumer<String, String> consumer) throws IOException {
+
+		long size = channel.size();
+		if (size == 0) {
+			return;
+		}
+
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		int replayed = 0;
+		while (buffer.remaining() >= 5) {
+			byte operation = buffer.get();
+			String id = read(buffer);
+			if (id == null) {
+				break;
+			}
+			if (operation == PUT) {
+				if (buffer.remaining() < 4) {
+					break;
+				}
+				String json = read(buffer);
+				if (json == null) {
+					break;
+				}
+				consumer.accept(id, json);
+			} else {
+				consumer.accept(id, null);
+			}
+			replayed++;
+		}
+		records = replayed;
+	}
+
+	public synchronized void put(String id, String json) throws IOException {
+		byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+		byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + idBytes.length + 4 + jsonBytes.length);
+		buffer.put(PUT).putInt(idBytes.length).put(idBytes).putInt(jsonBytes.length).put(jsonBytes);
+		write(buffer);
+	}
+
+	public synchronized void delete(String id) throws IOException {
+		byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + idBytes.length);
+		buffer.put(DELETE).putInt(idBytes.length).put(idBytes);
+		write(buffer);
+	}
+
+	/**
+	 * Rewrites the segment with the live documents
+	 */
+	public synchronized void compact(Map<String, String> documents) throws IOException {
+
+		Path compacted = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (Map.Entry<String, String> document : documents.entrySet()) {
+				byte[] idBytes = document.getKey().getBytes(StandardCharsets.UTF_8);
+				byte[] jsonBytes = document.getValue().getBytes(StandardCharsets.UTF_8);
+				ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + idBytes.length + 4 + jsonBytes.length);
+				buffer.put(PUT).putInt(idBytes.length).put(idBytes).putInt(jsonBytes.length).put(jsonBytes);
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					out.write(buffer);
+				}
+			}
+			out.force(true);
+		}
+
+		channel.close();
+		Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		open();
+		records = documents.size();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		channel.close();
+	}
+
+	private void open() throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		channel.position(channel.size());
+	}
+
+	private void write(ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		records++;
+	}
+
+	private String read(ByteBuffer buffer) {
+		if (buffer.remaining() < 4) {
+			return null;
+		}
+		int length = buffer.getInt();
+		if (length < 0 || buffer.remaining() < length) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
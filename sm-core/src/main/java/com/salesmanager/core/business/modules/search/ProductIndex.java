@@ -0,0 +1,438 @@
+package com.salesmanager.core.business.modules.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.shopizer.search.services.Entry;
+import com.shopizer.search.services.Facet;
+import com.shopizer.search.services.SearchHit;
+import com.shopizer.search.services.SearchResponse;
+
+/**
+ * In memory inverted index of one product collection (product_[lang]_[store]).
+ * Documents are the IndexProduct json maps, relevance is computed with BM25
+ * over name, tags, highlight and description, name and tags being boosted.
+ * Facets are computed on categories, manufacturer and price ranges of the
+ * matching documents.
+ *
+ * A replaced or deleted document leaves an empty slot, the documents are
+ * renumbered once empty slots outnumber the live documents.
+ */
+public class ProductIndex {
+
+	public static final String FACET_CATEGORIES = "categories";
+	public static final String FACET_MANUFACTURER = "manufacturer";
+	public static final String FACET_PRICE = "price";
+
+	private static final double K1 = 1.2d;
+	private static final double B = 0.75d;
+
+	private static final int NAME_BOOST = 3;
+	private static final int TAGS_BOOST = 2;
+
+	/** empty slots tolerated before the documents are renumbered **/
+	private static final int MIN_EMPTY_SLOTS = 64;
+
+	private static final double[] PRICE_RANGES = { 0, 25, 50, 100, 250, 500, 1000 };
+
+	private final String name;
+	private final String language;
+	private final SearchAnalyzer analyzer;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<String, Integer> documentIds = new HashMap<String, Integer>();
+	private final ArrayList<Document> documents = new ArrayList<Document>();
+	private final Map<String, Map<Integer, Integer>> postings = new HashMap<String, Map<Integer, Integer>>();
+	private final NavigableMap<String, Integer> suggestions = new TreeMap<String, Integer>();
+
+	private long totalLength = 0;
+	private int count = 0;
+
+	public ProductIndex(String name, SearchAnalyzer analyzer) {
+		this.name = name;
+		this.analyzer = analyzer;
+		String[] parts = name.split("_");
+		this.language = parts.length > 1 ? parts[1] : null;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return count;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds or replaces a document
+	 */
+	public void put(String id, Map<String, Object> fields) {
+
+		Map<String, Integer> frequencies = new HashMap<String, Integer>();
+		int length = 0;
+		length += addTerms(frequencies, string(fields.get("name")), NAME_BOOST);
+		length += addTerms(frequencies, StringUtils.join(list(fields.get("tags")), ' '), TAGS_BOOST);
+		length += addTerms(frequencies, string(fields.get("highlight")), 1);
+		length += addTerms(frequencies, string(fields.get("description")), 1);
+
+		List<String> suggested = suggestions(fields);
+
+		lock.writeLock().lock();
+		try {
+			remove(id);
+			int doc = documents.size();
+			documents.add(new Document(id, fields, frequencies.keySet(), suggested, length));
+			documentIds.put(id, doc);
+			for (Map.Entry<String, Integer> frequency : frequencies.entrySet()) {
+				postings.computeIfAbsent(frequency.getKey(), k -> new HashMap<Integer, Integer>()).put(doc,
+						frequency.getValue());
+			}
+			for (String suggestion : suggested) {
+				suggestions.merge(suggestion, 1, Integer::sum);
+			}
+			totalLength += length;
+			count++;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public boolean delete(String id) {
+		lock.writeLock().lock();
+		try {
+			return remove(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public Map<String, Object> get(String id) {
+		lock.readLock().lock();
+		try {
+			Integer doc = documentIds.get(id);
+			return doc == null ? null : documents.get(doc).fields;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Live documents, used when the index is compacted
+	 */
+	public Map<String, Map<String, Object>> documents() {
+		lock.readLock().lock();
+		try {
+			Map<String, Map<String, Object>> live = new LinkedHashMap<String, Map<String, Object>>();
+			for (Document document : documents) {
+				if (document != null) {
+					live.put(document.id, document.fields);
+				}
+			}
+			return live;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public SearchResponse search(String match, int start, int size) {
+
+		List<String> terms = analyzer.terms(match, language);
+
+		lock.readLock().lock();
+		try {
+
+			Map<Integer, Double> scores = new HashMap<Integer, Double>();
+			if (terms.isEmpty()) {
+				for (int doc = 0; doc < documents.size(); doc++) {
+					if (documents.get(doc) != null) {
+						scores.put(doc, 0d);
+					}
+				}
+			} else {
+				double averageLength = count == 0 ? 0 : (double) totalLength / count;
+				for (String term : terms) {
+					Map<Integer, Integer> posting = postings.get(term);
+					if (posting == null) {
+						continue;
+					}
+					double idf = Math.log(1 + (count - posting.size() + 0.5d) / (posting.size() + 0.5d));
+					for (Map.Entry<Integer, Integer> entry : posting.entrySet()) {
+						int tf = entry.getValue();
+						double norm = averageLength == 0 ? 1
+								: 1 - B + B * documents.get(entry.getKey()).length / averageLength;
+						double score = idf * tf * (K1 + 1) / (tf + K1 * norm);
+						scores.merge(entry.getKey(), score, Double::sum);
+					}
+				}
+			}
+
+			List<Map.Entry<Integer, Double>> ranked = new ArrayList<Map.Entry<Integer, Double>>(scores.entrySet());
+			ranked.sort((a, b) -> {
+				int c = Double.compare(b.getValue(), a.getValue());
+				return c != 0 ? c : Integer.compare(a.getKey(), b.getKey());
+			});
+
+			List<SearchHit> hits = new ArrayList<SearchHit>();
+			List<String> ids = new ArrayList<String>();
+			int from = Math.max(start, 0);
+			int to = size > 0 ? Math.min(ranked.size(), from + size) : ranked.size();
+			for (int i = from; i < to; i++) {
+				Document document = documents.get(ranked.get(i).getKey());
+				hits.add(new SearchHit(item(document.fields), document.id, name));
+				ids.add(document.id);
+			}
+
+			SearchResponse response = new SearchResponse();
+			response.setCount(ranked.size());
+			response.setSearchHits(hits);
+			response.setIds(ids);
+			response.setFacets(facets(scores.keySet()));
+			return response;
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Product names and tags starting with a prefix, most frequent first
+	 */
+	public String[] autocomplete(String prefix, int size) {
+
+		String folded = analyzer.fold(StringUtils.trimToEmpty(prefix));
+		if (folded.isEmpty()) {
+			return new String[0];
+		}
+
+		lock.readLock().lock();
+		try {
+			List<Map.Entry<String, Integer>> matches = new ArrayList<Map.Entry<String, Integer>>(
+					suggestions.subMap(folded, true, folded + Character.MAX_VALUE, true).entrySet());
+			matches.sort((a, b) -> {
+				int c = Integer.compare(b.getValue(), a.getValue());
+				return c != 0 ? c : a.getKey().compareTo(b.getKey());
+			});
+			int limit = size > 0 ? Math.min(size, matches.size()) : matches.size();
+			String[] keywords = new String[limit];
+			for (int i = 0; i < limit; i++) {
+				keywords[i] = matches.get(i).getKey();
+			}
+			return keywords;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private boolean remove(String id) {
+		Integer doc = documentIds.remove(id);
+		if (doc == null) {
+			return false;
+		}
+		Document document = documents.get(doc);
+		for (String term : document.terms) {
+			Map<Integer, Integer> posting = postings.get(term);
+			if (posting != null) {
+				posting.remove(doc);
+				if (posting.isEmpty()) {
+					postings.remove(term);
+				}
+			}
+		}
+		for (String suggestion : document.suggestions) {
+			suggestions.computeIfPresent(suggestion, (k, v) -> v > 1 ? v - 1 : null);
+		}
+		documents.set(doc, null);
+		totalLength -= document.length;
+		count--;
+		if (documents.size() - count > Math.max(count, MIN_EMPTY_SLOTS)) {
+			compact();
+		}
+		return true;
+	}
+
+	/**
+	 * Renumbers the live documents in the same order, postings follow
+	 */
+	private void compact() {
+		int[] renumbered = new int[documents.size()];
+		List<Document> live = new ArrayList<Document>(count);
+		for (int doc = 0; doc < documents.size(); doc++) {
+			Document document = documents.get(doc);
+			if (document != null) {
+				renumbered[doc] = live.size();
+				documentIds.put(document.id, live.size());
+				live.add(document);
+			}
+		}
+		for (Map.Entry<String, Map<Integer, Integer>> posting : postings.entrySet()) {
+			Map<Integer, Integer> docs = new HashMap<Integer, Integer>();
+			for (Map.Entry<Integer, Integer> entry : posting.getValue().entrySet()) {
+				docs.put(renumbered[entry.getKey()], entry.getValue());
+			}
+			posting.setValue(docs);
+		}
+		documents.clear();
+		documents.addAll(live);
+		documents.trimToSize();
+	}
+
+	/**
+	 * Slots of the documents, live or empty
+	 */
+	public int slots() {
+		lock.readLock().lock();
+		try {
+			return documents.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private Map<String, Facet> facets(Collection<Integer> matches) {
+
+		Map<String, Map<String, Long>> counts = new LinkedHashMap<String, Map<String, Long>>();
+		counts.put(FACET_CATEGORIES, new TreeMap<String, Long>());
+		counts.put(FACET_MANUFACTURER, new TreeMap<String, Long>());
+		counts.put(FACET_PRICE, new LinkedHashMap<String, Long>());
+
+		for (Integer doc : matches) {
+			Map<String, Object> fields = documents.get(doc).fields;
+			for (String category : list(fields.get("categories"))) {
+				counts.get(FACET_CATEGORIES).merge(category, 1L, Long::sum);
+			}
+			String manufacturer = string(fields.get("manufacturer"));
+			if (manufacturer != null) {
+				counts.get(FACET_MANUFACTURER).merge(manufacturer, 1L, Long::sum);
+			}
+			Object price = fields.get("price");
+			if (price instanceof Number) {
+				counts.get(FACET_PRICE).merge(priceRange(((Number) price).doubleValue()), 1L, Long::sum);
+			}
+		}
+
+		Map<String, Facet> facets = new LinkedHashMap<String, Facet>();
+		for (Map.Entry<String, Map<String, Long>> facetCounts : counts.entrySet()) {
+			if (facetCounts.getValue().isEmpty()) {
+				continue;
+			}
+			Facet facet = new Facet();
+			facet.setName(facetCounts.getKey());
+			List<Entry> entries = new ArrayList<Entry>();
+			for (Map.Entry<String, Long> count : facetCounts.getValue().entrySet()) {
+				Entry entry = new Entry();
+				entry.setName(count.getKey());
+				entry.setCount(count.getValue());
+				entries.add(entry);
+			}
+			facet.setEntries(entries);
+			facets.put(facetCounts.getKey(), facet);
+		}
+		return facets;
+	}
+
+	private String priceRange(double price) {
+		for (int i = PRICE_RANGES.length - 1; i >= 0; i--) {
+			if (price >= PRICE_RANGES[i]) {
+				return i == PRICE_RANGES.length - 1 ? (long) PRICE_RANGES[i] + "-*"
+						: (long) PRICE_RANGES[i] + "-" + (long) PRICE_RANGES[i + 1];
+			}
+		}
+		return "0-" + (long) PRICE_RANGES[1];
+	}
+
+	/**
+	 * Hit item as expected by SearchServiceImpl, scalar values as String
+	 */
+	private Map<String, Object> item(Map<String, Object> fields) {
+		Map<String, Object> item = new HashMap<String, Object>();
+		for (Map.Entry<String, Object> field : fields.entrySet()) {
+			Object value = field.getValue();
+			if (value == null || value instanceof Collection) {
+				item.put(field.getKey(), value);
+			} else {
+				item.put(field.getKey(), String.valueOf(value));
+			}
+		}
+		return item;
+	}
+
+	private int addTerms(Map<String, Integer> frequencies, String text, int boost) {
+		List<String> terms = analyzer.terms(text, language);
+		for (String term : terms) {
+			frequencies.merge(term, boost, Integer::sum);
+		}
+		return terms.size() * boost;
+	}
+
+	private List<String> suggestions(Map<String, Object> fields) {
+		List<String> suggested = new ArrayList<String>();
+		String productName = string(fields.get("name"));
+		if (productName != null) {
+			suggested.add(StringUtils.join(analyzer.words(productName), ' '));
+			suggested.addAll(analyzer.words(productName));
+		}
+		for (String tag : list(fields.get("tags"))) {
+			List<String> words = analyzer.words(tag);
+			if (!words.isEmpty()) {
+				suggested.add(StringUtils.join(words, ' '));
+			}
+		}
+		suggested.removeIf(String::isEmpty);
+		return new ArrayList<String>(new LinkedHashSet<String>(suggested));
+	}
+
+	private static String string(Object value) {
+		return value == null ? null : String.valueOf(value);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<String> list(Object value) {
+		if (value instanceof Collection) {
+			List<String> values = new ArrayList<String>();
+			for (Object o : (Collection<Object>) value) {
+				if (o != null) {
+					values.add(String.valueOf(o));
+				}
+			}
+			return values;
+		}
+		return Collections.emptyList();
+	}
+
+	private static class Document {
+
+		private final String id;
+		private final Map<String, Object> fields;
+		private final Collection<String> terms;
+		private final Collection<String> suggestions;
+		private final int length;
+
+		Document(String id, Map<String, Object> fields, Collection<String> terms, Collection<String> suggestions,
+				int length) {
+			this.id = id;
+			this.fields = fields;
+			this.terms = new ArrayList<String>(terms);
+			this.suggestions = suggestions;
+			this.length = length;
+		}
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.salesmanager.core.business.modules.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Language aware text analysis used by the embedded search engine.
+ * Text is lower cased, accents are folded, stop words are removed and
+ * terms are reduced by a light plural stemmer for en and fr.
+ */
+public class SearchAnalyzer {
+
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+	private static final Map<String, Set<String>> STOP_WORDS = new HashMap<String, Set<String>>();
+
+	static {
+		STOP_WORDS.put("en", new HashSet<String>(Arrays.asList("a", "an", "and", "are", "as", "at", "be", "but", "by",
+				"for", "if", "in", "into", "is", "it", "no", "not", "of", "on", "or", "such", "that", "the", "their",
+				"then", "there", "these", "they", "this", "to", "was", "will", "with")));
+		STOP_WORDS.put("fr", new HashSet<String>(Arrays.asList("a", "au", "aux", "avec", "ce", "ces", "dans", "de",
+				"des", "du", "elle", "en", "et", "il", "ils", "la", "le", "les", "leur", "lui", "ma", "mais", "me",
+				"mes", "ne", "nos", "notre", "nous", "on", "ou", "par", "pas", "pour", "qu", "que", "qui", "sa", "se",
+				"ses", "son", "sur", "ta", "te", "tes", "ton", "tu", "un", "une", "vos", "votre", "vous", "d", "l")));
+	}
+
+	/**
+	 * Lower cased and accent folded words, used for autocomplete
+	 */
+	public List<String> words(String text) {
+		if (StringUtils.isBlank(text)) {
+			return Collections.emptyList();
+		}
+		String folded = fold(text);
+		List<String> words = new ArrayList<String>();
+		for (String word : SEPARATORS.split(folded)) {
+			if (word.length() > 0) {
+				words.add(word);
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Indexed terms of a text for a given language
+	 */
+	public List<String> terms(String text, String language) {
+		List<String> words = words(text);
+		if (words.isEmpty()) {
+			return words;
+		}
+		Set<String> stopWords = STOP_WORDS.get(language);
+		List<String> terms = new ArrayList<String>(words.size());
+		for (String word : words) {
+			if (stopWords != null && stopWords.contains(word)) {
+				continue;
+			}
+			terms.add(stem(word, language));
+		}
+		return terms;
+	}
+
+	/**
+	 * Lower case and accent folding
+	 */
+	public String fold(String text) {
+		String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+		return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+	}
+
+	private String stem(String word, String language) {
+		if (word.length() <= 3) {
+			return word;
+		}
+		if ("en".equals(language)) {
+			if (word.endsWith("ies") && word.length() > 4) {
+				return word.substring(0, word.length() - 3) + "y";
+			}
+			if (word.endsWith("es") && (word.endsWith("ses") || word.endsWith("xes") || word.endsWith("ches")
+					|| word.endsWith("shes"))) {
+				return word.substring(0, word.length() - 2);
+			}
+			if (word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us")) {
+				return word.substring(0, word.length() - 1);
+			}
+		} else if ("fr".equals(language)) {
+			if (word.endsWith("aux")) {
+				return word.substring(0, word.length() - 3) + "al";
+			}
+			if (word.endsWith("s") || word.endsWith("x")) {
+				return word.substring(0, word.length() - 1);
+			}
+		}
+		return word;
+	}
+
+}
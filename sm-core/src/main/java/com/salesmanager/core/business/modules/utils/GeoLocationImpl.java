@@ -1,10 +1,22 @@
 package com.salesmanager.core.business.modules.utils;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.net.InetAddresses;
+import com.maxmind.db.CHMCache;
+import com.maxmind.db.Reader;
 import com.maxmind.geoip2.DatabaseReader;
 import com.maxmind.geoip2.model.CityResponse;
 import com.salesmanager.core.business.exception.ServiceException;
@@ -14,49 +26,183 @@ import com.salesmanager.core.modules.utils.GeoLocation;
 /**
  * Using Geolite2 City database
  * http://dev.maxmind.com/geoip/geoip2/geolite2/#Databases
+ *
+ * The database file (database) is memory mapped, the classpath database
+ * reference/GeoLite2-City.mmdb is read on the heap when no file is
+ * configured. The reader is opened once at startup.
+ *
+ * Addresses are kept by network, /24 for IPv4 and /48 for IPv6, so that
+ * the sessions of a network are located once. Ip addresses are parsed as
+ * literals, host names are never resolved.
  * @author c.samson
  *
  */
 public class GeoLocationImpl implements GeoLocation {
-	
-	private DatabaseReader reader = null;
+
 	private static final Logger LOGGER = LoggerFactory.getLogger( GeoLocationImpl.class );
 
+	private static final String CLASSPATH_DATABASE = "reference/GeoLite2-City.mmdb";
+
+	/** IPv6 networks, above every IPv4 network key **/
+	private static final long IPV6 = 1L << 48;
+
+	private volatile DatabaseReader reader = null;
+
+	private String database;
+
+	private int maxEntries = 50000;
+
+	private final Map<Long, Address> networks = new LinkedHashMap<Long, Address>(1024, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Address> eldest) {
+			return size() > maxEntries;
+		}
+	};
+
+	@PostConstruct
+	public synchronized void start() {
+		if (reader != null) {
+			return;
+		}
+		try {
+			if (!StringUtils.isBlank(database)) {
+				reader = new DatabaseReader.Builder(new File(database))
+						.fileMode(Reader.FileMode.MEMORY_MAPPED)
+						.withCache(new CHMCache())
+						.build();
+				LOGGER.info("IP database " + database + " memory mapped");
+			} else {
+				InputStream inputFile = GeoLocationImpl.class.getClassLoader().getResourceAsStream(CLASSPATH_DATABASE);
+				if (inputFile == null) {
+					LOGGER.warn("No IP database configured and " + CLASSPATH_DATABASE + " not found");
+					return;
+				}
+				try {
+					reader = new DatabaseReader.Builder(inputFile).withCache(new CHMCache()).build();
+				} finally {
+					inputFile.close();
+				}
+			}
+		} catch (Exception e) {
+			LOGGER.error("Cannot instantiate IP database", e);
+		}
+	}
+
+	@PreDestroy
+	public void close() {
+		DatabaseReader current = reader;
+		reader = null;
+		if (current != null) {
+			try {
+				current.close();
+			} catch (IOException e) {
+				LOGGER.warn("Cannot close IP database", e);
+			}
+		}
+	}
 
 	@Override
 	public Address getAddress(String ipAddress) throws Exception {
-		
-			if(reader==null) {
-					try {
-						java.io.InputStream inputFile = GeoLocationImpl.class.getClassLoader().getResourceAsStream("reference/GeoLite2-City.mmdb");
-						reader = new DatabaseReader.Builder(inputFile).build();
-					} catch(Exception e) {
-						LOGGER.error("Cannot instantiate IP database",e);
-					}
+
+		DatabaseReader current = reader;
+		if (current == null) {
+			throw new ServiceException("IP database not available");
+		}
+
+		InetAddress inetAddress = parse(ipAddress);
+		if (inetAddress == null) {
+			LOGGER.debug("Not an ip address " + ipAddress);
+			return new Address();
+		}
+
+		Long network = network(inetAddress);
+		Address address;
+		synchronized (networks) {
+			address = networks.get(network);
+		}
+		if (address == null) {
+			address = lookup(current, inetAddress);
+			synchronized (networks) {
+				networks.put(network, address);
 			}
-		
-			Address address = new Address();
+		}
+		return copy(address);
+	}
 
-			try {
-			
-			CityResponse response = reader.city(InetAddress.getByName(ipAddress));
+	private Address lookup(DatabaseReader current, InetAddress inetAddress) throws ServiceException {
+
+		Address address = new Address();
+
+		try {
+
+			CityResponse response = current.city(inetAddress);
 
 			address.setCountry(response.getCountry().getIsoCode());
 			address.setPostalCode(response.getPostal().getCode());
 			address.setZone(response.getMostSpecificSubdivision().getIsoCode());
 			address.setCity(response.getCity().getName());
-			
-			} catch(com.maxmind.geoip2.exception.AddressNotFoundException ne) {
-				LOGGER.debug("Address not fount in DB " + ne.getMessage());
-			} catch(Exception e) {
-				throw new ServiceException(e);
-			}
 
-		
-			return address;
-		
-		
+		} catch(com.maxmind.geoip2.exception.AddressNotFoundException ne) {
+			LOGGER.debug("Address not fount in DB " + ne.getMessage());
+		} catch(Exception e) {
+			throw new ServiceException(e);
+		}
+
+		return address;
+	}
+
+	/**
+	 * First address of a forwarded list, null when not an ip literal
+	 */
+	private InetAddress parse(String ipAddress) {
+		if (StringUtils.isBlank(ipAddress)) {
+			return null;
+		}
+		String ip = StringUtils.substringBefore(ipAddress, ",").trim();
+		if (ip.startsWith("[") && ip.endsWith("]")) {
+			ip = ip.substring(1, ip.length() - 1);
+		}
+		if (!InetAddresses.isInetAddress(ip)) {
+			return null;
+		}
+		return InetAddresses.forString(ip);
 	}
 
+	private Long network(InetAddress inetAddress) {
+		byte[] bytes = inetAddress.getAddress();
+		if (bytes.length == 4) {
+			return (long) ((bytes[0] & 0xff) << 16 | (bytes[1] & 0xff) << 8 | (bytes[2] & 0xff));
+		}
+		long prefix = 0;
+		for (int i = 0; i < 6; i++) {
+			prefix = prefix << 8 | (bytes[i] & 0xff);
+		}
+		return IPV6 | prefix;
+	}
+
+	private Address copy(Address address) {
+		Address copy = new Address();
+		copy.setCountry(address.getCountry());
+		copy.setPostalCode(address.getPostalCode());
+		copy.setZone(address.getZone());
+		copy.setCity(address.getCity());
+		return copy;
+	}
+
+	public void setDatabase(String database) {
+		this.database = database;
+	}
+
+	public void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	public int size() {
+		synchronized (networks) {
+			return networks.size();
+		}
+	}
 
 }
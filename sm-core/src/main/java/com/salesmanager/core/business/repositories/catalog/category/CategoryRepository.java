@@ -1,5 +1,6 @@
 package com.salesmanager.core.business.repositories.catalog.category;
 
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -75,6 +76,12 @@ public interface CategoryRepository extends JpaRepository<Category, Long>, Categ
 	@Query("select count(distinct c) from Category as c where c.merchantStore.id=?1")
 	int count(Integer storeId);
 
+	/**
+	 * category id, number of available products directly in the category
+	 */
+	@Query("select c.id, count(p.id) from Product p join p.categories c where c.merchantStore.id=?1 and p.available=true and p.dateAvailable<=?2 group by c.id")
+	List<Object[]> countProductsByStore(Integer storeId, Date date);
+
 
 	
 }
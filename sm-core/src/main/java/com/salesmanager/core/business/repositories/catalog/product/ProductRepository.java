@@ -1,10 +1,16 @@
 package com.salesmanager.core.business.repositories.catalog.product;
 
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.salesmanager.core.model.catalog.product.Product;
 
 
 public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
 
+	@Query("select p.id from Product p where p.merchantStore.id = ?1 order by p.id")
+	List<Long> findIdsByStore(Integer merchantId);
+
 }
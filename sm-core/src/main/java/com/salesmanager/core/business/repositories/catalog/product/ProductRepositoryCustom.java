@@ -36,6 +36,8 @@ public interface ProductRepositoryCustom {
 		Product getById(Long productId);
 		Product getById(Long productId, MerchantStore merchant);
 
+		List<Product> getByIds(Set<Long> productIds);
+
 		Product getByCode(String productCode, Language language);
 
 		List<Product> getProductsForLocale(MerchantStore store,
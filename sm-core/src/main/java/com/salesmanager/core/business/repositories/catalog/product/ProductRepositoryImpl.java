@@ -1,6 +1,7 @@
 package com.salesmanager.core.business.repositories.catalog.product;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -18,6 +19,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.business.utils.KeysetCursor;
 import com.salesmanager.core.model.catalog.product.Product;
 import com.salesmanager.core.model.catalog.product.ProductCriteria;
 import com.salesmanager.core.model.catalog.product.ProductList;
@@ -119,6 +121,45 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 
 	}
 
+	@Override
+	public List<Product> getByIds(Set<Long> productIds) {
+
+		StringBuilder qs = new StringBuilder();
+		qs.append("select distinct p from Product as p ");
+		qs.append("join fetch p.availabilities pa ");
+		qs.append("join fetch p.merchantStore merch ");
+		qs.append("join fetch p.descriptions pd ");
+
+		qs.append("left join fetch pa.prices pap ");
+		qs.append("left join fetch pap.descriptions papd ");
+
+		// images
+		qs.append("left join fetch p.images images ");
+		// options
+		qs.append("left join fetch p.attributes pattr ");
+		qs.append("left join fetch pattr.productOption po ");
+		qs.append("left join fetch po.descriptions pod ");
+		qs.append("left join fetch pattr.productOptionValue pov ");
+		qs.append("left join fetch pov.descriptions povd ");
+		// other lefts
+		qs.append("left join fetch p.manufacturer manuf ");
+		qs.append("left join fetch p.type type ");
+		qs.append("left join fetch p.taxClass tx ");
+
+		qs.append("where p.id in (:pids)");
+
+		String hql = qs.toString();
+		Query q = this.em.createQuery(hql);
+
+		q.setParameter("pids", productIds);
+
+		@SuppressWarnings("unchecked")
+		List<Product> products = q.getResultList();
+
+		return products;
+
+	}
+
 	@Override
 	public Product getByCode(String productCode, Language language) {
 
@@ -537,7 +578,7 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 		ProductList productList = new ProductList();
 
 		StringBuilder countBuilderSelect = new StringBuilder();
-		countBuilderSelect.append("select count(distinct p) from Product as p");
+		countBuilderSelect.append(" from Product as p");
 
 		StringBuilder countBuilderWhere = new StringBuilder();
 		countBuilderWhere.append(" where p.merchantStore.id=:mId");
@@ -604,62 +645,20 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 			if (criteria.getAvailable().booleanValue()) {
 				countBuilderWhere.append(" and p.available=true and p.dateAvailable<=:dt");
 			} else {
-				countBuilderWhere.append(" and p.available=false or p.dateAvailable>:dt");
+				countBuilderWhere.append(" and (p.available=false or p.dateAvailable>:dt)");
 			}
 		}
 
-		Query countQ = this.em.createQuery(countBuilderSelect.toString() + countBuilderWhere.toString());
-
-		countQ.setParameter("mId", store.getId());
-
-		if (!CollectionUtils.isEmpty(criteria.getCategoryIds())) {
-			countQ.setParameter("cid", criteria.getCategoryIds());
-		}
-
-		if (criteria.getAvailable() != null) {
-			countQ.setParameter("dt", new Date());
-		}
-
-		if (!StringUtils.isBlank(criteria.getCode())) {
-			countQ.setParameter("sku",
-					new StringBuilder().append("%").append(criteria.getCode().toLowerCase()).append("%").toString());
+		// the total is counted once, on the first page of a cursor
+		if (!StringUtils.isBlank(criteria.getCursor())) {
+			return listByStoreAfterCursor(store, language, criteria,
+					countBuilderSelect.toString() + countBuilderWhere.toString(), productList);
 		}
 
-		if (criteria.getManufacturerId() != null) {
-			countQ.setParameter("manufid", criteria.getManufacturerId());
-		}
-
-		if (!CollectionUtils.isEmpty(criteria.getAttributeCriteria())) {
-			int count = 0;
-			for (AttributeCriteria attributeCriteria : criteria.getAttributeCriteria()) {
-				countQ.setParameter(attributeCriteria.getAttributeCode(), attributeCriteria.getAttributeCode());
-				countQ.setParameter("val" + count + attributeCriteria.getAttributeCode(),
-						"%" + attributeCriteria.getAttributeValue() + "%");
-				count++;
-			}
-		}
-
-		if (criteria.getLanguage() != null && !criteria.getLanguage().equals("_all")) {
-			countQ.setParameter("lang", language.getCode());
-		}
-
-		if (!StringUtils.isBlank(criteria.getProductName())) {
-			countQ.setParameter("nm", new StringBuilder().append("%").append(criteria.getProductName().toLowerCase())
-					.append("%").toString());
-		}
-
-		if (!CollectionUtils.isEmpty(criteria.getProductIds())) {
-			countQ.setParameter("pId", criteria.getProductIds());
-		}
-
-		// RENTAL
-		if (!StringUtils.isBlank(criteria.getStatus())) {
-			countQ.setParameter("status", criteria.getStatus());
-		}
+		Query countQ = this.em.createQuery(
+				"select count(distinct p)" + countBuilderSelect.toString() + countBuilderWhere.toString());
 
-		if (criteria.getOwnerId() != null) {
-			countQ.setParameter("ownerid", criteria.getOwnerId());
-		}
+		setCriteriaParameters(countQ, store, language, criteria);
 
 		Number count = (Number) countQ.getSingleResult();
 
@@ -668,6 +667,11 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 		if (count.intValue() == 0)
 			return productList;
 
+		if (criteria.getCursor() != null) {
+			return listByStoreAfterCursor(store, language, criteria,
+					countBuilderSelect.toString() + countBuilderWhere.toString(), productList);
+		}
+
 		StringBuilder qs = new StringBuilder();
 		qs.append("select distinct p from Product as p ");
 		qs.append("join fetch p.merchantStore merch ");
@@ -767,49 +771,157 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 		String hql = qs.toString();
 		Query q = this.em.createQuery(hql);
 
+		setCriteriaParameters(q, store, language, criteria);
+
+		if (criteria.getMaxCount() > 0) {
+
+			q.setFirstResult(criteria.getStartIndex());
+			if (criteria.getMaxCount() < count.intValue()) {
+				q.setMaxResults(criteria.getMaxCount());
+			} else {
+				q.setMaxResults(count.intValue());
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		List<Product> products = q.getResultList();
+		productList.setProducts(products);
+
+		return productList;
+
+	}
+
+	/**
+	 * Keyset pagination on (sortOrder, id). The first query selects only the
+	 * ordered product ids of the requested page, starting after the cursor, the
+	 * second one hydrates those products. The cost of a page does not depend on
+	 * how deep in the list it is. The total count is only returned with the
+	 * first page, an empty cursor.
+	 * 
+	 * @param store
+	 * @param language
+	 * @param criteria
+	 * @param filter
+	 *            from and where clauses of the filtering query
+	 * @param productList
+	 * @return
+	 */
+	private ProductList listByStoreAfterCursor(MerchantStore store, Language language, ProductCriteria criteria,
+			String filter, ProductList productList) {
+
+		int pageSize = criteria.getMaxCount() > 0 ? criteria.getMaxCount() : criteria.getPageSize();
+
+		long[] position = KeysetCursor.decode(criteria.getCursor(), 2, "product");
+
+		StringBuilder idQs = new StringBuilder();
+		// a null sort order is positioned as 0, as in the cursor
+		idQs.append("select distinct p.id, coalesce(p.sortOrder, 0)").append(filter);
+		if (position != null) {
+			idQs.append(" and (coalesce(p.sortOrder, 0) > :cso or (coalesce(p.sortOrder, 0) = :cso and p.id > :cpid))");
+		}
+		idQs.append(" order by coalesce(p.sortOrder, 0) asc, p.id asc");
+
+		Query idQ = this.em.createQuery(idQs.toString());
+		setCriteriaParameters(idQ, store, language, criteria);
+		if (position != null) {
+			idQ.setParameter("cso", (int) position[0]);
+			idQ.setParameter("cpid", position[1]);
+		}
+		// one extra row tells if there is a next page
+		idQ.setMaxResults(pageSize + 1);
+
+		@SuppressWarnings("unchecked")
+		List<Object[]> rows = idQ.getResultList();
+
+		if (rows.size() > pageSize) {
+			rows = rows.subList(0, pageSize);
+			Object[] last = rows.get(pageSize - 1);
+			productList.setNextCursor(KeysetCursor.encode(((Number) last[1]).intValue(), (Long) last[0]));
+		}
+
+		if (rows.isEmpty()) {
+			return productList;
+		}
+
+		List<Long> ids = new ArrayList<Long>();
+		for (Object[] row : rows) {
+			ids.add((Long) row[0]);
+		}
+
+		StringBuilder qs = new StringBuilder();
+		qs.append("select distinct p from Product as p ");
+		qs.append("join fetch p.merchantStore merch ");
+		qs.append("join fetch p.availabilities pa ");
+		qs.append("left join fetch pa.prices pap ");
+		qs.append("join fetch p.descriptions pd ");
+		qs.append("left join fetch p.categories categs ");
+		qs.append("left join fetch categs.descriptions cd ");
+		qs.append("left join fetch p.images images ");
+		qs.append("left join fetch p.manufacturer manuf ");
+		qs.append("left join fetch manuf.descriptions manufd ");
+		qs.append("left join fetch p.type type ");
+		qs.append("left join fetch p.taxClass tx ");
+		qs.append("left join fetch p.owner owner ");
+		qs.append("left join fetch p.attributes pattr ");
+		qs.append("left join fetch pattr.productOption po ");
+		qs.append("left join fetch po.descriptions pod ");
+		qs.append("left join fetch pattr.productOptionValue pov ");
+		qs.append("left join fetch pov.descriptions povd ");
+		qs.append("left join fetch p.relationships pr ");
+		qs.append("where p.id in (:ids)");
+		if (criteria.getLanguage() != null && !criteria.getLanguage().equals("_all")) {
+			qs.append(" and pd.language.code=:lang");
+		}
+
+		Query q = this.em.createQuery(qs.toString());
+		q.setParameter("ids", ids);
 		if (criteria.getLanguage() != null && !criteria.getLanguage().equals("_all")) {
 			q.setParameter("lang", language.getCode());
 		}
+
+		@SuppressWarnings("unchecked")
+		List<Product> products = new ArrayList<Product>(q.getResultList());
+		// order of the page ids
+		products.sort(Comparator.comparingInt(p -> ids.indexOf(p.getId())));
+		productList.setProducts(products);
+
+		return productList;
+
+	}
+
+	private void setCriteriaParameters(Query q, MerchantStore store, Language language, ProductCriteria criteria) {
+
 		q.setParameter("mId", store.getId());
 
 		if (!CollectionUtils.isEmpty(criteria.getCategoryIds())) {
 			q.setParameter("cid", criteria.getCategoryIds());
 		}
 
-		if (!CollectionUtils.isEmpty(criteria.getProductIds())) {
-			q.setParameter("pId", criteria.getProductIds());
-		}
-
 		if (criteria.getAvailable() != null) {
 			q.setParameter("dt", new Date());
 		}
 
-		if (criteria.getManufacturerId() != null) {
-			q.setParameter("manufid", criteria.getManufacturerId());
-		}
-
 		if (!StringUtils.isBlank(criteria.getCode())) {
 			q.setParameter("sku",
 					new StringBuilder().append("%").append(criteria.getCode().toLowerCase()).append("%").toString());
 		}
 
+		if (criteria.getManufacturerId() != null) {
+			q.setParameter("manufid", criteria.getManufacturerId());
+		}
+
 		if (!CollectionUtils.isEmpty(criteria.getAttributeCriteria())) {
-			int cnt = 0;
+			int count = 0;
 			for (AttributeCriteria attributeCriteria : criteria.getAttributeCriteria()) {
 				q.setParameter(attributeCriteria.getAttributeCode(), attributeCriteria.getAttributeCode());
-				q.setParameter("val" + cnt + attributeCriteria.getAttributeCode(),
+				q.setParameter("val" + count + attributeCriteria.getAttributeCode(),
 						"%" + attributeCriteria.getAttributeValue() + "%");
-				cnt++;
+				count++;
 			}
 		}
 
-		// RENTAL
-		if (!StringUtils.isBlank(criteria.getStatus())) {
-			q.setParameter("status", criteria.getStatus());
-		}
-
-		if (criteria.getOwnerId() != null) {
-			q.setParameter("ownerid", criteria.getOwnerId());
+		if (criteria.getLanguage() != null && !criteria.getLanguage().equals("_all")) {
+			q.setParameter("lang", language.getCode());
 		}
 
 		if (!StringUtils.isBlank(criteria.getProductName())) {
@@ -817,21 +929,19 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 					.append("%").toString());
 		}
 
-		if (criteria.getMaxCount() > 0) {
+		if (!CollectionUtils.isEmpty(criteria.getProductIds())) {
+			q.setParameter("pId", criteria.getProductIds());
+		}
 
-			q.setFirstResult(criteria.getStartIndex());
-			if (criteria.getMaxCount() < count.intValue()) {
-				q.setMaxResults(criteria.getMaxCount());
-			} else {
-				q.setMaxResults(count.intValue());
-			}
+		// RENTAL
+		if (!StringUtils.isBlank(criteria.getStatus())) {
+			q.setParameter("status", criteria.getStatus());
 		}
 
-		@SuppressWarnings("unchecked")
-		List<Product> products = q.getResultList();
-		productList.setProducts(products);
+		if (criteria.getOwnerId() != null) {
+			q.setParameter("ownerid", criteria.getOwnerId());
+		}
 
-		return productList;
 
 	}
 
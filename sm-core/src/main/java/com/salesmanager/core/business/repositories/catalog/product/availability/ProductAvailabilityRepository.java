@@ -1,10 +1,13 @@
 package com.salesmanager.core.business.repositories.catalog.product.availability;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
 
-public interface ProductAvailabilityRepository extends JpaRepository<ProductAvailability, Long> {
+public interface ProductAvailabilityRepository extends JpaRepository<ProductAvailability, Long>, ProductAvailabilityRepositoryCustom {
   
   @Query("select count(distinct p) from ProductAvailability as p where p.product.id=?1")
   int count(Long productId);
@@ -52,4 +55,18 @@ public interface ProductAvailabilityRepository extends JpaRepository<ProductAvai
       + "and p.id=?2")
   ProductAvailability getByStore(Long productId, Long inventory);
 
+  /**
+   * sku, availability id (null when the product has no inventory), product id
+   */
+  @Query("select p.sku, a.id, p.id from Product p left join p.availabilities a "
+      + "where p.merchantStore.id = ?1 and p.sku in ?2")
+  List<Object[]> findInventoryBySku(Integer merchantId, Collection<String> skus);
+
+  /**
+   * product id, availability id, quantity
+   */
+  @Query("select a.product.id, a.id, a.productQuantity from ProductAvailability a "
+      + "where a.product.id in ?1")
+  List<Object[]> findInventoryByProduct(Collection<Long> productIds);
+
 }
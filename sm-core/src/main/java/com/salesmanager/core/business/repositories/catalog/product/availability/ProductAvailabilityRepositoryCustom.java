@@ -0,0 +1,12 @@
+package com.salesmanager.core.business.repositories.catalog.product.availability;
+
+public interface ProductAvailabilityRepositoryCustom {
+
+	/**
+	 * Subtracts quantities[i] from availability ids[i] when its quantity is at
+	 * least thresholds[i]. All lines are sent to the database as one batch.
+	 * @return the update count of each line, 0 when the quantity was too low
+	 */
+	int[] decrement(long[] ids, int[] quantities, int[] thresholds);
+
+}
@@ -0,0 +1,47 @@
+package com.salesmanager.core.business.repositories.catalog.product.availability;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.apache.commons.lang3.Validate;
+import org.hibernate.Session;
+
+import com.salesmanager.core.constants.SchemaConstant;
+
+public class ProductAvailabilityRepositoryImpl implements ProductAvailabilityRepositoryCustom {
+
+	/** native sql, qualified with the schema of the entity mapping **/
+	static final String DECREMENT = "update " + SchemaConstant.SALESMANAGER_SCHEMA + ".PRODUCT_AVAILABILITY set QUANTITY = QUANTITY - ? "
+			+ "where PRODUCT_AVAIL_ID = ? and QUANTITY >= ?";
+
+	@PersistenceContext
+	private EntityManager em;
+
+	@Override
+	public int[] decrement(long[] ids, int[] quantities, int[] thresholds) {
+		return em.unwrap(Session.class).doReturningWork(connection -> decrement(connection, ids, quantities, thresholds));
+	}
+
+	/**
+	 * Conditional decrement on a plain connection, the guard and the
+	 * subtraction are a single statement so concurrent orders cannot both
+	 * take the last units.
+	 */
+	public static int[] decrement(Connection connection, long[] ids, int[] quantities, int[] thresholds) throws SQLException {
+		Validate.isTrue(ids.length == quantities.length && ids.length == thresholds.length, "Inventory lines do not match");
+		try (PreparedStatement statement = connection.prepareStatement(DECREMENT)) {
+			for (int i = 0; i < ids.length; i++) {
+				statement.setInt(1, quantities[i]);
+				statement.setLong(2, ids[i]);
+				statement.setInt(3, thresholds[i]);
+				statement.addBatch();
+			}
+			return statement.executeBatch();
+		}
+	}
+
+}
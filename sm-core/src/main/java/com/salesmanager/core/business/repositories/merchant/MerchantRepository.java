@@ -28,6 +28,9 @@ public interface MerchantRepository extends JpaRepository<MerchantStore, Integer
 	@Query("select distinct m from MerchantStore m left join fetch m.parent mp left join fetch m.country mc left join fetch m.currency mc left join fetch m.zone mz left join fetch m.defaultLanguage md left join fetch m.languages mls where mp.code = ?1")
 	List<MerchantStore> getByParent(String code);
 
+	@Query("select distinct m from MerchantStore m left join fetch m.parent mp left join fetch m.country mc left join fetch m.currency mcu left join fetch m.zone mz left join fetch m.defaultLanguage md left join fetch m.languages mls")
+	List<MerchantStore> findAllWithReferences();
+
 	@Query("SELECT COUNT(m) > 0 FROM MerchantStore m WHERE m.code = :code")
 	boolean existsByCode(String code);
 	
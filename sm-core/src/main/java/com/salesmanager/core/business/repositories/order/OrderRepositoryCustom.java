@@ -11,4 +11,8 @@ public interface OrderRepositoryCustom {
 
 	OrderList listByStore(MerchantStore store, OrderCriteria criteria);
 	OrderList getOrders(OrderCriteria criteria);
+	/**
+	 * Orders of a list screen as OrderListItem, in OrderList.items
+	 */
+	OrderList listItemsByStore(MerchantStore store, OrderCriteria criteria);
 }
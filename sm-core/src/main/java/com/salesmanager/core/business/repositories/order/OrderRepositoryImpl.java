@@ -1,195 +1,230 @@
 package com.salesmanager.core.business.repositories.order;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.Hibernate;
 
+import com.salesmanager.core.business.utils.KeysetCursor;
 import com.salesmanager.core.model.common.CriteriaOrderBy;
 import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.order.Order;
 import com.salesmanager.core.model.order.OrderCriteria;
 import com.salesmanager.core.model.order.OrderList;
+import com.salesmanager.core.model.order.OrderListItem;
+import com.salesmanager.core.model.order.orderproduct.OrderProduct;
 
 
+/**
+ * Orders are paged on their id. A first query selects the ids of the page,
+ * after the cursor when there is one, orders of the page are then loaded by
+ * id and their collections are read by batches. Collections are never fetch
+ * joined on the paged query, which would make Hibernate page in memory.
+ */
 public class OrderRepositoryImpl implements OrderRepositoryCustom {
 
-	
+
     @PersistenceContext
     private EntityManager em;
-    
-	@SuppressWarnings("unchecked")
+
 	@Override
 	public OrderList listByStore(MerchantStore store, OrderCriteria criteria) {
-		
+		return list(store, criteria);
+	}
+
+	@Override
+	public OrderList getOrders(OrderCriteria criteria) {
+		return list(null, criteria);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public OrderList listItemsByStore(MerchantStore store, OrderCriteria criteria) {
 
 		OrderList orderList = new OrderList();
-		StringBuilder countBuilderSelect = new StringBuilder();
-		StringBuilder objectBuilderSelect = new StringBuilder();
-		
-		String orderByCriteria = " order by o.id desc";
-		
-		if(criteria.getOrderBy()!=null) {
-			if(CriteriaOrderBy.ASC.name().equals(criteria.getOrderBy().name())) {
-				orderByCriteria = " order by o.id asc";
-			}
-		}
-		
-		String countBaseQuery = "select count(o) from Order as o";
-		String baseQuery = "select o from Order as o left join fetch o.orderTotal ot left join fetch o.orderProducts op left join fetch o.orderAttributes oa left join fetch op.orderAttributes opo left join fetch op.prices opp";
-		countBuilderSelect.append(countBaseQuery);
-		objectBuilderSelect.append(baseQuery);
-
-		
-		
-		StringBuilder countBuilderWhere = new StringBuilder();
-		StringBuilder objectBuilderWhere = new StringBuilder();
-		String whereQuery = " where o.merchant.id=:mId";
-		countBuilderWhere.append(whereQuery);
-		objectBuilderWhere.append(whereQuery);
-		
+		orderList.setItems(new ArrayList<OrderListItem>());
+		String filter = filter(store, criteria);
 
-		if(!StringUtils.isBlank(criteria.getCustomerName())) {
-			String nameQuery =" and o.billing.firstName like:nm or o.billing.lastName like:nm";
-			countBuilderWhere.append(nameQuery);
-			objectBuilderWhere.append(nameQuery);
-		}
-		
-		if(!StringUtils.isBlank(criteria.getPaymentMethod())) {
-			String paymentQuery =" and o.paymentModuleCode like:pm";
-			countBuilderWhere.append(paymentQuery);
-			objectBuilderWhere.append(paymentQuery);
+		if(!count(filter, store, criteria, orderList)) {
+			return orderList;
 		}
-		
-		if(criteria.getCustomerId()!=null) {
-			String customerQuery =" and o.customerId =:cid";
-			countBuilderWhere.append(customerQuery);
-			objectBuilderWhere.append(customerQuery);
-		}
-		
-		objectBuilderWhere.append(orderByCriteria);
-		
-
-		//count query
-		Query countQ = em.createQuery(
-				countBuilderSelect.toString() + countBuilderWhere.toString());
-		
-		//object query
-		Query objectQ = em.createQuery(
-				objectBuilderSelect.toString() + objectBuilderWhere.toString());
-
-		countQ.setParameter("mId", store.getId());
-		objectQ.setParameter("mId", store.getId());
-		
 
-		if(!StringUtils.isBlank(criteria.getCustomerName())) {
-			String nameParam = new StringBuilder().append("%").append(criteria.getCustomerName()).append("%").toString();
-			countQ.setParameter("nm",nameParam);
-			objectQ.setParameter("nm",nameParam);
+		Query itemQ = page("select new com.salesmanager.core.model.order.OrderListItem("
+				+ "o.id, o.datePurchased, o.status, o.total, o.paymentModuleCode, o.customerId, o.customerEmailAddress, "
+				+ "o.billing.firstName, o.billing.lastName)", filter, store, criteria);
+
+		List<OrderListItem> items = itemQ.getResultList();
+		int max = criteria.getMaxCount();
+		if(max>0 && items.size()>max) {
+			items = items.subList(0, max);
+			orderList.setNextCursor(KeysetCursor.encode(items.get(max-1).getId()));
 		}
-		
-		if(!StringUtils.isBlank(criteria.getPaymentMethod())) {
-			String payementParam = new StringBuilder().append("%").append(criteria.getPaymentMethod()).append("%").toString();
-			countQ.setParameter("pm",payementParam);
-			objectQ.setParameter("pm",payementParam);
+		orderList.setItems(items);
+
+		return orderList;
+	}
+
+	@SuppressWarnings("unchecked")
+	private OrderList list(MerchantStore store, OrderCriteria criteria) {
+
+		OrderList orderList = new OrderList();
+		String filter = filter(store, criteria);
+
+		if(!count(filter, store, criteria, orderList)) {
+			return orderList;
 		}
-		
-		if(criteria.getCustomerId()!=null) {
-			countQ.setParameter("cid", criteria.getCustomerId());
-			objectQ.setParameter("cid",criteria.getCustomerId());
+
+		Query idQ = page("select o.id", filter, store, criteria);
+
+		List<Long> ids = idQ.getResultList();
+		int max = criteria.getMaxCount();
+		if(max>0 && ids.size()>max) {
+			ids = ids.subList(0, max);
+			orderList.setNextCursor(KeysetCursor.encode(ids.get(max-1)));
 		}
-		
 
-		Number count = (Number) countQ.getSingleResult();
+		orderList.setOrders(load(ids));
+
+		return orderList;
+	}
 
+	/**
+	 * @return false when there is no order
+	 */
+	private boolean count(String filter, MerchantStore store, OrderCriteria criteria, OrderList orderList) {
+
+		Query countQ = em.createQuery("select count(o)" + filter);
+		setParameters(countQ, store, criteria);
+
+		Number count = (Number) countQ.getSingleResult();
 		orderList.setTotalCount(count.intValue());
-		
-        if(count.intValue()==0)
-        	return orderList;
-        
-		//TO BE USED
-        int max = criteria.getMaxCount();
-        int first = criteria.getStartIndex();
-        
-        objectQ.setFirstResult(first);
-        
-        
-        
-    	if(max>0) {
-    			int maxCount = first + max;
-
-    			if(maxCount < count.intValue()) {
-    				objectQ.setMaxResults(maxCount);
-    			} else {
-    				objectQ.setMaxResults(count.intValue());
-    			}
-    	}
-		
-    	orderList.setOrders(objectQ.getResultList());
 
-		return orderList;
-		
-		
+		return count.intValue()>0;
 	}
 
-	@Override
-	public OrderList getOrders(OrderCriteria criteria) {
-		OrderList orderList = new OrderList();
-		StringBuilder countBuilderSelect = new StringBuilder();
-		StringBuilder objectBuilderSelect = new StringBuilder();
+	/**
+	 * Query of a page, starting after the cursor of the criteria or else at
+	 * the start index. One extra row tells if there is a next page.
+	 */
+	private Query page(String select, String filter, MerchantStore store, OrderCriteria criteria) {
 
-		String orderByCriteria = " order by o.id desc";
+		boolean asc = criteria.getOrderBy()!=null && CriteriaOrderBy.ASC.name().equals(criteria.getOrderBy().name());
+		long[] position = KeysetCursor.decode(criteria.getCursor(), 1, "order");
 
-		if(criteria.getOrderBy()!=null) {
-			if(CriteriaOrderBy.ASC.name().equals(criteria.getOrderBy().name())) {
-				orderByCriteria = " order by o.id asc";
-			}
+		StringBuilder qs = new StringBuilder();
+		qs.append(select).append(filter);
+		if(position!=null) {
+			qs.append(asc ? " and o.id > :cursorId" : " and o.id < :cursorId");
+		}
+		qs.append(asc ? " order by o.id asc" : " order by o.id desc");
+
+		Query q = em.createQuery(qs.toString());
+		setParameters(q, store, criteria);
+		if(position!=null) {
+			q.setParameter("cursorId", position[0]);
+		} else {
+			q.setFirstResult(criteria.getStartIndex());
 		}
+		if(criteria.getMaxCount()>0) {
+			q.setMaxResults(criteria.getMaxCount() + 1);
+		}
+		return q;
+	}
 
-		String countBaseQuery = "select count(o) from Order as o";
-		String baseQuery = "select o from Order as o left join fetch o.orderTotal ot left join fetch o.orderProducts op left join fetch o.orderAttributes oa left join fetch op.orderAttributes opo left join fetch op.prices opp";
-		countBuilderSelect.append(countBaseQuery);
-		objectBuilderSelect.append(baseQuery);
+	/**
+	 * Orders of a page in the order of their ids, with products, totals and
+	 * attributes loaded
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Order> load(List<Long> ids) {
 
-		StringBuilder objectBuilderWhere = new StringBuilder();
-		objectBuilderWhere.append(orderByCriteria);
+		if(ids.isEmpty()) {
+			return new ArrayList<Order>();
+		}
 
+		Query q = em.createQuery("select o from Order as o where o.id in (:ids)");
+		q.setParameter("ids", ids);
 
-		//count query
-		Query countQ = em.createQuery(
-				countBuilderSelect.toString());
+		Map<Long, Order> byId = new HashMap<Long, Order>();
+		for(Order order : (List<Order>) q.getResultList()) {
+			byId.put(order.getId(), order);
+		}
 
-		//object query
-		Query objectQ = em.createQuery(
-				objectBuilderSelect.toString() + objectBuilderWhere.toString());
+		List<Order> orders = new ArrayList<Order>();
+		for(Long id : ids) {
+			Order order = byId.get(id);
+			if(order==null) {
+				continue;
+			}
+			Hibernate.initialize(order.getOrderTotal());
+			Hibernate.initialize(order.getOrderAttributes());
+			Hibernate.initialize(order.getOrderProducts());
+			for(OrderProduct orderProduct : order.getOrderProducts()) {
+				Hibernate.initialize(orderProduct.getOrderAttributes());
+				Hibernate.initialize(orderProduct.getPrices());
+			}
+			orders.add(order);
+		}
+		return orders;
+	}
 
+	/**
+	 * from and where clauses of the criteria
+	 * @param store null for orders of all stores
+	 */
+	private String filter(MerchantStore store, OrderCriteria criteria) {
 
-		Number count = (Number) countQ.getSingleResult();
+		List<String> conditions = new ArrayList<String>();
 
-		orderList.setTotalCount(count.intValue());
+		if(store!=null) {
+			conditions.add("o.merchant.id=:mId");
+		}
 
-		if(count.intValue()==0)
-			return orderList;
+		if(!StringUtils.isBlank(criteria.getCustomerName())) {
+			conditions.add("(o.billing.firstName like :nm or o.billing.lastName like :nm)");
+		}
 
-		//TO BE USED
-		int max = criteria.getMaxCount();
-		int first = criteria.getStartIndex();
+		if(!StringUtils.isBlank(criteria.getPaymentMethod())) {
+			conditions.add("o.paymentModuleCode like :pm");
+		}
 
-		objectQ.setFirstResult(first);
+		if(criteria.getCustomerId()!=null) {
+			conditions.add("o.customerId =:cid");
+		}
 
-		if(max>0) {
-			int maxCount = first + max;
+		StringBuilder filter = new StringBuilder(" from Order as o");
+		//where clause always present, a keyset predicate is appended to it
+		filter.append(" where ");
+		filter.append(conditions.isEmpty() ? "1=1" : StringUtils.join(conditions, " and "));
+		return filter.toString();
+	}
 
-			if(maxCount < count.intValue()) {
-				objectQ.setMaxResults(maxCount);
-			} else {
-				objectQ.setMaxResults(count.intValue());
-			}
+	private void setParameters(Query q, MerchantStore store, OrderCriteria criteria) {
+
+		if(store!=null) {
+			q.setParameter("mId", store.getId());
 		}
 
-		orderList.setOrders(objectQ.getResultList());
+		if(!StringUtils.isBlank(criteria.getCustomerName())) {
+			String nameParam = new StringBuilder().append("%").append(criteria.getCustomerName()).append("%").toString();
+			q.setParameter("nm",nameParam);
+		}
 
-		return orderList;
+		if(!StringUtils.isBlank(criteria.getPaymentMethod())) {
+			String payementParam = new StringBuilder().append("%").append(criteria.getPaymentMethod()).append("%").toString();
+			q.setParameter("pm",payementParam);
+		}
+
+		if(criteria.getCustomerId()!=null) {
+			q.setParameter("cid", criteria.getCustomerId());
+		}
 	}
 
 
@@ -1,5 +1,9 @@
 package com.salesmanager.core.business.repositories.shoppingcart;
 
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
@@ -20,5 +24,8 @@ public interface ShoppingCartRepository extends JpaRepository<ShoppingCart, Long
 	
 	@Query("select c from ShoppingCart c left join fetch c.lineItems cl left join fetch cl.attributes cla join fetch c.merchantStore cm where c.customerId = ?1")
 	ShoppingCart findByCustomer(Long customerId);
+
+	@Query("select c.id from ShoppingCart c where c.customerId is null and c.auditSection.dateModified < ?1")
+	List<Long> findAnonymousModifiedBefore(Date date, Pageable pageable);
 	
 }
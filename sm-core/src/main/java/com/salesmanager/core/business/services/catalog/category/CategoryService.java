@@ -12,6 +12,12 @@ import com.salesmanager.core.model.reference.language.Language;
 public interface CategoryService extends SalesManagerEntityService<Long, Category> {
 
 	List<Category> getListByLineage(MerchantStore store, String lineage) throws ServiceException;
+
+	/**
+	 * Shared snapshot of the categories of a store, rebuilt when they change
+	 * @param language descriptions loaded, null for all languages
+	 */
+	CategoryTree getCategoryTree(MerchantStore store, Language language);
 	
 	List<Category> listBySeUrl(MerchantStore store, String seUrl) throws ServiceException;
 	
@@ -6,10 +6,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -21,6 +23,7 @@ import com.salesmanager.core.business.repositories.catalog.category.CategoryDesc
 import com.salesmanager.core.business.repositories.catalog.category.CategoryRepository;
 import com.salesmanager.core.business.repositories.catalog.category.PageableCategoryRepository;
 import com.salesmanager.core.business.services.catalog.product.ProductService;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductReadModel;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
 import com.salesmanager.core.model.catalog.category.Category;
 import com.salesmanager.core.model.catalog.category.CategoryDescription;
@@ -43,6 +46,12 @@ public class CategoryServiceImpl extends SalesManagerEntityServiceImpl<Long, Cat
   @Inject
   private CategoryDescriptionRepository categoryDescriptionRepository;
 
+  @Inject
+  private CategoryTreeIndex categoryTreeIndex;
+
+  @Inject
+  private ProductReadModel productReadModel;
+
 
 
   @Inject
@@ -68,6 +77,7 @@ public class CategoryServiceImpl extends SalesManagerEntityServiceImpl<Long, Cat
     }
     category.setLineage(lineage.toString());
     super.update(category);
+    categoryTreeIndex.invalidate(category.getMerchantStore());
 
 
   }
@@ -76,7 +86,15 @@ public class CategoryServiceImpl extends SalesManagerEntityServiceImpl<Long, Cat
   public List<Object[]> countProductsByCategories(MerchantStore store, List<Long> categoryIds)
       throws ServiceException {
 
-    return categoryRepository.countProductsByCategories(store, categoryIds);
+    CategoryTree tree = categoryTreeIndex.get(store);
+    List<Object[]> counts = new ArrayList<Object[]>();
+    for (Long id : categoryIds) {
+      long count = tree.getProductCount(id);
+      if (count > 0) {
+        counts.add(new Object[] {tree.get(id), count});
+      }
+    }
+    return counts;
 
 	}
 
@@ -102,7 +120,7 @@ public class CategoryServiceImpl extends SalesManagerEntityServiceImpl<Long, Cat
 		// save or update (persist and attach entities
 		if (category.getId() != null && category.getId() > 0) {
 
-			super.update(category);
+			this.update(category);
 
 		} else {
 
@@ -112,16 +130,27 @@ public class CategoryServiceImpl extends SalesManagerEntityServiceImpl<Long, Cat
 
 	}
 
+	@Override
+	public void update(Category category) throws ServiceException {
+		super.update(category);
+		categoryTreeIndex.invalidate(category.getMerchantStore());
+	}
+
 	@Override
 	public List<Category> getListByLineage(MerchantStore store, String lineage) throws ServiceException {
 		try {
-			return categoryRepository.findByLineage(store.getId(), lineage);
+			return getCategoryTree(store, null).getByLineage(lineage);
 		} catch (Exception e) {
 			throw new ServiceException(e);
 		}
 
 	}
 
+	@Override
+	public CategoryTree getCategoryTree(MerchantStore store, Language language) {
+		return categoryTreeIndex.get(store, language);
+	}
+
 	@Override
 	public List<Category> getListByLineage(String storeCode, String lineage) throws ServiceException {
 		try {
@@ -235,7 +264,7 @@ public class CategoryServiceImpl extends SalesManagerEntityServiceImpl<Long, Cat
 		// get category with lineage (subcategories)
 		StringBuilder lineage = new StringBuilder();
 		lineage.append(category.getLineage()).append(category.getId()).append(Constants.SLASH);
-		List<Category> categories = this.getListByLineage(category.getMerchantStore(), lineage.toString());
+		List<Category> categories = categoryRepository.findByLineage(category.getMerchantStore().getId(), lineage.toString());
 
 		Category dbCategory = getById(category.getId(), category.getMerchantStore().getId());
 
@@ -281,6 +310,9 @@ public class CategoryServiceImpl extends SalesManagerEntityServiceImpl<Long, Cat
 
 			Category categ = getById(category.getId(), category.getMerchantStore().getId());
 			categoryRepository.delete(categ);
+			categoryTreeIndex.invalidate(category.getMerchantStore());
+			categoryTreeIndex.invalidateProductCounts(category.getMerchantStore());
+			productReadModel.invalidate(category.getMerchantStore());
 
 		}
 
@@ -332,7 +364,7 @@ public class CategoryServiceImpl extends SalesManagerEntityServiceImpl<Long, Cat
 			update(child);
 			StringBuilder childLineage = new StringBuilder();
 			childLineage.append(child.getLineage()).append(child.getId()).append("/");
-			List<Category> subCategories = getListByLineage(child.getMerchantStore(), childLineage.toString());
+			List<Category> subCategories = categoryRepository.findByLineage(child.getMerchantStore().getId(), childLineage.toString());
 
 			// ajust all sub categories lineages
 			if (subCategories != null && subCategories.size() > 0) {
@@ -351,12 +383,13 @@ public class CategoryServiceImpl extends SalesManagerEntityServiceImpl<Long, Cat
 
 	@Override
 	public List<Category> getListByDepth(MerchantStore store, int depth) {
-		return categoryRepository.findByDepth(store.getId(), depth);
+		return getCategoryTree(store, null).getByDepth(depth);
 	}
 
 	@Override
 	public List<Category> getListByDepthFilterByFeatured(MerchantStore store, int depth, Language language) {
-		return categoryRepository.findByDepthFilterByFeatured(store.getId(), depth, language.getId());
+		return getCategoryTree(store, language).getByDepth(depth).stream()
+				.filter(Category::isFeatured).collect(Collectors.toList());
 	}
 
 	@Override
@@ -374,7 +407,7 @@ public class CategoryServiceImpl extends SalesManagerEntityServiceImpl<Long, Cat
 	public List<Category> listByStore(MerchantStore store) throws ServiceException {
 
 		try {
-			return categoryRepository.findByStore(store.getId());
+			return new ArrayList<Category>(getCategoryTree(store, null).getCategories());
 		} catch (Exception e) {
 			throw new ServiceException(e);
 		}
@@ -384,7 +417,7 @@ public class CategoryServiceImpl extends SalesManagerEntityServiceImpl<Long, Cat
 	public List<Category> listByStore(MerchantStore store, Language language) throws ServiceException {
 
 		try {
-			return categoryRepository.findByStore(store.getId(), language.getId());
+			return new ArrayList<Category>(getCategoryTree(store, language).getCategories());
 		} catch (Exception e) {
 			throw new ServiceException(e);
 		}
@@ -409,12 +442,19 @@ public class CategoryServiceImpl extends SalesManagerEntityServiceImpl<Long, Cat
 
 		Pageable pageRequest = PageRequest.of(page, count);
 
+		if (name == null) {
+			List<Category> categories = getCategoryTree(store, language).getCategories();
+			int from = (int) Math.min(pageRequest.getOffset(), categories.size());
+			int to = Math.min(from + count, categories.size());
+			return new PageImpl<Category>(new ArrayList<Category>(categories.subList(from, to)), pageRequest, categories.size());
+		}
+
 		return pageableCategoryRepository.listByStore(store.getId(), language.getId(), name, pageRequest);
 	}
 
 	@Override
 	public List<Category> getListByDepth(MerchantStore store, int depth, Language language) {
-		return categoryRepository.find(store.getId(), depth, language.getId(), null);
+		return getCategoryTree(store, language).getByDepth(depth);
 	}
 
 	@Override
@@ -0,0 +1,311 @@
+package com.salesmanager.core.business.services.catalog.category;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.model.catalog.category.Category;
+
+/**
+ * Categories of a store at a given version, linked by their parent.
+ * Descendants, ancestors and lineage lookups walk the tree instead of
+ * running a lineage like query. The categories are shared by every caller
+ * until the categories of the store change, they must be treated as read
+ * only.
+ */
+public class CategoryTree {
+
+	/** same order as the repository queries, lineage then sort order **/
+	static final Comparator<Category> ORDER = Comparator
+			.comparing(Category::getLineage, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+			.thenComparing(Category::getSortOrder, Comparator.nullsFirst(Comparator.<Integer>naturalOrder()));
+
+	private static final Comparator<Category> SORT_ORDER = Comparator
+			.comparing(Category::getSortOrder, Comparator.nullsFirst(Comparator.<Integer>naturalOrder()));
+
+	private final long version;
+	private final long created;
+
+	private final List<Category> categories;
+	private final Map<Long, Category> byId;
+	private final Map<Long, Long> parents;
+	private final Map<Long, List<Category>> children;
+	private final List<Category> roots;
+	private final NavigableMap<String, List<Category>> byLineage;
+	private final Set<Long> hidden;
+
+	private final long countsVersion;
+	private final Map<Long, Long> productCounts;
+	private final Map<Long, Long> rolledUpCounts;
+
+	/**
+	 * @param categories all categories of the store
+	 * @param productCounts category id to number of available products directly in the category
+	 */
+	CategoryTree(long version, List<Category> categories, long countsVersion, Map<Long, Long> productCounts) {
+
+		this.version = version;
+		this.created = System.currentTimeMillis();
+
+		List<Category> ordered = new ArrayList<Category>(categories);
+		ordered.sort(ORDER);
+		this.categories = Collections.unmodifiableList(ordered);
+
+		Map<Long, Category> ids = new HashMap<Long, Category>();
+		for (Category category : ordered) {
+			ids.put(category.getId(), category);
+		}
+		this.byId = ids;
+
+		Map<Long, Long> p = new HashMap<Long, Long>();
+		Map<Long, List<Category>> c = new HashMap<Long, List<Category>>();
+		List<Category> r = new ArrayList<Category>();
+		NavigableMap<String, List<Category>> l = new TreeMap<String, List<Category>>();
+		for (Category category : ordered) {
+			Long parentId = category.getParent() == null ? null : category.getParent().getId();
+			if (parentId != null && ids.containsKey(parentId)) {
+				p.put(category.getId(), parentId);
+				c.computeIfAbsent(parentId, k -> new ArrayList<Category>()).add(category);
+			} else {
+				r.add(category);
+			}
+			if (category.getLineage() != null) {
+				l.computeIfAbsent(category.getLineage(), k -> new ArrayList<Category>()).add(category);
+			}
+		}
+		for (List<Category> list : c.values()) {
+			list.sort(SORT_ORDER);
+		}
+		r.sort(SORT_ORDER);
+		this.parents = p;
+		this.children = c;
+		this.roots = Collections.unmodifiableList(r);
+		this.byLineage = l;
+
+		// a category is hidden when it or one of its ancestors is not visible
+		Set<Long> h = new HashSet<Long>();
+		for (Category root : r) {
+			hide(root, false, h, new HashSet<Long>());
+		}
+		this.hidden = h;
+
+		this.countsVersion = countsVersion;
+		this.productCounts = productCounts;
+		this.rolledUpCounts = rollUp(productCounts);
+	}
+
+	private CategoryTree(CategoryTree tree, long countsVersion, Map<Long, Long> productCounts) {
+		this.version = tree.version;
+		this.created = tree.created;
+		this.categories = tree.categories;
+		this.byId = tree.byId;
+		this.parents = tree.parents;
+		this.children = tree.children;
+		this.roots = tree.roots;
+		this.byLineage = tree.byLineage;
+		this.hidden = tree.hidden;
+		this.countsVersion = countsVersion;
+		this.productCounts = productCounts;
+		this.rolledUpCounts = rollUp(productCounts);
+	}
+
+	/**
+	 * Same categories with new product counts
+	 */
+	CategoryTree withProductCounts(long countsVersion, Map<Long, Long> productCounts) {
+		return new CategoryTree(this, countsVersion, productCounts);
+	}
+
+	private void hide(Category category, boolean parentHidden, Set<Long> h, Set<Long> visited) {
+		if (!visited.add(category.getId())) {
+			return;
+		}
+		boolean isHidden = parentHidden || !category.isVisible();
+		if (isHidden) {
+			h.add(category.getId());
+		}
+		for (Category child : getChildren(category.getId())) {
+			hide(child, isHidden, h, visited);
+		}
+	}
+
+	/**
+	 * own count plus the counts of visible sub categories
+	 */
+	private Map<Long, Long> rollUp(Map<Long, Long> counts) {
+		Map<Long, Long> rolled = new HashMap<Long, Long>();
+		for (Category root : roots) {
+			rollUp(root, counts, rolled);
+		}
+		return rolled;
+	}
+
+	private long rollUp(Category category, Map<Long, Long> counts, Map<Long, Long> rolled) {
+		if (rolled.containsKey(category.getId())) {
+			return 0;
+		}
+		rolled.put(category.getId(), 0L);
+		long total = counts.getOrDefault(category.getId(), 0L);
+		for (Category child : getChildren(category.getId())) {
+			long count = rollUp(child, counts, rolled);
+			if (child.isVisible()) {
+				total += count;
+			}
+		}
+		rolled.put(category.getId(), total);
+		return total;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	long getCreated() {
+		return created;
+	}
+
+	long getCountsVersion() {
+		return countsVersion;
+	}
+
+	public Category get(Long id) {
+		return byId.get(id);
+	}
+
+	/**
+	 * All categories ordered by lineage and sort order
+	 */
+	public List<Category> getCategories() {
+		return categories;
+	}
+
+	public List<Category> getRoots() {
+		return roots;
+	}
+
+	public List<Category> getChildren(Long id) {
+		List<Category> list = children.get(id);
+		return list == null ? Collections.<Category>emptyList() : Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * Sub categories at any depth, ordered by lineage and sort order
+	 * @param visibleOnly skips hidden categories and everything under them
+	 */
+	public List<Category> getDescendants(Long id, boolean visibleOnly) {
+		List<Category> descendants = new ArrayList<Category>();
+		Set<Long> visited = new HashSet<Long>();
+		visited.add(id);
+		collect(id, visibleOnly, descendants, visited);
+		descendants.sort(ORDER);
+		return descendants;
+	}
+
+	private void collect(Long id, boolean visibleOnly, List<Category> descendants, Set<Long> visited) {
+		for (Category child : getChildren(id)) {
+			if ((visibleOnly && !child.isVisible()) || !visited.add(child.getId())) {
+				continue;
+			}
+			descendants.add(child);
+			collect(child.getId(), visibleOnly, descendants, visited);
+		}
+	}
+
+	/**
+	 * Parents of a category from the root, for breadcrumbs
+	 */
+	public List<Category> getAncestors(Long id) {
+		List<Category> ancestors = new ArrayList<Category>();
+		Long parentId = parents.get(id);
+		while (parentId != null && ancestors.size() < byId.size()) {
+			ancestors.add(0, byId.get(parentId));
+			parentId = parents.get(parentId);
+		}
+		return ancestors;
+	}
+
+	/**
+	 * Categories whose lineage contains the given lineage, as
+	 * CategoryRepository.findByLineage. A lineage starting with a root
+	 * category is a prefix of the lineages it matches, they are read as a
+	 * range of the lineage index.
+	 */
+	public List<Category> getByLineage(String lineage) {
+
+		if (StringUtils.isEmpty(lineage)) {
+			return byLineage.values().stream().flatMap(List::stream).collect(Collectors.toList());
+		}
+
+		List<Category> matches = new ArrayList<Category>();
+		if (isRootLineage(lineage)) {
+			for (List<Category> list : byLineage.subMap(lineage, true, lineage + Character.MAX_VALUE, false).values()) {
+				matches.addAll(list);
+			}
+		} else {
+			for (Map.Entry<String, List<Category>> entry : byLineage.entrySet()) {
+				if (entry.getKey().contains(lineage)) {
+					matches.addAll(entry.getValue());
+				}
+			}
+		}
+		return matches;
+	}
+
+	private boolean isRootLineage(String lineage) {
+		if (!lineage.startsWith(Constants.SLASH)) {
+			return false;
+		}
+		String first = StringUtils.substringBefore(lineage.substring(1), Constants.SLASH);
+		if (!StringUtils.isNumeric(first) || first.length() > 18) {
+			return false;
+		}
+		Long id = Long.valueOf(first);
+		return byId.containsKey(id) && !parents.containsKey(id);
+	}
+
+	/**
+	 * Categories with a depth greater or equal to depth
+	 */
+	public List<Category> getByDepth(int depth) {
+		return categories.stream()
+				.filter(c -> c.getDepth() != null && c.getDepth() >= depth)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * @return false when the category or one of its parents is not visible
+	 */
+	public boolean isVisible(Long id) {
+		return byId.containsKey(id) && !hidden.contains(id);
+	}
+
+	/**
+	 * Available products directly in the category
+	 */
+	public long getProductCount(Long id) {
+		return productCounts.getOrDefault(id, 0L);
+	}
+
+	/**
+	 * Available products of the category and of its visible sub categories
+	 */
+	public long getRolledUpProductCount(Long id) {
+		return rolledUpCounts.getOrDefault(id, 0L);
+	}
+
+	public int size() {
+		return categories.size();
+	}
+
+}
@@ -0,0 +1,106 @@
+package com.salesmanager.core.business.services.catalog.category;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.repositories.catalog.category.CategoryRepository;
+import com.salesmanager.core.business.utils.CacheVersions;
+import com.salesmanager.core.model.catalog.category.Category;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.language.Language;
+
+/**
+ * CategoryTree of each store and language. A tree is rebuilt on next access
+ * once the categories of its store change, product counts are reloaded
+ * without rebuilding the tree when products change.
+ */
+@Component("categoryTreeIndex")
+public class CategoryTreeIndex {
+
+	private static final String ALL_LANGUAGES = "*";
+
+	@Inject
+	private CategoryRepository categoryRepository;
+
+	@Value("${config.category.tree.maxAge:300000}")
+	private long maxAge = 300000;
+
+	private final ConcurrentMap<String, CategoryTree> trees = new ConcurrentHashMap<String, CategoryTree>();
+	private final CacheVersions<Integer> versions = new CacheVersions<Integer>();
+	private final CacheVersions<Integer> countsVersions = new CacheVersions<Integer>();
+
+	/**
+	 * Categories of the store with the descriptions of a language
+	 */
+	public CategoryTree get(MerchantStore store, Language language) {
+
+		Integer storeId = store.getId();
+		String key = key(storeId, language == null ? ALL_LANGUAGES : String.valueOf(language.getId()));
+		long version = versions.get(storeId);
+		long countsVersion = countsVersions.get(storeId);
+
+		CategoryTree tree = trees.get(key);
+		if (tree != null && versions.isCurrent(storeId, tree.getVersion(), tree.getCreated(), maxAge)) {
+			if (tree.getCountsVersion() != countsVersion) {
+				tree = tree.withProductCounts(countsVersion, countProducts(storeId));
+				trees.put(key, tree);
+			}
+			return tree;
+		}
+
+		List<Category> categories = language == null ? categoryRepository.findByStore(storeId)
+				: categoryRepository.findByStore(storeId, language.getId());
+		tree = new CategoryTree(version, categories, countsVersion, countProducts(storeId));
+		trees.put(key, tree);
+		return tree;
+	}
+
+	/**
+	 * Categories of the store with all their descriptions
+	 */
+	public CategoryTree get(MerchantStore store) {
+		return get(store, null);
+	}
+
+	private Map<Long, Long> countProducts(Integer storeId) {
+		Map<Long, Long> counts = new HashMap<Long, Long>();
+		for (Object[] count : categoryRepository.countProductsByStore(storeId, new Date())) {
+			counts.put((Long) count[0], (Long) count[1]);
+		}
+		return counts;
+	}
+
+	/**
+	 * Categories of the store changed
+	 */
+	public void invalidate(MerchantStore store) {
+		changed(store, versions);
+	}
+
+	/**
+	 * Products of the store changed
+	 */
+	public void invalidateProductCounts(MerchantStore store) {
+		changed(store, countsVersions);
+	}
+
+	private void changed(MerchantStore store, CacheVersions<Integer> counters) {
+		if (store != null && store.getId() != null) {
+			counters.changed(store.getId());
+		}
+	}
+
+	private String key(Integer storeId, String language) {
+		return storeId + "_" + language;
+	}
+
+}
@@ -2,8 +2,10 @@ package com.salesmanager.core.business.services.catalog.product;
 
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductListingList;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityService;
 import com.salesmanager.core.model.catalog.category.Category;
 import com.salesmanager.core.model.catalog.product.Product;
@@ -35,11 +37,25 @@ public interface ProductService extends SalesManagerEntityService<Long, Product>
 	 */
 	Product getProductWithOnlyMerchantStoreById(Long productId);
 
+	/**
+	 * Get products with prices and attributes in a single query
+	 * @param productIds
+	 * @return found products, missing ids are ignored
+	 */
+	List<Product> getByIds(Set<Long> productIds);
+
 	ProductList listByStore(MerchantStore store, Language language,
 			ProductCriteria criteria);
 
 	List<Product> listByStore(MerchantStore store);
 
+	/**
+	 * Same criteria as listByStore, served from the product listings of the
+	 * store without loading products
+	 */
+	ProductListingList listListingsByStore(MerchantStore store, Language language,
+			ProductCriteria criteria);
+
 	List<Product> listByTaxClass(TaxClass taxClass);
 
 	List<Product> getProducts(List<Long> categoryIds, Language language)
@@ -14,11 +14,14 @@ import org.springframework.stereotype.Service;
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.repositories.catalog.product.ProductRepository;
 import com.salesmanager.core.business.services.catalog.category.CategoryService;
+import com.salesmanager.core.business.services.catalog.category.CategoryTreeIndex;
 import com.salesmanager.core.business.services.catalog.product.attribute.ProductAttributeService;
 import com.salesmanager.core.business.services.catalog.product.attribute.ProductOptionService;
 import com.salesmanager.core.business.services.catalog.product.attribute.ProductOptionValueService;
 import com.salesmanager.core.business.services.catalog.product.availability.ProductAvailabilityService;
 import com.salesmanager.core.business.services.catalog.product.image.ProductImageService;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductListingList;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductReadModel;
 import com.salesmanager.core.business.services.catalog.product.price.ProductPriceService;
 import com.salesmanager.core.business.services.catalog.product.relationship.ProductRelationshipService;
 import com.salesmanager.core.business.services.catalog.product.review.ProductReviewService;
@@ -49,6 +52,12 @@ public class ProductServiceImpl extends SalesManagerEntityServiceImpl<Long, Prod
 	
 	@Inject
 	CategoryService categoryService;
+
+	@Inject
+	CategoryTreeIndex categoryTreeIndex;
+
+	@Inject
+	ProductReadModel productReadModel;
 	
 	@Inject
 	ProductAvailabilityService productAvailabilityService;
@@ -118,6 +127,14 @@ public class ProductServiceImpl extends SalesManagerEntityServiceImpl<Long, Prod
 	public Product getProductWithOnlyMerchantStoreById(Long productId) {
 		return productRepository.getProductWithOnlyMerchantStoreById(productId);
 	}
+
+	@Override
+	public List<Product> getByIds(Set<Long> productIds) {
+		if (productIds == null || productIds.isEmpty()) {
+			return new ArrayList<Product>();
+		}
+		return productRepository.getByIds(productIds);
+	}
 	
 	@Override
 	public List<Product> getProducts(List<Long> categoryIds, Language language) throws ServiceException {
@@ -193,6 +210,13 @@ public class ProductServiceImpl extends SalesManagerEntityServiceImpl<Long, Prod
 		return productRepository.listByStore(store, language, criteria);
 	}
 	
+	@Override
+	public ProductListingList listListingsByStore(MerchantStore store,
+			Language language, ProductCriteria criteria) {
+		
+		return productReadModel.list(store, language, criteria);
+	}
+	
 	@Override
 	public List<Product> listByStore(MerchantStore store) {
 		
@@ -243,6 +267,8 @@ public class ProductServiceImpl extends SalesManagerEntityServiceImpl<Long, Prod
 		
 		super.delete(product);
 		searchService.deleteIndex(product.getMerchantStore(), product);
+		categoryTreeIndex.invalidateProductCounts(product.getMerchantStore());
+		productReadModel.changed(product.getMerchantStore(), product.getId());
 		
 	}
 	
@@ -250,12 +276,16 @@ public class ProductServiceImpl extends SalesManagerEntityServiceImpl<Long, Prod
 	public void create(Product product) throws ServiceException {
 		this.saveOrUpdate(product);
 		searchService.index(product.getMerchantStore(), product);
+		categoryTreeIndex.invalidateProductCounts(product.getMerchantStore());
+		productReadModel.changed(product.getMerchantStore(), product.getId());
 	}
 	
 	@Override
 	public void update(Product product) throws ServiceException {
 		this.saveOrUpdate(product);
 		searchService.index(product.getMerchantStore(), product);
+		categoryTreeIndex.invalidateProductCounts(product.getMerchantStore());
+		productReadModel.changed(product.getMerchantStore(), product.getId());
 	}
 	
 
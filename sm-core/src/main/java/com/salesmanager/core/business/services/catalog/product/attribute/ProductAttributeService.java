@@ -3,6 +3,7 @@ package com.salesmanager.core.business.services.catalog.product.attribute;
 import java.util.List;
 
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductFacet;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityService;
 import com.salesmanager.core.model.catalog.product.Product;
 import com.salesmanager.core.model.catalog.product.attribute.ProductAttribute;
@@ -28,4 +29,13 @@ public interface ProductAttributeService extends
 			throws ServiceException;
 	
 	List<ProductAttribute> getProductAttributesByCategoryLineage(MerchantStore store, String lineage, Language language) throws Exception;
+
+	/**
+	 * Options of the products of categories with the number of products
+	 * having each value, counted from the product listings of the store
+	 * @param categoryIds categories with their sub categories
+	 * @param selectedValueIds option values the list is filtered on
+	 */
+	List<ProductFacet> getProductFacetsByCategories(MerchantStore store, List<Long> categoryIds,
+			List<Long> selectedValueIds, Language language);
 }
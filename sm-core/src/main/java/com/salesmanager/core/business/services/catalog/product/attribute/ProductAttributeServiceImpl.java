@@ -8,6 +8,8 @@ import org.springframework.stereotype.Service;
 
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.repositories.catalog.product.attribute.ProductAttributeRepository;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductFacet;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductReadModel;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
 import com.salesmanager.core.model.catalog.product.Product;
 import com.salesmanager.core.model.catalog.product.attribute.ProductAttribute;
@@ -20,6 +22,9 @@ public class ProductAttributeServiceImpl extends
 	
 	private ProductAttributeRepository productAttributeRepository;
 
+	@Inject
+	private ProductReadModel productReadModel;
+
 	@Inject
 	public ProductAttributeServiceImpl(ProductAttributeRepository productAttributeRepository) {
 		super(productAttributeRepository);
@@ -73,7 +78,14 @@ public class ProductAttributeServiceImpl extends
 	public void saveOrUpdate(ProductAttribute productAttribute)
 			throws ServiceException {
 			productAttributeRepository.save(productAttribute);
+			productReadModel.changed(productAttribute.getProduct());
+
+	}
 
+	@Override
+	public void save(ProductAttribute productAttribute) throws ServiceException {
+		super.save(productAttribute);
+		productReadModel.changed(productAttribute.getProduct());
 	}
 	
 	@Override
@@ -82,6 +94,7 @@ public class ProductAttributeServiceImpl extends
 		//override method, this allows the error that we try to remove a detached instance
 		attribute = this.getById(attribute.getId());
 		super.delete(attribute);
+		productReadModel.changed(attribute.getProduct());
 		
 	}
 
@@ -93,4 +106,10 @@ public class ProductAttributeServiceImpl extends
     return attributes;
   }
 
+	@Override
+	public List<ProductFacet> getProductFacetsByCategories(MerchantStore store, List<Long> categoryIds,
+			List<Long> selectedValueIds, Language language) {
+		return productReadModel.facets(store, language, categoryIds, selectedValueIds);
+	}
+
 }
@@ -11,6 +11,7 @@ import org.springframework.stereotype.Service;
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.repositories.catalog.product.attribute.PageableProductOptionRepository;
 import com.salesmanager.core.business.repositories.catalog.product.attribute.ProductOptionRepository;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductReadModel;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
 import com.salesmanager.core.model.catalog.product.attribute.ProductAttribute;
 import com.salesmanager.core.model.catalog.product.attribute.ProductOption;
@@ -29,6 +30,9 @@ public class ProductOptionServiceImpl extends
 	
 	@Inject
 	private ProductAttributeService productAttributeService;
+
+	@Inject
+	private ProductReadModel productReadModel;
 	
 	@Inject
 	public ProductOptionServiceImpl(
@@ -78,6 +82,8 @@ public class ProductOptionServiceImpl extends
 		} else {
 			super.save(entity);
 		}
+		//option names are displayed by product listings
+		productReadModel.invalidate(entity.getMerchantStore());
 		
 	}
 	
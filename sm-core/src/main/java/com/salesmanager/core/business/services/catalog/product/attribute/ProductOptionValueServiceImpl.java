@@ -14,6 +14,7 @@ import org.springframework.stereotype.Service;
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.repositories.catalog.product.attribute.PageableProductOptionValueRepository;
 import com.salesmanager.core.business.repositories.catalog.product.attribute.ProductOptionValueRepository;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductReadModel;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
 import com.salesmanager.core.model.catalog.product.attribute.ProductAttribute;
 import com.salesmanager.core.model.catalog.product.attribute.ProductOptionValue;
@@ -27,6 +28,9 @@ public class ProductOptionValueServiceImpl extends
 
 	@Inject
 	private ProductAttributeService productAttributeService;
+
+	@Inject
+	private ProductReadModel productReadModel;
 	
 	@Autowired
 	private PageableProductOptionValueRepository pageableProductOptionValueRepository;
@@ -79,6 +83,8 @@ public class ProductOptionValueServiceImpl extends
 			super.save(entity);
 			
 		}
+		//option value names are displayed by product listings
+		productReadModel.invalidate(entity.getMerchantStore());
 		
 	}
 	
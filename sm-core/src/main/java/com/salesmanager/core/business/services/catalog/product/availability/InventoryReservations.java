@@ -0,0 +1,202 @@
+package com.salesmanager.core.business.services.catalog.product.availability;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * Quantities held in memory for carts in checkout, by availability id.
+ * Each availability is guarded by one of a fixed number of lock stripes so
+ * that reservations on hot products do not serialize the whole table.
+ * A reservation expires ttl milliseconds after it was made.
+ */
+public class InventoryReservations {
+
+	private final Striped<Lock> locks;
+	private final long ttl;
+
+	private final Map<Long, Map<String, Reservation>> reservations = new ConcurrentHashMap<Long, Map<String, Reservation>>();
+	private final Map<String, Held> carts = new ConcurrentHashMap<String, Held>();
+
+	private volatile long nextSweep;
+
+	public InventoryReservations(int stripes, long ttl) {
+		this.locks = Striped.lock(stripes);
+		this.ttl = ttl;
+		this.nextSweep = System.currentTimeMillis() + ttl;
+	}
+
+	/**
+	 * Holds the quantities of all availabilities for the cart or none of them,
+	 * the previous reservations of the cart are replaced.
+	 * @param quantities availability id to quantity requested
+	 * @param stock availability id to quantity in stock
+	 * @return false when the stock not held by other carts is too low
+	 */
+	public boolean reserve(String cart, Map<Long, Integer> quantities, Map<Long, Integer> stock) {
+
+		long now = System.currentTimeMillis();
+		if (now > nextSweep) {
+			sweep();
+		}
+		release(cart);
+
+		List<Lock> held = lock(quantities.keySet());
+		try {
+			for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+				Integer available = stock.get(line.getKey());
+				if (available == null || available - reservedByOthers(line.getKey(), cart, now) < line.getValue()) {
+					return false;
+				}
+			}
+			Reservation reservation = new Reservation(now + ttl);
+			for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+				reservations.computeIfAbsent(line.getKey(), k -> new ConcurrentHashMap<String, Reservation>())
+						.put(cart, reservation.of(line.getValue()));
+			}
+			carts.put(cart, new Held(reservation.expires, new HashSet<Long>(quantities.keySet())));
+			return true;
+		} finally {
+			unlock(held);
+		}
+	}
+
+	/**
+	 * Runs the work holding the stripes of the availabilities, no cart can
+	 * reserve these availabilities until it returns. The stripes are
+	 * reentrant, reservedByOthers can be called from the work.
+	 */
+	public <T> T locked(Collection<Long> availabilityIds, Supplier<T> work) {
+		List<Lock> held = lock(availabilityIds);
+		try {
+			return work.get();
+		} finally {
+			unlock(held);
+		}
+	}
+
+	private List<Lock> lock(Collection<Long> availabilityIds) {
+		// bulkGet returns the stripes in a stable order, no deadlock between carts
+		List<Lock> held = new ArrayList<Lock>();
+		for (Lock lock : locks.bulkGet(availabilityIds)) {
+			lock.lock();
+			held.add(lock);
+		}
+		return held;
+	}
+
+	private void unlock(List<Lock> held) {
+		for (int i = held.size() - 1; i >= 0; i--) {
+			held.get(i).unlock();
+		}
+	}
+
+	/**
+	 * @return the quantity of the availability held by carts other than this one
+	 */
+	public int reservedByOthers(Long availabilityId, String cart) {
+		Lock lock = locks.get(availabilityId);
+		lock.lock();
+		try {
+			return reservedByOthers(availabilityId, cart, System.currentTimeMillis());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private int reservedByOthers(Long availabilityId, String cart, long now) {
+		Map<String, Reservation> held = reservations.get(availabilityId);
+		if (held == null) {
+			return 0;
+		}
+		int quantity = 0;
+		for (Map.Entry<String, Reservation> reservation : held.entrySet()) {
+			if (reservation.getValue().expires < now) {
+				held.remove(reservation.getKey());
+			} else if (!reservation.getKey().equals(cart)) {
+				quantity += reservation.getValue().quantity;
+			}
+		}
+		return quantity;
+	}
+
+	public void release(String cart) {
+		Held held = carts.remove(cart);
+		if (held == null) {
+			return;
+		}
+		for (Long id : held.ids) {
+			Lock lock = locks.get(id);
+			lock.lock();
+			try {
+				Map<String, Reservation> reserved = reservations.get(id);
+				if (reserved != null) {
+					reserved.remove(cart);
+					if (reserved.isEmpty()) {
+						reservations.remove(id);
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Drops expired reservations of carts that never came back
+	 */
+	public void sweep() {
+		long now = System.currentTimeMillis();
+		nextSweep = now + ttl;
+		for (Map.Entry<String, Held> held : carts.entrySet()) {
+			if (held.getValue().expires < now) {
+				release(held.getKey());
+			}
+		}
+	}
+
+	public int size() {
+		return carts.size();
+	}
+
+	private static class Held {
+
+		private final long expires;
+		private final Set<Long> ids;
+
+		private Held(long expires, Set<Long> ids) {
+			this.expires = expires;
+			this.ids = ids;
+		}
+
+	}
+
+	private static class Reservation {
+
+		private final long expires;
+		private final int quantity;
+
+		private Reservation(long expires) {
+			this(expires, 0);
+		}
+
+		private Reservation(long expires, int quantity) {
+			this.expires = expires;
+			this.quantity = quantity;
+		}
+
+		private Reservation of(int quantity) {
+			return new Reservation(expires, quantity);
+		}
+
+	}
+
+}
@@ -0,0 +1,36 @@
+package com.salesmanager.core.business.services.catalog.product.availability;
+
+import java.util.Collection;
+
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.services.common.generic.TransactionalAspectAwareService;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.order.orderproduct.OrderProduct;
+import com.salesmanager.core.model.shoppingcart.ShoppingCart;
+
+/**
+ * Stock of ordered products, quantities are changed with conditional updates
+ * instead of loading and merging the products.
+ */
+public interface InventoryService extends TransactionalAspectAwareService {
+
+	/**
+	 * Holds the quantities of the cart items while the customer is in checkout
+	 * @return false when there is not enough stock left for the cart
+	 */
+	boolean reserve(ShoppingCart cart, MerchantStore store) throws ServiceException;
+
+	/**
+	 * Releases the quantities held for a cart
+	 */
+	void release(String cartCode);
+
+	/**
+	 * Removes the ordered quantities from all the availabilities of the products,
+	 * quantities reserved by other carts are not taken.
+	 * @param cartCode cart of the order, its reservation is released once the order is committed, can be null
+	 * @throws ServiceException EXCEPTION_INVENTORY_MISMATCH when a product is unknown or out of stock
+	 */
+	void decrement(Collection<OrderProduct> products, String cartCode, MerchantStore store) throws ServiceException;
+
+}
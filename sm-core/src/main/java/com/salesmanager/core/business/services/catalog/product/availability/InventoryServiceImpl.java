@@ -0,0 +1,158 @@
+package com.salesmanager.core.business.services.catalog.product.availability;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.repositories.catalog.product.availability.ProductAvailabilityRepository;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductReadModel;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.order.orderproduct.OrderProduct;
+import com.salesmanager.core.model.shoppingcart.ShoppingCart;
+import com.salesmanager.core.model.shoppingcart.ShoppingCartItem;
+
+@Service("inventoryService")
+public class InventoryServiceImpl implements InventoryService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(InventoryServiceImpl.class);
+
+	@Inject
+	private ProductAvailabilityRepository productAvailabilityRepository;
+
+	@Inject
+	private ProductReadModel productReadModel;
+
+	@Value("${config.inventory.reservation.ttl:900}")
+	private long reservationTtl;
+
+	@Value("${config.inventory.lockStripes:64}")
+	private int lockStripes;
+
+	private InventoryReservations reservations;
+
+	@PostConstruct
+	public void init() {
+		reservations = new InventoryReservations(lockStripes, reservationTtl * 1000);
+	}
+
+	@Override
+	public boolean reserve(ShoppingCart cart, MerchantStore store) throws ServiceException {
+		Validate.notNull(cart, "ShoppingCart cannot be null");
+
+		Map<Long, Integer> ordered = new HashMap<Long, Integer>();
+		for (ShoppingCartItem item : cart.getLineItems()) {
+			ordered.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+		}
+		if (ordered.isEmpty()) {
+			reservations.release(cart.getShoppingCartCode());
+			return true;
+		}
+
+		Map<Long, Integer> quantities = new HashMap<Long, Integer>();
+		Map<Long, Integer> stock = new HashMap<Long, Integer>();
+		for (Object[] row : productAvailabilityRepository.findInventoryByProduct(ordered.keySet())) {
+			Long availabilityId = (Long) row[1];
+			quantities.put(availabilityId, ordered.get((Long) row[0]));
+			stock.put(availabilityId, row[2] == null ? 0 : (Integer) row[2]);
+		}
+
+		boolean reserved = reservations.reserve(cart.getShoppingCartCode(), quantities, stock);
+		if (!reserved) {
+			LOGGER.debug("Not enough stock to reserve cart " + cart.getShoppingCartCode());
+		}
+		return reserved;
+	}
+
+	@Override
+	public void release(String cartCode) {
+		if (cartCode != null) {
+			reservations.release(cartCode);
+		}
+	}
+
+	@Override
+	public void decrement(Collection<OrderProduct> products, String cartCode, MerchantStore store) throws ServiceException {
+		Validate.notNull(store, "MerchantStore cannot be null");
+
+		Map<String, Integer> ordered = new HashMap<String, Integer>();
+		for (OrderProduct product : products) {
+			ordered.merge(product.getSku(), product.getProductQuantity(), Integer::sum);
+		}
+		if (ordered.isEmpty()) {
+			return;
+		}
+
+		// ascending ids, concurrent orders lock the rows in the same order
+		Map<Long, Integer> lines = new TreeMap<Long, Integer>();
+		Set<String> found = new HashSet<String>();
+		Set<Long> productIds = new HashSet<Long>();
+		for (Object[] row : productAvailabilityRepository.findInventoryBySku(store.getId(), ordered.keySet())) {
+			found.add((String) row[0]);
+			productIds.add((Long) row[2]);
+			if (row[1] != null) {
+				lines.put((Long) row[1], ordered.get((String) row[0]));
+			}
+		}
+		if (found.size() < ordered.size()) {
+			throw new ServiceException(ServiceException.EXCEPTION_INVENTORY_MISMATCH);
+		}
+
+		long[] ids = new long[lines.size()];
+		int[] quantities = new int[lines.size()];
+		int i = 0;
+		for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+			ids[i] = line.getKey();
+			quantities[i] = line.getValue();
+			i++;
+		}
+
+		// no cart can reserve between reading the thresholds and the update
+		int[] counts = reservations.locked(lines.keySet(), () -> {
+			int[] thresholds = new int[ids.length];
+			for (int j = 0; j < ids.length; j++) {
+				thresholds[j] = quantities[j] + reservations.reservedByOthers(ids[j], cartCode);
+			}
+			return productAvailabilityRepository.decrement(ids, quantities, thresholds);
+		});
+		for (i = 0; i < counts.length; i++) {
+			// drivers returning SUCCESS_NO_INFO (-2) are trusted
+			if (counts[i] == 0) {
+				LOGGER.debug("Not enough stock for availability " + ids[i]);
+				throw new ServiceException(ServiceException.EXCEPTION_INVENTORY_MISMATCH);
+			}
+		}
+		productReadModel.changed(store, productIds);
+
+		if (cartCode != null) {
+			if (TransactionSynchronizationManager.isSynchronizationActive()) {
+				TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+					@Override
+					public void afterCompletion(int status) {
+						if (status == TransactionSynchronization.STATUS_COMMITTED) {
+							reservations.release(cartCode);
+						}
+					}
+				});
+			} else {
+				reservations.release(cartCode);
+			}
+		}
+	}
+
+}
@@ -9,6 +9,7 @@ import org.springframework.stereotype.Service;
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.repositories.catalog.product.availability.PageableProductAvailabilityRepository;
 import com.salesmanager.core.business.repositories.catalog.product.availability.ProductAvailabilityRepository;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductReadModel;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
 import com.salesmanager.core.model.catalog.product.Product;
 import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
@@ -24,6 +25,9 @@ public class ProductAvailabilityServiceImpl extends
   @Inject
   private PageableProductAvailabilityRepository pageableProductAvailabilityRepository;
 
+  @Inject
+  private ProductReadModel productReadModel;
+
   @Inject
   public ProductAvailabilityServiceImpl(
       ProductAvailabilityRepository productAvailabilityRepository) {
@@ -43,6 +47,18 @@ public class ProductAvailabilityServiceImpl extends
 
   }
 
+  @Override
+  public void save(ProductAvailability availability) throws ServiceException {
+    super.save(availability);
+    productReadModel.changed(availability.getProduct());
+  }
+
+  @Override
+  public void delete(ProductAvailability availability) throws ServiceException {
+    super.delete(availability);
+    productReadModel.changed(availability.getProduct());
+  }
+
 
 
   /**
@@ -3,6 +3,8 @@ package com.salesmanager.core.business.services.catalog.product.image;
 import java.util.List;
 
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ContentResource;
+import com.salesmanager.core.business.modules.cms.product.ProductImageDerivativeJob;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityService;
 import com.salesmanager.core.model.catalog.product.Product;
 import com.salesmanager.core.model.catalog.product.file.ProductImageSize;
@@ -60,7 +62,28 @@ public interface ProductImageService extends SalesManagerEntityService<Long, Pro
 	OutputContentFile getProductImage(String storeCode, String productCode,
 			String fileName, final ProductImageSize size) throws ServiceException;
 
+	/**
+	 * Image for streaming, without copying it in a byte array. Returns
+	 * null when the image does not exist
+	 * @param storeCode
+	 * @param productCode
+	 * @param fileName
+	 * @param size
+	 * @return
+	 * @throws ServiceException
+	 */
+	ContentResource getProductImageResource(String storeCode, String productCode,
+			String fileName, final ProductImageSize size) throws ServiceException;
+
 	void addProductImages(Product product, List<ProductImage> productImages)
 			throws ServiceException;
+
+	/**
+	 * Status of the creation of the resized images, derivatives are
+	 * created in the background after the upload
+	 * @param productImage
+	 * @return null when no recent job exists for this image
+	 */
+	ProductImageDerivativeJob getDerivativeJob(ProductImage productImage);
 	
 }
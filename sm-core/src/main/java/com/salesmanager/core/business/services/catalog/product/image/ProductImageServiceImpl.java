@@ -11,8 +11,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ContentBufferCache;
+import com.salesmanager.core.business.modules.cms.common.ContentResource;
 import com.salesmanager.core.business.modules.cms.product.ProductFileManager;
+import com.salesmanager.core.business.modules.cms.product.ProductImageDerivativeJob;
+import com.salesmanager.core.business.modules.cms.product.ProductImageDerivativePipeline;
 import com.salesmanager.core.business.repositories.catalog.product.image.ProductImageRepository;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductReadModel;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
 import com.salesmanager.core.model.catalog.product.Product;
 import com.salesmanager.core.model.catalog.product.file.ProductImageSize;
@@ -36,6 +41,15 @@ public class ProductImageServiceImpl extends SalesManagerEntityServiceImpl<Long,
 	
 	@Inject
 	private ProductFileManager productFileManager;
+
+	@Inject
+	private ContentBufferCache contentBufferCache;
+
+	@Inject
+	private ProductImageDerivativePipeline derivativePipeline;
+
+	@Inject
+	private ProductReadModel productReadModel;
 	
 
 	
@@ -89,6 +103,7 @@ public class ProductImageServiceImpl extends SalesManagerEntityServiceImpl<Long,
 
 			
 			productFileManager.addProductImage(productImage, inputImage);
+			evictBuffers(product);
 	
 			//insert ProductImage
 			this.saveOrUpdate(productImage);
@@ -117,8 +132,15 @@ public class ProductImageServiceImpl extends SalesManagerEntityServiceImpl<Long,
 		
 				
 		super.save(productImage);
+		productReadModel.changed(productImage.getProduct());
 		
 	}
+
+	@Override
+	public void delete(ProductImage productImage) throws ServiceException {
+		super.delete(productImage);
+		productReadModel.changed(productImage.getProduct());
+	}
 	
 	public void addProductImageDescription(ProductImage productImage, ProductImageDescription description)
 	throws ServiceException {
@@ -168,6 +190,36 @@ public class ProductImageServiceImpl extends SalesManagerEntityServiceImpl<Long,
 		
 	}
 	
+	@Override
+	public ContentResource getProductImageResource(final String storeCode, final String productCode, final String fileName, final ProductImageSize size) throws ServiceException {
+		String key = bufferKey(storeCode, productCode) + size.name() + "/" + fileName;
+		ContentResource resource = contentBufferCache.get(key);
+		if(resource == null) {
+			resource = productFileManager.getProductImageResource(storeCode, productCode, fileName, size);
+			//may be the original while derivatives are created
+			if(!derivativePipeline.isPending(storeCode, productCode, fileName)) {
+				contentBufferCache.put(key, resource);
+			}
+		}
+		return resource;
+	}
+
+	@Override
+	public ProductImageDerivativeJob getDerivativeJob(ProductImage productImage) {
+		Product product = productImage.getProduct();
+		return derivativePipeline.getJob(product.getMerchantStore().getCode(), product.getSku(), productImage.getProductImage());
+	}
+
+	private String bufferKey(String storeCode, String productCode) {
+		return "product/" + storeCode + "/" + productCode + "/";
+	}
+
+	private void evictBuffers(Product product) {
+		if(product != null && product.getMerchantStore() != null) {
+			contentBufferCache.evictByPrefix(bufferKey(product.getMerchantStore().getCode(), product.getSku()));
+		}
+	}
+	
 	@Override
 	public List<OutputContentFile> getProductImages(Product product) throws ServiceException {
 		return productFileManager.getImages(product);
@@ -178,6 +230,7 @@ public class ProductImageServiceImpl extends SalesManagerEntityServiceImpl<Long,
 
 		if(!StringUtils.isBlank(productImage.getProductImage())) {
 			productFileManager.removeProductImage(productImage);//managed internally
+			evictBuffers(productImage.getProduct());
 		}
 		
 		ProductImage p = this.getById(productImage.getId());
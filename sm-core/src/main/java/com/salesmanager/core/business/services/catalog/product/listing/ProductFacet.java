@@ -0,0 +1,104 @@
+package com.salesmanager.core.business.services.catalog.product.listing;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An option of the products of a list with the number of products having
+ * each of its values
+ */
+public class ProductFacet implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private Long optionId;
+	private String optionCode;
+	private String name;
+	private List<Value> values = new ArrayList<Value>();
+
+	public Long getOptionId() {
+		return optionId;
+	}
+
+	public void setOptionId(Long optionId) {
+		this.optionId = optionId;
+	}
+
+	public String getOptionCode() {
+		return optionCode;
+	}
+
+	public void setOptionCode(String optionCode) {
+		this.optionCode = optionCode;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public List<Value> getValues() {
+		return values;
+	}
+
+	public void setValues(List<Value> values) {
+		this.values = values;
+	}
+
+	public static class Value implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private Long valueId;
+		private String valueCode;
+		private String name;
+		/** products having the value within the selection of the other options **/
+		private int count;
+		private boolean selected;
+
+		public Long getValueId() {
+			return valueId;
+		}
+
+		public void setValueId(Long valueId) {
+			this.valueId = valueId;
+		}
+
+		public String getValueCode() {
+			return valueCode;
+		}
+
+		public void setValueCode(String valueCode) {
+			this.valueCode = valueCode;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public void setCount(int count) {
+			this.count = count;
+		}
+
+		public boolean isSelected() {
+			return selected;
+		}
+
+		public void setSelected(boolean selected) {
+			this.selected = selected;
+		}
+	}
+
+}
@@ -0,0 +1,131 @@
+package com.salesmanager.core.business.services.catalog.product.listing;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Bitmaps of the product listings of a store, a bit by listing position for
+ * each category and each option value. Facets of a list of categories are
+ * counted by intersecting bitmaps, no product or attribute is read.
+ */
+class ProductFacetIndex {
+
+	private final int size;
+	private final Map<Long, BitSet> byCategory = new HashMap<Long, BitSet>();
+	private final Map<Long, BitSet> byValue = new HashMap<Long, BitSet>();
+	/** value ids of each option, ordered by option code **/
+	private final Map<String, List<Long>> valuesByOption = new TreeMap<String, List<Long>>(
+			Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+	/** one attribute of each value, for the codes and names **/
+	private final Map<Long, ProductListing.Attribute> values = new HashMap<Long, ProductListing.Attribute>();
+
+	ProductFacetIndex(List<ProductListing> listings) {
+		this.size = listings.size();
+		for (int i = 0; i < listings.size(); i++) {
+			ProductListing listing = listings.get(i);
+			for (Long categoryId : listing.getCategoryIds()) {
+				byCategory.computeIfAbsent(categoryId, k -> new BitSet()).set(i);
+			}
+			for (ProductListing.Attribute attribute : listing.getAttributes()) {
+				Long valueId = attribute.getValueId();
+				byValue.computeIfAbsent(valueId, k -> new BitSet()).set(i);
+				if (values.putIfAbsent(valueId, attribute) == null) {
+					valuesByOption.computeIfAbsent(attribute.getOptionCode(), k -> new ArrayList<Long>()).add(valueId);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Options of the products of the categories, with the number of products
+	 * having each value. Values selected for the same option are alternatives,
+	 * selections of different options all apply. Counts of an option apply
+	 * the selections of the other options only, so that the alternatives to
+	 * a selected value keep their count.
+	 * @param categoryIds categories of the list, every product when empty
+	 * @param selected option value ids selected
+	 * @param languageId language of the names
+	 */
+	List<ProductFacet> facets(Collection<Long> categoryIds, Set<Long> selected, Integer languageId) {
+
+		BitSet products;
+		if (categoryIds == null || categoryIds.isEmpty()) {
+			products = new BitSet(size);
+			products.set(0, size);
+		} else {
+			products = union(byCategory, categoryIds);
+		}
+
+		//products matching the selection of each option
+		Map<String, BitSet> selections = new LinkedHashMap<String, BitSet>();
+		for (Long valueId : selected) {
+			ProductListing.Attribute value = values.get(valueId);
+			if (value != null) {
+				selections.computeIfAbsent(value.getOptionCode(), k -> new BitSet()).or(byValue.get(valueId));
+			}
+		}
+
+		List<ProductFacet> facets = new ArrayList<ProductFacet>();
+		for (Map.Entry<String, List<Long>> option : valuesByOption.entrySet()) {
+
+			BitSet candidates = (BitSet) products.clone();
+			for (Map.Entry<String, BitSet> selection : selections.entrySet()) {
+				if (!StringUtils.equals(selection.getKey(), option.getKey())) {
+					candidates.and(selection.getValue());
+				}
+			}
+
+			ProductFacet facet = null;
+			for (Long valueId : option.getValue()) {
+				BitSet bits = byValue.get(valueId);
+				if (!bits.intersects(products)) {
+					continue;
+				}
+				ProductListing.Attribute attribute = values.get(valueId);
+				if (facet == null) {
+					facet = new ProductFacet();
+					facet.setOptionId(attribute.getOptionId());
+					facet.setOptionCode(attribute.getOptionCode());
+					facet.setName(attribute.getOptionNameOrDefault(languageId));
+				}
+				BitSet matches = (BitSet) bits.clone();
+				matches.and(candidates);
+				ProductFacet.Value value = new ProductFacet.Value();
+				value.setValueId(valueId);
+				value.setValueCode(attribute.getValueCode());
+				value.setName(attribute.getValueNameOrDefault(languageId));
+				value.setCount(matches.cardinality());
+				value.setSelected(selected.contains(valueId));
+				facet.getValues().add(value);
+			}
+			if (facet != null) {
+				facet.getValues().sort(Comparator.comparing(ProductFacet.Value::getName,
+						Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+				facets.add(facet);
+			}
+		}
+		return facets;
+	}
+
+	private BitSet union(Map<Long, BitSet> bitmaps, Collection<Long> ids) {
+		BitSet union = new BitSet();
+		for (Long id : ids) {
+			BitSet bits = bitmaps.get(id);
+			if (bits != null) {
+				union.or(bits);
+			}
+		}
+		return union;
+	}
+
+}
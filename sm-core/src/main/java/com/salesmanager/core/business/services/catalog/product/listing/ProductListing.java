@@ -0,0 +1,623 @@
+package com.salesmanager.core.business.services.catalog.product.listing;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.salesmanager.core.model.catalog.category.Category;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.ProductCondition;
+import com.salesmanager.core.model.catalog.product.RentalStatus;
+import com.salesmanager.core.model.catalog.product.attribute.ProductAttribute;
+import com.salesmanager.core.model.catalog.product.attribute.ProductOptionDescription;
+import com.salesmanager.core.model.catalog.product.attribute.ProductOptionValueDescription;
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+import com.salesmanager.core.model.catalog.product.description.ProductDescription;
+import com.salesmanager.core.model.catalog.product.image.ProductImage;
+import com.salesmanager.core.model.catalog.product.manufacturer.ManufacturerDescription;
+import com.salesmanager.core.model.catalog.product.price.FinalPrice;
+import com.salesmanager.core.model.catalog.product.price.ProductPrice;
+import com.salesmanager.core.model.catalog.product.price.ProductPriceDescription;
+
+/**
+ * What a product list displays of a product, flattened when the product is
+ * written: calculated price, default image, category and manufacturer ids,
+ * option values and a description by language. Listings are shared by every
+ * request and hold no entity.
+ */
+public class ProductListing implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Long id;
+	private final String sku;
+	private final String refSku;
+	private final int sortOrder;
+	private final boolean available;
+	private final Date dateAvailable;
+	private final Date dateCreated;
+	private final boolean preOrder;
+	private final boolean productVirtual;
+	private final ProductCondition condition;
+	private final RentalStatus rentalStatus;
+	private final Integer rentalDuration;
+	private final Integer rentalPeriod;
+	private final Long ownerId;
+	private final Long typeId;
+	private final String typeCode;
+	private final BigDecimal length;
+	private final BigDecimal width;
+	private final BigDecimal height;
+	private final BigDecimal weight;
+	private final BigDecimal reviewAverage;
+	private final Integer reviewCount;
+
+	private final Integer quantity;
+	private final Integer quantityOrderMinimum;
+	private final Integer quantityOrderMaximum;
+	private final boolean inStock;
+
+	private final BigDecimal finalPrice;
+	private final BigDecimal originalPrice;
+	private final boolean discounted;
+	private final Long priceId;
+	/** a special price starts or ends at that time, null when none is planned **/
+	private final Date priceChange;
+
+	private final Image image;
+	private final Set<Long> categoryIds;
+	private final Long manufacturerId;
+	private final String manufacturerCode;
+	private final String manufacturerName;
+	private final Integer manufacturerOrder;
+	private final List<Attribute> attributes;
+	private final Map<Integer, Description> descriptions;
+
+	ProductListing(Product product, FinalPrice price, Date now) {
+
+		this.id = product.getId();
+		this.sku = product.getSku();
+		this.refSku = product.getRefSku();
+		this.sortOrder = product.getSortOrder() == null ? 0 : product.getSortOrder();
+		this.available = product.isAvailable();
+		this.dateAvailable = product.getDateAvailable();
+		this.dateCreated = product.getAuditSection() == null ? null : product.getAuditSection().getDateCreated();
+		this.preOrder = product.isPreOrder();
+		this.productVirtual = product.getProductVirtual();
+		this.condition = product.getCondition();
+		this.rentalStatus = product.getRentalStatus();
+		this.rentalDuration = product.getRentalDuration();
+		this.rentalPeriod = product.getRentalPeriod();
+		this.ownerId = product.getOwner() == null ? null : product.getOwner().getId();
+		this.typeId = product.getType() == null ? null : product.getType().getId();
+		this.typeCode = product.getType() == null ? null : product.getType().getCode();
+		this.length = product.getProductLength();
+		this.width = product.getProductWidth();
+		this.height = product.getProductHeight();
+		this.weight = product.getProductWeight();
+		this.reviewAverage = product.getProductReviewAvg();
+		this.reviewCount = product.getProductReviewCount();
+
+		//same availability as ReadableProductPopulator, the last one
+		ProductAvailability availability = null;
+		boolean stock = false;
+		for (ProductAvailability a : product.getAvailabilities()) {
+			availability = a;
+			if (a.getProductQuantity() != null && a.getProductQuantity() > 0) {
+				stock = true;
+			}
+		}
+		this.quantity = availability == null ? null : availability.getProductQuantity();
+		this.quantityOrderMinimum = availability == null ? null : availability.getProductQuantityOrderMin();
+		this.quantityOrderMaximum = availability == null ? null : availability.getProductQuantityOrderMax();
+		this.inStock = stock;
+
+		this.finalPrice = price == null ? null : price.getFinalPrice();
+		this.originalPrice = price == null ? null : price.getOriginalPrice();
+		this.discounted = price != null && price.isDiscounted();
+
+		Date change = null;
+		ProductPrice defaultPrice = null;
+		for (ProductAvailability a : product.getAvailabilities()) {
+			for (ProductPrice p : a.getPrices()) {
+				change = earliest(change, p.getProductPriceSpecialStartDate(), now);
+				change = earliest(change, p.getProductPriceSpecialEndDate(), now);
+				if (a == availability && defaultPrice == null && ProductPrice.DEFAULT_PRICE_CODE.equals(p.getCode())) {
+					defaultPrice = p;
+				}
+			}
+		}
+		this.priceChange = change;
+		this.priceId = defaultPrice == null ? null : defaultPrice.getId();
+
+		Image defaultImage = null;
+		if (product.getImages() != null) {
+			for (ProductImage img : product.getImages()) {
+				if (img.isDefaultImage()) {
+					defaultImage = new Image(img);
+				}
+			}
+		}
+		this.image = defaultImage;
+
+		Set<Long> categories = new LinkedHashSet<Long>();
+		if (product.getCategories() != null) {
+			for (Category category : product.getCategories()) {
+				categories.add(category.getId());
+			}
+		}
+		this.categoryIds = Collections.unmodifiableSet(categories);
+
+		if (product.getManufacturer() != null) {
+			this.manufacturerId = product.getManufacturer().getId();
+			this.manufacturerCode = product.getManufacturer().getCode();
+			this.manufacturerOrder = product.getManufacturer().getOrder();
+			ManufacturerDescription manufacturer = product.getManufacturer().getDescriptions().isEmpty() ? null
+					: product.getManufacturer().getDescriptions().iterator().next();
+			this.manufacturerName = manufacturer == null ? null : manufacturer.getName();
+		} else {
+			this.manufacturerId = null;
+			this.manufacturerCode = null;
+			this.manufacturerOrder = null;
+			this.manufacturerName = null;
+		}
+
+		List<Attribute> attrs = new ArrayList<Attribute>();
+		if (product.getAttributes() != null) {
+			for (ProductAttribute attribute : product.getAttributes()) {
+				if (attribute.getProductOption() != null && attribute.getProductOptionValue() != null) {
+					attrs.add(new Attribute(attribute));
+				}
+			}
+		}
+		this.attributes = Collections.unmodifiableList(attrs);
+
+		Map<Integer, Description> descs = new HashMap<Integer, Description>();
+		for (ProductDescription description : product.getDescriptions()) {
+			if (description.getLanguage() != null) {
+				descs.putIfAbsent(description.getLanguage().getId(), new Description(description, defaultPrice));
+			}
+		}
+		this.descriptions = descs;
+	}
+
+	private static Date earliest(Date current, Date date, Date now) {
+		if (date == null || !date.after(now)) {
+			return current;
+		}
+		return current == null || date.before(current) ? date : current;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getSku() {
+		return sku;
+	}
+
+	public String getRefSku() {
+		return refSku;
+	}
+
+	public int getSortOrder() {
+		return sortOrder;
+	}
+
+	public boolean isAvailable() {
+		return available;
+	}
+
+	/**
+	 * Available and available at the given date
+	 */
+	public boolean isAvailable(Date date) {
+		return available && dateAvailable != null && !dateAvailable.after(date);
+	}
+
+	public Date getDateAvailable() {
+		return dateAvailable;
+	}
+
+	public Date getDateCreated() {
+		return dateCreated;
+	}
+
+	public boolean isPreOrder() {
+		return preOrder;
+	}
+
+	public boolean isProductVirtual() {
+		return productVirtual;
+	}
+
+	public ProductCondition getCondition() {
+		return condition;
+	}
+
+	public RentalStatus getRentalStatus() {
+		return rentalStatus;
+	}
+
+	public Integer getRentalDuration() {
+		return rentalDuration;
+	}
+
+	public Integer getRentalPeriod() {
+		return rentalPeriod;
+	}
+
+	public Long getOwnerId() {
+		return ownerId;
+	}
+
+	public Long getTypeId() {
+		return typeId;
+	}
+
+	public String getTypeCode() {
+		return typeCode;
+	}
+
+	public BigDecimal getLength() {
+		return length;
+	}
+
+	public BigDecimal getWidth() {
+		return width;
+	}
+
+	public BigDecimal getHeight() {
+		return height;
+	}
+
+	public BigDecimal getWeight() {
+		return weight;
+	}
+
+	public BigDecimal getReviewAverage() {
+		return reviewAverage;
+	}
+
+	public Integer getReviewCount() {
+		return reviewCount;
+	}
+
+	public Integer getQuantity() {
+		return quantity;
+	}
+
+	public Integer getQuantityOrderMinimum() {
+		return quantityOrderMinimum;
+	}
+
+	public Integer getQuantityOrderMaximum() {
+		return quantityOrderMaximum;
+	}
+
+	/**
+	 * Available with a quantity in stock
+	 */
+	public boolean isCanBePurchased() {
+		return available && inStock;
+	}
+
+	public BigDecimal getFinalPrice() {
+		return finalPrice;
+	}
+
+	public BigDecimal getOriginalPrice() {
+		return originalPrice;
+	}
+
+	public boolean isDiscounted() {
+		return discounted;
+	}
+
+	/**
+	 * Id of the default price
+	 */
+	public Long getPriceId() {
+		return priceId;
+	}
+
+	Date getPriceChange() {
+		return priceChange;
+	}
+
+	/**
+	 * Default image, null when the product has none
+	 */
+	public Image getImage() {
+		return image;
+	}
+
+	public Set<Long> getCategoryIds() {
+		return categoryIds;
+	}
+
+	public Long getManufacturerId() {
+		return manufacturerId;
+	}
+
+	public String getManufacturerCode() {
+		return manufacturerCode;
+	}
+
+	public String getManufacturerName() {
+		return manufacturerName;
+	}
+
+	public Integer getManufacturerOrder() {
+		return manufacturerOrder;
+	}
+
+	public List<Attribute> getAttributes() {
+		return attributes;
+	}
+
+	/**
+	 * Description in a language, null when the product is not described in
+	 * that language
+	 */
+	public Description getDescription(Integer languageId) {
+		return descriptions.get(languageId);
+	}
+
+	/**
+	 * Description in a language or else any description
+	 */
+	public Description getDescriptionOrDefault(Integer languageId) {
+		Description description = descriptions.get(languageId);
+		if (description == null && !descriptions.isEmpty()) {
+			description = descriptions.values().iterator().next();
+		}
+		return description;
+	}
+
+	public Iterable<Description> getDescriptions() {
+		return descriptions.values();
+	}
+
+	public static class Image implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Long id;
+		private final String name;
+		private final int type;
+		private final String externalUrl;
+
+		Image(ProductImage image) {
+			this.id = image.getId();
+			this.name = image.getProductImage();
+			this.type = image.getImageType();
+			this.externalUrl = image.getProductImageUrl();
+		}
+
+		public Long getId() {
+			return id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getType() {
+			return type;
+		}
+
+		public String getExternalUrl() {
+			return externalUrl;
+		}
+	}
+
+	/**
+	 * An option value of the product, with the option name and the value
+	 * descriptions by language
+	 */
+	public static class Attribute implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Long optionId;
+		private final String optionCode;
+		private final Long valueId;
+		private final String valueCode;
+		private final boolean displayOnly;
+		private final Map<Integer, String> optionNames = new HashMap<Integer, String>();
+		private final Map<Integer, String> valueNames = new HashMap<Integer, String>();
+		private final Map<Integer, String> valueDescriptions = new HashMap<Integer, String>();
+
+		Attribute(ProductAttribute attribute) {
+			this.optionId = attribute.getProductOption().getId();
+			this.optionCode = attribute.getProductOption().getCode();
+			this.valueId = attribute.getProductOptionValue().getId();
+			this.valueCode = attribute.getProductOptionValue().getCode();
+			this.displayOnly = attribute.getAttributeDisplayOnly();
+			for (ProductOptionDescription description : attribute.getProductOption().getDescriptions()) {
+				if (description.getLanguage() != null) {
+					optionNames.putIfAbsent(description.getLanguage().getId(), description.getName());
+				}
+			}
+			for (ProductOptionValueDescription description : attribute.getProductOptionValue().getDescriptions()) {
+				if (description.getLanguage() != null) {
+					valueNames.putIfAbsent(description.getLanguage().getId(), description.getName());
+					valueDescriptions.putIfAbsent(description.getLanguage().getId(), description.getDescription());
+				}
+			}
+		}
+
+		public Long getOptionId() {
+			return optionId;
+		}
+
+		public String getOptionCode() {
+			return optionCode;
+		}
+
+		public Long getValueId() {
+			return valueId;
+		}
+
+		public String getValueCode() {
+			return valueCode;
+		}
+
+		public boolean isDisplayOnly() {
+			return displayOnly;
+		}
+
+		public String getValueName(Integer languageId) {
+			return valueNames.get(languageId);
+		}
+
+		/**
+		 * Option name of a language, any name when the option is not
+		 * described in that language
+		 */
+		public String getOptionNameOrDefault(Integer languageId) {
+			return nameOrDefault(optionNames, languageId);
+		}
+
+		/**
+		 * Value name of a language, any name when the value is not described
+		 * in that language
+		 */
+		public String getValueNameOrDefault(Integer languageId) {
+			return nameOrDefault(valueNames, languageId);
+		}
+
+		private static String nameOrDefault(Map<Integer, String> names, Integer languageId) {
+			String name = names.get(languageId);
+			if (name == null && !names.isEmpty()) {
+				name = names.values().iterator().next();
+			}
+			return name;
+		}
+
+		/**
+		 * Value description of a language, or of every language when
+		 * languageId is null
+		 */
+		public boolean valueDescriptionContains(Integer languageId, String text) {
+			if (languageId != null) {
+				String description = valueDescriptions.get(languageId);
+				return description != null && description.contains(text);
+			}
+			for (String description : valueDescriptions.values()) {
+				if (description != null && description.contains(text)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Product description of a language with the price appender of the
+	 * default price
+	 */
+	public static class Description implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Long id;
+		private final Integer languageId;
+		private final String languageCode;
+		private final String name;
+		private final String friendlyUrl;
+		private final String title;
+		private final String metaDescription;
+		private final String description;
+		private final String highlights;
+		private final String keywords;
+		private final Long priceDescriptionId;
+		private final String priceAppender;
+
+		Description(ProductDescription source, ProductPrice defaultPrice) {
+			this.id = source.getId();
+			this.languageId = source.getLanguage().getId();
+			this.languageCode = source.getLanguage().getCode();
+			this.name = source.getName();
+			this.friendlyUrl = source.getSeUrl();
+			this.title = source.getMetatagTitle() == null || source.getMetatagTitle().trim().isEmpty() ? source.getName()
+					: source.getMetatagTitle();
+			this.metaDescription = source.getMetatagDescription();
+			this.description = source.getDescription();
+			this.highlights = source.getProductHighlight();
+			this.keywords = source.getMetatagKeywords();
+
+			ProductPriceDescription priceDescription = null;
+			if (defaultPrice != null) {
+				for (ProductPriceDescription d : defaultPrice.getDescriptions()) {
+					if (d.getLanguage() != null && languageCode != null && languageCode.equals(d.getLanguage().getCode())) {
+						priceDescription = d;
+						break;
+					}
+				}
+			}
+			this.priceDescriptionId = priceDescription == null ? null : priceDescription.getId();
+			this.priceAppender = priceDescription == null ? null : priceDescription.getPriceAppender();
+		}
+
+		public Long getId() {
+			return id;
+		}
+
+		public Integer getLanguageId() {
+			return languageId;
+		}
+
+		public String getLanguageCode() {
+			return languageCode;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getFriendlyUrl() {
+			return friendlyUrl;
+		}
+
+		public String getTitle() {
+			return title;
+		}
+
+		public String getMetaDescription() {
+			return metaDescription;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+
+		public String getHighlights() {
+			return highlights;
+		}
+
+		public String getKeywords() {
+			return keywords;
+		}
+
+		/**
+		 * null when the default price has no description in the language
+		 */
+		public Long getPriceDescriptionId() {
+			return priceDescriptionId;
+		}
+
+		public String getPriceAppender() {
+			return priceAppender;
+		}
+	}
+
+}
@@ -0,0 +1,31 @@
+package com.salesmanager.core.business.services.catalog.product.listing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.salesmanager.core.model.common.EntityList;
+
+public class ProductListingList extends EntityList {
+
+	private static final long serialVersionUID = 1L;
+
+	private List<ProductListing> listings = new ArrayList<ProductListing>();
+	private String nextCursor;
+
+	public List<ProductListing> getListings() {
+		return listings;
+	}
+
+	public void setListings(List<ProductListing> listings) {
+		this.listings = listings;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
+}
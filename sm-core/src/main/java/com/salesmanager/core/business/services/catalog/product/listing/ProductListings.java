@@ -0,0 +1,247 @@
+package com.salesmanager.core.business.services.catalog.product.listing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import com.salesmanager.core.business.utils.KeysetCursor;
+import com.salesmanager.core.model.catalog.product.ProductCriteria;
+import com.salesmanager.core.model.catalog.product.attribute.AttributeCriteria;
+import com.salesmanager.core.model.reference.language.Language;
+
+/**
+ * Listings of every product of a store ordered by sort order and id, the
+ * order of the product list queries. Lists are filtered and paged in memory
+ * with the same criteria as ProductRepositoryImpl.listByStore, cursors are
+ * interchangeable with the ones of the repository.
+ */
+class ProductListings {
+
+	private static final String ALL_LANGUAGES = "_all";
+
+	static final Comparator<ProductListing> ORDER = Comparator.comparingInt(ProductListing::getSortOrder)
+			.thenComparing(ProductListing::getId);
+
+	private final long version;
+	private final long created;
+	private final List<ProductListing> listings;
+	private final Map<Long, ProductListing> byId;
+	/** listings are rebuilt when a special price starts or ends **/
+	private final Date expires;
+	/** built by the first facet request of the snapshot **/
+	private volatile ProductFacetIndex facetIndex;
+
+	ProductListings(long version, long created, Collection<ProductListing> listings) {
+		this.version = version;
+		this.created = created;
+		List<ProductListing> ordered = new ArrayList<ProductListing>(listings);
+		ordered.sort(ORDER);
+		this.listings = Collections.unmodifiableList(ordered);
+		Map<Long, ProductListing> ids = new HashMap<Long, ProductListing>();
+		Date change = null;
+		for (ProductListing listing : ordered) {
+			ids.put(listing.getId(), listing);
+			Date priceChange = listing.getPriceChange();
+			if (priceChange != null && (change == null || priceChange.before(change))) {
+				change = priceChange;
+			}
+		}
+		this.byId = ids;
+		this.expires = change;
+	}
+
+	/**
+	 * Same listings with the listings of changed products replaced
+	 * @param changed listings of products still existing
+	 * @param removed ids of products no longer in the store
+	 */
+	ProductListings with(Collection<ProductListing> changed, Collection<Long> removed) {
+		Map<Long, ProductListing> merged = new HashMap<Long, ProductListing>(byId);
+		for (Long id : removed) {
+			merged.remove(id);
+		}
+		for (ProductListing listing : changed) {
+			merged.put(listing.getId(), listing);
+		}
+		return new ProductListings(version, created, merged.values());
+	}
+
+	long getVersion() {
+		return version;
+	}
+
+	long getCreated() {
+		return created;
+	}
+
+	boolean isExpired(Date now) {
+		return expires != null && !expires.after(now);
+	}
+
+	ProductListing get(Long id) {
+		return byId.get(id);
+	}
+
+	List<ProductListing> getListings() {
+		return listings;
+	}
+
+	ProductFacetIndex getFacetIndex() {
+		ProductFacetIndex index = facetIndex;
+		if (index == null) {
+			//concurrent first requests may each build an identical index
+			index = new ProductFacetIndex(listings);
+			facetIndex = index;
+		}
+		return index;
+	}
+
+	/**
+	 * A page of listings matching the criteria
+	 * @param language language of the description filters
+	 */
+	ProductListingList list(Language language, ProductCriteria criteria, Date now) {
+
+		Integer languageId = null;
+		if (language != null && criteria.getLanguage() != null && !criteria.getLanguage().equals(ALL_LANGUAGES)) {
+			languageId = language.getId();
+		}
+
+		List<ProductListing> matches = new ArrayList<ProductListing>();
+		for (ProductListing listing : listings) {
+			if (matches(listing, languageId, criteria, now)) {
+				matches.add(listing);
+			}
+		}
+
+		ProductListingList list = new ProductListingList();
+		list.setTotalCount(matches.size());
+
+		if (criteria.getCursor() != null) {
+			int pageSize = criteria.getMaxCount() > 0 ? criteria.getMaxCount() : criteria.getPageSize();
+			int from = after(matches, KeysetCursor.decode(criteria.getCursor(), 2, "product"));
+			int to = Math.min(matches.size(), from + pageSize);
+			list.setListings(new ArrayList<ProductListing>(matches.subList(from, to)));
+			if (to < matches.size() && to > from) {
+				ProductListing last = matches.get(to - 1);
+				list.setNextCursor(KeysetCursor.encode(last.getSortOrder(), last.getId()));
+			}
+			return list;
+		}
+
+		int from = Math.min(matches.size(), Math.max(0, criteria.getStartIndex()));
+		int to = criteria.getMaxCount() > 0 ? Math.min(matches.size(), from + criteria.getMaxCount()) : matches.size();
+		list.setListings(new ArrayList<ProductListing>(matches.subList(from, to)));
+		return list;
+	}
+
+	private boolean matches(ProductListing listing, Integer languageId, ProductCriteria criteria, Date now) {
+
+		if (!CollectionUtils.isEmpty(criteria.getProductIds()) && !criteria.getProductIds().contains(listing.getId())) {
+			return false;
+		}
+
+		if (languageId != null && listing.getDescription(languageId) == null) {
+			return false;
+		}
+
+		if (!StringUtils.isBlank(criteria.getProductName()) && !nameContains(listing, languageId, criteria.getProductName().toLowerCase())) {
+			return false;
+		}
+
+		if (!CollectionUtils.isEmpty(criteria.getCategoryIds())
+				&& !CollectionUtils.containsAny(listing.getCategoryIds(), criteria.getCategoryIds())) {
+			return false;
+		}
+
+		if (criteria.getManufacturerId() != null && !criteria.getManufacturerId().equals(listing.getManufacturerId())) {
+			return false;
+		}
+
+		if (!StringUtils.isBlank(criteria.getCode())
+				&& (listing.getSku() == null || !listing.getSku().toLowerCase().contains(criteria.getCode().toLowerCase()))) {
+			return false;
+		}
+
+		// RENTAL
+		if (!StringUtils.isBlank(criteria.getStatus())
+				&& (listing.getRentalStatus() == null || !listing.getRentalStatus().name().equals(criteria.getStatus()))) {
+			return false;
+		}
+
+		if (criteria.getOwnerId() != null && !criteria.getOwnerId().equals(listing.getOwnerId())) {
+			return false;
+		}
+
+		if (!CollectionUtils.isEmpty(criteria.getAttributeCriteria())) {
+			for (AttributeCriteria attributeCriteria : criteria.getAttributeCriteria()) {
+				if (!hasAttribute(listing, languageId, attributeCriteria)) {
+					return false;
+				}
+			}
+		}
+
+		if (criteria.getAvailable() != null && criteria.getAvailable().booleanValue() != listing.isAvailable(now)) {
+			return false;
+		}
+
+		return true;
+	}
+
+	private boolean nameContains(ProductListing listing, Integer languageId, String name) {
+		if (languageId != null) {
+			String n = listing.getDescription(languageId).getName();
+			return n != null && n.toLowerCase().contains(name);
+		}
+		for (ProductListing.Description description : listing.getDescriptions()) {
+			if (description.getName() != null && description.getName().toLowerCase().contains(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean hasAttribute(ProductListing listing, Integer languageId, AttributeCriteria attributeCriteria) {
+		for (ProductListing.Attribute attribute : listing.getAttributes()) {
+			if (attributeCriteria.getAttributeCode() != null && attributeCriteria.getAttributeCode().equals(attribute.getOptionCode())
+					&& attribute.valueDescriptionContains(languageId, StringUtils.defaultString(attributeCriteria.getAttributeValue()))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * index of the first listing after the cursor position
+	 */
+	private int after(List<ProductListing> matches, long[] position) {
+		if (position == null) {
+			return 0;
+		}
+		int low = 0;
+		int high = matches.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			ProductListing listing = matches.get(mid);
+			int c = Integer.compare(listing.getSortOrder(), (int) position[0]);
+			if (c == 0) {
+				c = Long.compare(listing.getId(), position[1]);
+			}
+			if (c <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+}
@@ -0,0 +1,285 @@
+package com.salesmanager.core.business.services.catalog.product.listing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.repositories.catalog.product.ProductRepository;
+import com.salesmanager.core.business.services.catalog.product.PricingService;
+import com.salesmanager.core.business.utils.CacheVersions;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.ProductCriteria;
+import com.salesmanager.core.model.catalog.product.price.FinalPrice;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.language.Language;
+
+/**
+ * Product listings of each store, product lists are served from memory
+ * without loading products. Services writing a product, its prices,
+ * inventory, images or attributes record the product id once their
+ * transaction commits; recorded products are reloaded by the next reader of
+ * the store and their listings replaced. Changes to what many products
+ * display (categories, manufacturers, options) reload the whole store.
+ * While a reader reloads, the other readers of the store are served the
+ * previous listings, readers only wait when the store was never loaded.
+ */
+@Component("productReadModel")
+public class ProductReadModel {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProductReadModel.class);
+
+	/** products loaded by query when a store is loaded **/
+	private static final int BATCH = 200;
+
+	@Inject
+	private ProductRepository productRepository;
+
+	@Inject
+	private PricingService pricingService;
+
+	@Inject
+	private PlatformTransactionManager transactionManager;
+
+	@PersistenceContext
+	private EntityManager em;
+
+	@Value("${config.product.readModel.maxAge:300000}")
+	private long maxAge = 300000;
+
+	private final ConcurrentMap<Integer, ProductListings> stores = new ConcurrentHashMap<Integer, ProductListings>();
+	private final CacheVersions<Integer> versions = new CacheVersions<Integer>();
+	/** committed changes not yet applied, product ids by store **/
+	private final ConcurrentMap<Integer, Set<Long>> pending = new ConcurrentHashMap<Integer, Set<Long>>();
+	private final ConcurrentMap<Integer, ReentrantLock> locks = new ConcurrentHashMap<Integer, ReentrantLock>();
+
+	/**
+	 * A page of product listings, same criteria as ProductService.listByStore
+	 * @param language language of the descriptions filtered on
+	 */
+	public ProductListingList list(MerchantStore store, Language language, ProductCriteria criteria) {
+		return listings(store).list(language, criteria, new Date());
+	}
+
+	/**
+	 * Listings of every product of the store, by sort order
+	 */
+	public List<ProductListing> list(MerchantStore store) {
+		return listings(store).getListings();
+	}
+
+	/**
+	 * Options of the products of categories with the number of products of
+	 * each value, see ProductFacetIndex
+	 * @param categoryIds categories of the list, every product when empty
+	 * @param selected option value ids selected by the customer
+	 */
+	public List<ProductFacet> facets(MerchantStore store, Language language, Collection<Long> categoryIds,
+			Collection<Long> selected) {
+		Set<Long> selection = selected == null ? Collections.<Long>emptySet() : new HashSet<Long>(selected);
+		return listings(store).getFacetIndex().facets(categoryIds, selection, language.getId());
+	}
+
+	/**
+	 * @return null when the product is not in the store
+	 */
+	public ProductListing get(MerchantStore store, Long productId) {
+		return listings(store).get(productId);
+	}
+
+	/**
+	 * A product or one of its prices, inventories, images or attributes was
+	 * created, modified or removed
+	 */
+	public void changed(Product product) {
+		if (product != null) {
+			changed(product.getMerchantStore(), product.getId());
+		}
+	}
+
+	/**
+	 * A product was created, modified or removed
+	 */
+	public void changed(MerchantStore store, Long productId) {
+		if (productId != null) {
+			changed(store, Collections.singleton(productId));
+		}
+	}
+
+	/**
+	 * Products were created, modified or removed
+	 */
+	public void changed(MerchantStore store, Collection<Long> productIds) {
+
+		if (store == null || store.getId() == null || productIds.isEmpty()) {
+			return;
+		}
+		Integer storeId = store.getId();
+		Set<Long> ids = new HashSet<Long>(productIds);
+
+		//the change is applied once visible to the readers
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					record(storeId, ids);
+				}
+			});
+		} else {
+			record(storeId, ids);
+		}
+	}
+
+	/**
+	 * What many products of the store display changed
+	 */
+	public void invalidate(MerchantStore store) {
+
+		if (store != null && store.getId() != null) {
+			versions.changed(store.getId());
+		}
+	}
+
+	private void record(Integer storeId, Set<Long> ids) {
+		pending.compute(storeId, (k, v) -> {
+			Set<Long> merged = v == null ? new HashSet<Long>() : v;
+			merged.addAll(ids);
+			return merged;
+		});
+	}
+
+	private ProductListings listings(MerchantStore store) {
+
+		Integer storeId = store.getId();
+		ProductListings current = stores.get(storeId);
+		if (isCurrent(current, storeId) && !pending.containsKey(storeId)) {
+			return current;
+		}
+
+		//one reader of a store applies the changes, the others read the previous listings
+		ReentrantLock lock = locks.computeIfAbsent(storeId, k -> new ReentrantLock());
+		if (current == null) {
+			lock.lock();
+		} else if (!lock.tryLock()) {
+			return current;
+		}
+		try {
+
+			current = stores.get(storeId);
+			long version = versions.get(storeId);
+			Set<Long> changed = pending.remove(storeId);
+			try {
+				if (!isCurrent(current, storeId)) {
+					current = load(storeId, version);
+				} else if (changed != null) {
+					current = apply(current, storeId, changed);
+				}
+			} catch (RuntimeException e) {
+				if (changed != null) {
+					record(storeId, changed);
+				}
+				throw e;
+			}
+			stores.put(storeId, current);
+			return current;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean isCurrent(ProductListings listings, Integer storeId) {
+		return listings != null && versions.isCurrent(storeId, listings.getVersion(), listings.getCreated(), maxAge)
+				&& !listings.isExpired(new Date());
+	}
+
+	private ProductListings load(Integer storeId, long version) {
+		long created = System.currentTimeMillis();
+		List<ProductListing> listings = inTransaction(() -> {
+			List<Long> ids = productRepository.findIdsByStore(storeId);
+			List<ProductListing> loaded = new ArrayList<ProductListing>();
+			for (int i = 0; i < ids.size(); i += BATCH) {
+				loaded.addAll(build(storeId, ids.subList(i, Math.min(ids.size(), i + BATCH))));
+			}
+			return loaded;
+		});
+		LOGGER.debug("Loaded " + listings.size() + " product listings of store " + storeId);
+		return new ProductListings(version, created, listings);
+	}
+
+	private ProductListings apply(ProductListings current, Integer storeId, Set<Long> changed) {
+		List<ProductListing> listings = inTransaction(() -> build(storeId, new ArrayList<Long>(changed)));
+		Set<Long> removed = new HashSet<Long>(changed);
+		for (ProductListing listing : listings) {
+			removed.remove(listing.getId());
+		}
+		return current.with(listings, removed);
+	}
+
+	/**
+	 * Listings of the products of a store among ids
+	 */
+	private List<ProductListing> build(Integer storeId, List<Long> ids) {
+
+		Date now = new Date();
+		List<ProductListing> listings = new ArrayList<ProductListing>();
+		Set<Long> built = new HashSet<Long>();
+		for (Product product : productRepository.getByIds(new HashSet<Long>(ids))) {
+			if (!built.add(product.getId()) || product.getMerchantStore() == null
+					|| !storeId.equals(product.getMerchantStore().getId())) {
+				continue;
+			}
+			Hibernate.initialize(product.getCategories());
+			if (product.getManufacturer() != null) {
+				Hibernate.initialize(product.getManufacturer().getDescriptions());
+			}
+			listings.add(new ProductListing(product, price(product), now));
+		}
+		//listings hold no entity, the session does not need to keep them
+		em.clear();
+		return listings;
+	}
+
+	private FinalPrice price(Product product) {
+		try {
+			return pricingService.calculateProductPrice(product);
+		} catch (ServiceException | RuntimeException e) {
+			LOGGER.warn("Cannot calculate price of product " + product.getId(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Loads in a transaction of its own, clearing the session never detaches
+	 * the entities of the caller
+	 */
+	private <T> T inTransaction(Supplier<T> loader) {
+		TransactionTemplate template = new TransactionTemplate(transactionManager);
+		template.setReadOnly(true);
+		template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		return template.execute(status -> loader.get());
+	}
+
+}
@@ -15,6 +15,7 @@ import org.springframework.stereotype.Service;
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.repositories.catalog.product.manufacturer.ManufacturerRepository;
 import com.salesmanager.core.business.repositories.catalog.product.manufacturer.PageableManufacturerRepository;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductReadModel;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
 import com.salesmanager.core.model.catalog.category.Category;
 import com.salesmanager.core.model.catalog.product.manufacturer.Manufacturer;
@@ -32,6 +33,9 @@ public class ManufacturerServiceImpl extends SalesManagerEntityServiceImpl<Long,
 
   @Inject
   private PageableManufacturerRepository pageableManufacturerRepository;
+
+  @Inject
+  private ProductReadModel productReadModel;
   
   private ManufacturerRepository manufacturerRepository;
 
@@ -45,6 +49,7 @@ public class ManufacturerServiceImpl extends SalesManagerEntityServiceImpl<Long,
   public void delete(Manufacturer manufacturer) throws ServiceException {
     manufacturer = this.getById(manufacturer.getId());
     super.delete(manufacturer);
+    productReadModel.invalidate(manufacturer.getMerchantStore());
   }
 
   @Override
@@ -97,6 +102,7 @@ public class ManufacturerServiceImpl extends SalesManagerEntityServiceImpl<Long,
       super.create(manufacturer);
 
     }
+    productReadModel.invalidate(manufacturer.getMerchantStore());
   }
 
   @Override
@@ -9,6 +9,7 @@ import org.springframework.stereotype.Service;
 
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.repositories.catalog.product.price.ProductPriceRepository;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductReadModel;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
 import com.salesmanager.core.model.catalog.product.price.ProductPrice;
 import com.salesmanager.core.model.catalog.product.price.ProductPriceDescription;
@@ -17,6 +18,9 @@ import com.salesmanager.core.model.catalog.product.price.ProductPriceDescription
 public class ProductPriceServiceImpl extends SalesManagerEntityServiceImpl<Long, ProductPrice> 
 	implements ProductPriceService {
 
+	@Inject
+	private ProductReadModel productReadModel;
+
 	@Inject
 	public ProductPriceServiceImpl(ProductPriceRepository productPriceRepository) {
 		super(productPriceRepository);
@@ -52,15 +56,28 @@ public class ProductPriceServiceImpl extends SalesManagerEntityServiceImpl<Long,
 		
 	}
 	
+	@Override
+	public void save(ProductPrice price) throws ServiceException {
+		super.save(price);
+		changed(price);
+	}
+	
 	@Override
 	public void delete(ProductPrice price) throws ServiceException {
 		
 		//override method, this allows the error that we try to remove a detached instance
 		price = this.getById(price.getId());
 		super.delete(price);
+		changed(price);
 		
 	}
 	
+	private void changed(ProductPrice price) {
+		if(price.getProductAvailability()!=null) {
+			productReadModel.changed(price.getProductAvailability().getProduct());
+		}
+	}
+	
 
 
 }
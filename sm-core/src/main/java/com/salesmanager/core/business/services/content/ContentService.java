@@ -3,6 +3,7 @@ package com.salesmanager.core.business.services.content;
 import java.util.List;
 
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ContentResource;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityService;
 import com.salesmanager.core.model.content.Content;
 import com.salesmanager.core.model.content.ContentDescription;
@@ -111,6 +112,13 @@ public interface ContentService
      */
     public OutputContentFile getContentFile( String merchantStoreCode, FileContentType fileContentType, String fileName )
         throws ServiceException;
+
+    /**
+     * Content file for streaming, without copying it in a byte array.
+     * Returns null when the file does not exist
+     */
+    public ContentResource getContentFileResource( String merchantStoreCode, FileContentType fileContentType, String fileName )
+        throws ServiceException;
     
     
     /**
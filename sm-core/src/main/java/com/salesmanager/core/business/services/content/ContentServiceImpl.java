@@ -8,6 +8,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ContentBufferCache;
+import com.salesmanager.core.business.modules.cms.common.ContentResource;
 import com.salesmanager.core.business.modules.cms.content.StaticContentFileManager;
 import com.salesmanager.core.business.repositories.content.ContentRepository;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
@@ -33,6 +35,9 @@ public class ContentServiceImpl extends SalesManagerEntityServiceImpl<Long, Cont
   @Inject
   StaticContentFileManager contentFileManager;
 
+  @Inject
+  private ContentBufferCache contentBufferCache;
+
   @Inject
   public ContentServiceImpl(ContentRepository contentRepository) {
     super(contentRepository);
@@ -188,6 +193,7 @@ public class ContentServiceImpl extends SalesManagerEntityServiceImpl<Long, Cont
     try {
       LOG.info("Adding content image for merchant id {}", merchantStoreCode);
       contentFileManager.addFile(merchantStoreCode, contentImage);
+      evictBuffers(merchantStoreCode);
 
     } catch (Exception e) {
       LOG.error("Error while trying to convert input stream to buffered image", e);
@@ -213,6 +219,7 @@ public class ContentServiceImpl extends SalesManagerEntityServiceImpl<Long, Cont
       LOG.info("Adding content file for merchant id {}", merchantStoreCode);
       // staticContentFileManager.addFile(merchantStoreCode, contentImage);
       contentFileManager.addFile(merchantStoreCode, contentImage);
+      evictBuffers(merchantStoreCode);
 
     } catch (Exception e) {
       LOG.error("Error while trying to convert input stream to buffered image", e);
@@ -251,6 +258,7 @@ public class ContentServiceImpl extends SalesManagerEntityServiceImpl<Long, Cont
 
     LOG.info("Adding content images for merchant....");
     contentFileManager.addFiles(merchantStoreCode, contentFilesList);
+    evictBuffers(merchantStoreCode);
     // staticContentFileManager.addFiles(merchantStoreCode, contentFilesList);
 
     try {
@@ -283,6 +291,7 @@ public class ContentServiceImpl extends SalesManagerEntityServiceImpl<Long, Cont
 
 
     contentFileManager.removeFile(merchantStoreCode, fileContentType, fileName);
+    evictBuffers(merchantStoreCode);
 
 
   }
@@ -297,6 +306,7 @@ public class ContentServiceImpl extends SalesManagerEntityServiceImpl<Long, Cont
       fileType = "STATIC_FILE";
 
     contentFileManager.removeFile(storeCode, FileContentType.valueOf(fileType), fileName);
+    evictBuffers(storeCode);
 
   }
 
@@ -314,6 +324,7 @@ public class ContentServiceImpl extends SalesManagerEntityServiceImpl<Long, Cont
 
 
     contentFileManager.removeFiles(merchantStoreCode);
+    evictBuffers(merchantStoreCode);
 
     // staticContentFileManager.removeFiles(merchantStoreCode);
 
@@ -347,6 +358,29 @@ public class ContentServiceImpl extends SalesManagerEntityServiceImpl<Long, Cont
 
   }
 
+  @Override
+  public ContentResource getContentFileResource(String merchantStoreCode,
+      FileContentType fileContentType, String fileName) throws ServiceException {
+    Assert.notNull(merchantStoreCode, "Merchant store ID can not be null");
+    Assert.notNull(fileName, "File name can not be null");
+
+    String key = bufferKey(merchantStoreCode) + fileContentType.name() + "/" + fileName;
+    ContentResource resource = contentBufferCache.get(key);
+    if (resource == null) {
+      resource = contentFileManager.getFileResource(merchantStoreCode, fileContentType, fileName);
+      contentBufferCache.put(key, resource);
+    }
+    return resource;
+  }
+
+  private String bufferKey(String merchantStoreCode) {
+    return "content/" + merchantStoreCode + "/";
+  }
+
+  private void evictBuffers(String merchantStoreCode) {
+    contentBufferCache.evictByPrefix(bufferKey(merchantStoreCode));
+  }
+
   /**
    * Implementation for getContentImages method defined in {@link ContentService} interface. Methods
    * will return list of all Content image associated with given Merchant store or will return empty
@@ -11,6 +11,7 @@ import org.springframework.stereotype.Service;
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.repositories.customer.CustomerRepository;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
+import com.salesmanager.core.business.services.user.PrincipalRevisions;
 import com.salesmanager.core.business.services.customer.attribute.CustomerAttributeService;
 import com.salesmanager.core.model.common.Address;
 import com.salesmanager.core.model.customer.Customer;
@@ -31,6 +32,9 @@ public class CustomerServiceImpl extends SalesManagerEntityServiceImpl<Long, Cus
 	
 	@Inject
 	private CustomerAttributeService customerAttributeService;
+
+	@Inject
+	private PrincipalRevisions principalRevisions;
 	
 	@Inject
 	private GeoLocation geoLocation;
@@ -97,6 +101,12 @@ public class CustomerServiceImpl extends SalesManagerEntityServiceImpl<Long, Cus
 		}
 	}
 
+	@Override
+	public void save(Customer customer) throws ServiceException {
+		super.save(customer);
+		principalRevisions.changed(PrincipalRevisions.CUSTOMER, customer.getId());
+	}
+
 	public void delete(Customer customer) throws ServiceException {
 		customer = getById(customer.getId());
 		
@@ -108,6 +118,7 @@ public class CustomerServiceImpl extends SalesManagerEntityServiceImpl<Long, Cus
 			}
 		}
 		customerRepository.delete(customer);
+		principalRevisions.changed(PrincipalRevisions.CUSTOMER, customer.getId());
 
 	}
 	
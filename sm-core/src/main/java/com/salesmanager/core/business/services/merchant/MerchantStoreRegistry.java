@@ -0,0 +1,139 @@
+package com.salesmanager.core.business.services.merchant;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.salesmanager.core.business.repositories.merchant.MerchantRepository;
+import com.salesmanager.core.business.utils.CacheVersions;
+import com.salesmanager.core.model.merchant.MerchantStore;
+
+/**
+ * All merchant stores by code and by id, with their parent, country, zone,
+ * currency and languages loaded. Stores are detached and shared by every
+ * request until a store changes, they must be treated as read only; a store
+ * to be modified is loaded with MerchantStoreService.getByCode.
+ */
+@Component("merchantStoreRegistry")
+public class MerchantStoreRegistry {
+
+	private static final Comparator<MerchantStore> BY_ID = Comparator.comparing(MerchantStore::getId);
+
+	@Inject
+	private MerchantRepository merchantRepository;
+
+	@Inject
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${config.merchant.registry.maxAge:300000}")
+	private long maxAge = 300000;
+
+	/** a single version, of all the stores **/
+	private final CacheVersions<Void> versions = new CacheVersions<Void>();
+	private volatile Stores stores;
+
+	public MerchantStore getByCode(String code) {
+		return code == null ? null : stores().byCode.get(code);
+	}
+
+	public MerchantStore getById(Integer id) {
+		return id == null ? null : stores().byId.get(id);
+	}
+
+	/**
+	 * The parent of a store, a store without parent is its own parent
+	 */
+	public MerchantStore getParent(String code) {
+		MerchantStore store = getByCode(code);
+		if (store == null || store.getParent() == null) {
+			return store;
+		}
+		return getById(store.getParent().getId());
+	}
+
+	/**
+	 * Stores attached to a retailer, by id
+	 */
+	public List<MerchantStore> getChildren(String code) {
+		List<MerchantStore> children = stores().children.get(code);
+		return children == null ? Collections.<MerchantStore>emptyList() : children;
+	}
+
+	public List<MerchantStore> list() {
+		return stores().all;
+	}
+
+	/**
+	 * A store was created, modified or removed
+	 */
+	public void invalidate() {
+		versions.changed(null);
+	}
+
+	private Stores stores() {
+		Stores current = stores;
+		if (current != null && versions.isCurrent(null, current.version, current.created, maxAge)) {
+			return current;
+		}
+		long loading = versions.get(null);
+		TransactionTemplate template = new TransactionTemplate(transactionManager);
+		template.setReadOnly(true);
+		current = template.execute(status -> new Stores(loading, load()));
+		stores = current;
+		return current;
+	}
+
+	private List<MerchantStore> load() {
+		List<MerchantStore> list = merchantRepository.findAllWithReferences();
+		for (MerchantStore store : list) {
+			if (store.getCountry() != null) {
+				Hibernate.initialize(store.getCountry().getDescriptions());
+			}
+			if (store.getZone() != null) {
+				Hibernate.initialize(store.getZone().getDescriptions());
+				Hibernate.initialize(store.getZone().getCountry());
+			}
+		}
+		return list;
+	}
+
+	private static class Stores {
+
+		private final long version;
+		private final long created = System.currentTimeMillis();
+		private final List<MerchantStore> all;
+		private final Map<String, MerchantStore> byCode = new HashMap<String, MerchantStore>();
+		private final Map<Integer, MerchantStore> byId = new HashMap<Integer, MerchantStore>();
+		private final Map<String, List<MerchantStore>> children = new HashMap<String, List<MerchantStore>>();
+
+		Stores(long version, List<MerchantStore> stores) {
+			this.version = version;
+			List<MerchantStore> sorted = new ArrayList<MerchantStore>(stores);
+			sorted.sort(BY_ID);
+			this.all = Collections.unmodifiableList(sorted);
+			for (MerchantStore store : sorted) {
+				byCode.put(store.getCode(), store);
+				byId.put(store.getId(), store);
+			}
+			for (MerchantStore store : sorted) {
+				if (store.getParent() != null && byId.containsKey(store.getParent().getId())) {
+					String parent = byId.get(store.getParent().getId()).getCode();
+					children.computeIfAbsent(parent, k -> new ArrayList<MerchantStore>()).add(store);
+				}
+			}
+			children.replaceAll((k, v) -> Collections.unmodifiableList(v));
+		}
+	}
+
+}
@@ -8,6 +8,7 @@ import javax.inject.Inject;
 import org.jsoup.helper.Validate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -33,6 +34,9 @@ public class MerchantStoreServiceImpl extends SalesManagerEntityServiceImpl<Inte
 
 	private MerchantRepository merchantRepository;
 
+	@Inject
+	private MerchantStoreRegistry merchantStoreRegistry;
+
 	@Inject
 	public MerchantStoreServiceImpl(MerchantRepository merchantRepository) {
 		super(merchantRepository);
@@ -46,8 +50,20 @@ public class MerchantStoreServiceImpl extends SalesManagerEntityServiceImpl<Inte
 	@Override
 	public void saveOrUpdate(MerchantStore store) throws ServiceException {
 
+		save(store);
+
+	}
+
+	@Override
+	public void save(MerchantStore store) throws ServiceException {
 		super.save(store);
+		merchantStoreRegistry.invalidate();
+	}
 
+	@Override
+	public void delete(MerchantStore store) throws ServiceException {
+		super.delete(store);
+		merchantStoreRegistry.invalidate();
 	}
 
 	@Override
@@ -69,7 +85,10 @@ public class MerchantStoreServiceImpl extends SalesManagerEntityServiceImpl<Inte
 	@Override
 	public Page<MerchantStore> listChildren(String code, int page, int count) throws ServiceException {
 		Pageable pageRequest = PageRequest.of(page, count);
-		return pageableMerchantRepository.listByStore(code, pageRequest);
+		List<MerchantStore> children = merchantStoreRegistry.getChildren(code);
+		int from = (int) Math.min(pageRequest.getOffset(), children.size());
+		int to = Math.min(from + count, children.size());
+		return new PageImpl<MerchantStore>(children.subList(from, to), pageRequest, children.size());
 	}
 
 	@Override
@@ -111,21 +130,13 @@ public class MerchantStoreServiceImpl extends SalesManagerEntityServiceImpl<Inte
 
 		
 		//get it
-		MerchantStore storeModel = this.getByCode(code);
+		MerchantStore storeModel = merchantStoreRegistry.getParent(code);
 		
 		if(storeModel == null) {
 			throw new ServiceException("Store with code [" + code + "] is not found");
 		}
-		
-		if(storeModel.isRetailer() != null && storeModel.isRetailer() && storeModel.getParent() == null) {
-			return storeModel;
-		}
-		
-		if(storeModel.getParent() == null) {
-			return storeModel;
-		}
 	
-		return merchantRepository.getById(storeModel.getParent().getId());
+		return storeModel;
 	}
 
 
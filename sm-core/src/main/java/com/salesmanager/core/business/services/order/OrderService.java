@@ -95,6 +95,16 @@ public interface OrderService extends SalesManagerEntityService<Long, Order> {
 	 */
 	OrderList getOrders(OrderCriteria criteria);
 
+    /**
+     * Orders of a store for list screens, OrderList.items holds the columns
+     * of each order without products and totals. A criteria cursor pages
+     * after the last order of the previous page.
+     * @param store
+     * @param criteria
+     * @return
+     */
+    OrderList listItemsByStore(MerchantStore store, OrderCriteria criteria);
+
     void saveOrUpdate(Order order) throws ServiceException;
 
 	Order processOrder(Order order, Customer customer,
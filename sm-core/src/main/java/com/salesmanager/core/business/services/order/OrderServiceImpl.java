@@ -25,11 +25,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.business.constants.ShippingConstants;
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.modules.order.InvoiceModule;
 import com.salesmanager.core.business.modules.order.OrderProcessor;
 import com.salesmanager.core.business.repositories.order.OrderRepository;
-import com.salesmanager.core.business.services.catalog.product.ProductService;
+import com.salesmanager.core.business.services.catalog.product.availability.InventoryService;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
 import com.salesmanager.core.business.services.customer.CustomerService;
 import com.salesmanager.core.business.services.order.ordertotal.OrderTotalService;
@@ -37,9 +38,8 @@ import com.salesmanager.core.business.services.payments.PaymentService;
 import com.salesmanager.core.business.services.payments.TransactionService;
 import com.salesmanager.core.business.services.shipping.ShippingService;
 import com.salesmanager.core.business.services.shoppingcart.ShoppingCartService;
+import com.salesmanager.core.business.services.system.MerchantConfigurationService;
 import com.salesmanager.core.business.services.tax.TaxService;
-import com.salesmanager.core.model.catalog.product.Product;
-import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
 import com.salesmanager.core.model.catalog.product.price.FinalPrice;
 import com.salesmanager.core.model.common.UserContext;
 import com.salesmanager.core.model.customer.Customer;
@@ -81,7 +81,7 @@ public class OrderServiceImpl  extends SalesManagerEntityServiceImpl<Long, Order
     private PaymentService paymentService;
     
     @Inject
-    private ProductService productService;
+    private InventoryService inventoryService;
 
     @Inject
     private TaxService taxService;
@@ -97,6 +97,9 @@ public class OrderServiceImpl  extends SalesManagerEntityServiceImpl<Long, Order
     
     @Inject
     private OrderTotalService orderTotalService;
+    
+    @Inject
+    private MerchantConfigurationService merchantConfigurationService;
 
     private final OrderRepository orderRepository;
 
@@ -192,22 +195,8 @@ public class OrderServiceImpl  extends SalesManagerEntityServiceImpl<Long, Order
          * decrement inventory
          */
     	LOGGER.debug( "Update inventory" );
-        Set<OrderProduct> products = order.getOrderProducts();
-        for(OrderProduct orderProduct : products) {
-            orderProduct.getProductQuantity();
-            Product p = productService.getByCode(orderProduct.getSku(), store.getDefaultLanguage());
-            if(p == null) 
-                throw new ServiceException(ServiceException.EXCEPTION_INVENTORY_MISMATCH);
-            for(ProductAvailability availability : p.getAvailabilities()) {
-                int qty = availability.getProductQuantity();
-                if(qty < orderProduct.getProductQuantity()) {
-                    throw new ServiceException(ServiceException.EXCEPTION_INVENTORY_MISMATCH);
-                }
-                qty = qty - orderProduct.getProductQuantity();
-                availability.setProductQuantity(qty);
-            }
-            productService.update(p);
-        }
+        ShoppingCart cart = items.get(0).getShoppingCart();
+        inventoryService.decrement(order.getOrderProducts(), cart == null ? null : cart.getShoppingCartCode(), store);
 
 
         
@@ -335,7 +324,7 @@ public class OrderServiceImpl  extends SalesManagerEntityServiceImpl<Long, Order
             }
 
             //check handling fees
-            shippingConfiguration = shippingService.getShippingConfiguration(store);
+            shippingConfiguration = merchantConfigurationService.getSnapshot(store).getObject(ShippingConstants.SHIPPING_CONFIGURATION, ShippingConfiguration.class);
             if(summary.getShippingSummary().getHandling()!=null && summary.getShippingSummary().getHandling().doubleValue()>0) {
                 if(shippingConfiguration.getHandlingFees()!=null && shippingConfiguration.getHandlingFees().doubleValue()>0) {
                     OrderTotal handlingubTotal = new OrderTotal();
@@ -567,6 +556,11 @@ public class OrderServiceImpl  extends SalesManagerEntityServiceImpl<Long, Order
         return orderRepository.getOrders(criteria);
     }
 
+    @Override
+    public OrderList listItemsByStore(final MerchantStore store, final OrderCriteria criteria) {
+        return orderRepository.listItemsByStore(store, criteria);
+    }
+
 
     @Override
     public void saveOrUpdate(final Order order) throws ServiceException {
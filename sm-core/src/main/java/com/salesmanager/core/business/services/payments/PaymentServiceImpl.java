@@ -93,7 +93,7 @@ public class PaymentServiceImpl implements PaymentService {
     @Override
     public List<PaymentMethod> getAcceptedPaymentMethods(MerchantStore store) throws ServiceException {
 
-        Map<String, IntegrationConfiguration> modules = this.getPaymentModulesConfigured(store);
+        Map<String, IntegrationConfiguration> modules = this.paymentModulesConfigured(store);
 
         List<PaymentMethod> returnModules = new ArrayList<>();
 
@@ -174,19 +174,15 @@ public class PaymentServiceImpl implements PaymentService {
     @Override
     public Map<String, IntegrationConfiguration> getPaymentModulesConfigured(MerchantStore store) throws ServiceException {
 
-        try {
+        return merchantConfigurationService.getSnapshot(store).readIntegrationConfigurations(PAYMENT_MODULES);
+    }
 
-            Map<String, IntegrationConfiguration> modules = new HashMap<>();
-            MerchantConfiguration merchantConfiguration = merchantConfigurationService.getMerchantConfiguration(PAYMENT_MODULES, store);
-            if (merchantConfiguration != null && !StringUtils.isBlank(merchantConfiguration.getValue())) {
-				String decrypted = encryption.decrypt(merchantConfiguration.getValue());
-				modules = ConfigurationModulesLoader.loadIntegrationConfigurations(decrypted);
-            }
-            return modules;
+    /**
+     * Shared read only map from the configuration snapshot
+     */
+    private Map<String, IntegrationConfiguration> paymentModulesConfigured(MerchantStore store) throws ServiceException {
 
-        } catch (Exception e) {
-            throw new ServiceException(e);
-        }
+        return merchantConfigurationService.getSnapshot(store).getIntegrationConfigurations(PAYMENT_MODULES);
     }
 
     @Override
@@ -293,7 +289,7 @@ public class PaymentServiceImpl implements PaymentService {
         BigDecimal amount = order.getTotal();
 
         //must have a shipping module configured
-        Map<String, IntegrationConfiguration> modules = this.getPaymentModulesConfigured(store);
+        Map<String, IntegrationConfiguration> modules = this.paymentModulesConfigured(store);
         if (modules == null) {
             throw new ServiceException("No payment module configured");
         }
@@ -384,7 +380,7 @@ public class PaymentServiceImpl implements PaymentService {
 
 
         //must have a shipping module configured
-        Map<String, IntegrationConfiguration> modules = this.getPaymentModulesConfigured(store);
+        Map<String, IntegrationConfiguration> modules = this.paymentModulesConfigured(store);
         if (modules == null) {
             throw new ServiceException("No payment module configured");
         }
@@ -459,7 +455,7 @@ public class PaymentServiceImpl implements PaymentService {
 
 
         String module = order.getPaymentModuleCode();
-        Map<String, IntegrationConfiguration> modules = this.getPaymentModulesConfigured(store);
+        Map<String, IntegrationConfiguration> modules = this.paymentModulesConfigured(store);
         if (modules == null) {
             throw new ServiceException("No payment module configured");
         }
@@ -677,7 +673,7 @@ public class PaymentServiceImpl implements PaymentService {
         BigDecimal amount = order.getTotal();
 
         //must have a shipping module configured
-        Map<String, IntegrationConfiguration> modules = this.getPaymentModulesConfigured(store);
+        Map<String, IntegrationConfiguration> modules = this.paymentModulesConfigured(store);
         if (modules == null) {
             throw new ServiceException("No payment module configured");
         }
@@ -717,7 +713,7 @@ public class PaymentServiceImpl implements PaymentService {
         BigDecimal amount = payment.getAmount();
 
         //must have a shipping module configured
-        Map<String, IntegrationConfiguration> modules = this.getPaymentModulesConfigured(store);
+        Map<String, IntegrationConfiguration> modules = this.paymentModulesConfigured(store);
         if (modules == null) {
             throw new ServiceException("No payment module configured");
         }
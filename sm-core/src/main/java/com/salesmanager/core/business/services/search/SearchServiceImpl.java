@@ -13,6 +13,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.google.gson.JsonNull;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import com.salesmanager.core.business.constants.Constants;
@@ -46,6 +47,7 @@ public class SearchServiceImpl implements com.salesmanager.core.business.service
 	private final static String INDEX_PRODUCTS = "INDEX_PRODUCTS";
 
 	@Inject
+	@Qualifier("searchService")
 	private com.shopizer.search.services.SearchService searchService;
 	
 	@Inject
@@ -59,7 +61,7 @@ public class SearchServiceImpl implements com.salesmanager.core.business.service
 		searchService.initService();
 	}
 
-	@Async
+	@Async("indexingExecutor")
 	@SuppressWarnings("rawtypes")
 	public void index(MerchantStore store, Product product)
 			throws ServiceException {
@@ -254,7 +256,9 @@ public class SearchServiceImpl implements com.salesmanager.core.business.service
 						if(mf instanceof JsonNull == false) {
 							indexProduct.setManufacturer(((String)metaEntries.get("manufacturer")));
 						}
-						indexProduct.setPrice(Double.valueOf(((String)metaEntries.get("price"))));
+						if(metaEntries.get("price") != null) {
+							indexProduct.setPrice(Double.valueOf(((String)metaEntries.get("price"))));
+						}
 						indexProduct.setStore(((String)metaEntries.get("store")));
 						entry.setIndexProduct(indexProduct);
 						entries.add(entry);
@@ -6,6 +6,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.repositories.shipping.ShippingOriginRepository;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
 import com.salesmanager.core.model.merchant.MerchantStore;
@@ -20,6 +21,8 @@ public class ShippingOriginServiceImpl extends SalesManagerEntityServiceImpl<Lon
 	
 	private ShippingOriginRepository shippingOriginRepository;
 
+	@Inject
+	private ShippingQuoteCache shippingQuoteCache;
 	
 
 	@Inject
@@ -35,6 +38,19 @@ public class ShippingOriginServiceImpl extends SalesManagerEntityServiceImpl<Lon
 		ShippingOrigin origin = shippingOriginRepository.findByStore(store.getId());
 		return origin;
 	}
+
+	@Override
+	public void save(ShippingOrigin origin) throws ServiceException {
+		super.save(origin);
+		//quotes were made from the previous origin
+		shippingQuoteCache.invalidate(origin.getMerchantStore());
+	}
+
+	@Override
+	public void delete(ShippingOrigin origin) throws ServiceException {
+		super.delete(origin);
+		shippingQuoteCache.invalidate(origin.getMerchantStore());
+	}
 	
 
 }
@@ -0,0 +1,282 @@
+package com.salesmanager.core.business.services.shipping;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+import javax.inject.Inject;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import com.salesmanager.core.business.utils.CacheVersions;
+import com.salesmanager.core.model.common.Delivery;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.country.Country;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.core.model.reference.zone.Zone;
+import com.salesmanager.core.model.shipping.PackageDetails;
+import com.salesmanager.core.model.shipping.ShippingOption;
+import com.salesmanager.core.model.shipping.ShippingOrigin;
+import com.salesmanager.core.model.shipping.ShippingQuote;
+
+/**
+ * Shipping quotes of recent shipments, keyed by a fingerprint of what the
+ * carriers are given: store and configuration version, modules, origin,
+ * destination, packages and order total. An identical shipment is quoted
+ * from memory without packaging rules, distance lookups or carrier calls.
+ *
+ * Entries live config.shipping.quote.cache.ttl seconds, the shortest
+ * config.shipping.quote.cache.ttl.&lt;module&gt; of the modules quoted when
+ * configured. Merchant configuration changes of a store give its shipments
+ * a new fingerprint, shipping origin changes invalidate the store. Other
+ * instances of a cluster see configuration changes once their entries
+ * expire.
+ */
+@Component("shippingQuoteCache")
+public class ShippingQuoteCache {
+
+	private final static String TTL = "config.shipping.quote.cache.ttl.";
+
+	@Inject
+	private Environment environment;
+
+	/** seconds, 0 disables the cache **/
+	@Value("${config.shipping.quote.cache.ttl:600}")
+	private long ttl = 600;
+
+	@Value("${config.shipping.quote.cache.maxEntries:10000}")
+	private int maxEntries = 10000;
+
+	private final CacheVersions<Integer> versions = new CacheVersions<Integer>();
+
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(256, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > maxEntries;
+		}
+	};
+
+	public boolean isEnabled() {
+		return ttl > 0;
+	}
+
+	/**
+	 * Canonical form of a shipment, packages are compared as a multiset and
+	 * addresses regardless of case and spacing
+	 * @param configurationVersion version of the merchant configuration the
+	 * shipping modules are configured with
+	 * @param modules codes of the modules quoting the shipment
+	 */
+	public String fingerprint(MerchantStore store, long configurationVersion, Collection<String> modules,
+			ShippingOrigin origin, Delivery delivery, List<PackageDetails> packages, BigDecimal orderTotal,
+			Language language) {
+
+		StringBuilder shipment = new StringBuilder();
+		shipment.append(store.getId()).append('|').append(configurationVersion).append('|')
+				.append(versions.get(store.getId()));
+		shipment.append("|modules:").append(new TreeSet<String>(modules));
+		shipment.append("|lang:").append(language != null ? language.getCode() : null);
+
+		shipment.append("|from:");
+		if (origin != null) {
+			address(shipment, origin.getCountry(), origin.getZone(), origin.getState(), origin.getCity(),
+					origin.getPostalCode(), origin.getAddress());
+		}
+		shipment.append("|to:");
+		address(shipment, delivery.getCountry(), delivery.getZone(), delivery.getState(), delivery.getCity(),
+				delivery.getPostalCode(), delivery.getAddress());
+
+		List<String> parcels = new ArrayList<String>();
+		for (PackageDetails details : packages) {
+			parcels.add(new StringBuilder()
+					.append(decimal(details.getShippingWeight())).append('x')
+					.append(decimal(details.getShippingMaxWeight())).append('x')
+					.append(decimal(details.getShippingLength())).append('x')
+					.append(decimal(details.getShippingWidth())).append('x')
+					.append(decimal(details.getShippingHeight())).append('x')
+					.append(details.getShippingQuantity()).append('x')
+					.append(details.getTreshold()).toString());
+		}
+		parcels.sort(null);
+		shipment.append("|packages:").append(parcels);
+		shipment.append("|total:").append(orderTotal != null ? orderTotal.setScale(2, RoundingMode.HALF_UP).toPlainString() : null);
+
+		return DigestUtils.md5DigestAsHex(shipment.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @return the quote of an identical shipment, null when not quoted or
+	 * expired
+	 */
+	public Entry get(String fingerprint) {
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(fingerprint);
+			if (entry != null && entry.expires < System.currentTimeMillis()) {
+				entries.remove(fingerprint);
+				entry = null;
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Keeps a quote having options, partial quotes (warnings) are not kept
+	 * @param modules codes of the modules quoting the shipment
+	 */
+	public Entry put(String fingerprint, ShippingQuote quote, Collection<String> modules) {
+
+		if (!isEnabled() || quote.getShippingOptions() == null || quote.getShippingOptions().isEmpty()
+				|| !quote.getWarnings().isEmpty() || quote.getShippingReturnCode() != null) {
+			return null;
+		}
+		long seconds = ttl;
+		if (environment != null) {
+			for (String module : modules) {
+				seconds = Math.min(seconds, environment.getProperty(TTL + module, Long.class, ttl));
+			}
+		}
+		if (seconds <= 0) {
+			return null;
+		}
+		Entry entry = new Entry(quote, System.currentTimeMillis() + seconds * 1000);
+		synchronized (entries) {
+			entries.put(fingerprint, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * What the quotes of a store depend on changed, shipments of the store
+	 * get a new fingerprint
+	 */
+	public void invalidate(MerchantStore store) {
+
+		if (store != null && store.getId() != null) {
+			versions.changed(store.getId());
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	private void address(StringBuilder shipment, Country country, Zone zone, String state, String city,
+			String postalCode, String address) {
+		shipment.append(country != null ? country.getIsoCode() : null).append(',')
+				.append(zone != null ? zone.getCode() : normalize(state)).append(',')
+				.append(normalize(city)).append(',')
+				.append(normalize(postalCode)).append(',')
+				.append(normalize(address));
+	}
+
+	private String normalize(String value) {
+		if (StringUtils.isBlank(value)) {
+			return "";
+		}
+		return StringUtils.deleteWhitespace(value).toUpperCase(Locale.ROOT);
+	}
+
+	private String decimal(double value) {
+		return new BigDecimal(value).setScale(3, RoundingMode.HALF_UP).toPlainString();
+	}
+
+	/**
+	 * A quote of a shipment and the shipping quotes (Quote) saved from it
+	 * for each shopping cart, a cart quoting the same shipment again reuses
+	 * its saved quotes
+	 */
+	public static class Entry {
+
+		private final ArrayList<ShippingOption> options;
+		private final int selected;
+		private final String shippingModuleCode;
+		private final BigDecimal handlingFees;
+		private final boolean applyTaxOnShipping;
+		private final boolean freeShipping;
+		private final BigDecimal freeShippingAmount;
+		private final Map<String, Object> quoteInformations;
+		private final long expires;
+		/** saved quote ids of the options by shopping cart **/
+		private final Map<Long, List<Long>> carts = new LinkedHashMap<Long, List<Long>>(4, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, List<Long>> eldest) {
+				return size() > 16;
+			}
+		};
+
+		Entry(ShippingQuote quote, long expires) {
+			this.options = new ArrayList<ShippingOption>();
+			for (ShippingOption option : quote.getShippingOptions()) {
+				options.add(SerializationUtils.clone(option));
+			}
+			this.selected = quote.getShippingOptions().indexOf(quote.getSelectedShippingOption());
+			this.shippingModuleCode = quote.getShippingModuleCode();
+			this.handlingFees = quote.getHandlingFees();
+			this.applyTaxOnShipping = quote.isApplyTaxOnShipping();
+			this.freeShipping = quote.isFreeShipping();
+			this.freeShippingAmount = quote.getFreeShippingAmount();
+			this.quoteInformations = new HashMap<String, Object>(quote.getQuoteInformations());
+			this.expires = expires;
+		}
+
+		/**
+		 * A new quote with copies of the options, every caller can modify it
+		 */
+		public ShippingQuote toShippingQuote(Delivery delivery) {
+			ShippingQuote quote = new ShippingQuote();
+			List<ShippingOption> copies = new ArrayList<ShippingOption>();
+			for (ShippingOption option : options) {
+				ShippingOption copy = SerializationUtils.clone(option);
+				copy.setShippingQuoteOptionId(null);
+				copies.add(copy);
+			}
+			quote.setShippingOptions(copies);
+			if (selected >= 0) {
+				quote.setSelectedShippingOption(copies.get(selected));
+			}
+			quote.setShippingModuleCode(shippingModuleCode);
+			quote.setHandlingFees(handlingFees);
+			quote.setApplyTaxOnShipping(applyTaxOnShipping);
+			quote.setFreeShipping(freeShipping);
+			quote.setFreeShippingAmount(freeShippingAmount);
+			quote.setQuoteInformations(new HashMap<String, Object>(quoteInformations));
+			quote.setDeliveryAddress(delivery);
+			return quote;
+		}
+
+		/**
+		 * @return ids of the quotes saved for the cart, in the order of the
+		 * options, null when the cart never quoted the shipment
+		 */
+		public synchronized List<Long> getQuoteIds(Long cartId) {
+			return cartId == null ? null : carts.get(cartId);
+		}
+
+		public synchronized void setQuoteIds(Long cartId, List<Long> quoteIds) {
+			if (cartId != null) {
+				carts.put(cartId, new ArrayList<Long>(quoteIds));
+			}
+		}
+	}
+
+}
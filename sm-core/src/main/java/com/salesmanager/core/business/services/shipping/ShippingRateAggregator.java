@@ -0,0 +1,293 @@
+package com.salesmanager.core.business.services.shipping;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.modules.executor.ManagedExecutor;
+import com.salesmanager.core.business.modules.executor.ManagedExecutors;
+import com.salesmanager.core.model.common.Delivery;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.shipping.PackageDetails;
+import com.salesmanager.core.model.shipping.ShippingConfiguration;
+import com.salesmanager.core.model.shipping.ShippingOption;
+import com.salesmanager.core.model.shipping.ShippingOrigin;
+import com.salesmanager.core.model.shipping.ShippingQuote;
+import com.salesmanager.core.model.system.IntegrationConfiguration;
+import com.salesmanager.core.model.system.IntegrationModule;
+import com.salesmanager.core.modules.integration.IntegrationException;
+import com.salesmanager.core.modules.integration.shipping.model.ShippingQuoteModule;
+
+/**
+ * Requests the quotes of every active carrier of a store and merges their
+ * shipping options. Remote carriers are called in parallel on the shipping
+ * executor, each within its own deadline (config.shipping.carrier.timeout or
+ * config.shipping.carrier.&lt;code&gt;.timeout); a carrier answering late or
+ * failing is left out of the quote with a warning.
+ *
+ * A carrier failing config.shipping.carrier.failureThreshold times in a row
+ * is not called during config.shipping.carrier.openTime ms, then one quote
+ * tries it again.
+ */
+@Component("shippingRateAggregator")
+public class ShippingRateAggregator {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ShippingRateAggregator.class);
+
+	private final static String PREFIX = "config.shipping.carrier.";
+
+	@Inject
+	private ManagedExecutors executors;
+
+	@Inject
+	private Environment environment;
+
+	@Value("${config.shipping.carrier.timeout:4000}")
+	private long timeout = 4000;
+
+	@Value("${config.shipping.carrier.failureThreshold:5}")
+	private int failureThreshold = 5;
+
+	@Value("${config.shipping.carrier.openTime:30000}")
+	private long openTime = 30000;
+
+	private ManagedExecutor executor;
+
+	private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<String, CircuitBreaker>();
+
+	/**
+	 * A shipping module configured and active for the store
+	 */
+	public static class Carrier {
+
+		private final String code;
+		private final ShippingQuoteModule module;
+		private final IntegrationConfiguration configuration;
+		private final IntegrationModule integrationModule;
+
+		public Carrier(String code, ShippingQuoteModule module, IntegrationConfiguration configuration,
+				IntegrationModule integrationModule) {
+			this.code = code;
+			this.module = module;
+			this.configuration = configuration;
+			this.integrationModule = integrationModule;
+		}
+
+		public String getCode() {
+			return code;
+		}
+
+		public ShippingQuoteModule getModule() {
+			return module;
+		}
+
+		public IntegrationConfiguration getConfiguration() {
+			return configuration;
+		}
+
+		public IntegrationModule getIntegrationModule() {
+			return integrationModule;
+		}
+	}
+
+	@PostConstruct
+	public void start() {
+		if (executor == null) {
+			executor = executors.get(ManagedExecutors.SHIPPING);
+		}
+	}
+
+	/**
+	 * Options of the carriers answering in time, each option carries the code
+	 * of its carrier. Carriers left out are reported in the quote warnings.
+	 * @throws IntegrationException when no carrier answered
+	 */
+	public List<ShippingOption> getShippingQuotes(List<Carrier> carriers, ShippingQuote quote,
+			List<PackageDetails> packages, BigDecimal orderTotal, Delivery delivery, ShippingOrigin origin,
+			MerchantStore store, ShippingConfiguration shippingConfiguration, Locale locale)
+			throws IntegrationException {
+
+		long start = System.currentTimeMillis();
+
+		Map<Carrier, ShippingQuote> quotes = new LinkedHashMap<Carrier, ShippingQuote>();
+		Map<Carrier, Future<List<ShippingOption>>> pending = new LinkedHashMap<Carrier, Future<List<ShippingOption>>>();
+		List<Carrier> local = new ArrayList<Carrier>();
+
+		for (Carrier carrier : carriers) {
+			if (!breaker(carrier.getCode()).allow(start)) {
+				quote.getWarnings().add("Shipping carrier " + carrier.getCode() + " is unavailable");
+				continue;
+			}
+			//modules add their options to the quote, each carrier gets its own
+			ShippingQuote carrierQuote = copy(quote);
+			quotes.put(carrier, carrierQuote);
+			if (carrier.getModule().isRemote()) {
+				pending.put(carrier, executor.submit(() -> carrier.getModule().getShippingQuotes(carrierQuote, packages,
+						orderTotal, delivery, origin, store, carrier.getConfiguration(), carrier.getIntegrationModule(),
+						shippingConfiguration, locale)));
+			} else {
+				local.add(carrier);
+			}
+		}
+
+		List<ShippingOption> options = new ArrayList<ShippingOption>();
+		List<String> errors = new ArrayList<String>();
+		int answered = 0;
+
+		//local modules are calculated while the carriers are called
+		for (Carrier carrier : local) {
+			try {
+				List<ShippingOption> result = carrier.getModule().getShippingQuotes(quotes.get(carrier), packages,
+						orderTotal, delivery, origin, store, carrier.getConfiguration(), carrier.getIntegrationModule(),
+						shippingConfiguration, locale);
+				answered(carrier, quotes.get(carrier), result, quote, options);
+				answered++;
+			} catch (Exception e) {
+				failed(carrier, e, quote, errors);
+			}
+		}
+
+		for (Map.Entry<Carrier, Future<List<ShippingOption>>> entry : pending.entrySet()) {
+			Carrier carrier = entry.getKey();
+			Future<List<ShippingOption>> future = entry.getValue();
+			long deadline = start + timeout(carrier.getCode());
+			try {
+				List<ShippingOption> result = future.get(Math.max(0, deadline - System.currentTimeMillis()),
+						TimeUnit.MILLISECONDS);
+				answered(carrier, quotes.get(carrier), result, quote, options);
+				answered++;
+			} catch (TimeoutException | CancellationException e) {
+				future.cancel(true);
+				breaker(carrier.getCode()).failure(System.currentTimeMillis());
+				LOGGER.warn("Shipping carrier " + carrier.getCode() + " did not answer in "
+						+ timeout(carrier.getCode()) + " ms");
+				quote.getWarnings().add("Shipping carrier " + carrier.getCode() + " did not answer in time");
+				errors.add(carrier.getCode() + " timeout");
+			} catch (ExecutionException e) {
+				failed(carrier, e.getCause(), quote, errors);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				for (Future<List<ShippingOption>> f : pending.values()) {
+					f.cancel(true);
+				}
+				throw new IntegrationException("Interrupted while waiting for shipping carriers");
+			}
+		}
+
+		if (answered == 0 && !carriers.isEmpty()) {
+			throw new IntegrationException("No shipping carrier answered " + errors);
+		}
+		return options;
+	}
+
+	private void answered(Carrier carrier, ShippingQuote carrierQuote, List<ShippingOption> result,
+			ShippingQuote quote, List<ShippingOption> options) {
+		breaker(carrier.getCode()).success();
+		if (result == null) {
+			result = carrierQuote.getShippingOptions();
+		}
+		if (result != null) {
+			for (ShippingOption option : result) {
+				option.setShippingModuleCode(carrier.getCode());
+				options.add(option);
+			}
+		}
+		quote.getWarnings().addAll(carrierQuote.getWarnings());
+	}
+
+	private void failed(Carrier carrier, Throwable e, ShippingQuote quote, List<String> errors) {
+		breaker(carrier.getCode()).failure(System.currentTimeMillis());
+		LOGGER.error("Error while calculating shipping with " + carrier.getCode() + " : " + e.getMessage(), e);
+		quote.getWarnings().add("Shipping carrier " + carrier.getCode() + " cannot quote");
+		errors.add(carrier.getCode() + " " + e.getMessage());
+	}
+
+	private ShippingQuote copy(ShippingQuote quote) {
+		ShippingQuote copy = new ShippingQuote();
+		copy.setQuoteInformations(new HashMap<String, Object>(quote.getQuoteInformations()));
+		copy.setCurrentShippingModule(quote.getCurrentShippingModule());
+		copy.setDeliveryAddress(quote.getDeliveryAddress());
+		copy.setHandlingFees(quote.getHandlingFees());
+		copy.setApplyTaxOnShipping(quote.isApplyTaxOnShipping());
+		return copy;
+	}
+
+	private long timeout(String code) {
+		if (environment == null) {
+			return timeout;
+		}
+		return environment.getProperty(PREFIX + code + ".timeout", Long.class, timeout);
+	}
+
+	private CircuitBreaker breaker(String code) {
+		return breakers.computeIfAbsent(code, k -> new CircuitBreaker(failureThreshold, openTime));
+	}
+
+	/**
+	 * Consecutive failures of a carrier, open when the carrier must not be
+	 * called, one call is let through once openTime has elapsed
+	 */
+	static class CircuitBreaker {
+
+		private final int threshold;
+		private final long openTime;
+		private int failures;
+		private long openedAt = -1;
+		private boolean trial;
+
+		CircuitBreaker(int threshold, long openTime) {
+			this.threshold = threshold;
+			this.openTime = openTime;
+		}
+
+		synchronized boolean allow(long now) {
+			if (openedAt < 0) {
+				return true;
+			}
+			if (!trial && now - openedAt >= openTime) {
+				trial = true;
+				return true;
+			}
+			return false;
+		}
+
+		synchronized void success() {
+			failures = 0;
+			openedAt = -1;
+			trial = false;
+		}
+
+		synchronized void failure(long now) {
+			failures++;
+			if (trial || failures >= threshold) {
+				openedAt = now;
+				trial = false;
+			}
+		}
+	}
+
+	public void setExecutor(ManagedExecutor executor) {
+		this.executor = executor;
+	}
+
+}
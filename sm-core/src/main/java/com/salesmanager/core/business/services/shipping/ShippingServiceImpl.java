@@ -2,9 +2,9 @@ package com.salesmanager.core.business.services.shipping;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -15,10 +15,9 @@ import javax.inject.Inject;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -29,6 +28,7 @@ import com.salesmanager.core.business.services.reference.country.CountryService;
 import com.salesmanager.core.business.services.reference.language.LanguageService;
 import com.salesmanager.core.business.services.reference.loader.ConfigurationModulesLoader;
 import com.salesmanager.core.business.services.system.MerchantConfigurationService;
+import com.salesmanager.core.business.services.system.MerchantConfigurationSnapshot;
 import com.salesmanager.core.business.services.system.MerchantLogService;
 import com.salesmanager.core.business.services.system.ModuleConfigurationService;
 import com.salesmanager.core.model.catalog.product.Product;
@@ -104,6 +104,16 @@ public class ShippingServiceImpl implements ShippingService {
 	@Inject
 	private ShippingQuoteService shippingQuoteService;
 	
+	@Inject
+	private ShippingRateAggregator shippingRateAggregator;
+
+	@Inject
+	private ShippingQuoteCache shippingQuoteCache;
+
+	/** quotes every active carrier instead of the first one **/
+	@Value("${config.shipping.quote.aggregate:false}")
+	private boolean aggregateQuotes = false;
+
 	@Inject
 	@Resource(name="shippingModules")
 	private Map<String,ShippingQuoteModule> shippingModules;
@@ -121,24 +131,24 @@ public class ShippingServiceImpl implements ShippingService {
 	@Override
 	public ShippingConfiguration getShippingConfiguration(MerchantStore store) throws ServiceException {
 
-		MerchantConfiguration configuration = merchantConfigurationService.getMerchantConfiguration(ShippingConstants.SHIPPING_CONFIGURATION, store);
-		
-		ShippingConfiguration shippingConfiguration = null;
-		
-		if(configuration!=null) {
-			String value = configuration.getValue();
-			
-			ObjectMapper mapper = new ObjectMapper();
-			try {
-				shippingConfiguration = mapper.readValue(value, ShippingConfiguration.class);
-			} catch(Exception e) {
-				throw new ServiceException("Cannot parse json string " + value);
-			}
-		}
-		return shippingConfiguration;
+		return merchantConfigurationService.getSnapshot(store).readObject(ShippingConstants.SHIPPING_CONFIGURATION, ShippingConfiguration.class);
 		
 	}
 	
+	/**
+	 * Shared instance from the configuration snapshot, read only
+	 */
+	private ShippingConfiguration shippingConfiguration(MerchantStore store) throws ServiceException {
+		return merchantConfigurationService.getSnapshot(store).getObject(ShippingConstants.SHIPPING_CONFIGURATION, ShippingConfiguration.class);
+	}
+	
+	/**
+	 * Shared read only map from the configuration snapshot
+	 */
+	private Map<String,IntegrationConfiguration> shippingModulesConfigured(MerchantStore store) throws ServiceException {
+		return merchantConfigurationService.getSnapshot(store).getIntegrationConfigurations(SHIPPING_MODULES);
+	}
+	
 	@Override
 	public IntegrationConfiguration getShippingConfiguration(String moduleCode, MerchantStore store) throws ServiceException {
 
@@ -340,24 +350,8 @@ public class ShippingServiceImpl implements ShippingService {
 	
 	@Override
 	public Map<String,IntegrationConfiguration> getShippingModulesConfigured(MerchantStore store) throws ServiceException {
-		try {
-			
 
-			Map<String,IntegrationConfiguration> modules = new HashMap<String,IntegrationConfiguration>();
-			MerchantConfiguration merchantConfiguration = merchantConfigurationService.getMerchantConfiguration(SHIPPING_MODULES, store);
-			if(merchantConfiguration!=null) {
-				if(!StringUtils.isBlank(merchantConfiguration.getValue())) {
-					String decrypted = encryption.decrypt(merchantConfiguration.getValue());
-					modules = ConfigurationModulesLoader.loadIntegrationConfigurations(decrypted);
-					
-				}
-			}
-			return modules;
-		
-		
-		} catch (Exception e) {
-			throw new ServiceException(e);
-		}
+		return merchantConfigurationService.getSnapshot(store).readIntegrationConfigurations(SHIPPING_MODULES);
 		
 	}
 	
@@ -402,7 +396,7 @@ public class ShippingServiceImpl implements ShippingService {
 			}
 		
 			//get configuration
-			ShippingConfiguration shippingConfiguration = getShippingConfiguration(store);
+			ShippingConfiguration shippingConfiguration = shippingConfiguration(store);
 			ShippingType shippingType = ShippingType.INTERNATIONAL;
 			
 			/** get shipping origin **/
@@ -450,7 +444,7 @@ public class ShippingServiceImpl implements ShippingService {
 			}
 			
 			//must have a shipping module configured
-			Map<String, IntegrationConfiguration> modules = this.getShippingModulesConfigured(store);
+			Map<String, IntegrationConfiguration> modules = this.shippingModulesConfigured(store);
 			if(modules == null){
 				shippingQuote.setShippingReturnCode(ShippingQuote.NO_SHIPPING_MODULE_CONFIGURED);
 				return shippingQuote;
@@ -495,6 +489,19 @@ public class ShippingServiceImpl implements ShippingService {
 				shippingQuote.setShippingReturnCode(ShippingQuote.NO_SHIPPING_MODULE_CONFIGURED);
 				return shippingQuote;
 			}
+
+			/** every active carrier when rates are aggregated **/
+			List<ShippingRateAggregator.Carrier> carriers = new ArrayList<ShippingRateAggregator.Carrier>();
+			if(aggregateQuotes) {
+				for(IntegrationModule mod : shippingMethods) {
+					IntegrationConfiguration carrierConfiguration = modules.get(mod.getCode());
+					ShippingQuoteModule carrierModule = shippingModules.get(mod.getCode());
+					if(carrierConfiguration!=null && carrierConfiguration.isActive() && carrierModule!=null
+							&& !(carrierModule instanceof ShippingQuotePrePostProcessModule)) {
+						carriers.add(new ShippingRateAggregator.Carrier(mod.getCode(), carrierModule, carrierConfiguration, mod));
+					}
+				}
+			}
 			
 			//calculate order total
 			BigDecimal orderTotal = calculateOrderTotal(products,store);
@@ -536,6 +543,31 @@ public class ShippingServiceImpl implements ShippingService {
 			
 
 			Locale locale = languageService.toLocale(language, store);
+
+			/** quote of an identical shipment **/
+			List<String> quotedModules = new ArrayList<String>();
+			quotedModules.add(moduleName);
+			for(ShippingRateAggregator.Carrier carrier : carriers) {
+				quotedModules.add(carrier.getCode());
+			}
+			String fingerprint = null;
+			if(shippingQuoteCache.isEnabled()) {
+				fingerprint = shippingQuoteCache.fingerprint(store, merchantConfigurationService.getSnapshot(store).getVersion(),
+						quotedModules, shippingOrigin, delivery, packages, orderTotal, language);
+				ShippingQuoteCache.Entry cached = shippingQuoteCache.get(fingerprint);
+				if(cached!=null) {
+					ShippingQuote cachedQuote = cached.toShippingQuote(delivery);
+					List<Long> quoteIds = cached.getQuoteIds(shoppingCartId);
+					if(quoteIds!=null && quoteIds.size()==cachedQuote.getShippingOptions().size()) {
+						for(int i = 0; i < quoteIds.size(); i++) {
+							cachedQuote.getShippingOptions().get(i).setShippingQuoteOptionId(quoteIds.get(i));
+						}
+					} else {
+						cached.setQuoteIds(shoppingCartId, saveQuotes(shoppingCartId, delivery, cachedQuote.getShippingOptions(), freeShipping, handlingFees));
+					}
+					return cachedQuote;
+				}
+			}
 			
 			//invoke pre processors
 			//the main pre-processor determines at runtime the shipping module
@@ -564,7 +596,12 @@ public class ShippingServiceImpl implements ShippingService {
 			List<ShippingOption> shippingOptions = null;
 					
 			try {
-				shippingOptions = shippingQuoteModule.getShippingQuotes(shippingQuote, packages, orderTotal, delivery, shippingOrigin, store, configuration, shippingModule, shippingConfiguration, locale);
+				if(aggregateQuotes) {
+					//options of the carriers answering in time, each with its module code
+					shippingOptions = shippingRateAggregator.getShippingQuotes(carriers, shippingQuote, packages, orderTotal, delivery, shippingOrigin, store, shippingConfiguration, locale);
+				} else {
+					shippingOptions = shippingQuoteModule.getShippingQuotes(shippingQuote, packages, orderTotal, delivery, shippingOrigin, store, configuration, shippingModule, shippingConfiguration, locale);
+				}
 			} catch(Exception e) {
 				LOGGER.error("Error while calculating shipping : " + e.getMessage(), e);
 				merchantLogService.save(
@@ -599,7 +636,9 @@ public class ShippingServiceImpl implements ShippingService {
 					//set price text
 					String priceText = pricingService.getDisplayAmount(option.getOptionPrice(), store);
 					option.setOptionPriceText(priceText);
-					option.setShippingModuleCode(moduleName);
+					if(!aggregateQuotes) {
+						option.setShippingModuleCode(moduleName);
+					}
 				
 					if(StringUtils.isBlank(option.getOptionName())) {
 						
@@ -651,6 +690,9 @@ public class ShippingServiceImpl implements ShippingService {
 				}
 				
 				shippingQuote.setSelectedShippingOption(selectedOption);
+				if(aggregateQuotes && selectedOption!=null) {
+					shippingQuote.setShippingModuleCode(selectedOption.getShippingModuleCode());
+				}
 				
 				if(selectedOption!=null && !shippingOptionPriceType.name().equals(ShippingOptionPriceType.ALL.name())) {
 					shippingOptions = new ArrayList<ShippingOption>();
@@ -688,51 +730,12 @@ public class ShippingServiceImpl implements ShippingService {
 			
 			if(shippingQuote!=null && CollectionUtils.isNotEmpty(shippingQuote.getShippingOptions())) {
 				//save SHIPPING OPTIONS
-				List<ShippingOption> finalShippingOptions = shippingQuote.getShippingOptions();
-				for(ShippingOption option : finalShippingOptions) {
-					
-					//transform to Quote
-					Quote q = new Quote();
-					q.setCartId(shoppingCartId);
-					q.setDelivery(delivery);
-					if(!StringUtils.isBlank(option.getEstimatedNumberOfDays())) {
-						try {
-							q.setEstimatedNumberOfDays(new Integer(option.getEstimatedNumberOfDays()));
-						} catch(Exception e) {
-							LOGGER.error("Cannot cast to integer " + option.getEstimatedNumberOfDays());
-						}
+				List<Long> quoteIds = saveQuotes(shoppingCartId, delivery, shippingQuote.getShippingOptions(), freeShipping, handlingFees);
+				if(fingerprint!=null) {
+					ShippingQuoteCache.Entry entry = shippingQuoteCache.put(fingerprint, shippingQuote, quotedModules);
+					if(entry!=null) {
+						entry.setQuoteIds(shoppingCartId, quoteIds);
 					}
-					
-					if(freeShipping) {
-						q.setFreeShipping(true);
-						q.setPrice(new BigDecimal(0));
-						q.setModule("FREE");
-						q.setOptionCode("FREE");
-						q.setOptionName("FREE");
-					} else {
-						q.setModule(option.getShippingModuleCode());
-						q.setOptionCode(option.getOptionCode());
-						if(!StringUtils.isBlank(option.getOptionDeliveryDate())) {
-							try {
-							q.setOptionDeliveryDate(DateUtil.formatDate(option.getOptionDeliveryDate()));
-							} catch(Exception e) {
-								LOGGER.error("Cannot transform to date " + option.getOptionDeliveryDate());
-							}
-						}
-						q.setOptionName(option.getOptionName());
-						q.setOptionShippingDate(new Date());
-						q.setPrice(option.getOptionPrice());
-						
-					}
-					
-					if(handlingFees != null) {
-						q.setHandling(handlingFees);
-					}
-					
-					q.setQuoteDate(new Date());
-					shippingQuoteService.save(q);
-					option.setShippingQuoteOptionId(q.getId());
-					
 				}
 			}
 			
@@ -747,26 +750,70 @@ public class ShippingServiceImpl implements ShippingService {
 		
 	}
 
+	/**
+	 * Saves a shipping quote (Quote) of the cart for each option
+	 * @return ids of the quotes, in the order of the options
+	 */
+	private List<Long> saveQuotes(Long shoppingCartId, Delivery delivery, List<ShippingOption> shippingOptions, boolean freeShipping, BigDecimal handlingFees) throws ServiceException {
+		List<Long> quoteIds = new ArrayList<Long>();
+		for(ShippingOption option : shippingOptions) {
+			
+			//transform to Quote
+			Quote q = new Quote();
+			q.setCartId(shoppingCartId);
+			q.setDelivery(delivery);
+			if(!StringUtils.isBlank(option.getEstimatedNumberOfDays())) {
+				try {
+					q.setEstimatedNumberOfDays(new Integer(option.getEstimatedNumberOfDays()));
+				} catch(Exception e) {
+					LOGGER.error("Cannot cast to integer " + option.getEstimatedNumberOfDays());
+				}
+			}
+			
+			if(freeShipping) {
+				q.setFreeShipping(true);
+				q.setPrice(new BigDecimal(0));
+				q.setModule("FREE");
+				q.setOptionCode("FREE");
+				q.setOptionName("FREE");
+			} else {
+				q.setModule(option.getShippingModuleCode());
+				q.setOptionCode(option.getOptionCode());
+				if(!StringUtils.isBlank(option.getOptionDeliveryDate())) {
+					try {
+					q.setOptionDeliveryDate(DateUtil.formatDate(option.getOptionDeliveryDate()));
+					} catch(Exception e) {
+						LOGGER.error("Cannot transform to date " + option.getOptionDeliveryDate());
+					}
+				}
+				q.setOptionName(option.getOptionName());
+				q.setOptionShippingDate(new Date());
+				q.setPrice(option.getOptionPrice());
+				
+			}
+			
+			if(handlingFees != null) {
+				q.setHandling(handlingFees);
+			}
+			
+			q.setQuoteDate(new Date());
+			shippingQuoteService.save(q);
+			option.setShippingQuoteOptionId(q.getId());
+			quoteIds.add(q.getId());
+			
+		}
+		return quoteIds;
+	}
+
 	@Override
 	public List<String> getSupportedCountries(MerchantStore store) throws ServiceException {
 		
 		List<String> supportedCountries = new ArrayList<String>();
-		MerchantConfiguration configuration = merchantConfigurationService.getMerchantConfiguration(SUPPORTED_COUNTRIES, store);
+		MerchantConfigurationSnapshot snapshot = merchantConfigurationService.getSnapshot(store);
 		
-		if(configuration!=null) {
-			
-			String countries = configuration.getValue();
-			if(!StringUtils.isBlank(countries)) {
-
-				Object objRegions=JSONValue.parse(countries); 
-				JSONArray arrayRegions=(JSONArray)objRegions;
-				@SuppressWarnings("rawtypes")
-				Iterator i = arrayRegions.iterator();
-				while(i.hasNext()) {
-					supportedCountries.add((String)i.next());
-				}
-			}
-			
+		if(!StringUtils.isBlank(snapshot.getValue(SUPPORTED_COUNTRIES))) {
+			String[] countries = snapshot.getObject(SUPPORTED_COUNTRIES, String[].class);
+			supportedCountries.addAll(Arrays.asList(countries));
 		}
 		
 		return supportedCountries;
@@ -776,7 +823,7 @@ public class ShippingServiceImpl implements ShippingService {
 	public List<Country> getShipToCountryList(MerchantStore store, Language language) throws ServiceException {
 		
 		
-		ShippingConfiguration shippingConfiguration = getShippingConfiguration(store);
+		ShippingConfiguration shippingConfiguration = shippingConfiguration(store);
 		ShippingType shippingType = ShippingType.INTERNATIONAL;
 		List<String> supportedCountries = new ArrayList<String>();
 		if(shippingConfiguration==null) {
@@ -794,23 +841,7 @@ public class ShippingServiceImpl implements ShippingService {
 			
 		} else {
 
-			MerchantConfiguration configuration = merchantConfigurationService.getMerchantConfiguration(SUPPORTED_COUNTRIES, store);
-			
-			if(configuration!=null) {
-				
-				String countries = configuration.getValue();
-				if(!StringUtils.isBlank(countries)) {
-
-					Object objRegions=JSONValue.parse(countries); 
-					JSONArray arrayRegions=(JSONArray)objRegions;
-					@SuppressWarnings("rawtypes")
-					Iterator i = arrayRegions.iterator();
-					while(i.hasNext()) {
-						supportedCountries.add((String)i.next());
-					}
-				}
-				
-			}
+			supportedCountries = getSupportedCountries(store);
 
 		}
 		
@@ -871,7 +902,7 @@ public class ShippingServiceImpl implements ShippingService {
 		
 		List<PackageDetails> packages = null;
 		
-		ShippingConfiguration shippingConfiguration = this.getShippingConfiguration(store);
+		ShippingConfiguration shippingConfiguration = this.shippingConfiguration(store);
 		//determine if the system has to use BOX or ITEM
 		ShippingPackageType shippingPackageType = ShippingPackageType.ITEM;
 		if(shippingConfiguration!=null) {
@@ -917,7 +948,7 @@ public class ShippingServiceImpl implements ShippingService {
 		metaData.setShipToCountry(countries);
 		
 		// configured modules
-		Map<String,IntegrationConfiguration> modules = getShippingModulesConfigured(store);
+		Map<String,IntegrationConfiguration> modules = shippingModulesConfigured(store);
 		List<String> moduleKeys = new ArrayList<String>();
 		if(modules!=null) {
 			for(String key : modules.keySet()) {
@@ -959,7 +990,7 @@ public class ShippingServiceImpl implements ShippingService {
 
 	@Override
 	public boolean hasTaxOnShipping(MerchantStore store) throws ServiceException {
-		ShippingConfiguration shippingConfiguration = getShippingConfiguration(store);
+		ShippingConfiguration shippingConfiguration = shippingConfiguration(store);
 		return shippingConfiguration.isTaxOnShipping();
 	}
 }
\ No newline at end of file
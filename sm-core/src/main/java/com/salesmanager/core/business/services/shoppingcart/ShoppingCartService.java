@@ -92,4 +92,12 @@ public interface ShoppingCartService extends SalesManagerEntityService<Long, Sho
 
 	boolean sanitizeShoppingCartLineItems(ShoppingCart cart, boolean keepHighestQuantity) throws ServiceException;
 
+	/**
+	 * Removes expired carts from the shopping cart store, anonymous carts
+	 * of the database not modified during config.cart.anonymous.ttl seconds
+	 * and the obsolete carts found by reads
+	 * @return number of carts removed
+	 */
+	int removeExpiredCarts() throws ServiceException;
+
 }
@@ -1,6 +1,8 @@
 package com.salesmanager.core.business.services.shoppingcart;
 
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cart.AbstractShoppingCartStore;
+import com.salesmanager.core.business.modules.cart.ShoppingCartStore;
 import com.salesmanager.core.business.repositories.shoppingcart.ShoppingCartAttributeRepository;
 import com.salesmanager.core.business.repositories.shoppingcart.ShoppingCartItemRepository;
 import com.salesmanager.core.business.repositories.shoppingcart.ShoppingCartRepository;
@@ -8,6 +10,7 @@ import com.salesmanager.core.business.services.catalog.product.PricingService;
 import com.salesmanager.core.business.services.catalog.product.ProductService;
 import com.salesmanager.core.business.services.catalog.product.attribute.ProductAttributeService;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
+import com.salesmanager.core.business.services.merchant.MerchantStoreService;
 import com.salesmanager.core.model.catalog.product.Product;
 import com.salesmanager.core.model.catalog.product.attribute.ProductAttribute;
 import com.salesmanager.core.model.catalog.product.price.FinalPrice;
@@ -22,17 +25,25 @@ import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.inject.Inject;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service("shoppingCartService")
 public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long, ShoppingCart>
@@ -50,6 +61,33 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
     private PricingService pricingService;
     @Inject
     private ProductAttributeService productAttributeService;
+    @Inject
+    private MerchantStoreService merchantStoreService;
+
+    /**
+     * Anonymous carts, null or disabled keeps them in the database
+     */
+    @Inject
+    @Qualifier("shoppingCartStore")
+    private ShoppingCartStore shoppingCartStore;
+
+    /**
+     * Anonymous carts of the database not modified since ttl seconds are
+     * removed by removeExpiredCarts, 0 (default) keeps them. Reading a cart
+     * does not modify it, a cart only viewed is idle.
+     */
+    @Value("${config.cart.anonymous.ttl:0}")
+    private long anonymousTtl = 0;
+
+    private static final int EXPIRED_CARTS_BATCH = 100;
+
+    private static final int MAX_OBSOLETE_CARTS = 10000;
+
+    /**
+     * Obsolete carts of the database found by reads, by id with the customer
+     * of the cart, removed by removeExpiredCarts
+     */
+    private final Map<Long, Optional<Long>> obsoleteCarts = new ConcurrentHashMap<Long, Optional<Long>>();
 
     @Inject
     public ShoppingCartServiceImpl(ShoppingCartRepository shoppingCartRepository) {
@@ -68,13 +106,11 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
         try {
 
             ShoppingCart shoppingCart = shoppingCartRepository.findByCustomer(customer.getId());
-            getPopulatedShoppingCart(shoppingCart);
-            if (shoppingCart != null && shoppingCart.isObsolete()) {
-                delete(shoppingCart);
+            if (shoppingCart == null) {
                 return null;
-            } else {
-                return shoppingCart;
             }
+            getPopulatedShoppingCart(shoppingCart);
+            return notObsolete(shoppingCart);
 
         } catch (Exception e) {
             throw new ServiceException(e);
@@ -114,9 +150,9 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
 
 
         if (shoppingCart.getId() == null || shoppingCart.getId().longValue() == 0) {
-            super.create(shoppingCart);
+            create(shoppingCart);
         } else {
-            super.update(shoppingCart);
+            update(shoppingCart);
         }
 
 
@@ -124,26 +160,24 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
 
     /**
      * Get a {@link ShoppingCart} for a given id and MerchantStore. Will update
-     * the shopping cart prices and items based on the actual inventory. This
-     * method will remove the shopping cart if no items are attached.
+     * the shopping cart prices and items based on the actual inventory. An
+     * obsolete cart is not returned, it is removed by removeExpiredCarts.
      */
     @Override
     @Transactional
     public ShoppingCart getById(final Long id, final MerchantStore store) throws ServiceException {
 
         try {
+            if (isStored(id)) {
+                return getStoredShoppingCart(shoppingCartStore.get(id), store);
+            }
             ShoppingCart shoppingCart = shoppingCartRepository.findById(store.getId(), id);
             if (shoppingCart == null) {
                 return null;
             }
             getPopulatedShoppingCart(shoppingCart);
 
-            if (shoppingCart.isObsolete()) {
-                delete(shoppingCart);
-                return null;
-            } else {
-                return shoppingCart;
-            }
+            return notObsolete(shoppingCart);
 
         } catch (Exception e) {
             throw new ServiceException(e);
@@ -153,26 +187,24 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
 
     /**
      * Get a {@link ShoppingCart} for a given id. Will update the shopping cart
-     * prices and items based on the actual inventory. This method will remove
-     * the shopping cart if no items are attached.
+     * prices and items based on the actual inventory. An obsolete
+     * cart is not returned, it is removed by removeExpiredCarts.
      */
     @Override
     @Transactional
     public ShoppingCart getById(final Long id) {
 
         try {
+            if (isStored(id)) {
+                return getStoredShoppingCart(shoppingCartStore.get(id), null);
+            }
             ShoppingCart shoppingCart = shoppingCartRepository.findOne(id);
             if (shoppingCart == null) {
                 return null;
             }
             getPopulatedShoppingCart(shoppingCart);
 
-            if (shoppingCart.isObsolete()) {
-                delete(shoppingCart);
-                return null;
-            } else {
-                return shoppingCart;
-            }
+            return notObsolete(shoppingCart);
         } catch (Exception e) {
             // TODO Auto-generated catch block
             e.printStackTrace();
@@ -183,26 +215,27 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
 
     /**
      * Get a {@link ShoppingCart} for a given code. Will update the shopping
-     * cart prices and items based on the actual inventory. This method will
-     * remove the shopping cart if no items are attached.
+     * cart prices and items based on the actual inventory. An obsolete cart
+     * is not returned, it is removed by removeExpiredCarts.
      */
     @Override
     @Transactional
     public ShoppingCart getByCode(final String code, final MerchantStore store) throws ServiceException {
 
         try {
+            if (isStoreEnabled()) {
+                ShoppingCart storedCart = shoppingCartStore.get(code);
+                if (storedCart != null) {
+                    return getStoredShoppingCart(storedCart, store);
+                }
+            }
             ShoppingCart shoppingCart = shoppingCartRepository.findByCode(store.getId(), code);
             if (shoppingCart == null) {
                 return null;
             }
             getPopulatedShoppingCart(shoppingCart);
 
-            if (shoppingCart.isObsolete()) {
-                delete(shoppingCart);
-                return null;
-            } else {
-                return shoppingCart;
-            }
+            return notObsolete(shoppingCart);
 
         } catch (javax.persistence.NoResultException nre) {
             return null;
@@ -219,12 +252,185 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
     @Override
     @Transactional
     public void deleteCart(final ShoppingCart shoppingCart) throws ServiceException {
-        ShoppingCart cart = this.getById(shoppingCart.getId());
+        //obsolete carts are not returned by getById
+        Long id = shoppingCart.getId();
+        ShoppingCart cart = isStored(id) ? shoppingCartStore.get(id) : shoppingCartRepository.findOne(id);
         if (cart != null) {
-            super.delete(cart);
+            delete(cart);
+        }
+    }
+
+    @Override
+    public void create(ShoppingCart shoppingCart) throws ServiceException {
+        save(shoppingCart);
+    }
+
+    @Override
+    public void update(ShoppingCart shoppingCart) throws ServiceException {
+        save(shoppingCart);
+    }
+
+    /**
+     * Anonymous carts go to the shopping cart store when it is enabled. A
+     * stored cart given to a customer is moved to the database.
+     */
+    @Override
+    public void save(ShoppingCart shoppingCart) throws ServiceException {
+
+        if (isStoreEnabled() && shoppingCart.getCustomerId() == null
+                && (shoppingCart.getId() == null || shoppingCart.getId().longValue() <= 0)) {
+            Validate.notNull(shoppingCart.getMerchantStore(), "ShoppingCart.merchantStore must not be null");
+            shoppingCartStore.put(shoppingCart);
+            return;
+        }
+
+        if (isStored(shoppingCart.getId())) {
+            LOGGER.debug("Moving shopping cart " + shoppingCart.getShoppingCartCode() + " to the database");
+            shoppingCartStore.remove(shoppingCart);
+            detachFromStore(shoppingCart);
+        }
+        if (shoppingCart.getCustomerId() != null
+                && (shoppingCart.getId() == null || shoppingCart.getId().longValue() == 0)) {
+            //the obsolete cart replaced by this one, a customer has one cart
+            removeObsoleteCarts(shoppingCart.getCustomerId());
+        }
+        super.save(shoppingCart);
+    }
+
+    @Override
+    public void delete(ShoppingCart shoppingCart) throws ServiceException {
+        if (isStored(shoppingCart.getId())) {
+            shoppingCartStore.remove(shoppingCart);
+        } else {
+            super.delete(shoppingCart);
         }
     }
 
+    @Override
+    @Transactional
+    public int removeExpiredCarts() throws ServiceException {
+
+        int removed = isStoreEnabled() ? shoppingCartStore.sweep() : 0;
+
+        if (anonymousTtl > 0) {
+            Date limit = new Date(System.currentTimeMillis() - anonymousTtl * 1000L);
+            List<Long> ids = shoppingCartRepository.findAnonymousModifiedBefore(limit, PageRequest.of(0, EXPIRED_CARTS_BATCH));
+            for (Long id : ids) {
+                ShoppingCart cart = shoppingCartRepository.findOne(id);
+                if (cart != null) {
+                    super.delete(cart);
+                    removed++;
+                }
+            }
+        }
+
+        int checked = 0;
+        Iterator<Long> obsolete = obsoleteCarts.keySet().iterator();
+        while (obsolete.hasNext() && checked++ < EXPIRED_CARTS_BATCH) {
+            Long id = obsolete.next();
+            obsolete.remove();
+            if (removeObsoleteCart(id)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Reads do not remove obsolete carts, they are kept here until the
+     * sweeper removes them
+     */
+    private ShoppingCart notObsolete(ShoppingCart shoppingCart) {
+        if (!shoppingCart.isObsolete()) {
+            return shoppingCart;
+        }
+        if (obsoleteCarts.size() < MAX_OBSOLETE_CARTS) {
+            obsoleteCarts.put(shoppingCart.getId(), Optional.ofNullable(shoppingCart.getCustomerId()));
+        }
+        return null;
+    }
+
+    private void removeObsoleteCarts(Long customerId) throws ServiceException {
+        for (Map.Entry<Long, Optional<Long>> obsolete : obsoleteCarts.entrySet()) {
+            if (customerId.equals(obsolete.getValue().orElse(null)) && obsoleteCarts.remove(obsolete.getKey()) != null) {
+                removeObsoleteCart(obsolete.getKey());
+            }
+        }
+    }
+
+    /**
+     * @return true when the cart is still obsolete and was removed
+     */
+    private boolean removeObsoleteCart(Long id) throws ServiceException {
+        ShoppingCart cart = shoppingCartRepository.findOne(id);
+        if (cart == null) {
+            return false;
+        }
+        try {
+            getPopulatedShoppingCart(cart);
+        } catch (Exception e) {
+            throw new ServiceException(e);
+        }
+        if (!cart.isObsolete()) {
+            return false;
+        }
+        super.delete(cart);
+        return true;
+    }
+
+    private boolean isStoreEnabled() {
+        return shoppingCartStore != null && shoppingCartStore.isEnabled();
+    }
+
+    private boolean isStored(Long id) {
+        return id != null && id.longValue() < 0 && isStoreEnabled();
+    }
+
+    /**
+     * Attaches the merchant store and the products to a cart of the store.
+     * Empty carts are not returned, they expire in the store.
+     */
+    private ShoppingCart getStoredShoppingCart(ShoppingCart shoppingCart, MerchantStore store) throws Exception {
+        if (shoppingCart == null) {
+            return null;
+        }
+        Integer storeId = shoppingCart.getMerchantStore().getId();
+        if (store == null) {
+            store = merchantStoreService.getById(storeId);
+        } else if (!storeId.equals(store.getId())) {
+            return null;
+        }
+        shoppingCart.setMerchantStore(store);
+        getPopulatedShoppingCart(shoppingCart);
+        return shoppingCart.isObsolete() ? null : shoppingCart;
+    }
+
+    /**
+     * Clears the ids given by the store so the cart is inserted
+     */
+    private void detachFromStore(ShoppingCart shoppingCart) {
+        shoppingCart.setId(null);
+        shoppingCart.setVersion(null);
+        Set<ShoppingCartItem> items = new HashSet<ShoppingCartItem>();
+        if (shoppingCart.getLineItems() != null) {
+            for (ShoppingCartItem item : shoppingCart.getLineItems()) {
+                item.setId(null);
+                item.setShoppingCart(shoppingCart);
+                if (item.getAttributes() != null) {
+                    Set<ShoppingCartAttributeItem> attributes = new HashSet<ShoppingCartAttributeItem>();
+                    for (ShoppingCartAttributeItem attribute : item.getAttributes()) {
+                        attribute.setId(null);
+                        attribute.setShoppingCartItem(item);
+                        attributes.add(attribute);
+                    }
+                    item.setAttributes(attributes);
+                }
+                items.add(item);
+            }
+        }
+        shoppingCart.setLineItems(items);
+    }
+
     @Override
     @Transactional
     public ShoppingCart getByCustomer(final Customer customer) throws ServiceException {
@@ -241,12 +447,19 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
         }
     }
 
+    /**
+     * Sets products and prices on the cart items. Products of all the items
+     * are loaded with a single query and prices are computed in memory. The
+     * cart is not written, only attributes no longer existing on the product
+     * are deleted.
+     */
     @Transactional(noRollbackFor = {org.springframework.dao.EmptyResultDataAccessException.class})
     private ShoppingCart getPopulatedShoppingCart(final ShoppingCart shoppingCart) throws Exception {
 
         try {
 
             boolean cartIsObsolete = false;
+            boolean attributesRemoved = false;
             if (shoppingCart != null) {
 
                 Set<ShoppingCartItem> items = shoppingCart.getLineItems();
@@ -255,6 +468,18 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
                     return shoppingCart;
 
                 }
+
+                Set<Long> productIds = new HashSet<Long>();
+                for (ShoppingCartItem item : items) {
+                    if (item != null && item.getProductId() != null) {
+                        productIds.add(item.getProductId());
+                    }
+                }
+                Map<Long, Product> products = new HashMap<Long, Product>();
+                for (Product product : productService.getByIds(productIds)) {
+                    products.put(product.getId(), product);
+                }
+
                 for (ShoppingCartItem item : items) {
                     //**START CUSTOM FIX
                     if (item == null) {
@@ -268,30 +493,19 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
                     }
                     //** END CUSTOM FIX
                     LOGGER.debug("Populate item " + item.getId());
-                    getPopulatedItem(item);
+                    if (getPopulatedItem(item, products.get(item.getProductId()))) {
+                        attributesRemoved = true;
+                    }
                     LOGGER.debug("Obsolete item ? " + item.isObsolete());
                     if (item.isObsolete()) {
                         cartIsObsolete = true;
                     }
                 }
 
-                // shoppingCart.setLineItems(shoppingCartItems);
-                boolean refreshCart = false;
-                Set<ShoppingCartItem> refreshedItems = new HashSet<ShoppingCartItem>();
-                for (ShoppingCartItem item : items) {
-/*					if (!item.isObsolete()) {
-						refreshedItems.add(item);
-					} else {
-						refreshCart = true;
-					}*/
-                    refreshedItems.add(item);
+                if (attributesRemoved && isStored(shoppingCart.getId())) {
+                    shoppingCartStore.put(shoppingCart);
                 }
 
-                //if (refreshCart) {
-                shoppingCart.setLineItems(refreshedItems);
-                update(shoppingCart);
-                //}
-
                 if (cartIsObsolete) {
                     shoppingCart.setObsolete(true);
                 }
@@ -322,17 +536,14 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
 
     }
 
-    @Transactional
-    private void getPopulatedItem(final ShoppingCartItem item) throws Exception {
-
-        Product product = null;
-
-        Long productId = item.getProductId();
-        product = productService.getById(productId);
+    /**
+     * @return true when attributes no longer existing were removed
+     */
+    private boolean getPopulatedItem(final ShoppingCartItem item, final Product product) throws Exception {
 
         if (product == null) {
             item.setObsolete(true);
-            return;
+            return false;
         }
 
         item.setProduct(product);
@@ -346,11 +557,11 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
         List<ProductAttribute> attributesList = new ArrayList<ProductAttribute>();//attributes maintained
         List<ShoppingCartAttributeItem> removeAttributesList = new ArrayList<ShoppingCartAttributeItem>();//attributes to remove
         //DELETE ORPHEANS MANUALLY
-        if ((productAttributes != null && productAttributes.size() > 0) || (cartAttributes != null && cartAttributes.size() > 0)) {
-            if (cartAttributes != null) {
-                for (ShoppingCartAttributeItem attribute : cartAttributes) {
-                    long attributeId = attribute.getProductAttributeId().longValue();
-                    boolean existingAttribute = false;
+        if (cartAttributes != null) {
+            for (ShoppingCartAttributeItem attribute : cartAttributes) {
+                long attributeId = attribute.getProductAttributeId().longValue();
+                boolean existingAttribute = false;
+                if (productAttributes != null) {
                     for (ProductAttribute productAttribute : productAttributes) {
 
                         if (productAttribute.getId().longValue() == attributeId) {
@@ -360,27 +571,25 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
                             break;
                         }
                     }
+                }
 
-                    if (!existingAttribute) {
-                        removeAttributesList.add(attribute);
-                    }
-
+                if (!existingAttribute) {
+                    removeAttributesList.add(attribute);
                 }
+
             }
         }
 
-        //cleanup orphean item
+        //cleanup orphean item, the only write of this path
         if (CollectionUtils.isNotEmpty(removeAttributesList)) {
-            for (ShoppingCartAttributeItem attr : removeAttributesList) {
-                shoppingCartAttributeItemRepository.delete(attr);
+            cartAttributes.removeAll(removeAttributesList);
+            if (!isStored(item.getId())) {
+                for (ShoppingCartAttributeItem attr : removeAttributesList) {
+                    shoppingCartAttributeItemRepository.delete(attr);
+                }
             }
         }
 
-        //cleanup detached attributes
-        if (CollectionUtils.isEmpty(attributesList)) {
-            item.setAttributes(null);
-        }
-
 
         // set item price
         FinalPrice price = pricingService.calculateProductPrice(product, attributesList);
@@ -390,6 +599,7 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
         BigDecimal subTotal = item.getItemPrice().multiply(new BigDecimal(item.getQuantity().intValue()));
         item.setSubTotal(subTotal);
 
+        return !removeAttributesList.isEmpty();
     }
 
     @Override
@@ -454,7 +664,11 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
 
     @Override
     public void removeShoppingCart(final ShoppingCart cart) throws ServiceException {
-        shoppingCartRepository.delete(cart);
+        if (isStored(cart.getId())) {
+            shoppingCartStore.remove(cart);
+        } else {
+            shoppingCartRepository.delete(cart);
+        }
     }
 
     @Override
@@ -566,6 +780,14 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
     @Transactional
     public void deleteShoppingCartItem(Long id) {
 
+        if (isStored(id)) {
+            ShoppingCart cart = shoppingCartStore.get(AbstractShoppingCartStore.cartId(id));
+            if (cart != null) {
+                cart.getLineItems().removeIf(i -> id.equals(i.getId()));
+                shoppingCartStore.put(cart);
+            }
+            return;
+        }
 
         ShoppingCartItem item = shoppingCartItemRepository.findOne(id);
         if (item != null) {
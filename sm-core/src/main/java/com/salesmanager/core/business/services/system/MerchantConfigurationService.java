@@ -28,4 +28,16 @@ public interface MerchantConfigurationService extends
 	void saveMerchantConfig(MerchantConfig config, MerchantStore store)
 			throws ServiceException;
 
+	/**
+	 * Parsed configuration of a store, loaded once per configuration version.
+	 * Invalidated by saveOrUpdate, delete and saveMerchantConfig
+	 */
+	MerchantConfigurationSnapshot getSnapshot(MerchantStore store)
+			throws ServiceException;
+
+	/**
+	 * Drops the cached snapshot of a store
+	 */
+	void invalidate(MerchantStore store);
+
 }
@@ -1,16 +1,20 @@
 package com.salesmanager.core.business.services.system;
 
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.inject.Inject;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.repositories.system.MerchantConfigurationRepository;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
+import com.salesmanager.core.business.utils.CacheVersions;
 import com.salesmanager.core.model.merchant.MerchantStore;
 import com.salesmanager.core.model.system.MerchantConfig;
 import com.salesmanager.core.model.system.MerchantConfiguration;
 import com.salesmanager.core.model.system.MerchantConfigurationType;
+import com.salesmanager.core.modules.utils.Encryption;
 
 @Service("merchantConfigurationService")
 public class MerchantConfigurationServiceImpl extends
@@ -19,6 +23,15 @@ public class MerchantConfigurationServiceImpl extends
 
 	private MerchantConfigurationRepository merchantConfigurationRepository;
 	
+	@Inject
+	private Encryption encryption;
+	
+	@Value("${config.merchantConfiguration.cache.maxAge:300000}")
+	private long snapshotMaxAge = 300000;
+	
+	private final ConcurrentMap<Integer, MerchantConfigurationSnapshot> snapshots = new ConcurrentHashMap<Integer, MerchantConfigurationSnapshot>();
+	private final CacheVersions<Integer> versions = new CacheVersions<Integer>();
+	
 	@Inject
 	public MerchantConfigurationServiceImpl(
 			MerchantConfigurationRepository merchantConfigurationRepository) {
@@ -53,6 +66,7 @@ public class MerchantConfigurationServiceImpl extends
 			super.create(entity);
 
 		}
+		invalidate(entity.getMerchantStore());
 	}
 	
 	
@@ -61,26 +75,14 @@ public class MerchantConfigurationServiceImpl extends
 		MerchantConfiguration config = merchantConfigurationRepository.getOne(merchantConfiguration.getId());
 		if(config!=null) {
 			super.delete(config);
+			invalidate(merchantConfiguration.getMerchantStore() != null ? merchantConfiguration.getMerchantStore() : config.getMerchantStore());
 		}
 	}
 	
 	@Override
 	public MerchantConfig getMerchantConfig(MerchantStore store) throws ServiceException {
 
-		MerchantConfiguration configuration = merchantConfigurationRepository.findByMerchantStoreAndKey(store.getId(), MerchantConfigurationType.CONFIG.name());
-		
-		MerchantConfig config = null;
-		if(configuration!=null) {
-			String value = configuration.getValue();
-			
-			ObjectMapper mapper = new ObjectMapper();
-			try {
-				config = mapper.readValue(value, MerchantConfig.class);
-			} catch(Exception e) {
-				throw new ServiceException("Cannot parse json string " + value);
-			}
-		}
-		return config;
+		return getSnapshot(store).readObject(MerchantConfigurationType.CONFIG.name(), MerchantConfig.class);
 		
 	}
 	
@@ -104,6 +106,33 @@ public class MerchantConfigurationServiceImpl extends
 			super.create(configuration);
 
 		}
+		invalidate(store);
+		
+	}
+	
+	@Override
+	public MerchantConfigurationSnapshot getSnapshot(MerchantStore store) throws ServiceException {
+		
+		Integer storeId = store.getId();
+		long version = versions.get(storeId);
+		MerchantConfigurationSnapshot snapshot = snapshots.get(storeId);
+		if(snapshot != null && versions.isCurrent(storeId, snapshot.getVersion(), snapshot.getCreated(), snapshotMaxAge)) {
+			return snapshot;
+		}
+		
+		snapshot = new MerchantConfigurationSnapshot(version, merchantConfigurationRepository.findByMerchantStore(storeId), encryption);
+		snapshots.put(storeId, snapshot);
+		return snapshot;
+		
+	}
+	
+	@Override
+	public void invalidate(MerchantStore store) {
+		
+		if(store == null || store.getId() == null) {
+			return;
+		}
+		versions.changed(store.getId());
 		
 	}
 	
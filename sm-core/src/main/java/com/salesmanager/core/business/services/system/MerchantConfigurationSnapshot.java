@@ -0,0 +1,147 @@
+package com.salesmanager.core.business.services.system;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.services.reference.loader.ConfigurationModulesLoader;
+import com.salesmanager.core.model.system.IntegrationConfiguration;
+import com.salesmanager.core.model.system.MerchantConfig;
+import com.salesmanager.core.model.system.MerchantConfiguration;
+import com.salesmanager.core.model.system.MerchantConfigurationType;
+import com.salesmanager.core.modules.utils.Encryption;
+
+/**
+ * All MerchantConfiguration values of a store at a given version.
+ * Values are deserialized on first access and the parsed objects are then
+ * shared by every caller until the store configuration changes, they must
+ * be treated as read only.
+ */
+public class MerchantConfigurationSnapshot {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final long version;
+	private final long created = System.currentTimeMillis();
+	private final Map<String, String> values;
+	private final Encryption encryption;
+
+	private final ConcurrentMap<String, Object> parsed = new ConcurrentHashMap<String, Object>();
+
+	MerchantConfigurationSnapshot(long version, List<MerchantConfiguration> configurations, Encryption encryption) {
+		this.version = version;
+		this.encryption = encryption;
+		Map<String, String> v = new HashMap<String, String>();
+		for (MerchantConfiguration configuration : configurations) {
+			if (configuration.getValue() != null) {
+				v.put(configuration.getKey(), configuration.getValue());
+			}
+		}
+		this.values = Collections.unmodifiableMap(v);
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	long getCreated() {
+		return created;
+	}
+
+	/**
+	 * Raw value as stored in MERCHANT_CONFIGURATION
+	 */
+	public String getValue(String key) {
+		return values.get(key);
+	}
+
+	/**
+	 * Json value mapped to type, null when the key is not configured
+	 */
+	public <T> T getObject(String key, Class<T> type) throws ServiceException {
+		String value = values.get(key);
+		if (value == null) {
+			return null;
+		}
+		String cacheKey = type.getName() + ":" + key;
+		Object object = parsed.get(cacheKey);
+		if (object == null) {
+			object = readValue(value, type);
+			Object existing = parsed.putIfAbsent(cacheKey, object);
+			if (existing != null) {
+				object = existing;
+			}
+		}
+		return type.cast(object);
+	}
+
+	/**
+	 * Read only map of encrypted integration module configurations
+	 * (SHIPPING, PAYMENT), empty when the key is not configured
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<String, IntegrationConfiguration> getIntegrationConfigurations(String key) throws ServiceException {
+		String value = values.get(key);
+		if (StringUtils.isBlank(value)) {
+			return Collections.emptyMap();
+		}
+		String cacheKey = IntegrationConfiguration.class.getName() + ":" + key;
+		Object modules = parsed.get(cacheKey);
+		if (modules == null) {
+			modules = Collections.unmodifiableMap(decryptModules(value));
+			Object existing = parsed.putIfAbsent(cacheKey, modules);
+			if (existing != null) {
+				modules = existing;
+			}
+		}
+		return (Map<String, IntegrationConfiguration>) modules;
+	}
+
+	public MerchantConfig getMerchantConfig() throws ServiceException {
+		return getObject(MerchantConfigurationType.CONFIG.name(), MerchantConfig.class);
+	}
+
+	/**
+	 * New instance parsed from the snapshot value, can be modified and saved
+	 */
+	public <T> T readObject(String key, Class<T> type) throws ServiceException {
+		String value = values.get(key);
+		return value == null ? null : readValue(value, type);
+	}
+
+	/**
+	 * New modifiable map parsed from the snapshot value
+	 */
+	public Map<String, IntegrationConfiguration> readIntegrationConfigurations(String key) throws ServiceException {
+		String value = values.get(key);
+		if (StringUtils.isBlank(value)) {
+			return new HashMap<String, IntegrationConfiguration>();
+		}
+		return decryptModules(value);
+	}
+
+	private <T> T readValue(String value, Class<T> type) throws ServiceException {
+		try {
+			return MAPPER.readValue(value, type);
+		} catch (Exception e) {
+			throw new ServiceException("Cannot parse json string " + value);
+		}
+	}
+
+	private Map<String, IntegrationConfiguration> decryptModules(String value) throws ServiceException {
+		try {
+			String decrypted = encryption.decrypt(value);
+			return ConfigurationModulesLoader.loadIntegrationConfigurations(decrypted);
+		} catch (Exception e) {
+			throw new ServiceException(e);
+		}
+	}
+
+}
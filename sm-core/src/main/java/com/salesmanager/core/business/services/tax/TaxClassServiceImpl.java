@@ -17,6 +17,9 @@ public class TaxClassServiceImpl extends SalesManagerEntityServiceImpl<Long, Tax
 		implements TaxClassService {
 
 	private TaxClassRepository taxClassRepository;
+
+	@Inject
+	private TaxTableIndex taxTableIndex;
 	
 	@Inject
 	public TaxClassServiceImpl(TaxClassRepository taxClassRepository) {
@@ -40,11 +43,19 @@ public class TaxClassServiceImpl extends SalesManagerEntityServiceImpl<Long, Tax
 		return taxClassRepository.findByStoreAndCode(store.getId(), code);
 	}
 	
+	@Override
+	public void save(TaxClass taxClass) throws ServiceException {
+		super.save(taxClass);
+		//the default tax class is looked up by code for every store
+		taxTableIndex.invalidate(TaxClass.DEFAULT_TAX_CLASS.equals(taxClass.getCode()) ? null : taxClass.getMerchantStore());
+	}
+	
 	@Override
 	public void delete(TaxClass taxClass) throws ServiceException {
 		
 		TaxClass t = this.getById(taxClass.getId());
 		super.delete(t);
+		taxTableIndex.invalidate(TaxClass.DEFAULT_TAX_CLASS.equals(t.getCode()) ? null : t.getMerchantStore());
 		
 	}
 	
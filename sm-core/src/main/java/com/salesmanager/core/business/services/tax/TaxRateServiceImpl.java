@@ -21,6 +21,9 @@ public class TaxRateServiceImpl extends SalesManagerEntityServiceImpl<Long, TaxR
 		implements TaxRateService {
 
 	private TaxRateRepository taxRateRepository;
+
+	@Inject
+	private TaxTableIndex taxTableIndex;
 	
 	@Inject
 	public TaxRateServiceImpl(TaxRateRepository taxRateRepository) {
@@ -59,12 +62,19 @@ public class TaxRateServiceImpl extends SalesManagerEntityServiceImpl<Long, TaxR
 		return taxRateRepository.findByMerchantAndProvinceAndCountryAndLanguage(store.getId(), stateProvince, country.getId(), language.getId());
 	}
 	
+	@Override
+	public void save(TaxRate taxRate) throws ServiceException {
+		super.save(taxRate);
+		taxTableIndex.invalidate(taxRate.getMerchantStore());
+	}
+	
 	@Override
 	public void delete(TaxRate taxRate) throws ServiceException {
 		
 		//TaxRate t = this.getById(taxRate.getId());
 		//super.delete(t);
 		taxRateRepository.delete(taxRate);
+		taxTableIndex.invalidate(taxRate.getMerchantStore());
 		
 	}
 		
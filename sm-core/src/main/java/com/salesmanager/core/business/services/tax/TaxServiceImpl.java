@@ -3,18 +3,15 @@ package com.salesmanager.core.business.services.tax;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 
 import javax.inject.Inject;
 
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.services.system.MerchantConfigurationService;
 import com.salesmanager.core.model.common.Billing;
@@ -32,7 +29,6 @@ import com.salesmanager.core.model.tax.TaxBasisCalculation;
 import com.salesmanager.core.model.tax.TaxConfiguration;
 import com.salesmanager.core.model.tax.TaxItem;
 import com.salesmanager.core.model.tax.taxclass.TaxClass;
-import com.salesmanager.core.model.tax.taxrate.TaxRate;
 
 @Service("taxService")
 public class TaxServiceImpl 
@@ -45,29 +41,12 @@ public class TaxServiceImpl
 	private MerchantConfigurationService merchantConfigurationService;
 	
 	@Inject
-	private TaxRateService taxRateService;
-	
-	@Inject
-	private TaxClassService taxClassService;
+	private TaxTableIndex taxTableIndex;
 	
 	@Override
 	public TaxConfiguration getTaxConfiguration(MerchantStore store) throws ServiceException {
 		
-		
-		
-		MerchantConfiguration configuration = merchantConfigurationService.getMerchantConfiguration(TAX_CONFIGURATION, store);
-		TaxConfiguration taxConfiguration = null;
-		if(configuration!=null) {
-			String value = configuration.getValue();
-			
-			ObjectMapper mapper = new ObjectMapper();
-			try {
-				taxConfiguration = mapper.readValue(value, TaxConfiguration.class);
-			} catch(Exception e) {
-				throw new ServiceException("Cannot parse json string " + value);
-			}
-		}
-		return taxConfiguration;
+		return merchantConfigurationService.getSnapshot(store).readObject(TAX_CONFIGURATION, TaxConfiguration.class);
 	}
 	
 	
@@ -105,7 +84,7 @@ public class TaxServiceImpl
 		}
 		
 		//determine tax calculation basis
-		TaxConfiguration taxConfiguration = this.getTaxConfiguration(store);
+		TaxConfiguration taxConfiguration = merchantConfigurationService.getSnapshot(store).getObject(TAX_CONFIGURATION, TaxConfiguration.class);
 		if(taxConfiguration==null) {
 			taxConfiguration = new TaxConfiguration();
 			taxConfiguration.setTaxBasisCalculation(TaxBasisCalculation.SHIPPINGADDRESS);
@@ -169,7 +148,7 @@ public class TaxServiceImpl
 			return null;
 		}
 		
-		Map<Long,TaxClass> taxClasses =  new HashMap<Long,TaxClass>();
+		TaxTable taxTable = taxTableIndex.get(store);
 			
 		//put items in a map by tax class id
 		Map<Long,BigDecimal> taxClassAmountMap = new HashMap<Long,BigDecimal>();
@@ -180,7 +159,7 @@ public class TaxServiceImpl
 				int quantity = item.getQuantity();
 				itemPrice = itemPrice.multiply(new BigDecimal(quantity));
 				if(taxClass==null) {
-					taxClass = taxClassService.getByCode(DEFAULT_TAX_CLASS);
+					taxClass = taxTable.getDefaultTaxClass();
 				}
 				BigDecimal subTotal = taxClassAmountMap.get(taxClass.getId());
 				if(subTotal==null) {
@@ -190,7 +169,6 @@ public class TaxServiceImpl
 					
 				subTotal = subTotal.add(itemPrice);
 				taxClassAmountMap.put(taxClass.getId(), subTotal);
-				taxClasses.put(taxClass.getId(), taxClass);
 				
 		}
 		
@@ -201,8 +179,7 @@ public class TaxServiceImpl
 		//if(shippingConfiguration!=null) {
 			//if(shippingConfiguration.isTaxOnShipping()){
 				//use default tax class for shipping
-				TaxClass defaultTaxClass = taxClassService.getByCode(TaxClass.DEFAULT_TAX_CLASS);
-				//taxClasses.put(defaultTaxClass.getId(), defaultTaxClass);
+				TaxClass defaultTaxClass = taxTable.getDefaultTaxClass();
 				BigDecimal amnt = taxClassAmountMap.get(defaultTaxClass.getId());
 				if(amnt==null) {
 					amnt = new BigDecimal(0);
@@ -219,82 +196,8 @@ public class TaxServiceImpl
 			//}
 		//}
 		
-		
-		List<TaxItem> taxItems = new ArrayList<TaxItem>();
-		
-		//iterate through the tax class and get appropriate rates
-		for(Long taxClassId : taxClassAmountMap.keySet()) {
-			
-			//get taxRate by tax class
-			List<TaxRate> taxRates = null; 
-			if(!StringUtils.isBlank(stateProvince)&& zone==null) {
-				taxRates = taxRateService.listByCountryStateProvinceAndTaxClass(country, stateProvince, taxClasses.get(taxClassId), store, language);
-			} else {
-				taxRates = taxRateService.listByCountryZoneAndTaxClass(country, zone, taxClasses.get(taxClassId), store, language);
-			}
-			
-			if(taxRates==null || taxRates.size()==0){
-				continue;
-			}
-			BigDecimal taxedItemValue = null;
-			BigDecimal totalTaxedItemValue = new BigDecimal(0);
-			totalTaxedItemValue.setScale(2, RoundingMode.HALF_UP);
-			BigDecimal beforeTaxeAmount = taxClassAmountMap.get(taxClassId);
-			for(TaxRate taxRate : taxRates) {
-				
-				double taxRateDouble = taxRate.getTaxRate().doubleValue();//5% ... 8% ...
-				
-
-				if(taxRate.isPiggyback()) {//(compound)
-					if(totalTaxedItemValue.doubleValue()>0) {
-						beforeTaxeAmount = totalTaxedItemValue;
-					}
-				} //else just use nominal taxing (combine)
-				
-				double value  = (beforeTaxeAmount.doubleValue() * taxRateDouble)/100;
-				double roundedValue = new BigDecimal(value).setScale(2, RoundingMode.HALF_UP).doubleValue();
-				taxedItemValue = new BigDecimal(roundedValue).setScale(2, RoundingMode.HALF_UP);
-				totalTaxedItemValue = beforeTaxeAmount.add(taxedItemValue);
-				
-				TaxItem taxItem = new TaxItem();
-				taxItem.setItemPrice(taxedItemValue);
-				taxItem.setLabel(taxRate.getDescriptions().get(0).getName());
-				taxItem.setTaxRate(taxRate);
-				taxItems.add(taxItem);
-				
-			}
-			
-		}
-		
-		
-		
-		Map<String,TaxItem> taxItemsMap = new TreeMap<String,TaxItem>();
-		//consolidate tax rates of same code
-		for(TaxItem taxItem : taxItems) {
-			
-			TaxRate taxRate = taxItem.getTaxRate();
-			if(!taxItemsMap.containsKey(taxRate.getCode())) {
-				taxItemsMap.put(taxRate.getCode(), taxItem);
-			} 
-			
-			TaxItem item = taxItemsMap.get(taxRate.getCode());
-			BigDecimal amount = item.getItemPrice();
-			amount = amount.add(taxItem.getItemPrice());			
-			
-		}
-		
-		if(taxItemsMap.size()==0) {
-			return null;
-		}
-			
-			
-		@SuppressWarnings("rawtypes")
-		Collection<TaxItem> values = taxItemsMap.values();
-		
-		
-		@SuppressWarnings("unchecked")
-		List<TaxItem> list = new ArrayList<TaxItem>(values);
-		return list;
+		//apply the rates of each tax class, consolidated by tax rate code
+		return taxTable.calculate(taxClassAmountMap, country, zone, stateProvince, language);
 
 	}
 
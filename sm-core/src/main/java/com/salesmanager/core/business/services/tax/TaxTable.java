@@ -0,0 +1,219 @@
+package com.salesmanager.core.business.services.tax;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.salesmanager.core.model.reference.country.Country;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.core.model.reference.zone.Zone;
+import com.salesmanager.core.model.tax.TaxItem;
+import com.salesmanager.core.model.tax.taxclass.TaxClass;
+import com.salesmanager.core.model.tax.taxrate.TaxRate;
+import com.salesmanager.core.model.tax.taxrate.TaxRateDescription;
+
+/**
+ * Tax rates of a store compiled by country, zone or state province and tax
+ * class, each entry holds the rates to apply in priority order. Taxes are
+ * calculated from the table without reading the database. The table is
+ * shared by every caller until the rates of the store change, rates must be
+ * treated as read only.
+ */
+public class TaxTable {
+
+	private static final Comparator<TaxRate> PRIORITY = Comparator
+			.comparing(TaxRate::getTaxPriority, Comparator.nullsFirst(Comparator.<Integer>naturalOrder()))
+			.thenComparing(TaxRate::getId, Comparator.nullsFirst(Comparator.<Long>naturalOrder()));
+
+	private final long version;
+	private final long created;
+	private final TaxClass defaultTaxClass;
+
+	/** rates of a zone followed by the rates without zone of the country **/
+	private final Map<String, List<Rate>> byZone;
+	/** rates without zone of a country, used for zones without their own rates **/
+	private final Map<String, List<Rate>> byCountry;
+	private final Map<String, List<Rate>> byStateProvince;
+
+	/**
+	 * @param rates all tax rates of the store with their descriptions
+	 * @param defaultTaxClass tax class of products without tax class and of shipping
+	 */
+	TaxTable(long version, List<TaxRate> rates, TaxClass defaultTaxClass) {
+
+		this.version = version;
+		this.created = System.currentTimeMillis();
+		this.defaultTaxClass = defaultTaxClass;
+
+		//rates are read with their descriptions, one row per description
+		Map<Long, TaxRate> distinct = new LinkedHashMap<Long, TaxRate>();
+		for (TaxRate rate : rates) {
+			distinct.putIfAbsent(rate.getId(), rate);
+		}
+		List<TaxRate> ordered = new ArrayList<TaxRate>(distinct.values());
+		ordered.sort(PRIORITY);
+
+		Map<String, List<Rate>> zones = new HashMap<String, List<Rate>>();
+		Map<String, List<Rate>> countries = new HashMap<String, List<Rate>>();
+		Map<String, List<Rate>> provinces = new HashMap<String, List<Rate>>();
+		Map<String, String> zoneCountries = new HashMap<String, String>();
+		for (TaxRate taxRate : ordered) {
+			if (taxRate.getCountry() == null || taxRate.getTaxClass() == null) {
+				continue;
+			}
+			Rate rate = new Rate(taxRate);
+			Integer countryId = taxRate.getCountry().getId();
+			Long taxClassId = taxRate.getTaxClass().getId();
+			if (taxRate.getZone() != null) {
+				String zone = key(countryId, taxRate.getZone().getId(), taxClassId);
+				zones.computeIfAbsent(zone, k -> new ArrayList<Rate>()).add(rate);
+				zoneCountries.put(zone, key(countryId, null, taxClassId));
+			} else {
+				countries.computeIfAbsent(key(countryId, null, taxClassId), k -> new ArrayList<Rate>()).add(rate);
+			}
+			if (taxRate.getStateProvince() != null) {
+				provinces.computeIfAbsent(key(countryId, taxRate.getStateProvince(), taxClassId), k -> new ArrayList<Rate>()).add(rate);
+			}
+		}
+
+		//a zone applies its own rates and the rates of the whole country
+		for (Map.Entry<String, List<Rate>> zone : zones.entrySet()) {
+			List<Rate> countryRates = countries.get(zoneCountries.get(zone.getKey()));
+			if (countryRates != null) {
+				zone.getValue().addAll(countryRates);
+				zone.getValue().sort(Comparator.comparing(r -> r.taxRate, PRIORITY));
+			}
+		}
+
+		this.byZone = zones;
+		this.byCountry = countries;
+		this.byStateProvince = provinces;
+	}
+
+	long getVersion() {
+		return version;
+	}
+
+	long getCreated() {
+		return created;
+	}
+
+	public TaxClass getDefaultTaxClass() {
+		return defaultTaxClass;
+	}
+
+	/**
+	 * Rates applying to a tax class in a zone, or in a state province when
+	 * there is no zone, in priority order
+	 */
+	public List<TaxRate> getRates(Country country, Zone zone, String stateProvince, Long taxClassId) {
+		List<TaxRate> rates = new ArrayList<TaxRate>();
+		for (Rate rate : chain(country, zone, stateProvince, taxClassId)) {
+			rates.add(rate.taxRate);
+		}
+		return rates;
+	}
+
+	private List<Rate> chain(Country country, Zone zone, String stateProvince, Long taxClassId) {
+		if (country == null) {
+			return Collections.emptyList();
+		}
+		List<Rate> chain;
+		if (stateProvince != null && !stateProvince.trim().isEmpty() && zone == null) {
+			chain = byStateProvince.get(key(country.getId(), stateProvince, taxClassId));
+		} else if (zone != null) {
+			chain = byZone.get(key(country.getId(), zone.getId(), taxClassId));
+			if (chain == null) {
+				chain = byCountry.get(key(country.getId(), null, taxClassId));
+			}
+		} else {
+			chain = null;
+		}
+		return chain == null ? Collections.<Rate>emptyList() : chain;
+	}
+
+	/**
+	 * Taxes of amounts by tax class, one tax item per tax rate code ordered by
+	 * code. Rates without a description in the language are not applied.
+	 * @param amounts tax class id to amount before taxes
+	 * @return null when no tax applies
+	 */
+	public List<TaxItem> calculate(Map<Long, BigDecimal> amounts, Country country, Zone zone, String stateProvince, Language language) {
+
+		Integer languageId = language.getId();
+		Map<String, TaxItem> taxItemsMap = new TreeMap<String, TaxItem>();
+
+		for (Map.Entry<Long, BigDecimal> amount : amounts.entrySet()) {
+
+			BigDecimal taxedItemValue = null;
+			BigDecimal totalTaxedItemValue = new BigDecimal(0);
+			BigDecimal beforeTaxeAmount = amount.getValue();
+			for (Rate rate : chain(country, zone, stateProvince, amount.getKey())) {
+
+				String label = rate.labels.get(languageId);
+				if (label == null) {
+					continue;
+				}
+
+				if (rate.piggyback) {//(compound)
+					if (totalTaxedItemValue.doubleValue() > 0) {
+						beforeTaxeAmount = totalTaxedItemValue;
+					}
+				} //else just use nominal taxing (combine)
+
+				double value = (beforeTaxeAmount.doubleValue() * rate.rate) / 100;
+				double roundedValue = new BigDecimal(value).setScale(2, RoundingMode.HALF_UP).doubleValue();
+				taxedItemValue = new BigDecimal(roundedValue).setScale(2, RoundingMode.HALF_UP);
+				totalTaxedItemValue = beforeTaxeAmount.add(taxedItemValue);
+
+				//first tax item of a tax rate code is kept
+				if (!taxItemsMap.containsKey(rate.taxRate.getCode())) {
+					TaxItem taxItem = new TaxItem();
+					taxItem.setItemPrice(taxedItemValue);
+					taxItem.setLabel(label);
+					taxItem.setTaxRate(rate.taxRate);
+					taxItemsMap.put(rate.taxRate.getCode(), taxItem);
+				}
+			}
+		}
+
+		if (taxItemsMap.isEmpty()) {
+			return null;
+		}
+		return new ArrayList<TaxItem>(taxItemsMap.values());
+	}
+
+	private static String key(Integer countryId, Object zoneOrStateProvince, Long taxClassId) {
+		return countryId + "_" + zoneOrStateProvince + "_" + taxClassId;
+	}
+
+	/**
+	 * A tax rate with what the calculation reads from it
+	 */
+	private static class Rate {
+
+		private final TaxRate taxRate;
+		private final double rate;
+		private final boolean piggyback;
+		private final Map<Integer, String> labels = new HashMap<Integer, String>();
+
+		Rate(TaxRate taxRate) {
+			this.taxRate = taxRate;
+			this.rate = taxRate.getTaxRate() == null ? 0 : taxRate.getTaxRate().doubleValue();
+			this.piggyback = taxRate.isPiggyback();
+			for (TaxRateDescription description : taxRate.getDescriptions()) {
+				if (description.getLanguage() != null) {
+					labels.putIfAbsent(description.getLanguage().getId(), description.getName());
+				}
+			}
+		}
+	}
+
+}
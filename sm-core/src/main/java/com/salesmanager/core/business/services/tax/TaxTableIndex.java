@@ -0,0 +1,60 @@
+package com.salesmanager.core.business.services.tax;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.repositories.tax.TaxClassRepository;
+import com.salesmanager.core.business.repositories.tax.TaxRateRepository;
+import com.salesmanager.core.business.utils.CacheVersions;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.tax.taxclass.TaxClass;
+
+/**
+ * TaxTable of each store. A table is compiled again on next access once the
+ * tax rates or tax classes of its store change.
+ */
+@Component("taxTableIndex")
+public class TaxTableIndex {
+
+	@Inject
+	private TaxRateRepository taxRateRepository;
+
+	@Inject
+	private TaxClassRepository taxClassRepository;
+
+	@Value("${config.tax.table.maxAge:300000}")
+	private long maxAge = 300000;
+
+	private final ConcurrentMap<Integer, TaxTable> tables = new ConcurrentHashMap<Integer, TaxTable>();
+	private final CacheVersions<Integer> versions = new CacheVersions<Integer>();
+
+	public TaxTable get(MerchantStore store) {
+
+		Integer storeId = store.getId();
+		long version = versions.get(storeId);
+
+		TaxTable table = tables.get(storeId);
+		if (table != null && versions.isCurrent(storeId, table.getVersion(), table.getCreated(), maxAge)) {
+			return table;
+		}
+
+		table = new TaxTable(version, taxRateRepository.findByStore(storeId),
+				taxClassRepository.findByCode(TaxClass.DEFAULT_TAX_CLASS));
+		tables.put(storeId, table);
+		return table;
+	}
+
+	/**
+	 * Tax rates or tax classes of the store changed, a null store changes
+	 * the tables of all stores
+	 */
+	public void invalidate(MerchantStore store) {
+		versions.changed(store == null ? null : store.getId());
+	}
+
+}
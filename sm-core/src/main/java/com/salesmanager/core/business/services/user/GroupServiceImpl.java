@@ -18,6 +18,9 @@ public class GroupServiceImpl extends SalesManagerEntityServiceImpl<Integer, Gro
 
   GroupRepository groupRepository;
 
+  @Inject
+  private PrincipalRevisions principalRevisions;
+
 
   @Inject
   public GroupServiceImpl(GroupRepository groupRepository) {
@@ -26,6 +29,18 @@ public class GroupServiceImpl extends SalesManagerEntityServiceImpl<Integer, Gro
 
   }
 
+  @Override
+  public void save(Group group) throws ServiceException {
+    super.save(group);
+    principalRevisions.groupsChanged();
+  }
+
+  @Override
+  public void delete(Group group) throws ServiceException {
+    super.delete(group);
+    principalRevisions.groupsChanged();
+  }
+
 
   @Override
   public List<Group> listGroup(GroupType groupType) throws ServiceException {
@@ -25,6 +25,9 @@ public class PermissionServiceImpl extends
 
 	private PermissionRepository permissionRepository;
 
+	@Inject
+	private PrincipalRevisions principalRevisions;
+
 
 	@Inject
 	public PermissionServiceImpl(PermissionRepository permissionRepository) {
@@ -47,6 +50,18 @@ public class PermissionServiceImpl extends
 	}
 
 
+	@Override
+	public void save(Permission permission) throws ServiceException {
+		super.save(permission);
+		principalRevisions.groupsChanged();
+	}
+
+	@Override
+	public void delete(Permission permission) throws ServiceException {
+		super.delete(permission);
+		principalRevisions.groupsChanged();
+	}
+
 	@Override
 	public void deletePermission(Permission permission) throws ServiceException {
 		permission = this.getById(permission.getId());//Prevents detached entity error
@@ -76,6 +91,7 @@ public class PermissionServiceImpl extends
 		permission = this.getById(permission.getId());//Prevents detached entity error
 	
 		permission.getGroups().remove(group);
+		principalRevisions.groupsChanged();
 		
 
 	}
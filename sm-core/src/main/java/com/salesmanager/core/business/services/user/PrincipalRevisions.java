@@ -0,0 +1,64 @@
+package com.salesmanager.core.business.services.user;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.utils.CacheVersions;
+
+/**
+ * Revision of what an authenticated principal is made of: the user or
+ * customer itself (password, groups) and the groups and permissions shared
+ * by all principals. Caches of authenticated principals compare the
+ * revision they loaded with the current one.
+ */
+@Component("principalRevisions")
+public class PrincipalRevisions {
+
+	public static final String USER = "user";
+	public static final String CUSTOMER = "customer";
+
+	private final AtomicLong sequence = new AtomicLong();
+	private final ConcurrentMap<String, Long> principals = new ConcurrentHashMap<String, Long>();
+	private volatile long groups;
+
+	/**
+	 * Latest revision of any principal, taken before loading a principal.
+	 * The loaded principal is current while its revision is not greater.
+	 */
+	public long current() {
+		return sequence.get();
+	}
+
+	/**
+	 * @param realm USER or CUSTOMER
+	 */
+	public long getRevision(String realm, Long id) {
+		return Math.max(groups, principals.getOrDefault(key(realm, id), 0L));
+	}
+
+	/**
+	 * A user or customer changed
+	 */
+	public void changed(String realm, Long id) {
+		if (id == null) {
+			return;
+		}
+		String key = key(realm, id);
+		CacheVersions.onChange(() -> principals.put(key, sequence.incrementAndGet()));
+	}
+
+	/**
+	 * Groups or permissions changed
+	 */
+	public void groupsChanged() {
+		CacheVersions.onChange(() -> groups = sequence.incrementAndGet());
+	}
+
+	private String key(String realm, Long id) {
+		return realm + "_" + id;
+	}
+
+}
@@ -34,6 +34,9 @@ public class UserServiceImpl extends SalesManagerEntityServiceImpl<Long, User>
   @Autowired
   private PageableUserRepository pageableUserRepository;
 
+  @Autowired
+  private PrincipalRevisions principalRevisions;
+
   @Inject
   public UserServiceImpl(UserRepository userRepository) {
     super(userRepository);
@@ -42,6 +45,12 @@ public class UserServiceImpl extends SalesManagerEntityServiceImpl<Long, User>
   }
 
 
+  @Override
+  public void save(User user) throws ServiceException {
+    super.save(user);
+    principalRevisions.changed(PrincipalRevisions.USER, user.getId());
+  }
+
   @Override
   public User getByUserName(String userName) throws ServiceException {
     return userRepository.findByUserName(userName);
@@ -53,6 +62,7 @@ public class UserServiceImpl extends SalesManagerEntityServiceImpl<Long, User>
   public void delete(User user) throws ServiceException {
     User u = this.getById(user.getId());
     super.delete(u);
+    principalRevisions.changed(PrincipalRevisions.USER, user.getId());
 
   }
 
@@ -78,6 +88,7 @@ public class UserServiceImpl extends SalesManagerEntityServiceImpl<Long, User>
   @Override
   public void saveOrUpdate(User user) throws ServiceException {
     userRepository.save(user);
+    principalRevisions.changed(PrincipalRevisions.USER, user.getId());
   }
 
 
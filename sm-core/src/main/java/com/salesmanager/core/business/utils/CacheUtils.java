@@ -2,111 +2,393 @@ package com.salesmanager.core.business.utils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.Cache;
-import org.springframework.cache.Cache.ValueWrapper;
 import org.springframework.stereotype.Component;
 
+import com.salesmanager.core.business.modules.cache.CacheLoader;
+import com.salesmanager.core.business.modules.cache.CacheStatistics;
+import com.salesmanager.core.business.modules.cache.SharedCacheTier;
+import com.salesmanager.core.business.modules.executor.ManagedExecutor;
+import com.salesmanager.core.business.modules.executor.ManagedExecutor.RejectionPolicy;
 import com.salesmanager.core.model.merchant.MerchantStore;
 
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.event.CacheEventListenerAdapter;
+
+/**
+ * Two level object cache. The local tier is the com.shopizer.OBJECT_CACHE
+ * region (size bounded, LFU), the shared tier is selected with
+ * config.cache.shared and propagates evictions to the other nodes.
+ *
+ * Keys of a store start with <storeId>_, they are indexed per store when
+ * they are put so that store wide eviction does not scan the cache.
+ *
+ * getFromCache(key, loader) loads a missing entry once, concurrent callers
+ * of the same key wait for that load. Entries older than refreshAfter are
+ * still served while a single background refresh replaces them. A key is
+ * refreshed by one task at a time, refreshes are dropped when the
+ * cache-refresh threads and their bounded queue are busy.
+ */
 @Component("cache")
 public class CacheUtils {
-	
-	
+
+
     @Inject
     @Qualifier("serviceCache")
     private Cache cache;
-	
-	
+
+    @Inject
+    @Qualifier("sharedCacheTier")
+    private SharedCacheTier sharedCache;
+
+
 	public final static String REFERENCE_CACHE = "REF";
-	
+
 	private static final Logger LOGGER = LoggerFactory.getLogger(CacheUtils.class);
 
 	private final static String KEY_DELIMITER = "_";
-	
 
+	/** seconds after which an entry read through a loader is refreshed, 0 never **/
+	@Value("${config.cache.refreshAfter:600}")
+	private int refreshAfter = 600;
+
+	private Ehcache localCache;
+
+	/** loads in progress, shared by the callers of a key **/
+	private final ConcurrentMap<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<String, CompletableFuture<Object>>();
+
+	@Value("${config.cache.refresh.threads:2}")
+	private int refreshThreads = 2;
+
+	@Value("${config.cache.refresh.queueSize:100}")
+	private int refreshQueueSize = 100;
+
+	private ManagedExecutor refreshExecutor;
+
+	/** store id -> keys of the store in the local tier **/
+	private final ConcurrentMap<String, Set<String>> storeKeys = new ConcurrentHashMap<String, Set<String>>();
+
+	private final AtomicLong localHits = new AtomicLong();
+	private final AtomicLong sharedHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong puts = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong remoteInvalidations = new AtomicLong();
+	private final AtomicLong loads = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+	private final AtomicLong refreshes = new AtomicLong();
+	private final AtomicLong refreshFailures = new AtomicLong();
+	private final AtomicLong refreshesDropped = new AtomicLong();
+
+
+	@PostConstruct
+	public void init() {
+
+		localCache = (Ehcache) cache.getNativeCache();
+
+		//rejected refreshes are dropped, the stale entry stays until the next read
+		refreshExecutor = new ManagedExecutor("cache-refresh", refreshThreads, refreshQueueSize, RejectionPolicy.ABORT, false);
+
+		//keep the store index in sync with entries leaving the local tier
+		localCache.getCacheEventNotificationService().registerListener(new CacheEventListenerAdapter() {
+			@Override
+			public void notifyElementRemoved(Ehcache c, Element element) throws CacheException {
+				unindex(element.getObjectKey());
+			}
+			@Override
+			public void notifyElementExpired(Ehcache c, Element element) {
+				unindex(element.getObjectKey());
+			}
+			@Override
+			public void notifyElementEvicted(Ehcache c, Element element) {
+				evictions.incrementAndGet();
+				unindex(element.getObjectKey());
+			}
+			@Override
+			public void notifyRemoveAll(Ehcache c) {
+				storeKeys.clear();
+			}
+		});
+
+		sharedCache.setInvalidationListener(new SharedCacheTier.InvalidationListener() {
+			@Override
+			public void invalidate(String key) {
+				remoteInvalidations.incrementAndGet();
+				localCache.remove(key);
+			}
+			@Override
+			public void invalidatePrefix(String prefix) {
+				remoteInvalidations.incrementAndGet();
+				removeLocalStore(prefix.substring(0, prefix.length() - KEY_DELIMITER.length()));
+			}
+		});
+
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if(refreshExecutor!=null) {
+			refreshExecutor.shutdownNow();
+		}
+	}
 
 	public void putInCache(Object object, String keyName) throws Exception {
 
-		cache.put(keyName, object);
-		
+		putInCache(object, keyName, 0);
+
 	}
-	
+
+	/**
+	 * @param ttlSeconds time to live of this entry, 0 uses the cache default
+	 */
+	public void putInCache(Object object, String keyName, int ttlSeconds) throws Exception {
+
+		putLocal(object, keyName, ttlSeconds);
+		sharedCache.put(keyName, object, ttlSeconds);
+		puts.incrementAndGet();
+
+	}
+
 
 	public Object getFromCache(String keyName) throws Exception {
 
-		ValueWrapper vw = cache.get(keyName);
-		if(vw!=null) {
-			return vw.get();
+		Element element = localCache.get(keyName);
+		if(element!=null) {
+			localHits.incrementAndGet();
+			return element.getObjectValue();
+		}
+
+		Object object = sharedCache.get(keyName);
+		if(object!=null) {
+			sharedHits.incrementAndGet();
+			putLocal(object, keyName, 0);
+			return object;
 		}
-		
+
+		misses.incrementAndGet();
 		return null;
-		
+
 	}
-	
+
+	/**
+	 * Cached value or the value computed by loader, loaded once for
+	 * concurrent callers
+	 */
+	public <T> T getFromCache(String keyName, CacheLoader<T> loader) throws Exception {
+		return getFromCache(keyName, refreshAfter, loader);
+	}
+
+	/**
+	 * @param refreshAfterSeconds age after which the value is served stale
+	 * and refreshed in the background, 0 never refreshes
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getFromCache(String keyName, int refreshAfterSeconds, CacheLoader<T> loader) throws Exception {
+
+		Element element = localCache.get(keyName);
+		if(element!=null) {
+			localHits.incrementAndGet();
+			if(refreshAfterSeconds > 0
+					&& System.currentTimeMillis() - element.getLatestOfCreationAndUpdateTime() > refreshAfterSeconds * 1000L) {
+				refresh(keyName, loader);
+			}
+			return (T) element.getObjectValue();
+		}
+
+		Object object = sharedCache.get(keyName);
+		if(object!=null) {
+			sharedHits.incrementAndGet();
+			putLocal(object, keyName, 0);
+			return (T) object;
+		}
+
+		misses.incrementAndGet();
+		CompletableFuture<Object> load = new CompletableFuture<Object>();
+		CompletableFuture<Object> inProgress = loading.putIfAbsent(keyName, load);
+		if(inProgress!=null) {
+			coalesced.incrementAndGet();
+			return (T) await(inProgress);
+		}
+
+		//loaded by another caller since the lookup
+		element = localCache.get(keyName);
+		if(element!=null) {
+			loading.remove(keyName, load);
+			load.complete(element.getObjectValue());
+			return (T) element.getObjectValue();
+		}
+
+		load(keyName, loader, load);
+		return (T) await(load);
+
+	}
+
 	public List<String> getCacheKeys(MerchantStore store) throws Exception {
-		
-		  net.sf.ehcache.Cache cacheImpl = (net.sf.ehcache.Cache) cache.getNativeCache();
-		  List<String> returnKeys = new ArrayList<String>();
-		  for (Object key: cacheImpl.getKeys()) {
-		    
-			  
-				try {
-					String sKey = (String)key;
-					
-					// a key should be <storeId>_<rest of the key>
-					int delimiterPosition = sKey.indexOf(KEY_DELIMITER);
-					
-					if(delimiterPosition>0 && Character.isDigit(sKey.charAt(0))) {
-					
-						String keyRemaining = sKey.substring(delimiterPosition+1);
-						returnKeys.add(keyRemaining);
-					
-					}
-
-				} catch (Exception e) {
-					LOGGER.equals("key " + key + " cannot be converted to a String or parsed");
-				}  
-		  }
+
+		List<String> returnKeys = new ArrayList<String>();
+		Set<String> keys = storeKeys.get(String.valueOf(store.getId()));
+		if(keys!=null) {
+			for(String key : keys) {
+				returnKeys.add(key.substring(key.indexOf(KEY_DELIMITER) + 1));
+			}
+		}
 
 		return returnKeys;
 	}
-	
+
 	public void shutDownCache() throws Exception {
-		
+
 	}
-	
+
 	public void removeFromCache(String keyName) throws Exception {
-		cache.evict(keyName);
+		localCache.remove(keyName);
+		sharedCache.evict(keyName);
 	}
-	
+
 	public void removeAllFromCache(MerchantStore store) throws Exception {
-		  net.sf.ehcache.Cache cacheImpl = (net.sf.ehcache.Cache) cache.getNativeCache();
-		  for (Object key: cacheImpl.getKeys()) {
-				try {
-					String sKey = (String)key;
-					
-					// a key should be <storeId>_<rest of the key>
-					int delimiterPosition = sKey.indexOf(KEY_DELIMITER);
-					
-					if(delimiterPosition>0 && Character.isDigit(sKey.charAt(0))) {
-					
-
-						cache.evict(key);
-					
-					}
-
-				} catch (Exception e) {
-					LOGGER.equals("key " + key + " cannot be converted to a String or parsed");
-				}  
-		  }
-	}
-	
+		String storeId = String.valueOf(store.getId());
+		removeLocalStore(storeId);
+		sharedCache.evictByPrefix(storeId + KEY_DELIMITER);
+	}
+
+	public CacheStatistics getStatistics() {
+		CacheStatistics statistics = new CacheStatistics();
+		statistics.setLocalHits(localHits.get());
+		statistics.setSharedHits(sharedHits.get());
+		statistics.setMisses(misses.get());
+		statistics.setPuts(puts.get());
+		statistics.setEvictions(evictions.get());
+		statistics.setRemoteInvalidations(remoteInvalidations.get());
+		statistics.setLocalSize(localCache.getSize());
+		statistics.setStores(storeKeys.size());
+		statistics.setLoads(loads.get());
+		statistics.setCoalesced(coalesced.get());
+		statistics.setRefreshes(refreshes.get());
+		statistics.setRefreshFailures(refreshFailures.get());
+		statistics.setRefreshesDropped(refreshesDropped.get());
+		return statistics;
+	}
+
+	private void refresh(String keyName, CacheLoader<?> loader) {
+
+		CompletableFuture<Object> load = new CompletableFuture<Object>();
+		if(loading.putIfAbsent(keyName, load)!=null) {
+			return;//already refreshing
+		}
+		try {
+			refreshExecutor.execute(() -> {
+				load(keyName, loader, load);
+				if(load.isCompletedExceptionally()) {
+					refreshFailures.incrementAndGet();
+				}
+			});
+			refreshes.incrementAndGet();
+		} catch(RejectedExecutionException e) {
+			LOGGER.debug("Cache refresh of " + keyName + " dropped, refresh executor saturated");
+			refreshesDropped.incrementAndGet();
+			loading.remove(keyName, load);
+			load.complete(null);
+		}
+	}
+
+	/**
+	 * Runs loader, caches and publishes the value to the waiting callers
+	 */
+	private void load(String keyName, CacheLoader<?> loader, CompletableFuture<Object> load) {
+		try {
+			loads.incrementAndGet();
+			Object object = loader.load();
+			if(object!=null) {
+				putInCache(object, keyName);
+			}
+			load.complete(object);
+		} catch(Exception e) {
+			LOGGER.error("Cannot load cache entry " + keyName, e);
+			load.completeExceptionally(e);
+		} finally {
+			loading.remove(keyName, load);
+		}
+	}
+
+	private Object await(CompletableFuture<Object> load) throws Exception {
+		try {
+			return load.get();
+		} catch(ExecutionException e) {
+			if(e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private void putLocal(Object object, String keyName, int ttlSeconds) {
+		Element element = new Element(keyName, object);
+		if(ttlSeconds > 0) {
+			element.setTimeToLive(ttlSeconds);
+		}
+		localCache.put(element);
+
+		String storeId = storeId(keyName);
+		if(storeId!=null) {
+			storeKeys.computeIfAbsent(storeId, k -> ConcurrentHashMap.newKeySet()).add(keyName);
+		}
+	}
+
+	private void removeLocalStore(String storeId) {
+		Set<String> keys = storeKeys.remove(storeId);
+		if(keys!=null) {
+			for(String key : keys) {
+				localCache.remove(key);
+			}
+		}
+	}
+
+	private void unindex(Object key) {
+		if(!(key instanceof String)) {
+			return;
+		}
+		String storeId = storeId((String)key);
+		if(storeId!=null) {
+			Set<String> keys = storeKeys.get(storeId);
+			if(keys!=null) {
+				keys.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * a key should be <storeId>_<rest of the key>
+	 */
+	private String storeId(String key) {
+		int delimiterPosition = key.indexOf(KEY_DELIMITER);
+		if(delimiterPosition<=0) {
+			return null;
+		}
+		for(int i = 0; i < delimiterPosition; i++) {
+			if(!Character.isDigit(key.charAt(i))) {
+				return null;
+			}
+		}
+		return key.substring(0, delimiterPosition);
+	}
 
 
 }
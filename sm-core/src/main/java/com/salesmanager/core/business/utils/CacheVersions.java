@@ -0,0 +1,70 @@
+package com.salesmanager.core.business.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Versions of what a cache keeps by key (usually a store id). A cached value
+ * is built at a version and replaced on next access once the version of its
+ * key changed or once it is older than the maxAge of the cache.
+ *
+ * A change increments the version at once and again when the transaction
+ * commits: readers may load the previous data until the commit, what they
+ * cache under the intermediate version is replaced. Other instances of a
+ * cluster do not see the change, they reload after maxAge.
+ */
+public class CacheVersions<K> {
+
+	private final ConcurrentMap<K, Long> versions = new ConcurrentHashMap<K, Long>();
+	/** changes of all the keys **/
+	private final AtomicLong all = new AtomicLong();
+
+	/**
+	 * Version to build a value of the key with, taken before loading
+	 */
+	public long get(K key) {
+		return (key == null ? 0L : versions.getOrDefault(key, 0L)) + all.get();
+	}
+
+	/**
+	 * @param created time the value was built
+	 * @return true while the value built at version is current
+	 */
+	public boolean isCurrent(K key, long version, long created, long maxAge) {
+		return version == get(key) && System.currentTimeMillis() - created < maxAge;
+	}
+
+	/**
+	 * What the values of the key are built from changed, a null key changes
+	 * all the keys
+	 */
+	public void changed(K key) {
+		onChange(() -> {
+			if (key == null) {
+				all.incrementAndGet();
+			} else {
+				versions.merge(key, 1L, Long::sum);
+			}
+		});
+	}
+
+	/**
+	 * Runs an increment now and once the current transaction commits
+	 */
+	public static void onChange(Runnable increment) {
+		increment.run();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					increment.run();
+				}
+			});
+		}
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.salesmanager.core.business.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Cursors of keyset pagination, an url safe encoding of the position of the
+ * last row of a page (sortOrder:id for products, id for orders). An empty
+ * cursor starts from the beginning of the list.
+ */
+public class KeysetCursor {
+
+	private static final String SEPARATOR = ":";
+
+	private KeysetCursor() {
+	}
+
+	public static String encode(long... position) {
+		StringBuilder value = new StringBuilder();
+		for (int i = 0; i < position.length; i++) {
+			if (i > 0) {
+				value.append(SEPARATOR);
+			}
+			value.append(position[i]);
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @param length number of values of the position
+	 * @param list name of the list in the error message
+	 * @return the position, null when the cursor is blank
+	 * @throws IllegalArgumentException when the cursor is not a position of
+	 * length values
+	 */
+	public static long[] decode(String cursor, int length, String list) {
+		if (StringUtils.isBlank(cursor)) {
+			return null;
+		}
+		try {
+			String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(SEPARATOR, -1);
+			if (parts.length != length) {
+				throw new IllegalArgumentException("Expected " + length + " values");
+			}
+			long[] position = new long[length];
+			for (int i = 0; i < length; i++) {
+				position[i] = Long.parseLong(parts[i]);
+			}
+			return position;
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid " + list + " cursor [" + cursor + "]", e);
+		}
+	}
+
+}
@@ -104,6 +104,34 @@ public class ProductImageSizeUtils {
 	}
 	
 	
+	/**
+	 * Resize keeping the aspect ratio, large reductions are done in
+	 * successive halving steps which gives a better quality than a
+	 * single bilinear pass. Smaller images are returned as is
+	 * @param image
+	 * @param maxWidth 0 does not limit the width
+	 * @param maxHeight 0 does not limit the height
+	 * @return
+	 */
+	public static BufferedImage resizeProgressive(BufferedImage image, int maxWidth, int maxHeight) {
+
+		if (maxWidth <= 0) {
+			maxWidth = image.getWidth();
+		}
+		if (maxHeight <= 0) {
+			maxHeight = image.getHeight();
+		}
+		if (image.getWidth() <= maxWidth && image.getHeight() <= maxHeight) {
+			return image;
+		}
+
+		float ratio = Math.min((float) maxWidth / image.getWidth(), (float) maxHeight / image.getHeight());
+		int width = Math.max(1, Math.round(image.getWidth() * ratio));
+		int height = Math.max(1, Math.round(image.getHeight() * ratio));
+
+		return resizeWithHint(image, width, height, RenderingHints.VALUE_INTERPOLATION_BILINEAR, true);
+	}
+	
 	public static BufferedImage resizeWithRatio(BufferedImage image, int destinationWidth, int destinationHeight) {
 
             int type = image.getType() == 0? BufferedImage.TYPE_INT_ARGB : image.getType();
@@ -0,0 +1,123 @@
+package com.salesmanager.test.catalog;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.salesmanager.core.business.repositories.catalog.category.CategoryRepository;
+import com.salesmanager.core.business.services.catalog.category.CategoryTree;
+import com.salesmanager.core.business.services.catalog.category.CategoryTreeIndex;
+import com.salesmanager.core.model.catalog.category.Category;
+import com.salesmanager.core.model.merchant.MerchantStore;
+
+/**
+ * Category tree snapshot of a store
+ */
+public class CategoryTreeTest {
+
+	private CategoryRepository repository;
+	private CategoryTreeIndex index;
+	private MerchantStore store;
+
+	@Before
+	public void setUp() {
+
+		store = new MerchantStore();
+		store.setId(1);
+
+		//  1 - 5 - 7
+		//    - 8 (hidden) - 9
+		//  2
+		Category c1 = category(1L, null, 0, true);
+		Category c5 = category(5L, c1, 1, true);
+		Category c7 = category(7L, c5, 0, true);
+		Category c8 = category(8L, c1, 0, false);
+		Category c9 = category(9L, c8, 0, true);
+		Category c2 = category(2L, null, 1, true);
+		List<Category> categories = new ArrayList<Category>(Arrays.asList(c9, c7, c2, c5, c8, c1));
+
+		List<Object[]> counts = new ArrayList<Object[]>();
+		counts.add(new Object[] {1L, 1L});
+		counts.add(new Object[] {5L, 2L});
+		counts.add(new Object[] {7L, 3L});
+		counts.add(new Object[] {9L, 4L});
+
+		repository = mock(CategoryRepository.class);
+		when(repository.findByStore(anyInt())).thenReturn(categories);
+		when(repository.countProductsByStore(anyInt(), any(Date.class))).thenReturn(counts);
+		index = new CategoryTreeIndex();
+		ReflectionTestUtils.setField(index, "categoryRepository", repository);
+	}
+
+	@Test
+	public void testTreeLookups() {
+
+		CategoryTree tree = index.get(store);
+
+		Assert.assertEquals(Arrays.asList(1L, 2L), ids(tree.getRoots()));
+		// by sort order
+		Assert.assertEquals(Arrays.asList(8L, 5L), ids(tree.getChildren(1L)));
+		Assert.assertEquals(Arrays.asList(5L, 7L, 8L, 9L), ids(tree.getDescendants(1L, false)));
+		Assert.assertEquals(Arrays.asList(5L, 7L), ids(tree.getDescendants(1L, true)));
+		Assert.assertEquals(Arrays.asList(1L, 5L), ids(tree.getAncestors(7L)));
+		Assert.assertFalse(tree.isVisible(9L));
+		Assert.assertTrue(tree.isVisible(7L));
+
+		// same results as lineage like %?%
+		Assert.assertEquals(Arrays.asList(5L, 7L), ids(tree.getByLineage("/1/5/")));
+		Assert.assertEquals(Arrays.asList(7L), ids(tree.getByLineage("/5/7/")));
+		Assert.assertEquals(Arrays.asList(5L, 7L, 8L, 9L), ids(tree.getByDepth(1)));
+
+		Assert.assertEquals(3, tree.getProductCount(7L));
+		// hidden category 8 is not rolled up
+		Assert.assertEquals(6, tree.getRolledUpProductCount(1L));
+		Assert.assertEquals(5, tree.getRolledUpProductCount(5L));
+	}
+
+	@Test
+	public void testTreeIsRebuiltWhenCategoriesChange() {
+
+		CategoryTree tree = index.get(store);
+		Assert.assertSame(tree, index.get(store));
+
+		index.invalidateProductCounts(store);
+		CategoryTree counted = index.get(store);
+		Assert.assertNotSame(tree, counted);
+		Assert.assertSame(tree.getCategories(), counted.getCategories());
+		verify(repository, times(1)).findByStore(anyInt());
+
+		index.invalidate(store);
+		Assert.assertNotSame(tree.getCategories(), index.get(store).getCategories());
+		verify(repository, times(2)).findByStore(anyInt());
+	}
+
+	private Category category(Long id, Category parent, int sortOrder, boolean visible) {
+		Category category = new Category();
+		category.setId(id);
+		category.setParent(parent);
+		category.setSortOrder(sortOrder);
+		category.setVisible(visible);
+		category.setDepth(parent == null ? 0 : parent.getDepth() + 1);
+		category.setLineage((parent == null ? "/" : parent.getLineage()) + id + "/");
+		return category;
+	}
+
+	private List<Long> ids(List<Category> categories) {
+		return categories.stream().map(Category::getId).collect(Collectors.toList());
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.salesmanager.test.catalog;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesmanager.core.model.catalog.category.Category;
+import com.salesmanager.core.model.catalog.category.CategoryDescription;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.ProductCriteria;
+import com.salesmanager.core.model.catalog.product.ProductList;
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+import com.salesmanager.core.model.catalog.product.description.ProductDescription;
+import com.salesmanager.core.model.catalog.product.price.ProductPrice;
+import com.salesmanager.core.model.catalog.product.type.ProductType;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.language.Language;
+
+/**
+ * Keyset pages of the product list query
+ */
+public class ProductCursorTest extends com.salesmanager.test.common.AbstractSalesManagerCoreTestCase {
+
+	private static final Date date = new Date(System.currentTimeMillis());
+
+	/** ties and null sort orders, null is positioned as 0 **/
+	private static final Integer[] SORT_ORDERS = { null, 1, 1, 0, 2, null, 1 };
+
+	@Test
+	public void testCursorPagesOverTiesAndNullSortOrders() throws Exception {
+
+		Language en = languageService.getByCode("en");
+		MerchantStore store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		ProductType generalType = productTypeService.getProductType(ProductType.GENERAL_TYPE);
+
+		Category paged = new Category();
+		paged.setMerchantStore(store);
+		paged.setCode("paged");
+
+		CategoryDescription pagedDescription = new CategoryDescription();
+		pagedDescription.setName("Paged");
+		pagedDescription.setCategory(paged);
+		pagedDescription.setLanguage(en);
+
+		Set<CategoryDescription> descriptions = new HashSet<CategoryDescription>();
+		descriptions.add(pagedDescription);
+		paged.setDescriptions(descriptions);
+
+		categoryService.create(paged);
+
+		final List<Product> created = new ArrayList<Product>();
+		for (int i = 0; i < SORT_ORDERS.length; i++) {
+			Product product = product(store, en, generalType, paged, "PAGED" + i, SORT_ORDERS[i]);
+			productService.create(product);
+			created.add(product);
+		}
+
+		Collections.sort(created, Comparator
+				.comparingInt((Product p) -> p.getSortOrder() == null ? 0 : p.getSortOrder())
+				.thenComparing(Product::getId));
+		List<Long> expected = new ArrayList<Long>();
+		for (Product product : created) {
+			expected.add(product.getId());
+		}
+
+		for (int pageSize = 1; pageSize <= expected.size() + 1; pageSize++) {
+
+			List<Long> read = new ArrayList<Long>();
+			int pages = 0;
+			String cursor = "";
+			do {
+				ProductCriteria criteria = new ProductCriteria();
+				criteria.setLanguage("en");
+				criteria.setCategoryIds(Collections.singletonList(paged.getId()));
+				criteria.setMaxCount(pageSize);
+				criteria.setCursor(cursor);
+
+				ProductList page = productService.listByStore(store, en, criteria);
+				if (pages == 0) {
+					Assert.assertEquals(expected.size(), page.getTotalCount());
+				}
+				for (Product product : page.getProducts()) {
+					read.add(product.getId());
+				}
+				cursor = page.getNextCursor();
+				pages++;
+			} while (cursor != null);
+
+			Assert.assertEquals("page size " + pageSize, expected, read);
+			// a full last page does not announce an empty page
+			Assert.assertEquals("page size " + pageSize, (expected.size() + pageSize - 1) / pageSize, pages);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMalformedCursorIsRejected() throws Exception {
+
+		Language en = languageService.getByCode("en");
+		MerchantStore store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+
+		ProductCriteria criteria = new ProductCriteria();
+		criteria.setLanguage("en");
+		criteria.setMaxCount(2);
+		criteria.setCursor("not-a-cursor");
+
+		productService.listByStore(store, en, criteria);
+	}
+
+	private Product product(MerchantStore store, Language en, ProductType type, Category category, String sku,
+			Integer sortOrder) {
+
+		Product product = new Product();
+		product.setSku(sku);
+		product.setType(type);
+		product.setMerchantStore(store);
+		product.setSortOrder(sortOrder);
+		product.getCategories().add(category);
+
+		ProductDescription description = new ProductDescription();
+		description.setName(sku);
+		description.setLanguage(en);
+		description.setProduct(product);
+		product.getDescriptions().add(description);
+
+		ProductAvailability availability = new ProductAvailability();
+		availability.setProductDateAvailable(date);
+		availability.setProductQuantity(100);
+		availability.setRegion("*");
+		availability.setProduct(product);
+		product.getAvailabilities().add(availability);
+
+		ProductPrice price = new ProductPrice();
+		price.setDefaultPrice(true);
+		price.setProductPriceAmount(new BigDecimal(10));
+		price.setProductAvailability(availability);
+		availability.getPrices().add(price);
+
+		return product;
+	}
+
+}
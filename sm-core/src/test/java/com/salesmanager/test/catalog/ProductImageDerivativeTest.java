@@ -0,0 +1,208 @@
+package com.salesmanager.test.catalog;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ContentResource;
+import com.salesmanager.core.business.modules.cms.product.ProductFileManagerImpl;
+import com.salesmanager.core.business.modules.cms.product.ProductImageDerivativeJob;
+import com.salesmanager.core.business.modules.cms.product.ProductImageDerivativePipeline;
+import com.salesmanager.core.business.modules.cms.product.ProductImageGet;
+import com.salesmanager.core.business.modules.cms.product.ProductImagePut;
+import com.salesmanager.core.business.modules.executor.ManagedExecutor;
+import com.salesmanager.core.business.modules.executor.ManagedExecutor.RejectionPolicy;
+import com.salesmanager.core.business.modules.executor.ManagedExecutors;
+import com.salesmanager.core.business.utils.CoreConfiguration;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.file.ProductImageSize;
+import com.salesmanager.core.model.catalog.product.image.ProductImage;
+import com.salesmanager.core.model.content.FileContentType;
+import com.salesmanager.core.model.content.ImageContentFile;
+import com.salesmanager.core.model.content.OutputContentFile;
+import com.salesmanager.core.model.merchant.MerchantStore;
+
+/**
+ * Background creation of product image derivatives
+ */
+public class ProductImageDerivativeTest {
+
+	private final MemoryImages images = new MemoryImages();
+	private ManagedExecutor executor;
+	private ProductImageDerivativePipeline pipeline;
+	private ProductFileManagerImpl fileManager;
+
+	@Before
+	public void setUp() {
+		executor = new ManagedExecutor(ManagedExecutors.IMAGES, 1, 10, RejectionPolicy.CALLER_RUNS, false);
+		pipeline = new ProductImageDerivativePipeline();
+		pipeline.setExecutor(executor);
+		pipeline.start();
+
+		Properties properties = new Properties();
+		properties.setProperty("PRODUCT_IMAGE_WIDTH_SIZE", "350");
+		properties.setProperty("PRODUCT_IMAGE_HEIGHT_SIZE", "350");
+		properties.setProperty("PRODUCT_IMAGE_LARGE_WIDTH_SIZE", "1000");
+		properties.setProperty("PRODUCT_IMAGE_LARGE_HEIGHT_SIZE", "0");
+		CoreConfiguration configuration = new CoreConfiguration();
+		configuration.setProperties(properties);
+
+		fileManager = new ProductFileManagerImpl();
+		fileManager.setConfiguration(configuration);
+		fileManager.setUploadImage(images);
+		fileManager.setGetImage(images);
+		fileManager.setDerivativePipeline(pipeline);
+	}
+
+	@After
+	public void tearDown() {
+		executor.drain(10);
+	}
+
+	@Test
+	public void testDerivativesAreCreatedInBackground() throws Exception {
+
+		// keeps the single worker busy
+		CountDownLatch release = new CountDownLatch(1);
+		pipeline.submit("DEFAULT", "OTHER", "other.png", () -> release.await(10, TimeUnit.SECONDS));
+
+		ProductImage productImage = productImage("image.png");
+		fileManager.addProductImage(productImage, upload("image.png", 2000, 1000));
+
+		// original stored during the upload, served for the small size
+		Assert.assertTrue(pipeline.isPending("DEFAULT", "TB12345", "image.png"));
+		Assert.assertEquals(2000, width(images.get(ProductImageSize.LARGE, "image.png")));
+		ContentResource pending = fileManager.getProductImageResource("DEFAULT", "TB12345", "image.png", ProductImageSize.SMALL);
+		Assert.assertNotNull(pending);
+		Assert.assertEquals(images.get(ProductImageSize.LARGE, "image.png").length, pending.getLength());
+
+		release.countDown();
+		ProductImageDerivativeJob job = await("image.png");
+		Assert.assertEquals(ProductImageDerivativeJob.Status.DONE, job.getStatus());
+
+		Assert.assertEquals(1000, width(images.get(ProductImageSize.LARGE, "image.png")));
+		Assert.assertEquals(350, width(images.get(ProductImageSize.SMALL, "image.png")));
+	}
+
+	@Test
+	public void testInvalidImageIsRejectedDuringUpload() throws Exception {
+
+		ImageContentFile upload = new ImageContentFile();
+		upload.setFileName("image.png");
+		upload.setFile(new ByteArrayInputStream("not an image".getBytes("UTF-8")));
+
+		try {
+			fileManager.addProductImage(productImage("image.png"), upload);
+			Assert.fail("Invalid image accepted");
+		} catch (ServiceException e) {
+			// expected
+		}
+		Assert.assertNull(pipeline.getJob("DEFAULT", "TB12345", "image.png"));
+		Assert.assertNull(images.get(ProductImageSize.LARGE, "image.png"));
+	}
+
+	private ProductImageDerivativeJob await(String imageName) throws InterruptedException {
+		long limit = System.currentTimeMillis() + 10000;
+		while (pipeline.isPending("DEFAULT", "TB12345", imageName) && System.currentTimeMillis() < limit) {
+			Thread.sleep(20);
+		}
+		return pipeline.getJob("DEFAULT", "TB12345", imageName);
+	}
+
+	private ProductImage productImage(String name) {
+		MerchantStore store = new MerchantStore();
+		store.setCode("DEFAULT");
+		Product product = new Product();
+		product.setId(1L);
+		product.setSku("TB12345");
+		product.setMerchantStore(store);
+		ProductImage productImage = new ProductImage();
+		productImage.setProductImage(name);
+		productImage.setProduct(product);
+		return productImage;
+	}
+
+	private ImageContentFile upload(String name, int width, int height) throws Exception {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		ImageContentFile upload = new ImageContentFile();
+		upload.setFileName(name);
+		upload.setFile(new ByteArrayInputStream(out.toByteArray()));
+		return upload;
+	}
+
+	private int width(byte[] image) throws Exception {
+		return ImageIO.read(new ByteArrayInputStream(image)).getWidth();
+	}
+
+	/**
+	 * CMS backend keeping images in memory
+	 */
+	private static class MemoryImages implements ProductImagePut, ProductImageGet {
+
+		private final Map<String, byte[]> files = new ConcurrentHashMap<String, byte[]>();
+
+		byte[] get(ProductImageSize size, String name) {
+			return files.get(size.name() + "/" + name);
+		}
+
+		@Override
+		public void addProductImage(ProductImage productImage, ImageContentFile contentImage) throws ServiceException {
+			ProductImageSize size = contentImage.getFileContentType() == FileContentType.PRODUCTLG ? ProductImageSize.LARGE : ProductImageSize.SMALL;
+			try {
+				files.put(size.name() + "/" + contentImage.getFileName(), IOUtils.toByteArray(contentImage.getFile()));
+			} catch (Exception e) {
+				throw new ServiceException(e);
+			}
+		}
+
+		@Override
+		public ContentResource getProductImageResource(String merchantStoreCode, String productCode, String imageName,
+				ProductImageSize size) throws ServiceException {
+			return ContentResource.fromBytes(imageName, get(size, imageName));
+		}
+
+		@Override
+		public OutputContentFile getProductImage(String merchantStoreCode, String productCode, String imageName) {
+			return null;
+		}
+
+		@Override
+		public OutputContentFile getProductImage(String merchantStoreCode, String productCode, String imageName,
+				ProductImageSize size) {
+			return null;
+		}
+
+		@Override
+		public OutputContentFile getProductImage(ProductImage productImage) {
+			return null;
+		}
+
+		@Override
+		public List<OutputContentFile> getImages(Product product) {
+			return null;
+		}
+
+		@Override
+		public List<OutputContentFile> getImages(String merchantStoreCode, FileContentType imageContentType) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,361 @@
+package com.salesmanager.test.catalog;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.salesmanager.core.business.repositories.catalog.product.ProductRepository;
+import com.salesmanager.core.business.services.catalog.product.PricingService;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductFacet;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductListing;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductListingList;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductReadModel;
+import com.salesmanager.core.model.catalog.category.Category;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.ProductCriteria;
+import com.salesmanager.core.model.catalog.product.attribute.ProductAttribute;
+import com.salesmanager.core.model.catalog.product.attribute.ProductOption;
+import com.salesmanager.core.model.catalog.product.attribute.ProductOptionDescription;
+import com.salesmanager.core.model.catalog.product.attribute.ProductOptionValue;
+import com.salesmanager.core.model.catalog.product.attribute.ProductOptionValueDescription;
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+import com.salesmanager.core.model.catalog.product.description.ProductDescription;
+import com.salesmanager.core.model.catalog.product.price.FinalPrice;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.language.Language;
+
+/**
+ * Product lists served from the product listings of a store
+ */
+public class ProductReadModelTest {
+
+	private ProductRepository repository;
+	private ProductReadModel readModel;
+	private MerchantStore store;
+	private Language en;
+	private Map<Long, Product> products;
+
+	@Before
+	public void setUp() throws Exception {
+
+		store = new MerchantStore();
+		store.setId(1);
+		en = new Language("en");
+		en.setId(1);
+
+		products = new LinkedHashMap<Long, Product>();
+		add(product(1L, 2, "Red table", 10L, true));
+		add(product(2L, 1, "Blue chair", 10L, true));
+		add(product(3L, 1, "Red chair", 20L, false));
+		add(product(4L, 3, "Lamp", 20L, true));
+
+		repository = mock(ProductRepository.class);
+		when(repository.findIdsByStore(anyInt())).thenAnswer(i -> new ArrayList<Long>(products.keySet()));
+		when(repository.getByIds(anySet())).thenAnswer(i -> {
+			Set<Long> ids = i.getArgument(0);
+			return products.values().stream().filter(p -> ids.contains(p.getId())).collect(Collectors.toList());
+		});
+
+		PricingService pricingService = mock(PricingService.class);
+		when(pricingService.calculateProductPrice(any(Product.class))).thenAnswer(i -> {
+			Product p = i.getArgument(0);
+			FinalPrice price = new FinalPrice();
+			price.setFinalPrice(new BigDecimal(p.getId() * 10));
+			price.setOriginalPrice(new BigDecimal(p.getId() * 10));
+			return price;
+		});
+
+		readModel = new ProductReadModel();
+		ReflectionTestUtils.setField(readModel, "productRepository", repository);
+		ReflectionTestUtils.setField(readModel, "pricingService", pricingService);
+		ReflectionTestUtils.setField(readModel, "transactionManager", mock(PlatformTransactionManager.class));
+		ReflectionTestUtils.setField(readModel, "em", mock(EntityManager.class));
+	}
+
+	@Test
+	public void testListsAreFilteredAndPaged() {
+
+		// sort order then id
+		Assert.assertEquals(Arrays.asList(2L, 3L, 1L, 4L), ids(readModel.list(store)));
+
+		ProductCriteria criteria = criteria();
+		criteria.setCategoryIds(Collections.singletonList(10L));
+		Assert.assertEquals(Arrays.asList(2L, 1L), ids(readModel.list(store, en, criteria).getListings()));
+
+		criteria = criteria();
+		criteria.setProductName("RED");
+		Assert.assertEquals(Arrays.asList(3L, 1L), ids(readModel.list(store, en, criteria).getListings()));
+
+		criteria = criteria();
+		criteria.setAvailable(true);
+		ProductListingList available = readModel.list(store, en, criteria);
+		Assert.assertEquals(3, available.getTotalCount());
+		Assert.assertEquals(Arrays.asList(2L, 1L, 4L), ids(available.getListings()));
+
+		criteria = criteria();
+		criteria.setStartIndex(1);
+		criteria.setMaxCount(2);
+		Assert.assertEquals(Arrays.asList(3L, 1L), ids(readModel.list(store, en, criteria).getListings()));
+
+		ProductListing listing = readModel.get(store, 4L);
+		Assert.assertEquals(new BigDecimal(40), listing.getFinalPrice());
+		Assert.assertEquals("Lamp", listing.getDescription(1).getName());
+		Assert.assertTrue(listing.isCanBePurchased());
+	}
+
+	@Test
+	public void testCursorPages() {
+
+		List<Long> read = new ArrayList<Long>();
+		String cursor = "";
+		do {
+			ProductCriteria criteria = criteria();
+			criteria.setMaxCount(3);
+			criteria.setCursor(cursor);
+			ProductListingList page = readModel.list(store, en, criteria);
+			read.addAll(ids(page.getListings()));
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		Assert.assertEquals(Arrays.asList(2L, 3L, 1L, 4L), read);
+	}
+
+	@Test
+	public void testCursorPagesOverTiesAndNullSortOrders() {
+
+		Product unsorted = product(5L, 0, "Shelf", 10L, true);
+		unsorted.setSortOrder(null);
+		add(unsorted);
+		add(product(6L, 1, "Green chair", 10L, true));
+		Product other = product(7L, 0, "Rug", 20L, true);
+		other.setSortOrder(null);
+		add(other);
+
+		// null sort orders first, as 0, ties by id
+		List<Long> expected = Arrays.asList(5L, 7L, 2L, 3L, 6L, 1L, 4L);
+
+		for (int pageSize = 1; pageSize <= expected.size() + 1; pageSize++) {
+			List<Long> read = new ArrayList<Long>();
+			int pages = 0;
+			String cursor = "";
+			do {
+				ProductCriteria criteria = criteria();
+				criteria.setMaxCount(pageSize);
+				criteria.setCursor(cursor);
+				ProductListingList page = readModel.list(store, en, criteria);
+				read.addAll(ids(page.getListings()));
+				cursor = page.getNextCursor();
+				pages++;
+			} while (cursor != null);
+
+			Assert.assertEquals("page size " + pageSize, expected, read);
+			// no empty page after a full last page
+			Assert.assertEquals("page size " + pageSize, (expected.size() + pageSize - 1) / pageSize, pages);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMalformedCursorIsRejected() {
+
+		ProductCriteria criteria = criteria();
+		criteria.setMaxCount(2);
+		criteria.setCursor("not-a-cursor");
+		readModel.list(store, en, criteria);
+	}
+
+	@Test
+	public void testChangedProductsAreReloaded() {
+
+		readModel.list(store);
+
+		// product 4 renamed, product 2 removed, product 5 created
+		products.get(4L).getDescriptions().iterator().next().setName("Desk lamp");
+		products.remove(2L);
+		add(product(5L, 0, "Stool", 10L, true));
+		readModel.changed(store, Arrays.asList(2L, 4L, 5L));
+
+		Assert.assertEquals(Arrays.asList(5L, 3L, 1L, 4L), ids(readModel.list(store)));
+		Assert.assertEquals("Desk lamp", readModel.get(store, 4L).getDescription(1).getName());
+		// the store is loaded once, changed products are loaded by id
+		verify(repository, times(1)).findIdsByStore(anyInt());
+
+		readModel.invalidate(store);
+		readModel.list(store);
+		verify(repository, times(2)).findIdsByStore(anyInt());
+	}
+
+	@Test
+	public void testPreviousListingsAreServedWhileReloading() throws Exception {
+
+		readModel.list(store);
+
+		CountDownLatch reloading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(repository.findIdsByStore(anyInt())).thenAnswer(i -> {
+			reloading.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			return new ArrayList<Long>(products.keySet());
+		});
+		products.remove(2L);
+		readModel.invalidate(store);
+
+		ExecutorService reader = Executors.newSingleThreadExecutor();
+		try {
+			Future<List<ProductListing>> reloaded = reader.submit(() -> readModel.list(store));
+			Assert.assertTrue(reloading.await(10, TimeUnit.SECONDS));
+
+			// served without waiting for the reload
+			Assert.assertEquals(Arrays.asList(2L, 3L, 1L, 4L), ids(readModel.list(store)));
+
+			release.countDown();
+			Assert.assertEquals(Arrays.asList(3L, 1L, 4L), ids(reloaded.get(10, TimeUnit.SECONDS)));
+			Assert.assertEquals(Arrays.asList(3L, 1L, 4L), ids(readModel.list(store)));
+		} finally {
+			release.countDown();
+			reader.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testFacetsCountProductsOfTheSelection() {
+
+		ProductOption color = option(1L, "color", "Color");
+		ProductOption size = option(2L, "size", "Size");
+		ProductOptionValue red = value(101L, "red", "Red");
+		ProductOptionValue blue = value(102L, "blue", "Blue");
+		ProductOptionValue large = value(201L, "large", "Large");
+		ProductOptionValue small = value(202L, "small", "Small");
+		attribute(products.get(1L), color, red);
+		attribute(products.get(1L), size, large);
+		attribute(products.get(2L), color, blue);
+		attribute(products.get(2L), size, small);
+		attribute(products.get(3L), color, red);
+		attribute(products.get(3L), size, small);
+
+		List<ProductFacet> facets = readModel.facets(store, en, Arrays.asList(10L, 20L), null);
+		Assert.assertEquals(2, facets.size());
+		Assert.assertEquals("Color", facets.get(0).getName());
+		Assert.assertEquals("{Blue=1, Red=2}", counts(facets.get(0)));
+		Assert.assertEquals("{Large=1, Small=2}", counts(facets.get(1)));
+
+		// the other colors keep their count, sizes are counted on red products
+		facets = readModel.facets(store, en, Arrays.asList(10L, 20L), Collections.singletonList(101L));
+		Assert.assertEquals("{Blue=1, Red=2}", counts(facets.get(0)));
+		Assert.assertTrue(facets.get(0).getValues().get(1).isSelected());
+		Assert.assertEquals("{Large=1, Small=1}", counts(facets.get(1)));
+
+		facets = readModel.facets(store, en, Collections.singletonList(10L), Collections.singletonList(101L));
+		Assert.assertEquals("{Blue=1, Red=1}", counts(facets.get(0)));
+		Assert.assertEquals("{Large=1, Small=0}", counts(facets.get(1)));
+	}
+
+	private ProductCriteria criteria() {
+		ProductCriteria criteria = new ProductCriteria();
+		criteria.setLanguage("en");
+		return criteria;
+	}
+
+	private void add(Product product) {
+		products.put(product.getId(), product);
+	}
+
+	private Product product(Long id, int sortOrder, String name, Long categoryId, boolean available) {
+		Product product = new Product();
+		product.setId(id);
+		product.setSku("SKU" + id);
+		product.setSortOrder(sortOrder);
+		product.setAvailable(available);
+		product.setDateAvailable(new Date(0));
+		product.setMerchantStore(store);
+
+		ProductDescription description = new ProductDescription();
+		description.setLanguage(en);
+		description.setName(name);
+		description.setProduct(product);
+		product.getDescriptions().add(description);
+
+		ProductAvailability availability = new ProductAvailability();
+		availability.setProductQuantity(5);
+		availability.setProduct(product);
+		product.getAvailabilities().add(availability);
+
+		Category category = new Category();
+		category.setId(categoryId);
+		product.getCategories().add(category);
+		return product;
+	}
+
+	private ProductOption option(Long id, String code, String name) {
+		ProductOption option = new ProductOption();
+		option.setId(id);
+		option.setCode(code);
+		ProductOptionDescription description = new ProductOptionDescription();
+		description.setLanguage(en);
+		description.setName(name);
+		description.setProductOption(option);
+		option.getDescriptions().add(description);
+		return option;
+	}
+
+	private ProductOptionValue value(Long id, String code, String name) {
+		ProductOptionValue value = new ProductOptionValue();
+		value.setId(id);
+		value.setCode(code);
+		ProductOptionValueDescription description = new ProductOptionValueDescription();
+		description.setLanguage(en);
+		description.setName(name);
+		description.setProductOptionValue(value);
+		value.getDescriptions().add(description);
+		return value;
+	}
+
+	private void attribute(Product product, ProductOption option, ProductOptionValue value) {
+		ProductAttribute attribute = new ProductAttribute();
+		attribute.setId(product.getId() * 1000 + value.getId());
+		attribute.setProduct(product);
+		attribute.setProductOption(option);
+		attribute.setProductOptionValue(value);
+		product.getAttributes().add(attribute);
+	}
+
+	private String counts(ProductFacet facet) {
+		Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+		for (ProductFacet.Value value : facet.getValues()) {
+			counts.put(value.getName(), value.getCount());
+		}
+		return counts.toString();
+	}
+
+	private List<Long> ids(List<ProductListing> listings) {
+		return listings.stream().map(ProductListing::getId).collect(Collectors.toList());
+	}
+
+}
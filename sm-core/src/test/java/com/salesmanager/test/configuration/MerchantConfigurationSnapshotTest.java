@@ -0,0 +1,105 @@
+package com.salesmanager.test.configuration;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.salesmanager.core.business.repositories.system.MerchantConfigurationRepository;
+import com.salesmanager.core.business.services.system.MerchantConfigurationServiceImpl;
+import com.salesmanager.core.business.services.system.MerchantConfigurationSnapshot;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.system.MerchantConfiguration;
+import com.salesmanager.core.model.system.MerchantConfigurationType;
+import com.salesmanager.core.modules.utils.Encryption;
+
+/**
+ * Merchant configuration of a store served from a snapshot
+ */
+public class MerchantConfigurationSnapshotTest {
+
+	private MerchantConfigurationRepository repository;
+	private MerchantConfigurationServiceImpl service;
+	private MerchantStore store;
+
+	@Before
+	public void setUp() {
+
+		store = new MerchantStore();
+		store.setId(1);
+		store.setCode(MerchantStore.DEFAULT_STORE);
+
+		MerchantConfiguration configuration = new MerchantConfiguration();
+		configuration.setMerchantStore(store);
+		configuration.setKey(MerchantConfigurationType.CONFIG.name());
+		configuration.setMerchantConfigurationType(MerchantConfigurationType.CONFIG);
+		configuration.setValue("{\"displayContactUs\":true}");
+
+		repository = mock(MerchantConfigurationRepository.class);
+		List<MerchantConfiguration> configurations = Collections.singletonList(configuration);
+		when(repository.findByMerchantStore(1)).thenReturn(configurations);
+		service = new MerchantConfigurationServiceImpl(repository);
+		ReflectionTestUtils.setField(service, "encryption", mock(Encryption.class));
+	}
+
+	@After
+	public void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	public void testSnapshotIsSharedUntilTheConfigurationChanges() throws Exception {
+
+		MerchantConfigurationSnapshot snapshot = service.getSnapshot(store);
+		Assert.assertSame(snapshot, service.getSnapshot(store));
+		Assert.assertTrue(snapshot.getMerchantConfig().isDisplayContactUs());
+		Assert.assertSame(snapshot.getMerchantConfig(), service.getSnapshot(store).getMerchantConfig());
+		verify(repository, times(1)).findByMerchantStore(1);
+
+		service.invalidate(store);
+		Assert.assertNotSame(snapshot, service.getSnapshot(store));
+		verify(repository, times(2)).findByMerchantStore(1);
+
+		ReflectionTestUtils.setField(service, "snapshotMaxAge", 0L);
+		service.getSnapshot(store);
+		verify(repository, times(3)).findByMerchantStore(1);
+	}
+
+	@Test
+	public void testSnapshotLoadedBeforeTheCommitIsReplaced() throws Exception {
+
+		service.getSnapshot(store);
+
+		TransactionSynchronizationManager.initSynchronization();
+		service.invalidate(store);
+
+		// a reader of the previous configuration until the commit
+		MerchantConfigurationSnapshot uncommitted = service.getSnapshot(store);
+		Assert.assertSame(uncommitted, service.getSnapshot(store));
+		verify(repository, times(2)).findByMerchantStore(1);
+
+		for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+			synchronization.afterCommit();
+		}
+		TransactionSynchronizationManager.clearSynchronization();
+
+		MerchantConfigurationSnapshot committed = service.getSnapshot(store);
+		Assert.assertNotSame(uncommitted, committed);
+		Assert.assertSame(committed, service.getSnapshot(store));
+		verify(repository, times(3)).findByMerchantStore(1);
+	}
+
+}
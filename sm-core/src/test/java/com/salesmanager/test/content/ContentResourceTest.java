@@ -0,0 +1,86 @@
+package com.salesmanager.test.content;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.salesmanager.core.business.modules.cms.common.ContentBufferCache;
+import com.salesmanager.core.business.modules.cms.common.ContentResource;
+
+/**
+ * Streaming of CMS contents and the direct buffer cache
+ */
+public class ContentResourceTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testFileRegionIsTransferred() throws Exception {
+
+		Path path = folder.newFile("image.png").toPath();
+		Files.write(path, "0123456789".getBytes(StandardCharsets.UTF_8));
+
+		ContentResource resource = ContentResource.fromPath(path);
+		Assert.assertEquals(10, resource.getLength());
+		Assert.assertEquals("image/png", resource.getMimeType());
+		Assert.assertTrue(resource.getLastModified() > 0);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		resource.transferTo(2, 5, Channels.newChannel(out));
+		Assert.assertEquals("23456", out.toString("UTF-8"));
+
+		Assert.assertNull(ContentResource.fromPath(folder.getRoot().toPath().resolve("missing.png")));
+	}
+
+	@Test
+	public void testEtagChangesWithContent() throws Exception {
+
+		ContentResource first = ContentResource.fromBytes("logo.png", "abc".getBytes(StandardCharsets.UTF_8));
+		ContentResource same = ContentResource.fromBytes("logo.png", "abc".getBytes(StandardCharsets.UTF_8));
+		ContentResource changed = ContentResource.fromBytes("logo.png", "abd".getBytes(StandardCharsets.UTF_8));
+
+		Assert.assertEquals(first.getEtag(), same.getEtag());
+		Assert.assertNotEquals(first.getEtag(), changed.getEtag());
+
+		ContentResource direct = first.toDirect();
+		Assert.assertTrue(direct.isDirect());
+		Assert.assertEquals(first.getEtag(), direct.getEtag());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		direct.transferTo(0, direct.getLength(), Channels.newChannel(out));
+		Assert.assertEquals("abc", out.toString("UTF-8"));
+	}
+
+	@Test
+	public void testBufferCacheEvictsLeastRecentlyUsed() throws Exception {
+
+		ContentBufferCache cache = new ContentBufferCache();
+		cache.setMaxSize(20);
+		cache.setMaxEntrySize(10);
+
+		cache.put("product/DEFAULT/A/SMALL/1.png", ContentResource.fromBytes("1.png", new byte[8]));
+		cache.put("product/DEFAULT/B/SMALL/2.png", ContentResource.fromBytes("2.png", new byte[8]));
+		cache.put("product/DEFAULT/B/SMALL/big.png", ContentResource.fromBytes("big.png", new byte[11]));
+		Assert.assertEquals(2, cache.getEntries());
+
+		// 1.png becomes the most recently used
+		Assert.assertNotNull(cache.get("product/DEFAULT/A/SMALL/1.png"));
+		cache.put("product/DEFAULT/C/SMALL/3.png", ContentResource.fromBytes("3.png", new byte[8]));
+
+		Assert.assertNull(cache.get("product/DEFAULT/B/SMALL/2.png"));
+		Assert.assertTrue(cache.get("product/DEFAULT/A/SMALL/1.png").isDirect());
+		Assert.assertEquals(16, cache.getSize());
+
+		cache.evictByPrefix("product/DEFAULT/A/");
+		Assert.assertNull(cache.get("product/DEFAULT/A/SMALL/1.png"));
+		Assert.assertEquals(8, cache.getSize());
+	}
+
+}
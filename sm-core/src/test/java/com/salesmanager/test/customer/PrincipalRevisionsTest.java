@@ -0,0 +1,56 @@
+package com.salesmanager.test.customer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.salesmanager.core.business.services.user.PrincipalRevisions;
+
+/**
+ * Cached principals are reloaded when a user, a customer or the groups change
+ */
+public class PrincipalRevisionsTest {
+
+	@Test
+	public void testPrincipalIsStaleAfterChange() {
+
+		PrincipalRevisions revisions = new PrincipalRevisions();
+
+		long loaded = revisions.current();
+		Assert.assertTrue(revisions.getRevision(PrincipalRevisions.USER, 1L) <= loaded);
+
+		revisions.changed(PrincipalRevisions.USER, 1L);
+		Assert.assertTrue(revisions.getRevision(PrincipalRevisions.USER, 1L) > loaded);
+		// other principals and realms are still current
+		Assert.assertTrue(revisions.getRevision(PrincipalRevisions.USER, 2L) <= loaded);
+		Assert.assertTrue(revisions.getRevision(PrincipalRevisions.CUSTOMER, 1L) <= loaded);
+
+		loaded = revisions.current();
+		revisions.groupsChanged();
+		Assert.assertTrue(revisions.getRevision(PrincipalRevisions.USER, 2L) > loaded);
+		Assert.assertTrue(revisions.getRevision(PrincipalRevisions.CUSTOMER, 1L) > loaded);
+	}
+
+	@Test
+	public void testPrincipalLoadedDuringTransactionIsStaleAfterCommit() {
+
+		PrincipalRevisions revisions = new PrincipalRevisions();
+
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			revisions.changed(PrincipalRevisions.CUSTOMER, 5L);
+			// loaded by another request before the change is committed
+			long loaded = revisions.current();
+			Assert.assertTrue(revisions.getRevision(PrincipalRevisions.CUSTOMER, 5L) <= loaded);
+
+			for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+				synchronization.afterCommit();
+			}
+			Assert.assertTrue(revisions.getRevision(PrincipalRevisions.CUSTOMER, 5L) > loaded);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+}
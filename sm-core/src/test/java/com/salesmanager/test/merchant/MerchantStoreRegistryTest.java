@@ -0,0 +1,88 @@
+package com.salesmanager.test.merchant;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.salesmanager.core.business.repositories.merchant.MerchantRepository;
+import com.salesmanager.core.business.services.merchant.MerchantStoreRegistry;
+import com.salesmanager.core.model.merchant.MerchantStore;
+
+/**
+ * Merchant stores resolved from memory
+ */
+public class MerchantStoreRegistryTest {
+
+	private MerchantRepository repository;
+	private MerchantStoreRegistry registry;
+
+	@Before
+	public void setUp() {
+
+		MerchantStore retailer = store(1, "DEFAULT", null);
+		MerchantStore child2 = store(3, "CHILD2", retailer);
+		MerchantStore child1 = store(2, "CHILD1", retailer);
+		MerchantStore other = store(4, "OTHER", null);
+
+		repository = mock(MerchantRepository.class);
+		when(repository.findAllWithReferences()).thenReturn(Arrays.asList(child2, other, retailer, child1));
+		registry = new MerchantStoreRegistry();
+		ReflectionTestUtils.setField(registry, "merchantRepository", repository);
+		ReflectionTestUtils.setField(registry, "transactionManager", mock(PlatformTransactionManager.class));
+	}
+
+	@Test
+	public void testStoresAreResolvedFromMemory() {
+
+		Assert.assertEquals(Integer.valueOf(2), registry.getByCode("CHILD1").getId());
+		Assert.assertEquals("CHILD2", registry.getById(3).getCode());
+		Assert.assertNull(registry.getByCode("NONE"));
+
+		Assert.assertEquals("DEFAULT", registry.getParent("CHILD1").getCode());
+		Assert.assertEquals("OTHER", registry.getParent("OTHER").getCode());
+		Assert.assertEquals(Arrays.asList("CHILD1", "CHILD2"), codes(registry.getChildren("DEFAULT")));
+		Assert.assertTrue(registry.getChildren("OTHER").isEmpty());
+
+		verify(repository, times(1)).findAllWithReferences();
+	}
+
+	@Test
+	public void testStoresAreReloadedWhenAStoreChanges() {
+
+		MerchantStore store = registry.getByCode("DEFAULT");
+		Assert.assertSame(store, registry.getByCode("DEFAULT"));
+
+		registry.invalidate();
+		registry.getByCode("DEFAULT");
+		verify(repository, times(2)).findAllWithReferences();
+
+		ReflectionTestUtils.setField(registry, "maxAge", 0L);
+		registry.getByCode("DEFAULT");
+		verify(repository, times(3)).findAllWithReferences();
+	}
+
+	private MerchantStore store(Integer id, String code, MerchantStore parent) {
+		MerchantStore store = new MerchantStore();
+		store.setId(id);
+		store.setCode(code);
+		store.setParent(parent);
+		store.setRetailer(parent == null);
+		return store;
+	}
+
+	private List<String> codes(List<MerchantStore> stores) {
+		return stores.stream().map(MerchantStore::getCode).collect(Collectors.toList());
+	}
+
+}
@@ -0,0 +1,134 @@
+package com.salesmanager.test.order;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.salesmanager.core.business.modules.common.IndexClientProvider;
+import com.salesmanager.core.business.modules.common.IndexEventPipeline;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Event pipeline against a stub _bulk endpoint
+ */
+public class IndexEventPipelineTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private HttpServer server;
+	private final AtomicInteger bulkRequests = new AtomicInteger();
+	private final AtomicInteger documents = new AtomicInteger();
+	private volatile CountDownLatch received;
+
+	private IndexClientProvider clientProvider;
+	private IndexEventPipeline pipeline;
+
+	@Before
+	public void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/_bulk", exchange -> {
+			String body = read(exchange.getRequestBody());
+			int items = 0;
+			StringBuilder response = new StringBuilder("{\"took\":1,\"errors\":false,\"items\":[");
+			for (String line : body.split("\n")) {
+				if (line.startsWith("{\"index\"")) {
+					if (items++ > 0) {
+						response.append(',');
+					}
+					response.append("{\"index\":{\"_index\":\"events_default\",\"_type\":\"_doc\",\"_id\":\"").append(items)
+							.append("\",\"_version\":1,\"result\":\"created\",\"_shards\":{\"total\":1,\"successful\":1,\"failed\":0},")
+							.append("\"_seq_no\":0,\"_primary_term\":1,\"status\":201}}");
+				}
+			}
+			response.append("]}");
+			bulkRequests.incrementAndGet();
+			documents.addAndGet(items);
+
+			byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, bytes.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(bytes);
+			}
+			CountDownLatch latch = received;
+			for (int i = 0; latch != null && i < items; i++) {
+				latch.countDown();
+			}
+		});
+		server.start();
+
+		clientProvider = new IndexClientProvider();
+		clientProvider.setHosts(Collections.singletonList("localhost"));
+		clientProvider.setProtocol("http");
+		clientProvider.setPort(server.getAddress().getPort());
+
+		pipeline = new IndexEventPipeline();
+		pipeline.setClientProvider(clientProvider);
+		pipeline.setBulkSize(50);
+		pipeline.setFlushInterval(200);
+		pipeline.setRetryInterval(0);
+		pipeline.setSpillLocation(folder.getRoot().getAbsolutePath());
+	}
+
+	@After
+	public void tearDown() {
+		pipeline.stop();
+		clientProvider.close();
+		server.stop(0);
+	}
+
+	@Test
+	public void testEventsAreSentInBulk() throws Exception {
+
+		received = new CountDownLatch(120);
+		pipeline.start();
+		for (int i = 0; i < 120; i++) {
+			Assert.assertTrue(pipeline.submit("events_default", String.valueOf(i), "{\"event\":\"order\"}"));
+		}
+
+		Assert.assertTrue(received.await(10, TimeUnit.SECONDS));
+		Assert.assertEquals(120, documents.get());
+		Assert.assertTrue(bulkRequests.get() < 120 / 10);
+		Assert.assertEquals(0, pipeline.getDropped());
+	}
+
+	@Test
+	public void testSpilledEventsAreReplayed() throws Exception {
+
+		pipeline.setOverflow(IndexEventPipeline.OverflowPolicy.SPILL);
+		pipeline.setQueueSize(5);
+
+		// not started, every event overflows
+		for (int i = 0; i < 20; i++) {
+			Assert.assertFalse(pipeline.submit("events_default", String.valueOf(i), "{\"event\":\"cart\"}"));
+		}
+		Assert.assertEquals(20, pipeline.getSpilled());
+
+		received = new CountDownLatch(21);
+		pipeline.start();
+		pipeline.submit("events_default", "20", "{\"event\":\"cart\"}");
+
+		Assert.assertTrue(received.await(10, TimeUnit.SECONDS));
+		Assert.assertEquals(21, documents.get());
+	}
+
+	private static String read(InputStream in) throws IOException {
+		return IOUtils.toString(in, StandardCharsets.UTF_8);
+	}
+
+}
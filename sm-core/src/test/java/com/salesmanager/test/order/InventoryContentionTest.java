@@ -0,0 +1,187 @@
+package com.salesmanager.test.order;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesmanager.core.business.repositories.catalog.product.availability.ProductAvailabilityRepositoryImpl;
+import com.salesmanager.core.business.services.catalog.product.availability.InventoryReservations;
+import com.salesmanager.core.constants.SchemaConstant;
+
+/**
+ * Parallel checkouts on the same products never take more than the stock
+ */
+public class InventoryContentionTest {
+
+	private static final String URL = "jdbc:h2:mem:inventory;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+
+	private static final String TABLE = SchemaConstant.SALESMANAGER_SCHEMA + ".PRODUCT_AVAILABILITY";
+
+	private static final int THREADS = 16;
+	private static final int ORDERS = 50;
+
+	@Test
+	public void testParallelCheckoutsDoNotOversell() throws Exception {
+
+		try (Connection connection = DriverManager.getConnection(URL); Statement statement = connection.createStatement()) {
+			// mapped schema, the connection stays on the default schema as with the shop database url
+			statement.execute("create schema if not exists " + SchemaConstant.SALESMANAGER_SCHEMA);
+			statement.execute("create table " + TABLE + " (PRODUCT_AVAIL_ID bigint primary key, QUANTITY int not null)");
+			statement.execute("insert into " + TABLE + " values (1, 100), (2, 50)");
+		}
+
+		AtomicInteger placed = new AtomicInteger();
+		AtomicInteger refused = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		for (int t = 0; t < THREADS; t++) {
+			pool.execute(() -> {
+				try (Connection connection = DriverManager.getConnection(URL)) {
+					connection.setAutoCommit(false);
+					start.await();
+					for (int i = 0; i < ORDERS; i++) {
+						// 1 of product 1 and 2 of product 2 per order
+						int[] counts = ProductAvailabilityRepositoryImpl.decrement(connection,
+								new long[] {1, 2}, new int[] {1, 2}, new int[] {1, 2});
+						if (counts[0] == 1 && counts[1] == 1) {
+							connection.commit();
+							placed.incrementAndGet();
+						} else {
+							connection.rollback();
+							refused.incrementAndGet();
+						}
+					}
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			});
+		}
+
+		start.countDown();
+		pool.shutdown();
+		Assert.assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+
+		Assert.assertEquals(THREADS * ORDERS, placed.get() + refused.get());
+		Assert.assertEquals(25, placed.get());
+		Assert.assertEquals(75, quantity(1));
+		Assert.assertEquals(0, quantity(2));
+	}
+
+	@Test
+	public void testParallelReservationsDoNotExceedStock() throws Exception {
+
+		InventoryReservations reservations = new InventoryReservations(8, 60000);
+		Map<Long, Integer> stock = Collections.singletonMap(1L, 10);
+		AtomicInteger reserved = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		for (int t = 0; t < THREADS * 4; t++) {
+			String cart = "cart" + t;
+			pool.execute(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				if (reservations.reserve(cart, Collections.singletonMap(1L, 1), stock)) {
+					reserved.incrementAndGet();
+				}
+			});
+		}
+		start.countDown();
+		pool.shutdown();
+		Assert.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+		Assert.assertEquals(10, reserved.get());
+		Assert.assertEquals(10, reservations.reservedByOthers(1L, null));
+	}
+
+	@Test
+	public void testReservationsAreReleasedAndExpire() throws Exception {
+
+		InventoryReservations reservations = new InventoryReservations(8, 60000);
+		Map<Long, Integer> stock = new HashMap<Long, Integer>();
+		stock.put(1L, 10);
+		stock.put(2L, 1);
+
+		Map<Long, Integer> first = new HashMap<Long, Integer>();
+		first.put(1L, 8);
+		first.put(2L, 1);
+		Assert.assertTrue(reservations.reserve("A", first, stock));
+		// all or nothing, product 2 is held by A
+		Map<Long, Integer> second = new HashMap<Long, Integer>();
+		second.put(1L, 2);
+		second.put(2L, 1);
+		Assert.assertFalse(reservations.reserve("B", second, stock));
+		Assert.assertEquals(0, reservations.reservedByOthers(1L, "A"));
+		Assert.assertEquals(8, reservations.reservedByOthers(1L, "B"));
+
+		// a cart reserving again replaces its quantities
+		Assert.assertTrue(reservations.reserve("A", Collections.singletonMap(1L, 5), stock));
+		Assert.assertTrue(reservations.reserve("B", second, stock));
+
+		reservations.release("A");
+		reservations.release("B");
+		Assert.assertEquals(0, reservations.size());
+
+		InventoryReservations expiring = new InventoryReservations(8, 1);
+		Assert.assertTrue(expiring.reserve("A", first, stock));
+		Thread.sleep(5);
+		Assert.assertTrue(expiring.reserve("B", first, stock));
+		Assert.assertEquals(1, expiring.size());
+	}
+
+	@Test
+	public void testReservationsWaitForTheDecrement() throws Exception {
+
+		InventoryReservations reservations = new InventoryReservations(8, 60000);
+		Map<Long, Integer> stock = Collections.singletonMap(1L, 10);
+		CountDownLatch decrementing = new CountDownLatch(1);
+		CountDownLatch reserved = new CountDownLatch(1);
+
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			int threshold = reservations.locked(Collections.singleton(1L), () -> {
+				pool.execute(() -> {
+					decrementing.countDown();
+					reservations.reserve("B", Collections.singletonMap(1L, 4), stock);
+					reserved.countDown();
+				});
+				try {
+					decrementing.await();
+					// the reservation of B waits on the stripe
+					Assert.assertFalse(reserved.await(100, TimeUnit.MILLISECONDS));
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				return reservations.reservedByOthers(1L, "A");
+			});
+			Assert.assertEquals(0, threshold);
+			Assert.assertTrue(reserved.await(5, TimeUnit.SECONDS));
+			Assert.assertEquals(4, reservations.reservedByOthers(1L, "A"));
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private int quantity(long id) throws Exception {
+		try (Connection connection = DriverManager.getConnection(URL); Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery("select QUANTITY from " + TABLE + " where PRODUCT_AVAIL_ID = " + id)) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+package com.salesmanager.test.order;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesmanager.core.model.common.Billing;
+import com.salesmanager.core.model.common.CriteriaOrderBy;
+import com.salesmanager.core.model.common.Delivery;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.order.Order;
+import com.salesmanager.core.model.order.OrderCriteria;
+import com.salesmanager.core.model.order.OrderList;
+import com.salesmanager.core.model.order.orderstatus.OrderStatus;
+import com.salesmanager.core.model.payments.PaymentType;
+import com.salesmanager.core.model.reference.country.Country;
+import com.salesmanager.core.model.reference.currency.Currency;
+import com.salesmanager.core.model.reference.zone.Zone;
+
+/**
+ * Keyset pages of the order list query
+ */
+public class OrderCursorTest extends com.salesmanager.test.common.AbstractSalesManagerCoreTestCase {
+
+	/** orders of this customer only **/
+	private static final Long CUSTOMER_ID = 4242L;
+
+	private static final int ORDERS = 7;
+
+	@Test
+	public void testCursorPagesOverOrdersPurchasedAtTheSameTime() throws Exception {
+
+		MerchantStore store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		Currency currency = currencyService.getByCode(USD_CURRENCY_CODE);
+		Country country = countryService.getByCode("US");
+		Zone zone = zoneService.getByCode("VT");
+
+		// same purchase date for all, the pages are ordered on the id
+		Date purchased = new Date();
+		List<Long> ascending = new ArrayList<Long>();
+		for (int i = 0; i < ORDERS; i++) {
+			Order order = order(store, currency, country, zone, purchased);
+			orderService.create(order);
+			ascending.add(order.getId());
+		}
+		Collections.sort(ascending);
+		List<Long> descending = new ArrayList<Long>(ascending);
+		Collections.reverse(descending);
+
+		for (int pageSize = 1; pageSize <= ORDERS + 1; pageSize++) {
+			Assert.assertEquals("page size " + pageSize, descending, read(store, pageSize, null));
+			Assert.assertEquals("page size " + pageSize, ascending, read(store, pageSize, CriteriaOrderBy.ASC));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMalformedCursorIsRejected() throws Exception {
+
+		MerchantStore store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+
+		OrderCriteria criteria = new OrderCriteria();
+		criteria.setMaxCount(2);
+		criteria.setCursor("not-a-cursor");
+
+		orderService.listByStore(store, criteria);
+	}
+
+	/**
+	 * Ids of all the pages of the customer orders
+	 */
+	private List<Long> read(MerchantStore store, int pageSize, CriteriaOrderBy orderBy) throws Exception {
+
+		List<Long> read = new ArrayList<Long>();
+		int pages = 0;
+		String cursor = "";
+		do {
+			OrderCriteria criteria = new OrderCriteria();
+			criteria.setCustomerId(CUSTOMER_ID);
+			criteria.setMaxCount(pageSize);
+			criteria.setCursor(cursor);
+			if (orderBy != null) {
+				criteria.setOrderBy(orderBy);
+			}
+
+			OrderList page = orderService.listByStore(store, criteria);
+			Assert.assertEquals(ORDERS, page.getTotalCount());
+			Assert.assertTrue(page.getOrders().size() <= pageSize);
+			for (Order order : page.getOrders()) {
+				read.add(order.getId());
+			}
+			cursor = page.getNextCursor();
+			pages++;
+		} while (cursor != null);
+
+		// the extra row read ahead, a full last page does not announce an empty page
+		Assert.assertEquals("page size " + pageSize, (ORDERS + pageSize - 1) / pageSize, pages);
+		return read;
+	}
+
+	private Order order(MerchantStore store, Currency currency, Country country, Zone zone, Date purchased) {
+
+		Billing billing = new Billing();
+		billing.setAddress("Billing address");
+		billing.setCity("Billing city");
+		billing.setCountry(country);
+		billing.setZone(zone);
+		billing.setFirstName("Carl");
+		billing.setLastName("Samson");
+		billing.setPostalCode("05401");
+
+		Delivery delivery = new Delivery();
+		delivery.setAddress("Shipping address");
+		delivery.setCountry(country);
+		delivery.setZone(zone);
+
+		Order order = new Order();
+		order.setDatePurchased(purchased);
+		order.setLastModified(purchased);
+		order.setCurrency(currency);
+		order.setCurrencyValue(new BigDecimal(1));
+		order.setMerchant(store);
+		order.setCustomerId(CUSTOMER_ID);
+		order.setCustomerEmailAddress("cursor@test.com");
+		order.setBilling(billing);
+		order.setDelivery(delivery);
+		order.setIpAddress("ipAddress");
+		order.setPaymentType(PaymentType.MONEYORDER);
+		order.setPaymentModuleCode("moneyorder");
+		order.setShippingModuleCode("UPS");
+		order.setStatus(OrderStatus.ORDERED);
+		order.setCustomerAgreement(true);
+		order.setConfirmedAddress(true);
+		order.setTotal(new BigDecimal(10));
+		return order;
+	}
+
+}
@@ -0,0 +1,131 @@
+package com.salesmanager.test.search;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.salesmanager.core.business.modules.search.EmbeddedSearchService;
+import com.salesmanager.core.business.modules.search.ProductIndex;
+import com.salesmanager.core.business.modules.search.SearchAnalyzer;
+import com.salesmanager.core.model.search.IndexProduct;
+import com.shopizer.search.services.Entry;
+import com.shopizer.search.services.Facet;
+import com.shopizer.search.services.SearchHit;
+import com.shopizer.search.services.SearchRequest;
+import com.shopizer.search.services.SearchResponse;
+
+/**
+ * Embedded search engine, runs without any search server
+ */
+public class EmbeddedSearchServiceTest {
+
+	private static final String COLLECTION = "product_en_default";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testSearchFacetsAndAutocomplete() throws Exception {
+
+		EmbeddedSearchService service = service();
+
+		service.index(product("1", "Red leather bag", 120d, "1", "bags"), COLLECTION);
+		service.index(product("2", "Blue canvas bags", 35d, "2", "bags"), COLLECTION);
+		service.index(product("3", "Leather wallet", 40d, "1", "accessories"), COLLECTION);
+
+		SearchResponse response = service.search(request("leather bags"));
+		Assert.assertEquals(3, response.getCount());
+
+		SearchHit first = response.getSearchHits().iterator().next();
+		Assert.assertEquals("1", first.getId());
+		Assert.assertEquals("120.0", first.getItem().get("price"));
+
+		Facet categories = response.getFacets().get("categories");
+		Assert.assertEquals(2, categories.getEntries().size());
+		Entry bags = categories.getEntries().get(1);
+		Assert.assertEquals("bags", bags.getName());
+		Assert.assertEquals(2, bags.getCount());
+
+		SearchResponse keywords = service.searchAutoComplete("keyword_en_default", "lea", 10);
+		Assert.assertArrayEquals(new String[] { "leather", "leather wallet" }, keywords.getInlineSearchList());
+
+		service.close();
+	}
+
+	@Test
+	public void testIndexesAreReloaded() throws Exception {
+
+		EmbeddedSearchService service = service();
+		service.index(product("1", "Red leather bag", 120d, "1", "bags"), COLLECTION);
+		service.index(product("2", "Blue canvas bag", 35d, "2", "bags"), COLLECTION);
+		service.index(product("2", "Blue canvas tote", 35d, "2", "bags"), COLLECTION);
+		service.deleteObject(COLLECTION, "1");
+		service.close();
+
+		EmbeddedSearchService reloaded = service();
+		SearchResponse response = reloaded.search(request("tote"));
+		Assert.assertEquals(1, response.getCount());
+		Assert.assertNull(reloaded.getObject(COLLECTION, "1"));
+		Assert.assertEquals(0, reloaded.search(request("bag")).getCount());
+		reloaded.close();
+	}
+
+	@Test
+	public void testUpdatedDocumentsDoNotAccumulate() {
+
+		ProductIndex index = new ProductIndex(COLLECTION, new SearchAnalyzer());
+		for (int version = 0; version < 100; version++) {
+			for (int id = 0; id < 10; id++) {
+				Map<String, Object> fields = new HashMap<String, Object>();
+				fields.put("id", String.valueOf(id));
+				fields.put("name", (id % 2 == 0 ? "Leather bag " : "Canvas tote ") + version);
+				index.put(String.valueOf(id), fields);
+			}
+			Assert.assertTrue(index.slots() <= 10 + 64 + 1);
+		}
+		index.delete("9");
+
+		Assert.assertEquals(9, index.size());
+		Assert.assertEquals("Canvas tote 99", index.get("7").get("name"));
+		SearchResponse response = index.search("leather", 0, 10);
+		Assert.assertEquals(Arrays.asList("0", "2", "4", "6", "8"), response.getIds());
+		Assert.assertEquals(4, index.search("tote", 0, 10).getCount());
+		Assert.assertEquals(0, index.search("98", 0, 10).getCount());
+	}
+
+	private EmbeddedSearchService service() throws Exception {
+		EmbeddedSearchService service = new EmbeddedSearchService();
+		service.setIndexLocation(folder.getRoot().getAbsolutePath());
+		service.initService();
+		return service;
+	}
+
+	private SearchRequest request(String term) {
+		SearchRequest request = new SearchRequest();
+		request.addCollection(COLLECTION);
+		request.setMatch(term);
+		request.setSize(10);
+		return request;
+	}
+
+	private String product(String id, String name, Double price, String manufacturer, String category) {
+		IndexProduct product = new IndexProduct();
+		product.setId(id);
+		product.setName(name);
+		product.setPrice(price);
+		product.setManufacturer(manufacturer);
+		product.setLang("en");
+		product.setStore("default");
+		List<String> categories = Collections.singletonList(category);
+		product.setCategories(categories);
+		return product.toJSONString();
+	}
+
+}
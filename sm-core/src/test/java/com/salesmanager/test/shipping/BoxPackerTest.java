@@ -0,0 +1,111 @@
+package com.salesmanager.test.shipping;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesmanager.core.business.modules.integration.shipping.impl.BoxPacker;
+import com.salesmanager.core.business.modules.integration.shipping.impl.BoxPacker.Algorithm;
+import com.salesmanager.core.business.modules.integration.shipping.impl.BoxPacker.Packing;
+
+/**
+ * Box packaging of item quantities
+ */
+public class BoxPackerTest {
+
+	@Test
+	public void testUnitsArePackedByVolumeAndWeight() {
+
+		BoxPacker packer = new BoxPacker(Algorithm.FIRST_FIT_DECREASING, new double[] {10}, new double[] {10},
+				new double[] {10}, new double[] {2}, new double[] {100});
+
+		//124 units of 8 fit 1000 by volume, 100 units of 1 by weight
+		Packing packing = packer.pack(new double[] {2}, new double[] {2}, new double[] {2}, new double[] {1},
+				new int[] {500});
+		Assert.assertEquals(5, packing.size());
+		for (int b = 0; b < packing.size(); b++) {
+			Assert.assertEquals(100, packing.getUnits(b));
+			Assert.assertEquals(102d, packing.getWeight(b), 0.0001);
+		}
+
+		packing = packer.pack(new double[] {2}, new double[] {2}, new double[] {2}, new double[] {0.5},
+				new int[] {300});
+		Assert.assertEquals(3, packing.size());
+		Assert.assertEquals(124, packing.getUnits(0));
+		Assert.assertEquals(124, packing.getUnits(1));
+		Assert.assertEquals(52, packing.getUnits(2));
+	}
+
+	@Test
+	public void testItemsAreRotatedAndBoxSizesChosen() {
+
+		//small 10x10x10 and large 40x20x20
+		BoxPacker packer = new BoxPacker(Algorithm.FIRST_FIT_DECREASING, new double[] {10, 40},
+				new double[] {10, 20}, new double[] {10, 20}, new double[] {1, 3}, new double[] {50, 50});
+
+		Assert.assertTrue(packer.fitsDimensions(20, 5, 40));
+		Assert.assertFalse(packer.fitsDimensions(41, 5, 5));
+		Assert.assertFalse(packer.fits(5, 5, 5, 60));
+
+		//a long item only fits the large box once rotated
+		Packing packing = packer.pack(new double[] {5}, new double[] {35}, new double[] {5}, new double[] {1},
+				new int[] {1});
+		Assert.assertEquals(1, packing.size());
+		Assert.assertEquals(1, packing.getType(0));
+
+		//a few small items go in the small box
+		packing = packer.pack(new double[] {2}, new double[] {2}, new double[] {2}, new double[] {1},
+				new int[] {3});
+		Assert.assertEquals(1, packing.size());
+		Assert.assertEquals(0, packing.getType(0));
+		Assert.assertEquals(4d, packing.getWeight(0), 0.0001);
+	}
+
+	@Test
+	public void testBestFitFillsTheFullestBox() {
+
+		//large 20x10x10 and small 10x10x10
+		double[] width = new double[] {20, 10};
+		double[] size = new double[] {10, 10};
+		BoxPacker firstFit = new BoxPacker(Algorithm.FIRST_FIT_DECREASING, width, size, size, new double[] {0, 0},
+				new double[] {100, 100});
+		BoxPacker bestFit = new BoxPacker(Algorithm.BEST_FIT_DECREASING, width, size, size, new double[] {0, 0},
+				new double[] {100, 100});
+
+		//a large box half full, a small box almost full, then a small item
+		double[] itemWidth = new double[] {20, 10, 2};
+		double[] itemLength = new double[] {10, 10, 2};
+		double[] itemHeight = new double[] {5, 8, 2};
+		double[] weight = new double[] {1, 1, 1};
+		int[] quantity = new int[] {1, 1, 1};
+
+		Packing packing = firstFit.pack(itemWidth, itemLength, itemHeight, weight, quantity);
+		Assert.assertEquals(2, packing.size());
+		Assert.assertEquals(0, packing.getType(0));
+		Assert.assertEquals(1, packing.getType(1));
+		Assert.assertEquals(2, packing.getUnits(0));
+
+		packing = bestFit.pack(itemWidth, itemLength, itemHeight, weight, quantity);
+		Assert.assertEquals(2, packing.size());
+		Assert.assertEquals(2, packing.getUnits(1));
+	}
+
+	@Test
+	public void testLargeQuantities() {
+
+		BoxPacker packer = new BoxPacker(Algorithm.BEST_FIT_DECREASING, new double[] {30, 60},
+				new double[] {30, 40}, new double[] {30, 40}, new double[] {1, 2}, new double[] {40, 70});
+
+		long start = System.currentTimeMillis();
+		Packing packing = packer.pack(new double[] {4, 2, 10}, new double[] {4, 3, 10}, new double[] {2, 1, 10},
+				new double[] {0.2, 0.05, 3}, new int[] {100000, 50000, 2000});
+		long elapsed = System.currentTimeMillis() - start;
+
+		int units = 0;
+		for (int b = 0; b < packing.size(); b++) {
+			units += packing.getUnits(b);
+		}
+		Assert.assertEquals(152000, units);
+		Assert.assertTrue("packed in " + elapsed + " ms", elapsed < 2000);
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.salesmanager.test.shipping;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kie.api.KieBase;
+import org.kie.api.io.Resource;
+import org.kie.internal.io.ResourceFactory;
+
+import com.salesmanager.core.business.configuration.DroolsRuleRegistry;
+
+/**
+ * Rule resources are compiled once and compiled again when their content
+ * changes
+ */
+public class DroolsRuleRegistryTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File drl;
+
+	@Before
+	public void setUp() throws Exception {
+		drl = folder.newFile("rate.drl");
+		write("1");
+	}
+
+	@Test
+	public void testRulesAreCompiledOnce() throws Exception {
+
+		DroolsRuleRegistry registry = new DroolsRuleRegistry(0);
+
+		KieBase kieBase = registry.getKieBase(resource());
+		Assert.assertEquals("1", fire(kieBase));
+
+		// checksum verified, same content
+		Assert.assertSame(kieBase, registry.getKieBase(resource()));
+		Assert.assertSame(kieBase, registry.getKieBase(resource()));
+	}
+
+	@Test
+	public void testRulesAreCompiledAgainWhenTheChecksumChanges() throws Exception {
+
+		DroolsRuleRegistry registry = new DroolsRuleRegistry(0);
+
+		KieBase kieBase = registry.getKieBase(resource());
+		Assert.assertEquals("1", fire(kieBase));
+
+		write("2");
+		KieBase changed = registry.getKieBase(resource());
+		Assert.assertNotSame(kieBase, changed);
+		Assert.assertEquals("2", fire(changed));
+
+		// a resource which does not compile keeps the previous rules
+		FileUtils.writeStringToFile(drl, "rule \"rate\" when then", StandardCharsets.UTF_8);
+		Assert.assertSame(changed, registry.getKieBase(resource()));
+	}
+
+	@Test
+	public void testReloadingCanBeDisabled() throws Exception {
+
+		DroolsRuleRegistry registry = new DroolsRuleRegistry(-1);
+
+		KieBase kieBase = registry.getKieBase(resource());
+		write("2");
+		Assert.assertSame(kieBase, registry.getKieBase(resource()));
+		Assert.assertEquals("1", fire(registry.getKieBase(resource())));
+	}
+
+	private Resource resource() {
+		return ResourceFactory.newFileResource(drl);
+	}
+
+	private void write(String rate) throws Exception {
+		FileUtils.writeStringToFile(drl,
+				"import java.util.Map;\n"
+				+ "rule \"rate\"\n"
+				+ "when\n"
+				+ "  $m : Map()\n"
+				+ "then\n"
+				+ "  $m.put(\"rate\", \"" + rate + "\");\n"
+				+ "end\n", StandardCharsets.UTF_8);
+	}
+
+	private String fire(KieBase kieBase) {
+		Map<String, String> fact = new HashMap<String, String>();
+		kieBase.newStatelessKieSession().execute(fact);
+		return fact.get("rate");
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.salesmanager.test.shipping;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.salesmanager.core.business.modules.geo.GeoLocator;
+import com.salesmanager.core.business.modules.geo.GeoPoint;
+import com.salesmanager.core.business.modules.geo.GeoProvider;
+import com.salesmanager.core.business.modules.geo.PostalCodeGeoProvider;
+
+/**
+ * Memoized geocoding and distances, with the offline postal code provider
+ */
+public class GeoLocatorTest {
+
+	private static final GeoPoint MONTREAL = new GeoPoint(45.5017, -73.5673);
+	private static final GeoPoint TORONTO = new GeoPoint(43.6532, -79.3832);
+
+	private PostalCodeGeoProvider postalCodes;
+	private StubProvider google;
+	private GeoLocator locator;
+
+	@Before
+	public void setUp() {
+		postalCodes = new PostalCodeGeoProvider();
+		postalCodes.put("CA", "H3A", MONTREAL.getLatitude(), MONTREAL.getLongitude());
+		postalCodes.put("CA", "M5H", TORONTO.getLatitude(), TORONTO.getLongitude());
+
+		google = new StubProvider();
+		locator = new GeoLocator();
+		locator.setProviders(Arrays.asList(google, postalCodes));
+	}
+
+	@Test
+	public void testPostalCodesAreLocatedByPrefix() {
+
+		GeoPoint point = postalCodes.geocode(null, "h3a 1v4", "ca");
+		Assert.assertEquals(MONTREAL.getLatitude(), point.getLatitude(), 0.00001);
+		Assert.assertNull(postalCodes.geocode(null, "H2S 3S3", "CA"));
+		Assert.assertNull(postalCodes.geocode(null, "H3A 1V4", "US"));
+
+		//great-circle
+		Assert.assertEquals(504, postalCodes.distance(MONTREAL, TORONTO), 5);
+	}
+
+	@Test
+	public void testResultsOfTheProviderAreKept() {
+
+		GeoPoint point = locator.locatePostalCode("H3A 1V4 QC CA", "H3A 1V4", "CA");
+		Assert.assertEquals(1, google.geocodes.get());
+		Assert.assertEquals(40.0, point.getLatitude(), 0.00001);
+
+		//same postal code written differently
+		locator.locatePostalCode("H3A1V4 QC CA", "h3a1v4", "CA");
+		Assert.assertEquals(1, google.geocodes.get());
+
+		Assert.assertEquals(42.0, locator.distance(MONTREAL, TORONTO), 0.00001);
+		Assert.assertEquals(42.0, locator.distance(MONTREAL, TORONTO), 0.00001);
+		Assert.assertEquals(1, google.distances.get());
+	}
+
+	@Test
+	public void testFallbackAnswersWhenTheProviderFails() {
+
+		google.failing = true;
+		GeoPoint point = locator.locatePostalCode("H3A 1V4 QC CA", "H3A 1V4", "CA");
+		Assert.assertEquals(MONTREAL.getLatitude(), point.getLatitude(), 0.00001);
+		Assert.assertEquals(504, locator.distance(MONTREAL, TORONTO), 5);
+
+		//fallback results are not kept, the provider is asked again
+		google.failing = false;
+		point = locator.locatePostalCode("H3A 1V4 QC CA", "H3A 1V4", "CA");
+		Assert.assertEquals(40.0, point.getLatitude(), 0.00001);
+		Assert.assertEquals(2, google.geocodes.get());
+	}
+
+	/**
+	 * Remote provider counting its calls
+	 */
+	private static class StubProvider implements GeoProvider {
+
+		private final AtomicInteger geocodes = new AtomicInteger();
+		private final AtomicInteger distances = new AtomicInteger();
+		private volatile boolean failing;
+
+		@Override
+		public String getCode() {
+			return "google";
+		}
+
+		@Override
+		public boolean isAvailable() {
+			return true;
+		}
+
+		@Override
+		public GeoPoint geocode(String address, String postalCode, String countryIsoCode) throws Exception {
+			geocodes.incrementAndGet();
+			if (failing) {
+				throw new Exception("OVER_QUERY_LIMIT");
+			}
+			return new GeoPoint(40, -70);
+		}
+
+		@Override
+		public Double distance(GeoPoint origin, GeoPoint destination) throws Exception {
+			distances.incrementAndGet();
+			if (failing) {
+				throw new Exception("OVER_QUERY_LIMIT");
+			}
+			return 42.0;
+		}
+	}
+
+}
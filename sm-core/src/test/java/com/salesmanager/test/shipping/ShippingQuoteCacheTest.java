@@ -0,0 +1,167 @@
+package com.salesmanager.test.shipping;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.salesmanager.core.business.services.shipping.ShippingQuoteCache;
+import com.salesmanager.core.model.common.Delivery;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.country.Country;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.core.model.shipping.PackageDetails;
+import com.salesmanager.core.model.shipping.ShippingOption;
+import com.salesmanager.core.model.shipping.ShippingOrigin;
+import com.salesmanager.core.model.shipping.ShippingQuote;
+
+/**
+ * Shipping quotes reused for identical shipments
+ */
+public class ShippingQuoteCacheTest {
+
+	private static final List<String> MODULES = Collections.singletonList("ups");
+
+	private ShippingQuoteCache cache;
+	private MerchantStore store;
+	private Language language;
+
+	@Before
+	public void setUp() {
+		cache = new ShippingQuoteCache();
+		store = new MerchantStore();
+		store.setId(1);
+		language = new Language("en");
+	}
+
+	@Test
+	public void testIdenticalShipmentsHaveTheSameFingerprint() {
+
+		String fingerprint = fingerprint(delivery("H2B 1A1"), Arrays.asList(parcel(2), parcel(5)), 1);
+
+		Assert.assertEquals(fingerprint, fingerprint(delivery(" h2b1a1"), Arrays.asList(parcel(5), parcel(2)), 1));
+		Assert.assertNotEquals(fingerprint, fingerprint(delivery("H2B 1A2"), Arrays.asList(parcel(2), parcel(5)), 1));
+		Assert.assertNotEquals(fingerprint, fingerprint(delivery("H2B 1A1"), Arrays.asList(parcel(2), parcel(6)), 1));
+		//merchant configuration changed
+		Assert.assertNotEquals(fingerprint, fingerprint(delivery("H2B 1A1"), Arrays.asList(parcel(2), parcel(5)), 2));
+
+		cache.invalidate(store);
+		Assert.assertNotEquals(fingerprint, fingerprint(delivery("H2B 1A1"), Arrays.asList(parcel(2), parcel(5)), 1));
+	}
+
+	@Test
+	public void testQuoteIsReusedUntilExpired() throws Exception {
+
+		String fingerprint = fingerprint(delivery("H2B 1A1"), Collections.singletonList(parcel(2)), 1);
+		ShippingQuote quote = quote("12.50");
+		quote.getShippingOptions().get(0).setShippingQuoteOptionId(7L);
+		Assert.assertNotNull(cache.put(fingerprint, quote, MODULES));
+
+		ShippingQuote cached = cache.get(fingerprint).toShippingQuote(delivery("H2B 1A1"));
+		Assert.assertEquals(new BigDecimal("12.50"), cached.getSelectedShippingOption().getOptionPrice());
+		Assert.assertNull(cached.getShippingOptions().get(0).getShippingQuoteOptionId());
+		//callers get their own options
+		cached.getShippingOptions().get(0).setOptionPrice(BigDecimal.ONE);
+		Assert.assertEquals(new BigDecimal("12.50"),
+				cache.get(fingerprint).toShippingQuote(delivery("H2B 1A1")).getShippingOptions().get(0).getOptionPrice());
+
+		ReflectionTestUtils.setField(cache, "ttl", 1L);
+		String other = fingerprint(delivery("H2B 1A2"), Collections.singletonList(parcel(2)), 1);
+		cache.put(other, quote("9.00"), MODULES);
+		Thread.sleep(1100);
+		Assert.assertNull(cache.get(other));
+	}
+
+	@Test
+	public void testFreeShippingIsKept() {
+
+		//order total above the free shipping amount of the configuration
+		String fingerprint = fingerprint(delivery("H2B 1A1"), Collections.singletonList(parcel(2)), 1);
+		ShippingQuote quote = quote("12.50");
+		quote.setFreeShipping(true);
+		quote.setFreeShippingAmount(new BigDecimal("40"));
+		cache.put(fingerprint, quote, MODULES);
+
+		ShippingQuote cached = cache.get(fingerprint).toShippingQuote(delivery("H2B 1A1"));
+		Assert.assertTrue(cached.isFreeShipping());
+		Assert.assertEquals(new BigDecimal("40"), cached.getFreeShippingAmount());
+
+		String charged = fingerprint(delivery("H2B 1A2"), Collections.singletonList(parcel(2)), 1);
+		cache.put(charged, quote("12.50"), MODULES);
+		Assert.assertFalse(cache.get(charged).toShippingQuote(delivery("H2B 1A2")).isFreeShipping());
+	}
+
+	@Test
+	public void testPartialQuotesAreNotKept() {
+
+		ShippingQuote quote = quote("12.50");
+		quote.getWarnings().add("Shipping carrier usps did not answer in time");
+		Assert.assertNull(cache.put("partial", quote, MODULES));
+
+		ShippingQuote error = quote("12.50");
+		error.setShippingReturnCode(ShippingQuote.ERROR);
+		Assert.assertNull(cache.put("error", error, MODULES));
+
+		Assert.assertNull(cache.put("empty", new ShippingQuote(), MODULES));
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testSavedQuotesAreKeptByCart() {
+
+		ShippingQuoteCache.Entry entry = cache.put("shipment", quote("12.50"), MODULES);
+		entry.setQuoteIds(10L, Collections.singletonList(100L));
+
+		Assert.assertEquals(Collections.singletonList(100L), cache.get("shipment").getQuoteIds(10L));
+		Assert.assertNull(cache.get("shipment").getQuoteIds(11L));
+		Assert.assertNull(cache.get("shipment").getQuoteIds(null));
+	}
+
+	private String fingerprint(Delivery delivery, List<PackageDetails> packages, long configurationVersion) {
+		ShippingOrigin origin = new ShippingOrigin();
+		origin.setCountry(country("CA"));
+		origin.setPostalCode("H3B 2Y5");
+		return cache.fingerprint(store, configurationVersion, MODULES, origin, delivery, packages,
+				new BigDecimal("45.5"), language);
+	}
+
+	private Delivery delivery(String postalCode) {
+		Delivery delivery = new Delivery();
+		delivery.setCountry(country("CA"));
+		delivery.setPostalCode(postalCode);
+		delivery.setCity("Montreal");
+		return delivery;
+	}
+
+	private Country country(String isoCode) {
+		Country country = new Country();
+		country.setIsoCode(isoCode);
+		return country;
+	}
+
+	private PackageDetails parcel(double weight) {
+		PackageDetails details = new PackageDetails();
+		details.setShippingWeight(weight);
+		details.setShippingLength(10);
+		details.setShippingWidth(10);
+		details.setShippingHeight(5);
+		details.setShippingQuantity(1);
+		return details;
+	}
+
+	private ShippingQuote quote(String price) {
+		ShippingOption option = new ShippingOption();
+		option.setOptionCode("STANDARD");
+		option.setOptionPrice(new BigDecimal(price));
+		ShippingQuote quote = new ShippingQuote();
+		quote.setShippingOptions(Collections.singletonList(option));
+		quote.setSelectedShippingOption(option);
+		return quote;
+	}
+
+}
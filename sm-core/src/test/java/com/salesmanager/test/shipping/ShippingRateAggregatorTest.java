@@ -0,0 +1,217 @@
+package com.salesmanager.test.shipping;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.apache.http.client.methods.HttpGet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.salesmanager.core.business.modules.executor.ManagedExecutor;
+import com.salesmanager.core.business.modules.executor.ManagedExecutor.RejectionPolicy;
+import com.salesmanager.core.business.modules.integration.shipping.impl.CarrierHttpClient;
+import com.salesmanager.core.business.services.shipping.ShippingRateAggregator;
+import com.salesmanager.core.business.services.shipping.ShippingRateAggregator.Carrier;
+import com.salesmanager.core.model.common.Delivery;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.shipping.PackageDetails;
+import com.salesmanager.core.model.shipping.ShippingConfiguration;
+import com.salesmanager.core.model.shipping.ShippingOption;
+import com.salesmanager.core.model.shipping.ShippingOrigin;
+import com.salesmanager.core.model.shipping.ShippingQuote;
+import com.salesmanager.core.model.system.CustomIntegrationConfiguration;
+import com.salesmanager.core.model.system.IntegrationConfiguration;
+import com.salesmanager.core.model.system.IntegrationModule;
+import com.salesmanager.core.modules.integration.IntegrationException;
+import com.salesmanager.core.modules.integration.shipping.model.ShippingQuoteModule;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Carrier quotes requested in parallel against a local stub carrier server
+ */
+public class ShippingRateAggregatorTest {
+
+	private HttpServer server;
+	private final AtomicInteger failures = new AtomicInteger();
+	private CarrierHttpClient httpClient;
+	private ManagedExecutor executor;
+	private ShippingRateAggregator aggregator;
+
+	@Before
+	public void setUp() throws Exception {
+
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/fast", exchange -> respond(exchange, 200, "12.50"));
+		server.createContext("/slow", exchange -> {
+			try {
+				Thread.sleep(2000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			respond(exchange, 200, "8.00");
+		});
+		server.createContext("/error", exchange -> {
+			failures.incrementAndGet();
+			respond(exchange, 500, "down");
+		});
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+
+		httpClient = new CarrierHttpClient();
+		httpClient.setReadTimeout(3000);
+		httpClient.start();
+
+		executor = new ManagedExecutor("shipping", 4, 10, RejectionPolicy.CALLER_RUNS, false);
+		aggregator = new ShippingRateAggregator();
+		aggregator.setExecutor(executor);
+		ReflectionTestUtils.setField(aggregator, "timeout", 500L);
+		ReflectionTestUtils.setField(aggregator, "failureThreshold", 2);
+		ReflectionTestUtils.setField(aggregator, "openTime", 60000L);
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+		httpClient.close();
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testOptionsOfCarriersAnsweringInTimeAreMerged() throws Exception {
+
+		ShippingQuote quote = new ShippingQuote();
+		long start = System.currentTimeMillis();
+		List<ShippingOption> options = quote(quote,
+				carrier("fast", new StubCarrier("/fast")),
+				carrier("slow", new StubCarrier("/slow")),
+				carrier("local", new LocalCarrier()));
+		long elapsed = System.currentTimeMillis() - start;
+
+		Assert.assertEquals(Arrays.asList("local", "fast"),
+				options.stream().map(ShippingOption::getShippingModuleCode).collect(Collectors.toList()));
+		Assert.assertEquals(new BigDecimal("12.50"), options.get(1).getOptionPrice());
+		Assert.assertTrue(quote.getWarnings().contains("Shipping carrier slow did not answer in time"));
+		// the slow carrier does not hold the quote
+		Assert.assertTrue("quoted in " + elapsed + " ms", elapsed < 1500);
+	}
+
+	@Test
+	public void testFailingCarrierIsNoLongerCalled() throws Exception {
+
+		quote(new ShippingQuote(), carrier("fast", new StubCarrier("/fast")), carrier("down", new StubCarrier("/error")));
+		quote(new ShippingQuote(), carrier("fast", new StubCarrier("/fast")), carrier("down", new StubCarrier("/error")));
+		Assert.assertEquals(2, failures.get());
+
+		ShippingQuote quote = new ShippingQuote();
+		List<ShippingOption> options = quote(quote, carrier("fast", new StubCarrier("/fast")),
+				carrier("down", new StubCarrier("/error")));
+		Assert.assertEquals(1, options.size());
+		Assert.assertEquals(2, failures.get());
+		Assert.assertTrue(quote.getWarnings().contains("Shipping carrier down is unavailable"));
+
+		try {
+			quote(new ShippingQuote(), carrier("down", new StubCarrier("/error")));
+			Assert.fail("no carrier answered");
+		} catch (IntegrationException e) {
+			// expected
+		}
+	}
+
+	private List<ShippingOption> quote(ShippingQuote quote, Carrier... carriers) throws IntegrationException {
+		return aggregator.getShippingQuotes(Arrays.asList(carriers), quote, Collections.<PackageDetails>emptyList(),
+				BigDecimal.TEN, new Delivery(), new ShippingOrigin(), new MerchantStore(), new ShippingConfiguration(),
+				Locale.ENGLISH);
+	}
+
+	private Carrier carrier(String code, ShippingQuoteModule module) {
+		IntegrationModule integrationModule = new IntegrationModule();
+		integrationModule.setCode(code);
+		return new Carrier(code, module, new IntegrationConfiguration(), integrationModule);
+	}
+
+	private void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(status, bytes.length);
+		exchange.getResponseBody().write(bytes);
+		exchange.close();
+	}
+
+	private static ShippingOption option(String price) {
+		ShippingOption option = new ShippingOption();
+		option.setOptionCode("STANDARD");
+		option.setOptionPrice(new BigDecimal(price));
+		return option;
+	}
+
+	/**
+	 * Carrier quoting through the stub server
+	 */
+	private class StubCarrier extends LocalCarrier {
+
+		private final String path;
+
+		StubCarrier(String path) {
+			this.path = path;
+		}
+
+		@Override
+		public boolean isRemote() {
+			return true;
+		}
+
+		@Override
+		public List<ShippingOption> getShippingQuotes(ShippingQuote quote, List<PackageDetails> packages,
+				BigDecimal orderTotal, Delivery delivery, ShippingOrigin origin, MerchantStore store,
+				IntegrationConfiguration configuration, IntegrationModule module,
+				ShippingConfiguration shippingConfiguration, Locale locale) throws IntegrationException {
+			try {
+				String price = httpClient.execute(
+						new HttpGet("http://127.0.0.1:" + server.getAddress().getPort() + path), path);
+				return Collections.singletonList(option(price));
+			} catch (Exception e) {
+				throw new IntegrationException(e);
+			}
+		}
+	}
+
+	private static class LocalCarrier implements ShippingQuoteModule {
+
+		@Override
+		public void validateModuleConfiguration(IntegrationConfiguration integrationConfiguration,
+				MerchantStore store) throws IntegrationException {
+		}
+
+		@Override
+		public CustomIntegrationConfiguration getCustomModuleConfiguration(MerchantStore store)
+				throws IntegrationException {
+			return null;
+		}
+
+		@Override
+		public boolean isRemote() {
+			return false;
+		}
+
+		@Override
+		public List<ShippingOption> getShippingQuotes(ShippingQuote quote, List<PackageDetails> packages,
+				BigDecimal orderTotal, Delivery delivery, ShippingOrigin origin, MerchantStore store,
+				IntegrationConfiguration configuration, IntegrationModule module,
+				ShippingConfiguration shippingConfiguration, Locale locale) throws IntegrationException {
+			return Collections.singletonList(option("5.00"));
+		}
+	}
+
+}
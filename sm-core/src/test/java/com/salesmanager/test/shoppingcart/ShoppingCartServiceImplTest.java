@@ -2,13 +2,22 @@ package com.salesmanager.test.shoppingcart;
 
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.repositories.shoppingcart.ShoppingCartRepository;
+import com.salesmanager.core.business.services.catalog.product.PricingService;
+import com.salesmanager.core.business.services.catalog.product.ProductService;
 import com.salesmanager.core.business.services.shoppingcart.ShoppingCartServiceImpl;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.price.FinalPrice;
+import com.salesmanager.core.model.merchant.MerchantStore;
 import com.salesmanager.core.model.shoppingcart.ShoppingCart;
+import com.salesmanager.core.model.shoppingcart.ShoppingCartItem;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Collections;
 
 import static org.mockito.Mockito.*;
@@ -66,15 +75,19 @@ public class ShoppingCartServiceImplTest {
 
     @Test
     public void getByIdReturnsNullObsoleteCart() throws ServiceException {
-        ShoppingCart shoppingCart = mock(ShoppingCart.class);
+        //no items
+        ShoppingCart shoppingCart = new ShoppingCart();
         long expectedId = 4;
         shoppingCart.setId(expectedId);
-        when(shoppingCart.isObsolete()).thenReturn(true);
-        when(shoppingCart.getLineItems()).thenReturn(Collections.EMPTY_SET);
         when(this.cartRepository.findOne(expectedId)).thenReturn(shoppingCart);
         ShoppingCart result = this.service.getById(expectedId);
         Assert.assertNull("Expected null", result);
+        verify(this.cartRepository, never()).delete(shoppingCart);
+
+        //removed by the sweeper
+        Assert.assertEquals(1, this.service.removeExpiredCarts());
         verify(this.cartRepository, times(1)).delete(shoppingCart);
+        Assert.assertEquals(0, this.service.removeExpiredCarts());
     }
 
     @Test
@@ -85,4 +98,52 @@ public class ShoppingCartServiceImplTest {
         this.service.removeShoppingCart(shoppingCart);
         verify(this.cartRepository, times(1)).delete(shoppingCart);
     }
+
+    @Test
+    public void getByCodeLoadsProductsOnceWithoutWriting() throws ServiceException {
+        ProductService productService = mock(ProductService.class);
+        PricingService pricingService = mock(PricingService.class);
+        ReflectionTestUtils.setField(this.service, "productService", productService);
+        ReflectionTestUtils.setField(this.service, "pricingService", pricingService);
+
+        MerchantStore store = new MerchantStore();
+        store.setId(1);
+        ShoppingCart shoppingCart = new ShoppingCart();
+        shoppingCart.setId(4L);
+        shoppingCart.setMerchantStore(store);
+        shoppingCart.getLineItems().add(item(shoppingCart, 10L, 2));
+        shoppingCart.getLineItems().add(item(shoppingCart, 11L, 1));
+
+        Product first = new Product();
+        first.setId(10L);
+        Product second = new Product();
+        second.setId(11L);
+        FinalPrice price = new FinalPrice();
+        price.setFinalPrice(new BigDecimal("5.00"));
+
+        when(this.cartRepository.findByCode(1, "ABC")).thenReturn(shoppingCart);
+        when(productService.getByIds(anySet())).thenReturn(Arrays.asList(first, second));
+        when(pricingService.calculateProductPrice(any(Product.class), anyList())).thenReturn(price);
+
+        ShoppingCart result = this.service.getByCode("ABC", store);
+
+        Assert.assertSame(shoppingCart, result);
+        for (ShoppingCartItem item : result.getLineItems()) {
+            Assert.assertNotNull(item.getProduct());
+            Assert.assertEquals(new BigDecimal("5.00").multiply(new BigDecimal(item.getQuantity())), item.getSubTotal());
+        }
+        verify(productService, times(1)).getByIds(anySet());
+        verify(productService, never()).getById(anyLong());
+        verify(this.cartRepository, never()).saveAndFlush(any(ShoppingCart.class));
+        verify(this.cartRepository, never()).delete(any(ShoppingCart.class));
+    }
+
+    private ShoppingCartItem item(ShoppingCart cart, Long productId, int quantity) {
+        ShoppingCartItem item = new ShoppingCartItem();
+        item.setShoppingCart(cart);
+        item.setId(productId);
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        return item;
+    }
 }
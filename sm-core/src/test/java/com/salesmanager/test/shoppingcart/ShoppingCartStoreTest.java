@@ -0,0 +1,129 @@
+package com.salesmanager.test.shoppingcart;
+
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anySet;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.salesmanager.core.business.modules.cart.AbstractShoppingCartStore;
+import com.salesmanager.core.business.modules.cart.MemoryShoppingCartStore;
+import com.salesmanager.core.business.repositories.shoppingcart.ShoppingCartRepository;
+import com.salesmanager.core.business.services.catalog.product.ProductService;
+import com.salesmanager.core.business.services.shoppingcart.ShoppingCartServiceImpl;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.shoppingcart.ShoppingCart;
+import com.salesmanager.core.model.shoppingcart.ShoppingCartAttributeItem;
+import com.salesmanager.core.model.shoppingcart.ShoppingCartItem;
+
+/**
+ * Anonymous carts kept in the shopping cart store
+ */
+public class ShoppingCartStoreTest {
+
+	@Test
+	public void testCartIsStoredWithNegativeIds() throws Exception {
+
+		MemoryShoppingCartStore store = new MemoryShoppingCartStore();
+		ShoppingCart cart = cart("ABC", 10L, 11L);
+		cart.getLineItems().iterator().next().addAttributes(new ShoppingCartAttributeItem(null, 500L));
+		store.put(cart);
+
+		Assert.assertTrue(cart.getId() < 0);
+		ShoppingCart stored = store.get("ABC");
+		Assert.assertEquals(cart.getId(), stored.getId());
+		Assert.assertEquals(Integer.valueOf(1), stored.getMerchantStore().getId());
+		Assert.assertEquals(2, stored.getLineItems().size());
+		for (ShoppingCartItem item : stored.getLineItems()) {
+			Assert.assertTrue(item.getId() < 0);
+			Assert.assertEquals(cart.getId(), AbstractShoppingCartStore.cartId(item.getId()));
+			Assert.assertSame(stored, item.getShoppingCart());
+		}
+		Assert.assertEquals(1, stored.getLineItems().stream().mapToInt(i -> i.getAttributes().size()).sum());
+
+		// a new item keeps the ids of the others
+		ShoppingCartItem added = new ShoppingCartItem();
+		added.setProductId(12L);
+		added.setQuantity(3);
+		stored.getLineItems().add(added);
+		store.put(stored);
+		ShoppingCart updated = store.get(cart.getId());
+		Assert.assertEquals(3, updated.getLineItems().size());
+		Assert.assertEquals(3, updated.getLineItems().stream().map(ShoppingCartItem::getId).distinct().count());
+
+		store.remove(updated);
+		Assert.assertNull(store.get("ABC"));
+		Assert.assertNull(store.get(cart.getId()));
+	}
+
+	@Test
+	public void testCartsAreBoundedAndExpire() throws Exception {
+
+		MemoryShoppingCartStore store = new MemoryShoppingCartStore();
+		store.setMaxEntries(2);
+		store.put(cart("A", 1L));
+		store.put(cart("B", 1L));
+		Assert.assertNotNull(store.get("A"));
+		store.put(cart("C", 1L));
+
+		// B was the least recently used
+		Assert.assertNull(store.get("B"));
+		Assert.assertEquals(2, store.size());
+
+		store.setTtl(0);
+		Thread.sleep(5);
+		Assert.assertEquals(2, store.sweep());
+		Assert.assertEquals(0, store.size());
+	}
+
+	@Test
+	public void testAnonymousCartIsMovedToDatabaseForCustomer() throws Exception {
+
+		ShoppingCartRepository repository = mock(ShoppingCartRepository.class);
+		ProductService productService = mock(ProductService.class);
+		when(productService.getByIds(anySet())).thenReturn(Collections.emptyList());
+		MemoryShoppingCartStore store = new MemoryShoppingCartStore();
+		ShoppingCartServiceImpl service = new ShoppingCartServiceImpl(repository);
+		ReflectionTestUtils.setField(service, "shoppingCartStore", store);
+		ReflectionTestUtils.setField(service, "productService", productService);
+
+		ShoppingCart cart = cart("ABC", 10L);
+		service.saveOrUpdate(cart);
+		verify(repository, never()).saveAndFlush(any(ShoppingCart.class));
+		Assert.assertEquals(1, store.size());
+
+		ShoppingCart stored = store.get("ABC");
+		stored.setMerchantStore(cart.getMerchantStore());
+		stored.setCustomerId(5L);
+		service.saveOrUpdate(stored);
+
+		verify(repository, times(1)).saveAndFlush(stored);
+		Assert.assertNull(stored.getId());
+		Assert.assertNull(stored.getLineItems().iterator().next().getId());
+		Assert.assertEquals(0, store.size());
+	}
+
+	private ShoppingCart cart(String code, Long... productIds) {
+		MerchantStore merchant = new MerchantStore();
+		merchant.setId(1);
+		ShoppingCart cart = new ShoppingCart();
+		cart.setShoppingCartCode(code);
+		cart.setMerchantStore(merchant);
+		for (Long productId : productIds) {
+			ShoppingCartItem item = new ShoppingCartItem();
+			item.setProductId(productId);
+			item.setQuantity(1);
+			cart.getLineItems().add(item);
+		}
+		return cart;
+	}
+
+}
@@ -0,0 +1,166 @@
+package com.salesmanager.test.tax;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.salesmanager.core.business.repositories.tax.TaxClassRepository;
+import com.salesmanager.core.business.repositories.tax.TaxRateRepository;
+import com.salesmanager.core.business.services.tax.TaxTable;
+import com.salesmanager.core.business.services.tax.TaxTableIndex;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.country.Country;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.core.model.reference.zone.Zone;
+import com.salesmanager.core.model.tax.TaxItem;
+import com.salesmanager.core.model.tax.taxclass.TaxClass;
+import com.salesmanager.core.model.tax.taxrate.TaxRate;
+import com.salesmanager.core.model.tax.taxrate.TaxRateDescription;
+
+/**
+ * Taxes calculated from the compiled tax rates of a store
+ */
+public class TaxTableTest {
+
+	private TaxRateRepository taxRateRepository;
+	private TaxTableIndex index;
+	private MerchantStore store;
+	private Country country;
+	private Language english;
+
+	@Before
+	public void setUp() {
+
+		store = new MerchantStore();
+		store.setId(1);
+		country = new Country();
+		country.setId(1);
+		english = new Language();
+		english.setId(1);
+
+		TaxClass standard = taxClass(1L, TaxClass.DEFAULT_TAX_CLASS);
+		TaxClass luxury = taxClass(2L, "LUXURY");
+
+		TaxRate gst = rate(1L, "GST", 5, 0, false, standard, null, null);
+		TaxRate pst = rate(2L, "PST", 8, 1, true, standard, zone(10L), null);
+		TaxRate lux = rate(3L, "LUX", 10, 0, false, luxury, zone(10L), null);
+		TaxRate qst = rate(4L, "QST", 9, 1, false, standard, null, "QC");
+
+		taxRateRepository = mock(TaxRateRepository.class);
+		// one row per description
+		when(taxRateRepository.findByStore(anyInt())).thenReturn(Arrays.asList(pst, gst, lux, gst, qst));
+		TaxClassRepository taxClassRepository = mock(TaxClassRepository.class);
+		when(taxClassRepository.findByCode(anyString())).thenReturn(standard);
+
+		index = new TaxTableIndex();
+		ReflectionTestUtils.setField(index, "taxRateRepository", taxRateRepository);
+		ReflectionTestUtils.setField(index, "taxClassRepository", taxClassRepository);
+	}
+
+	@Test
+	public void testRateChains() {
+
+		TaxTable table = index.get(store);
+
+		// rates without zone apply in every zone of the country
+		Assert.assertEquals(Arrays.asList("GST", "PST", "QST"), codes(table.getRates(country, zone(10L), null, 1L)));
+		// zone without its own rates
+		Assert.assertEquals(Arrays.asList("GST", "QST"), codes(table.getRates(country, zone(11L), null, 1L)));
+		Assert.assertEquals(Arrays.asList("QST"), codes(table.getRates(country, null, "QC", 1L)));
+		Assert.assertEquals(Arrays.asList("LUX"), codes(table.getRates(country, zone(10L), null, 2L)));
+		Assert.assertTrue(table.getRates(country, zone(11L), null, 2L).isEmpty());
+	}
+
+	@Test
+	public void testCompoundTaxes() {
+
+		TaxTable table = index.get(store);
+
+		Map<Long, BigDecimal> amounts = new HashMap<Long, BigDecimal>();
+		amounts.put(1L, new BigDecimal("100.00"));
+		amounts.put(2L, new BigDecimal("50.00"));
+		List<TaxItem> taxes = table.calculate(amounts, country, zone(10L), null, english);
+
+		Assert.assertEquals(4, taxes.size());
+		Assert.assertEquals("GST", taxes.get(0).getTaxRate().getCode());
+		Assert.assertEquals(new BigDecimal("5.00"), taxes.get(0).getItemPrice());
+		Assert.assertEquals("LUX", taxes.get(1).getTaxRate().getCode());
+		Assert.assertEquals(new BigDecimal("5.00"), taxes.get(1).getItemPrice());
+		// piggyback on 105.00
+		Assert.assertEquals("PST", taxes.get(2).getTaxRate().getCode());
+		Assert.assertEquals(new BigDecimal("8.40"), taxes.get(2).getItemPrice());
+		Assert.assertEquals("PST label", taxes.get(2).getLabel());
+		// nominal on the amount of the previous rate
+		Assert.assertEquals(new BigDecimal("9.45"), taxes.get(3).getItemPrice());
+
+		Language french = new Language();
+		french.setId(2);
+		Assert.assertNull(table.calculate(amounts, country, zone(10L), null, french));
+	}
+
+	@Test
+	public void testTableIsCompiledAgainWhenRatesChange() {
+
+		TaxTable table = index.get(store);
+		Assert.assertSame(table, index.get(store));
+
+		index.invalidate(store);
+		Assert.assertNotSame(table, index.get(store));
+		verify(taxRateRepository, times(2)).findByStore(anyInt());
+
+		index.invalidate(null);
+		index.get(store);
+		verify(taxRateRepository, times(3)).findByStore(anyInt());
+	}
+
+	private TaxClass taxClass(Long id, String code) {
+		TaxClass taxClass = new TaxClass();
+		taxClass.setId(id);
+		taxClass.setCode(code);
+		return taxClass;
+	}
+
+	private Zone zone(Long id) {
+		Zone zone = new Zone();
+		zone.setId(id);
+		return zone;
+	}
+
+	private TaxRate rate(Long id, String code, int rate, int priority, boolean piggyback, TaxClass taxClass, Zone zone, String stateProvince) {
+		TaxRate taxRate = new TaxRate();
+		taxRate.setId(id);
+		taxRate.setCode(code);
+		taxRate.setTaxRate(new BigDecimal(rate));
+		taxRate.setTaxPriority(priority);
+		taxRate.setPiggyback(piggyback);
+		taxRate.setTaxClass(taxClass);
+		taxRate.setCountry(country);
+		taxRate.setZone(zone);
+		taxRate.setStateProvince(stateProvince);
+		TaxRateDescription description = new TaxRateDescription();
+		description.setLanguage(english);
+		description.setName(code + " label");
+		taxRate.getDescriptions().add(description);
+		return taxRate;
+	}
+
+	private List<String> codes(List<TaxRate> rates) {
+		return rates.stream().map(TaxRate::getCode).collect(Collectors.toList());
+	}
+
+}
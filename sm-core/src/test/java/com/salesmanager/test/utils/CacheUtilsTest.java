@@ -0,0 +1,215 @@
+package com.salesmanager.test.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.ehcache.EhCacheCache;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.salesmanager.core.business.modules.cache.CacheStatistics;
+import com.salesmanager.core.business.modules.cache.NoSharedCacheTier;
+import com.salesmanager.core.business.utils.CacheUtils;
+import com.salesmanager.core.model.merchant.MerchantStore;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+
+/**
+ * Object cache without shared tier
+ */
+public class CacheUtilsTest {
+
+	private CacheManager manager;
+	private CacheUtils cache;
+
+	@Before
+	public void setUp() {
+		Configuration configuration = new Configuration().name("cache-utils-test")
+				.defaultCache(new CacheConfiguration("default", 100));
+		manager = new CacheManager(configuration);
+		manager.addCache(new net.sf.ehcache.Cache(new CacheConfiguration("com.shopizer.OBJECT_CACHE", 100)
+				.timeToLiveSeconds(1200)));
+
+		cache = cache(2, 100);
+	}
+
+	private CacheUtils cache(int refreshThreads, int refreshQueueSize) {
+		CacheUtils cache = new CacheUtils();
+		ReflectionTestUtils.setField(cache, "cache", new EhCacheCache(manager.getEhcache("com.shopizer.OBJECT_CACHE")));
+		ReflectionTestUtils.setField(cache, "sharedCache", new NoSharedCacheTier());
+		ReflectionTestUtils.setField(cache, "refreshThreads", refreshThreads);
+		ReflectionTestUtils.setField(cache, "refreshQueueSize", refreshQueueSize);
+		cache.init();
+		return cache;
+	}
+
+	@After
+	public void tearDown() {
+		cache.destroy();
+		manager.shutdown();
+	}
+
+	@Test
+	public void testStoreEviction() throws Exception {
+
+		cache.putInCache("config", "1_CONFIG");
+		cache.putInCache("content", "1_CONTENT-en");
+		cache.putInCache("config", "2_CONFIG");
+		cache.putInCache("countries", "COUNTRIES_en");
+
+		List<String> keys = cache.getCacheKeys(store(1));
+		Assert.assertEquals(2, keys.size());
+		Assert.assertTrue(keys.contains("CONTENT-en"));
+
+		cache.removeAllFromCache(store(1));
+
+		Assert.assertNull(cache.getFromCache("1_CONFIG"));
+		Assert.assertNull(cache.getFromCache("1_CONTENT-en"));
+		Assert.assertEquals("config", cache.getFromCache("2_CONFIG"));
+		Assert.assertEquals("countries", cache.getFromCache("COUNTRIES_en"));
+		Assert.assertTrue(cache.getCacheKeys(store(1)).isEmpty());
+
+		CacheStatistics statistics = cache.getStatistics();
+		Assert.assertEquals(2, statistics.getLocalHits());
+		Assert.assertEquals(2, statistics.getMisses());
+		Assert.assertEquals(4, statistics.getPuts());
+	}
+
+	@Test
+	public void testEntryTimeToLive() throws Exception {
+
+		cache.putInCache("short", "1_SHORT", 1);
+		cache.putInCache("long", "1_LONG");
+		Assert.assertEquals("short", cache.getFromCache("1_SHORT"));
+
+		Thread.sleep(2100);
+
+		Assert.assertNull(cache.getFromCache("1_SHORT"));
+		Assert.assertEquals("long", cache.getFromCache("1_LONG"));
+		Assert.assertEquals(1, cache.getCacheKeys(store(1)).size());
+	}
+
+	@Test
+	public void testConcurrentMissesLoadOnce() throws Exception {
+
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		List<Future<String>> results = new ArrayList<Future<String>>();
+		for (int i = 0; i < 8; i++) {
+			results.add(pool.submit(() -> {
+				start.await();
+				return cache.getFromCache("1_CATEGORIES-en", () -> {
+					calls.incrementAndGet();
+					Thread.sleep(300);
+					return "categories";
+				});
+			}));
+		}
+		start.countDown();
+		for (Future<String> result : results) {
+			Assert.assertEquals("categories", result.get(5, TimeUnit.SECONDS));
+		}
+		pool.shutdown();
+
+		Assert.assertEquals(1, calls.get());
+		Assert.assertEquals(7, cache.getStatistics().getCoalesced());
+	}
+
+	@Test
+	public void testStaleEntryIsRefreshedInBackground() throws Exception {
+
+		AtomicInteger version = new AtomicInteger();
+		Assert.assertEquals("v1", cache.getFromCache("1_CONFIG", 1, () -> "v" + version.incrementAndGet()));
+
+		Thread.sleep(1100);
+
+		// stale value served while refreshing
+		Assert.assertEquals("v1", cache.getFromCache("1_CONFIG", 1, () -> {
+			Thread.sleep(200);
+			return "v" + version.incrementAndGet();
+		}));
+		Thread.sleep(500);
+
+		Assert.assertEquals("v2", cache.getFromCache("1_CONFIG"));
+		Assert.assertEquals(1, cache.getStatistics().getRefreshes());
+	}
+
+	@Test
+	public void testKeyIsRefreshedOnceAtATime() throws Exception {
+
+		AtomicInteger calls = new AtomicInteger();
+		cache.getFromCache("1_CONFIG", 1, () -> "v" + calls.incrementAndGet());
+
+		Thread.sleep(1100);
+
+		CountDownLatch release = new CountDownLatch(1);
+		for (int i = 0; i < 10; i++) {
+			Assert.assertEquals("v1", cache.getFromCache("1_CONFIG", 1, () -> {
+				release.await(5, TimeUnit.SECONDS);
+				return "v" + calls.incrementAndGet();
+			}));
+		}
+		release.countDown();
+		Thread.sleep(300);
+
+		Assert.assertEquals("v2", cache.getFromCache("1_CONFIG"));
+		Assert.assertEquals(2, calls.get());
+		Assert.assertEquals(1, cache.getStatistics().getRefreshes());
+	}
+
+	@Test
+	public void testRefreshesAreDroppedWhenSaturated() throws Exception {
+
+		cache.destroy();
+		cache = cache(1, 1);
+
+		for (int i = 0; i < 5; i++) {
+			String value = "v" + i;
+			cache.getFromCache("1_KEY" + i, 1, () -> value);
+		}
+
+		Thread.sleep(1100);
+
+		// one refresh running, one waiting, the others dropped
+		CountDownLatch release = new CountDownLatch(1);
+		for (int i = 0; i < 5; i++) {
+			String value = "w" + i;
+			Assert.assertEquals("v" + i, cache.getFromCache("1_KEY" + i, 1, () -> {
+				release.await(5, TimeUnit.SECONDS);
+				return value;
+			}));
+		}
+		CacheStatistics statistics = cache.getStatistics();
+		Assert.assertEquals(2, statistics.getRefreshes());
+		Assert.assertEquals(3, statistics.getRefreshesDropped());
+		release.countDown();
+		Thread.sleep(300);
+
+		Assert.assertEquals("w0", cache.getFromCache("1_KEY0"));
+		Assert.assertEquals("w1", cache.getFromCache("1_KEY1"));
+
+		// a dropped key is refreshed by a later read
+		Assert.assertEquals("v4", cache.getFromCache("1_KEY4", 1, () -> "w4"));
+		Thread.sleep(300);
+		Assert.assertEquals("w4", cache.getFromCache("1_KEY4"));
+	}
+
+	private MerchantStore store(int id) {
+		MerchantStore store = new MerchantStore();
+		store.setId(id);
+		return store;
+	}
+
+}
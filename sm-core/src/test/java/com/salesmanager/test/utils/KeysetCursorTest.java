@@ -0,0 +1,48 @@
+package com.salesmanager.test.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesmanager.core.business.utils.KeysetCursor;
+
+/**
+ * Cursors of the product and order lists
+ */
+public class KeysetCursorTest {
+
+	@Test
+	public void testPositionsAreEncodedAndDecoded() {
+
+		Assert.assertArrayEquals(new long[] { 3, 42 }, KeysetCursor.decode(KeysetCursor.encode(3, 42L), 2, "product"));
+		Assert.assertArrayEquals(new long[] { -1, 7 }, KeysetCursor.decode(KeysetCursor.encode(-1, 7L), 2, "product"));
+		Assert.assertArrayEquals(new long[] { 1000 }, KeysetCursor.decode(KeysetCursor.encode(1000L), 1, "order"));
+
+		// url safe, the cursor of a page is a query parameter
+		Assert.assertEquals(Base64.getUrlEncoder().withoutPadding().encodeToString("0:12".getBytes(StandardCharsets.UTF_8)),
+				KeysetCursor.encode(0, 12L));
+
+		// start of the list
+		Assert.assertNull(KeysetCursor.decode(null, 2, "product"));
+		Assert.assertNull(KeysetCursor.decode("", 1, "order"));
+	}
+
+	@Test
+	public void testMalformedCursorsAreRejected() {
+
+		String[] malformed = { "not-a-cursor", "%%%", KeysetCursor.encode(3, 42L), KeysetCursor.encode(1L, 2L, 3L),
+				Base64.getUrlEncoder().encodeToString("a:b".getBytes(StandardCharsets.UTF_8)),
+				Base64.getUrlEncoder().encodeToString("1:".getBytes(StandardCharsets.UTF_8)) };
+		for (String cursor : malformed) {
+			try {
+				KeysetCursor.decode(cursor, cursor.equals(KeysetCursor.encode(3, 42L)) ? 1 : 2, "order");
+				Assert.fail("Accepted " + cursor);
+			} catch (IllegalArgumentException e) {
+				Assert.assertTrue(e.getMessage().startsWith("Invalid order cursor"));
+			}
+		}
+	}
+
+}
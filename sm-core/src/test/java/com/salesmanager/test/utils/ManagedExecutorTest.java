@@ -0,0 +1,154 @@
+package com.salesmanager.test.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+import com.salesmanager.core.business.modules.executor.ManagedExecutor;
+import com.salesmanager.core.business.modules.executor.ManagedExecutor.RejectionPolicy;
+import com.salesmanager.core.business.modules.executor.ManagedExecutors;
+import com.salesmanager.core.model.common.UserContext;
+
+/**
+ * Bounded executors, context propagation and drain on shutdown
+ */
+public class ManagedExecutorTest {
+
+	@Test
+	public void testContextIsPropagated() throws Exception {
+
+		ManagedExecutor executor = new ManagedExecutor("test", 1, 10, RejectionPolicy.ABORT, false);
+		AtomicReference<String> request = new AtomicReference<String>();
+		AtomicReference<String> ipAddress = new AtomicReference<String>();
+		AtomicReference<String> thread = new AtomicReference<String>();
+
+		UserContext userContext = UserContext.create();
+		userContext.setIpAddress("10.0.0.1");
+		MDC.put("request", "42");
+		try {
+			executor.submit(() -> {
+				request.set(MDC.get("request"));
+				ipAddress.set(UserContext.getCurrentInstance().getIpAddress());
+				thread.set(Thread.currentThread().getName());
+			}).get(5, TimeUnit.SECONDS);
+		} finally {
+			MDC.remove("request");
+			userContext.close();
+		}
+
+		Assert.assertEquals("42", request.get());
+		Assert.assertEquals("10.0.0.1", ipAddress.get());
+		Assert.assertTrue(thread.get().startsWith("test-"));
+
+		// worker thread left clean
+		executor.submit(() -> {
+			request.set(MDC.get("request"));
+			ipAddress.set(UserContext.getCurrentInstance() == null ? null : "set");
+		}).get(5, TimeUnit.SECONDS);
+		Assert.assertNull(request.get());
+		Assert.assertNull(ipAddress.get());
+
+		executor.drain(5);
+		Assert.assertEquals(2, executor.getCompleted());
+	}
+
+	@Test
+	public void testSaturatedExecutor() throws Exception {
+
+		CountDownLatch release = new CountDownLatch(1);
+		ManagedExecutor abort = new ManagedExecutor("abort", 1, 1, RejectionPolicy.ABORT, false);
+		abort.execute(() -> await(release));
+		abort.execute(() -> await(release));
+		try {
+			abort.execute(() -> await(release));
+			Assert.fail("Task accepted over the queue size");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+		Assert.assertEquals(1, abort.getRejected());
+		Assert.assertEquals(1, abort.getQueued());
+
+		ManagedExecutor callerRuns = new ManagedExecutor("callerRuns", 1, 1, RejectionPolicy.CALLER_RUNS, false);
+		callerRuns.execute(() -> await(release));
+		callerRuns.execute(() -> await(release));
+		AtomicReference<Thread> thread = new AtomicReference<Thread>();
+		callerRuns.execute(() -> thread.set(Thread.currentThread()));
+		Assert.assertSame(Thread.currentThread(), thread.get());
+
+		release.countDown();
+		abort.drain(5);
+		callerRuns.drain(5);
+		Assert.assertEquals(2, abort.getCompleted());
+		Assert.assertEquals(3, callerRuns.getCompleted());
+	}
+
+	@Test
+	public void testQueuedTasksCompleteOnDrain() throws Exception {
+
+		ManagedExecutor executor = new ManagedExecutor("drain", 2, 100, RejectionPolicy.ABORT, false);
+		AtomicInteger done = new AtomicInteger();
+		for (int i = 0; i < 20; i++) {
+			executor.execute(() -> {
+				sleep(10);
+				done.incrementAndGet();
+			});
+		}
+		executor.drain(10);
+
+		Assert.assertTrue(executor.isTerminated());
+		Assert.assertEquals(20, done.get());
+		Assert.assertTrue(executor.getRunTime(TimeUnit.MILLISECONDS) >= 200);
+		try {
+			executor.execute(() -> done.incrementAndGet());
+			Assert.fail("Task accepted after shutdown");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testListenersAreGivenEveryExecutor() {
+
+		ManagedExecutors executors = new ManagedExecutors();
+		ManagedExecutor email = executors.get(ManagedExecutors.EMAIL);
+
+		List<String> created = new ArrayList<String>();
+		executors.addListener(executor -> created.add(executor.getName()));
+		Assert.assertEquals(Collections.singletonList(ManagedExecutors.EMAIL), created);
+
+		// created after the listener, once
+		executors.get(ManagedExecutors.SHIPPING);
+		executors.get(ManagedExecutors.SHIPPING);
+		Assert.assertSame(email, executors.get(ManagedExecutors.EMAIL));
+		Assert.assertEquals(Arrays.asList(ManagedExecutors.EMAIL, ManagedExecutors.SHIPPING), created);
+
+		executors.drain();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -13,11 +13,18 @@ public class ReadableProductList extends ReadableList {
 	private static final long serialVersionUID = 1L;
 	
 	private List<ReadableProduct> products = new ArrayList<ReadableProduct>();
+	private String nextCursor;
 	public void setProducts(List<ReadableProduct> products) {
 		this.products = products;
 	}
 	public List<ReadableProduct> getProducts() {
 		return products;
 	}
+	public String getNextCursor() {
+		return nextCursor;
+	}
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
 
 }
@@ -11,6 +11,8 @@ public class ReadableProductVariantValue implements Serializable {
 	private String name;
 	private Long option;//option id
 	private Long value;//option value id
+	private int count;//products of the list having the value
+	private boolean selected;
 	
 
 
@@ -50,4 +52,28 @@ public class ReadableProductVariantValue implements Serializable {
 
 
 
+  public int getCount() {
+    return count;
+  }
+
+
+
+  public void setCount(int count) {
+    this.count = count;
+  }
+
+
+
+  public boolean isSelected() {
+    return selected;
+  }
+
+
+
+  public void setSelected(boolean selected) {
+    this.selected = selected;
+  }
+
+
+
 }
@@ -14,6 +14,7 @@ public class ReadableOrderList extends ReadableList implements Serializable {
 	private static final long serialVersionUID = 1L;
 	private int total;
 	private List<ReadableOrder> orders;
+	private String nextCursor;
 	
 	
 	
@@ -29,5 +30,11 @@ public class ReadableOrderList extends ReadableList implements Serializable {
 	public void setOrders(List<ReadableOrder> orders) {
 		this.orders = orders;
 	}
+	public String getNextCursor() {
+		return nextCursor;
+	}
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
 
 }
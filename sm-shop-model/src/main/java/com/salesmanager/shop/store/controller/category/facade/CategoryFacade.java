@@ -68,6 +68,17 @@ public interface CategoryFacade {
 	 */
 	List<ReadableProductVariant> categoryProductVariants(Long categoryId, MerchantStore store, Language language);
 
+	/**
+	 * Product options variations for a given category and its sub categories
+	 * with the number of products of each value
+	 * @param categoryId
+	 * @param selectedValues option value ids the product list is filtered on
+	 * @param store
+	 * @param language
+	 * @return
+	 */
+	List<ReadableProductVariant> categoryProductVariants(Long categoryId, List<Long> selectedValues, MerchantStore store, Language language);
+
 	/**
 	 * Check if category code already exist
 	 * @param store
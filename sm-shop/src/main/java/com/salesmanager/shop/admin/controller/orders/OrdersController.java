@@ -8,9 +8,9 @@ import com.salesmanager.core.business.utils.ajax.AjaxPageableResponse;
 import com.salesmanager.core.business.utils.ajax.AjaxResponse;
 import com.salesmanager.core.model.common.CriteriaOrderBy;
 import com.salesmanager.core.model.merchant.MerchantStore;
-import com.salesmanager.core.model.order.Order;
 import com.salesmanager.core.model.order.OrderCriteria;
 import com.salesmanager.core.model.order.OrderList;
+import com.salesmanager.core.model.order.OrderListItem;
 import com.salesmanager.core.model.reference.language.Language;
 import com.salesmanager.core.model.system.IntegrationModule;
 import com.salesmanager.shop.admin.controller.ControllerConstants;
@@ -98,7 +98,7 @@ public class OrdersController {
 			OrderCriteria criteria = new OrderCriteria();
 			criteria.setOrderBy(CriteriaOrderBy.DESC);
 			criteria.setStartIndex(startRow);
-			criteria.setMaxCount(endRow);
+			criteria.setMaxCount(endRow - startRow);
 			if(!StringUtils.isBlank(paymentModule)) {
 				criteria.setPaymentMethod(paymentModule);
 			}
@@ -112,16 +112,16 @@ public class OrdersController {
 			List<IntegrationModule> paymentModules = moduleConfigurationService.getIntegrationModules( "PAYMENT" );
 
 
-			OrderList orderList = orderService.listByStore(store, criteria);
+			OrderList orderList = orderService.listItemsByStore(store, criteria);
 		
-			if(orderList.getOrders()!=null) {	
+			if(orderList.getItems()!=null) {	
 			
-				for(Order order : orderList.getOrders()) {
+				for(OrderListItem order : orderList.getItems()) {
 					
 					@SuppressWarnings("rawtypes")
 					Map entry = new HashMap();
 					entry.put("orderId", order.getId());
-					entry.put("customer", order.getBilling().getFirstName() + " " + order.getBilling().getLastName());
+					entry.put("customer", order.getFirstName() + " " + order.getLastName());
 					entry.put("amount", priceUtil.getAdminFormatedAmountWithCurrency(store,order.getTotal()));//todo format total
 					entry.put("date", DateUtil.formatDate(order.getDatePurchased()));
 					entry.put("status", order.getStatus().name());
@@ -1,28 +1,72 @@
 package com.salesmanager.shop.application.config;
 
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
 import org.springframework.aop.interceptor.SimpleAsyncUncaughtExceptionHandler;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import com.salesmanager.core.business.modules.executor.ManagedExecutor;
+import com.salesmanager.core.business.modules.executor.ManagedExecutors;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
 
+/**
+ * Async methods run on the named executors of the core (ExecutorsConfiguration),
+ * @Async("emailExecutor") selects one. Executors are drained by ManagedExecutors
+ * when the application stops.
+ */
 @Configuration
 @EnableScheduling
 @EnableAsync
 public class AsyncConfig implements AsyncConfigurer {
 
-  private static final int EXECUTOR_SERVICE_NUMBER_THREADS = 5;
+  @Inject
+  private ManagedExecutors executors;
 
   @Override
   public Executor getAsyncExecutor() {
-    return Executors.newFixedThreadPool(EXECUTOR_SERVICE_NUMBER_THREADS);
+    return executors.get(ManagedExecutors.EVENTS);
   }
 
   @Override
   public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
     return new SimpleAsyncUncaughtExceptionHandler();
   }
+
+  /**
+   * executor.* meters of all the executors tagged with the executor name,
+   * available from /actuator/metrics
+   */
+  @Bean
+  public MeterBinder executorMetrics() {
+    // executors are created on first use, each is bound when it is created
+    return registry -> executors.addListener(executor -> {
+      String name = executor.getName();
+      Gauge.builder("executor.queued", executor, ManagedExecutor::getQueued)
+          .tag("name", name).description("Tasks waiting for a thread").register(registry);
+      Gauge.builder("executor.active", executor, ManagedExecutor::getActive)
+          .tag("name", name).description("Tasks running").register(registry);
+      Gauge.builder("executor.pool.size", executor, ManagedExecutor::getPoolSize)
+          .tag("name", name).register(registry);
+      FunctionCounter.builder("executor.submitted", executor, ManagedExecutor::getSubmitted)
+          .tag("name", name).register(registry);
+      FunctionCounter.builder("executor.failed", executor, ManagedExecutor::getFailed)
+          .tag("name", name).register(registry);
+      FunctionCounter.builder("executor.rejected", executor, ManagedExecutor::getRejected)
+          .tag("name", name).description("Tasks over the queue size").register(registry);
+      FunctionTimer.builder("executor.wait", executor, e -> e.getCompleted() + e.getFailed(),
+          e -> e.getWaitTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+          .tag("name", name).description("Time tasks waited for a thread").register(registry);
+      FunctionTimer.builder("executor.execution", executor, e -> e.getCompleted() + e.getFailed(),
+          e -> e.getRunTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+          .tag("name", name).register(registry);
+    });
+  }
 }
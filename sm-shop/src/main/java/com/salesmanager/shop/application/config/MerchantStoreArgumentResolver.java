@@ -3,8 +3,8 @@ package com.salesmanager.shop.application.config;
 import static com.salesmanager.core.business.constants.Constants.DEFAULT_STORE;
 import static org.apache.commons.lang.StringUtils.isBlank;
 
+import com.salesmanager.core.business.services.merchant.MerchantStoreRegistry;
 import com.salesmanager.core.model.merchant.MerchantStore;
-import com.salesmanager.shop.store.controller.store.facade.StoreFacade;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.MethodParameter;
 import org.springframework.stereotype.Component;
@@ -16,7 +16,7 @@ import org.springframework.web.method.support.ModelAndViewContainer;
 @Component
 public class MerchantStoreArgumentResolver implements HandlerMethodArgumentResolver {
 
-  @Autowired private StoreFacade storeFacade;
+  @Autowired private MerchantStoreRegistry merchantStoreRegistry;
 
   @Override
   public boolean supportsParameter(MethodParameter parameter) {
@@ -32,6 +32,7 @@ public class MerchantStoreArgumentResolver implements HandlerMethodArgumentResol
       throws Exception {
     String store = webRequest.getParameter("store");
     String storeValue = isBlank(store) ? DEFAULT_STORE : store;
-    return storeFacade.get(storeValue);
+    // shared read only store, modifications load the store with MerchantStoreService
+    return merchantStoreRegistry.getByCode(storeValue);
   }
 }
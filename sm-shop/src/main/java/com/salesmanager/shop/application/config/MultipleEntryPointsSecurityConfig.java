@@ -266,6 +266,49 @@ public class MultipleEntryPointsSecurityConfig {
 
 	}
 
+	/**
+	 * actuator, health and info are public, other endpoints such as metrics
+	 * require an administrator
+	 *
+	 */
+	@Configuration
+	@Order(4)
+	public static class ActuatorConfigurationAdapter extends WebSecurityConfigurerAdapter {
+
+		@Autowired
+		private WebUserServices userDetailsService;
+
+		public ActuatorConfigurationAdapter() {
+			super();
+		}
+
+		@Override
+		public void configure(AuthenticationManagerBuilder auth) throws Exception {
+			auth.userDetailsService(userDetailsService);
+		}
+
+		@Override
+		protected void configure(HttpSecurity http) throws Exception {
+			http
+			.antMatcher("/actuator/**")
+			.csrf().disable()
+					.authorizeRequests()
+					.antMatchers("/actuator/health", "/actuator/health/**", "/actuator/info").permitAll()
+					.antMatchers("/actuator/**").hasRole("STORE_ADMIN")
+					.anyRequest().authenticated()
+					.and().httpBasic().authenticationEntryPoint(actuatorAuthenticationEntryPoint());
+
+		}
+
+		@Bean
+		public AuthenticationEntryPoint actuatorAuthenticationEntryPoint() {
+			BasicAuthenticationEntryPoint entryPoint = new BasicAuthenticationEntryPoint();
+			entryPoint.setRealmName("actuator-realm");
+			return entryPoint;
+		}
+
+	}
+
 	/**
 	 * api - private
 	 * 
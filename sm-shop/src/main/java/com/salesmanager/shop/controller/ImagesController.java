@@ -7,6 +7,7 @@ import java.nio.file.Files;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -15,14 +16,14 @@ import org.springframework.stereotype.Controller;
 import org.springframework.util.ResourceUtils;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.ResponseBody;
 
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ContentResource;
 import com.salesmanager.core.business.services.catalog.product.image.ProductImageService;
 import com.salesmanager.core.business.services.content.ContentService;
 import com.salesmanager.core.model.catalog.product.file.ProductImageSize;
 import com.salesmanager.core.model.content.FileContentType;
-import com.salesmanager.core.model.content.OutputContentFile;
+import com.salesmanager.shop.utils.ContentResourceWriter;
 
 /**
  * When handling images and files from the application server
@@ -41,8 +42,11 @@ public class ImagesController {
 	
 	@Inject
 	private ProductImageService productImageService;
+
+	@Inject
+	private ContentResourceWriter contentResourceWriter;
 	
-	private byte[] tempImage = null;
+	private ContentResource tempImage = null;
 	
 	@PostConstruct
 	public void init() {
@@ -50,7 +54,7 @@ public class ImagesController {
 			File file = ResourceUtils.getFile("classpath:static/not-found.png");
 			if(file != null) {
 				byte[] bFile = Files.readAllBytes(file.toPath());
-				this.tempImage = bFile;
+				this.tempImage = ContentResource.fromBytes(file.getName(), bFile).toDirect();
 			}
 
 			
@@ -69,7 +73,7 @@ public class ImagesController {
 	 * @throws ServiceException 
 	 */
 	@RequestMapping("/static/files/{storeCode}/{imageType}/{imageName}.{extension}")
-	public @ResponseBody byte[] printImage(@PathVariable final String storeCode, @PathVariable final String imageType, @PathVariable final String imageName, @PathVariable final String extension) throws IOException, ServiceException {
+	public void printImage(@PathVariable final String storeCode, @PathVariable final String imageType, @PathVariable final String imageName, @PathVariable final String extension, HttpServletRequest request, HttpServletResponse response) throws IOException, ServiceException {
 
 		// example -> /static/files/DEFAULT/CONTENT/myImage.png
 		
@@ -87,14 +91,12 @@ public class ImagesController {
 			imgType = FileContentType.PROPERTY;
 		}
 		
-		OutputContentFile image =contentService.getContentFile(storeCode, imgType, new StringBuilder().append(imageName).append(".").append(extension).toString());
-		
-		
-		if(image!=null) {
-			return image.getFile().toByteArray();
-		} else {
-			return tempImage;
+		ContentResource image = null;
+		if(imgType!=null) {
+			image = contentService.getContentFileResource(storeCode, imgType, new StringBuilder().append(imageName).append(".").append(extension).toString());
 		}
+		
+		write(image, request, response);
 
 	}
 	
@@ -111,7 +113,7 @@ public class ImagesController {
 	 * @throws IOException
 	 */
 	@RequestMapping("/static/{storeCode}/{imageType}/{productCode}/{imageName}.{extension}")
-	public @ResponseBody byte[] printImage(@PathVariable final String storeCode, @PathVariable final String productCode, @PathVariable final String imageType, @PathVariable final String imageName, @PathVariable final String extension) throws IOException {
+	public void printImage(@PathVariable final String storeCode, @PathVariable final String productCode, @PathVariable final String imageType, @PathVariable final String imageName, @PathVariable final String extension, HttpServletRequest request, HttpServletResponse response) throws IOException {
 
 		// product image
 		// example small product image -> /static/DEFAULT/products/TB12345/product1.jpg
@@ -133,18 +135,13 @@ public class ImagesController {
 		
 
 		
-		OutputContentFile image = null;
+		ContentResource image = null;
 		try {
-			image = productImageService.getProductImage(storeCode, productCode, new StringBuilder().append(imageName).append(".").append(extension).toString(), size);
+			image = productImageService.getProductImageResource(storeCode, productCode, new StringBuilder().append(imageName).append(".").append(extension).toString(), size);
 		} catch (ServiceException e) {
 			LOGGER.error("Cannot retrieve image " + imageName, e);
 		}
-		if(image!=null) {
-			return image.getFile().toByteArray();
-		} else {
-			//empty image placeholder
-			return tempImage;
-		}
+		write(image, request, response);
 
 	}
 	
@@ -159,7 +156,7 @@ public class ImagesController {
 	 * @throws IOException
 	 */
 	@RequestMapping("/static/products/{storeCode}/{productCode}/{imageSize}/{imageName}.{extension}")
-	public @ResponseBody byte[] printImage(@PathVariable final String storeCode, @PathVariable final String productCode, @PathVariable final String imageSize, @PathVariable final String imageName, @PathVariable final String extension, HttpServletRequest request) throws IOException {
+	public void printProductImage(@PathVariable final String storeCode, @PathVariable final String productCode, @PathVariable final String imageSize, @PathVariable final String imageName, @PathVariable final String extension, HttpServletRequest request, HttpServletResponse response) throws IOException {
 
 		// product image small
 		// example small product image -> /static/products/DEFAULT/TB12345/SMALL/product1.jpg
@@ -182,18 +179,13 @@ public class ImagesController {
 	
 
 		
-		OutputContentFile image = null;
+		ContentResource image = null;
 		try {
-			image = productImageService.getProductImage(storeCode, productCode, new StringBuilder().append(imageName).append(".").append(extension).toString(), size);
+			image = productImageService.getProductImageResource(storeCode, productCode, new StringBuilder().append(imageName).append(".").append(extension).toString(), size);
 		} catch (ServiceException e) {
 			LOGGER.error("Cannot retrieve image " + imageName, e);
 		}
-		if(image!=null) {
-			return image.getFile().toByteArray();
-		} else {
-			//empty image placeholder
-			return tempImage;
-		}
+		write(image, request, response);
 
 	}
 	
@@ -208,7 +200,7 @@ public class ImagesController {
 	 * @throws IOException
 	 */
 	@RequestMapping("/static/products/{storeCode}/{productCode}/{imageName}.{extension}")
-	public @ResponseBody byte[] printImage(@PathVariable final String storeCode, @PathVariable final String productCode, @PathVariable final String imageName, @PathVariable final String extension, HttpServletRequest request) throws IOException {
+	public void printProductImage(@PathVariable final String storeCode, @PathVariable final String productCode, @PathVariable final String imageName, @PathVariable final String extension, HttpServletRequest request, HttpServletResponse response) throws IOException {
 
 		// product image
 		// example small product image -> /static/products/DEFAULT/TB12345/product1.jpg?size=small
@@ -236,19 +228,27 @@ public class ImagesController {
 		
 
 		
-		OutputContentFile image = null;
+		ContentResource image = null;
 		try {
-			image = productImageService.getProductImage(storeCode, productCode, new StringBuilder().append(imageName).append(".").append(extension).toString(), size);
+			image = productImageService.getProductImageResource(storeCode, productCode, new StringBuilder().append(imageName).append(".").append(extension).toString(), size);
 		} catch (ServiceException e) {
 			LOGGER.error("Cannot retrieve image " + imageName, e);
 		}
+		write(image, request, response);
+
+	}
+
+	/**
+	 * Writes the image or the empty image placeholder, which is not cached
+	 */
+	private void write(ContentResource image, HttpServletRequest request, HttpServletResponse response) throws IOException {
 		if(image!=null) {
-			return image.getFile().toByteArray();
+			contentResourceWriter.write(image, request, response);
+		} else if(tempImage!=null) {
+			contentResourceWriter.write(tempImage, "no-cache", request, response);
 		} else {
-			//empty image placeholder
-			return tempImage;
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
 		}
-
 	}
 
 }
@@ -1,11 +1,12 @@
 package com.salesmanager.shop.filter;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salesmanager.core.business.modules.cache.CacheLoader;
 import com.salesmanager.core.business.services.catalog.category.CategoryService;
 import com.salesmanager.core.business.services.catalog.product.ProductService;
 import com.salesmanager.core.business.services.content.ContentService;
 import com.salesmanager.core.business.services.customer.CustomerService;
-import com.salesmanager.core.business.services.merchant.MerchantStoreService;
+import com.salesmanager.core.business.services.merchant.MerchantStoreRegistry;
 import com.salesmanager.core.business.services.reference.language.LanguageService;
 import com.salesmanager.core.business.services.system.MerchantConfigurationService;
 import com.salesmanager.core.business.utils.CacheUtils;
@@ -45,6 +46,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
 
@@ -76,7 +79,7 @@ public class StoreFilter extends HandlerInterceptorAdapter {
 	private ProductService productService;
 
 	@Inject
-	private MerchantStoreService merchantService;
+	private MerchantStoreRegistry merchantStoreRegistry;
 
 	@Inject
 	private CustomerService customerService;
@@ -105,6 +108,9 @@ public class StoreFilter extends HandlerInterceptorAdapter {
 	@Inject
 	private CoreConfiguration coreConfiguration;
 
+	@Inject
+	private PlatformTransactionManager transactionManager;
+
 	private final static String SERVICES_URL_PATTERN = "/services";
 	private final static String REFERENCE_URL_PATTERN = "/reference";
 
@@ -379,28 +385,9 @@ public class StoreFilter extends HandlerInterceptorAdapter {
 		Map<String, Object> configs = null;
 
 		if (store.isUseCache()) {
-
-			// get from the cache
-			configs = (Map<String, Object>) cache.getFromCache(configKey.toString());
-			if (configs == null) {
-				// get from missed cache
-				// Boolean missedContent =
-				// (Boolean)cache.getFromCache(configKeyMissed.toString());
-
-				// if( missedContent==null) {
-				configs = this.getConfigurations(store);
-				// put in cache
-
-				if (configs != null) {
-					cache.putInCache(configs, configKey.toString());
-				} else {
-					// put in missed cache
-					// cache.putInCache(new Boolean(true),
-					// configKeyMissed.toString());
-				}
-				// }
-			}
-
+			// loaded once for concurrent requests
+			configs = cache.getFromCache(configKey.toString(),
+					storeLoader(store.getCode(), null, (s, l) -> this.getConfigurations(s)));
 		} else {
 			configs = this.getConfigurations(store);
 		}
@@ -437,30 +424,8 @@ public class StoreFilter extends HandlerInterceptorAdapter {
 		Map<String, List<ContentDescription>> contents = null;
 
 		if (store.isUseCache()) {
-
-			// get from the cache
-			contents = (Map<String, List<ContentDescription>>) cache.getFromCache(contentKey.toString());
-
-			if (contents == null) {
-				// get from missed cache
-				// Boolean missedContent =
-				// (Boolean)cache.getFromCache(contentKeyMissed.toString());
-
-				// if(missedContent==null) {
-
-				contents = this.getContentPagesNames(store, language);
-
-				if (contents != null) {
-					// put in cache
-					cache.putInCache(contents, contentKey.toString());
-
-				} else {
-					// put in missed cache
-					// cache.putInCache(new Boolean(true),
-					// contentKeyMissed.toString());
-				}
-				// }
-			}
+			contents = cache.getFromCache(contentKey.toString(),
+					storeLoader(store.getCode(), language.getCode(), this::getContentPagesNames));
 		} else {
 			contents = this.getContentPagesNames(store, language);
 		}
@@ -500,30 +465,11 @@ public class StoreFilter extends HandlerInterceptorAdapter {
 		Map<String, List<Content>> contents = null;
 
 		if (store.isUseCache()) {
-
-			// get from the cache
-			contents = (Map<String, List<Content>>) cache.getFromCache(contentKey.toString());
-
-			if (contents == null) {
-
-				// get from missed cache
-				// Boolean missedContent =
-				// (Boolean)cache.getFromCache(contentKeyMissed.toString());
-
-				// if(missedContent==null) {
-
-				contents = this.getContent(store, language);
-				if (contents != null && contents.size() > 0) {
-					// put in cache
-					cache.putInCache(contents, contentKey.toString());
-				} else {
-					// put in missed cache
-					// cache.putInCache(new Boolean(true),
-					// contentKeyMissed.toString());
-				}
-				// }
-
-			}
+			contents = cache.getFromCache(contentKey.toString(), storeLoader(store.getCode(), language.getCode(), (s, l) -> {
+				Map<String, List<Content>> loaded = this.getContent(s, l);
+				// empty content is not cached
+				return loaded != null && loaded.size() > 0 ? loaded : null;
+			}));
 		} else {
 
 			contents = this.getContent(store, language);
@@ -565,24 +511,20 @@ public class StoreFilter extends HandlerInterceptorAdapter {
 		List<ReadableCategory> loadedCategories = null;
 
 		if (store.isUseCache()) {
-			objects = (Map<String, List<ReadableCategory>>) webApplicationCache.getFromCache(categoriesKey.toString());
-
-			if (objects == null) {
+			objects = cache.getFromCache(categoriesKey.toString(), storeLoader(store.getCode(), language.getCode(), (s, l) -> {
 				// load categories
-				ReadableCategoryList categoryList = categoryFacade.getCategoryHierarchy(store, null, 0, language, null,
+				ReadableCategoryList categoryList = categoryFacade.getCategoryHierarchy(s, null, 0, l, null,
 						0, 200);// null
-				loadedCategories = categoryList.getCategories();
+				List<ReadableCategory> categories = categoryList.getCategories();
 
 				// filter out invisible category
-				loadedCategories.stream().filter(cat -> cat.isVisible() == true).collect(Collectors.toList());
+				categories.stream().filter(cat -> cat.isVisible() == true).collect(Collectors.toList());
 
-				objects = new ConcurrentHashMap<String, List<ReadableCategory>>();
-				objects.put(language.getCode(), loadedCategories);
-				webApplicationCache.putInCache(categoriesKey.toString(), objects);
-
-			} else {
-				loadedCategories = objects.get(language.getCode());
-			}
+				Map<String, List<ReadableCategory>> loaded = new ConcurrentHashMap<String, List<ReadableCategory>>();
+				loaded.put(l.getCode(), categories);
+				return loaded;
+			}));
+			loadedCategories = objects.get(language.getCode());
 
 		} else {
 
@@ -597,6 +539,49 @@ public class StoreFilter extends HandlerInterceptorAdapter {
 
 	}
 
+	/**
+	 * Cache loader of a store entry. Loaders are refreshed in background on
+	 * cache-refresh threads, they capture only the store and language codes,
+	 * the store and language are loaded again in a read only transaction.
+	 */
+	private <T> CacheLoader<T> storeLoader(String storeCode, String languageCode, StoreLoader<T> loader) {
+		return () -> {
+			TransactionTemplate template = new TransactionTemplate(transactionManager);
+			template.setReadOnly(true);
+			try {
+				return template.execute(status -> {
+					try {
+						MerchantStore store = merchantStoreRegistry.getByCode(storeCode);
+						if (store == null) {
+							return null;
+						}
+						Language language = languageCode != null ? languageService.getByCode(languageCode) : null;
+						return loader.load(store, language);
+					} catch (RuntimeException e) {
+						throw e;
+					} catch (Exception e) {
+						throw new StoreLoaderException(e);
+					}
+				});
+			} catch (StoreLoaderException e) {
+				throw (Exception) e.getCause();
+			}
+		};
+	}
+
+	@FunctionalInterface
+	private interface StoreLoader<T> {
+		T load(MerchantStore store, Language language) throws Exception;
+	}
+
+	private static class StoreLoaderException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		StoreLoaderException(Exception cause) {
+			super(cause);
+		}
+	}
+
 	private Map<String, List<ContentDescription>> getContentPagesNames(MerchantStore store, Language language)
 			throws Exception {
 
@@ -919,7 +904,7 @@ public class StoreFilter extends HandlerInterceptorAdapter {
 	private MerchantStore setMerchantStoreInSession(HttpServletRequest request, String storeCode) throws Exception {
 		if (storeCode == null || request == null)
 			return null;
-		MerchantStore store = merchantService.getByCode(storeCode);
+		MerchantStore store = merchantStoreRegistry.getByCode(storeCode);
 		if (store != null) {
 			request.getSession().setAttribute(Constants.MERCHANT_STORE, store);
 		}
@@ -0,0 +1,220 @@
+package com.salesmanager.shop.populator.catalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+
+import com.salesmanager.core.business.exception.ConversionException;
+import com.salesmanager.core.business.services.catalog.category.CategoryTree;
+import com.salesmanager.core.business.services.catalog.product.PricingService;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductListing;
+import com.salesmanager.core.business.utils.AbstractDataPopulator;
+import com.salesmanager.core.model.catalog.category.Category;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.shop.model.catalog.category.ReadableCategory;
+import com.salesmanager.shop.model.catalog.manufacturer.ManufacturerDescription;
+import com.salesmanager.shop.model.catalog.manufacturer.ReadableManufacturer;
+import com.salesmanager.shop.model.catalog.product.ProductDescription;
+import com.salesmanager.shop.model.catalog.product.ProductPriceDescription;
+import com.salesmanager.shop.model.catalog.product.ProductSpecification;
+import com.salesmanager.shop.model.catalog.product.ReadableImage;
+import com.salesmanager.shop.model.catalog.product.ReadableProduct;
+import com.salesmanager.shop.model.catalog.product.ReadableProductPrice;
+import com.salesmanager.shop.model.catalog.product.type.ReadableProductType;
+import com.salesmanager.shop.utils.DateUtil;
+import com.salesmanager.shop.utils.ImageFilePath;
+
+/**
+ * ReadableProduct of a product list built from a product listing, without
+ * loading the product. Lists display the default image only and no options,
+ * categories are read from the category tree of the store.
+ */
+public class ReadableProductListingPopulator extends
+		AbstractDataPopulator<ProductListing, ReadableProduct> {
+
+	private PricingService pricingService;
+
+	private ImageFilePath imageUtils;
+
+	private CategoryTree categoryTree;
+
+	public void setPricingService(PricingService pricingService) {
+		this.pricingService = pricingService;
+	}
+
+	public void setimageUtils(ImageFilePath imageUtils) {
+		this.imageUtils = imageUtils;
+	}
+
+	/**
+	 * Categories of the store in the language of the list
+	 */
+	public void setCategoryTree(CategoryTree categoryTree) {
+		this.categoryTree = categoryTree;
+	}
+
+	@Override
+	public ReadableProduct populate(ProductListing source, ReadableProduct target, MerchantStore store,
+			Language language) throws ConversionException {
+		Validate.notNull(pricingService, "Requires to set PricingService");
+		Validate.notNull(imageUtils, "Requires to set imageUtils");
+		Validate.notNull(language, "Requires a language");
+
+		try {
+
+			if (target == null) {
+				target = new ReadableProduct();
+			}
+
+			target.setId(source.getId());
+			target.setSku(source.getSku());
+			target.setRefSku(source.getRefSku());
+			target.setAvailable(source.isAvailable());
+			target.setPreOrder(source.isPreOrder());
+			target.setProductVirtual(source.isProductVirtual());
+			target.setSortOrder(source.getSortOrder());
+			target.setCondition(source.getCondition());
+
+			ProductSpecification specifications = new ProductSpecification();
+			specifications.setHeight(source.getHeight());
+			specifications.setLength(source.getLength());
+			specifications.setWeight(source.getWeight());
+			specifications.setWidth(source.getWidth());
+			target.setProductSpecifications(specifications);
+
+			if (source.getTypeCode() != null) {
+				ReadableProductType type = new ReadableProductType();
+				type.setId(source.getTypeId());
+				type.setCode(source.getTypeCode());
+				type.setName(source.getTypeCode());
+				target.setType(type);
+			}
+
+			//RENTAL
+			if (source.getRentalDuration() != null) {
+				target.setRentalDuration(source.getRentalDuration());
+			}
+			if (source.getRentalPeriod() != null) {
+				target.setRentalPeriod(source.getRentalPeriod());
+			}
+			target.setRentalStatus(source.getRentalStatus());
+
+			if (source.getDateAvailable() != null) {
+				target.setDateAvailable(DateUtil.formatDate(source.getDateAvailable()));
+			}
+			if (source.getDateCreated() != null) {
+				target.setCreationDate(DateUtil.formatDate(source.getDateCreated()));
+			}
+			if (source.getReviewAverage() != null) {
+				double avg = source.getReviewAverage().doubleValue();
+				double rating = Math.round(avg * 2) / 2.0f;
+				target.setRating(rating);
+			}
+			if (source.getReviewCount() != null) {
+				target.setRatingCount(source.getReviewCount().intValue());
+			}
+
+			ProductListing.Description description = source.getDescriptionOrDefault(language.getId());
+			if (description != null) {
+				ProductDescription targetDescription = new ProductDescription();
+				targetDescription.setId(description.getId());
+				targetDescription.setLanguage(description.getLanguageCode());
+				targetDescription.setName(description.getName());
+				targetDescription.setFriendlyUrl(description.getFriendlyUrl());
+				targetDescription.setTitle(description.getTitle());
+				targetDescription.setMetaDescription(description.getMetaDescription());
+				targetDescription.setDescription(description.getDescription());
+				targetDescription.setHighlights(description.getHighlights());
+				targetDescription.setKeyWords(description.getKeywords());
+				target.setDescription(targetDescription);
+			}
+
+			if (source.getManufacturerId() != null) {
+				ReadableManufacturer manufacturer = new ReadableManufacturer();
+				ManufacturerDescription d = new ManufacturerDescription();
+				d.setName(source.getManufacturerName());
+				manufacturer.setDescription(d);
+				manufacturer.setId(source.getManufacturerId());
+				manufacturer.setOrder(source.getManufacturerOrder() == null ? 0 : source.getManufacturerOrder());
+				manufacturer.setCode(source.getManufacturerCode());
+				target.setManufacturer(manufacturer);
+			}
+
+			ProductListing.Image image = source.getImage();
+			if (image != null) {
+				ReadableImage prdImage = new ReadableImage();
+				prdImage.setId(image.getId());
+				prdImage.setImageName(image.getName());
+				prdImage.setDefaultImage(true);
+				prdImage.setImageType(image.getType());
+				prdImage.setImageUrl(new StringBuilder().append(imageUtils.getContextPath())
+						.append(imageUtils.buildProductImageUtils(store, source.getSku(), image.getName())).toString());
+				if (image.getExternalUrl() != null) {
+					prdImage.setExternalUrl(image.getExternalUrl());
+				}
+				if (image.getType() == 1 && image.getExternalUrl() != null) {//video
+					prdImage.setVideoUrl(image.getExternalUrl());
+				}
+				target.setImage(prdImage);
+				target.setImages(Collections.singletonList(prdImage));
+			}
+
+			if (categoryTree != null && !source.getCategoryIds().isEmpty()) {
+				ReadableCategoryPopulator categoryPopulator = new ReadableCategoryPopulator();
+				List<ReadableCategory> categories = new ArrayList<ReadableCategory>();
+				for (Long categoryId : source.getCategoryIds()) {
+					Category category = categoryTree.get(categoryId);
+					if (category != null) {
+						categories.add(categoryPopulator.populate(category, new ReadableCategory(), store, language));
+					}
+				}
+				target.setCategories(categories);
+			}
+
+			target.setQuantity(source.getQuantity() == null ? 0 : source.getQuantity());
+			if (source.getQuantityOrderMaximum() != null) {
+				target.setQuantityOrderMaximum(source.getQuantityOrderMaximum());
+			}
+			if (source.getQuantityOrderMinimum() != null) {
+				target.setQuantityOrderMinimum(source.getQuantityOrderMinimum());
+			}
+			target.setCanBePurchased(source.isCanBePurchased());
+
+			if (source.getFinalPrice() != null) {
+				target.setFinalPrice(pricingService.getDisplayAmount(source.getFinalPrice(), store));
+				target.setPrice(source.getFinalPrice());
+				target.setOriginalPrice(pricingService.getDisplayAmount(source.getOriginalPrice(), store));
+				target.setDiscounted(source.isDiscounted());
+
+				ReadableProductPrice readableProductPrice = new ReadableProductPrice();
+				readableProductPrice.setId(source.getPriceId());
+				readableProductPrice.setDiscounted(target.isDiscounted());
+				readableProductPrice.setFinalPrice(target.getFinalPrice());
+				readableProductPrice.setOriginalPrice(target.getOriginalPrice());
+				ProductListing.Description priceDescription = source.getDescription(language.getId());
+				if (priceDescription != null && priceDescription.getPriceDescriptionId() != null) {
+					ProductPriceDescription d = new ProductPriceDescription();
+					d.setLanguage(language.getCode());
+					d.setId(priceDescription.getPriceDescriptionId());
+					d.setPriceAppender(priceDescription.getPriceAppender());
+					readableProductPrice.setDescription(d);
+				}
+				target.setProductPrice(readableProductPrice);
+			}
+
+			return target;
+
+		} catch (Exception e) {
+			throw new ConversionException(e);
+		}
+	}
+
+	@Override
+	protected ReadableProduct createTarget() {
+		return null;
+	}
+
+}
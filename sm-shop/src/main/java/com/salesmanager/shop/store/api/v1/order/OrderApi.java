@@ -42,6 +42,7 @@ import com.salesmanager.shop.model.order.ReadableOrder;
 import com.salesmanager.shop.model.order.ReadableOrderList;
 import com.salesmanager.shop.populator.customer.ReadableCustomerPopulator;
 import com.salesmanager.shop.store.api.exception.ResourceNotFoundException;
+import com.salesmanager.shop.store.api.exception.RestApiException;
 import com.salesmanager.shop.store.api.exception.ServiceRuntimeException;
 import com.salesmanager.shop.store.api.exception.UnauthorizedException;
 import com.salesmanager.shop.store.controller.customer.facade.CustomerFacade;
@@ -200,6 +201,7 @@ public class OrderApi {
   public ReadableOrderList getOrders(
       @RequestParam(value = "start", required = false, defaultValue = "0") Integer start,
       @RequestParam(value = "count", required = false, defaultValue = "100") Integer count,
+      @RequestParam(value = "cursor", required = false) String cursor,
 		@ApiIgnore MerchantStore merchantStore, 
 		@ApiIgnore Language language) {
 
@@ -213,7 +215,12 @@ public class OrderApi {
 			userFacade.authorizedGroup(authenticatedUser, Stream.of(Constants.GROUP_SUPERADMIN, Constants.GROUP_ADMIN, Constants.GROUP_ADMIN_ORDER, Constants.GROUP_ADMIN_RETAIL).collect(Collectors.toList()));
 	  
 		  
-			return orderFacade.getReadableOrderList(start, count, merchantStore);
+			try {
+				return orderFacade.getReadableOrderList(start, count, cursor, merchantStore);
+			} catch (IllegalArgumentException e) {
+				// malformed cursor
+				throw new RestApiException(e.getMessage(), e);
+			}
 		
 
   }
@@ -37,6 +37,7 @@ import com.salesmanager.shop.model.catalog.product.ReadableProduct;
 import com.salesmanager.shop.model.catalog.product.ReadableProductList;
 import com.salesmanager.shop.model.entity.EntityExists;
 import com.salesmanager.shop.store.api.exception.ResourceNotFoundException;
+import com.salesmanager.shop.store.api.exception.RestApiException;
 import com.salesmanager.shop.store.api.exception.UnauthorizedException;
 
 import com.salesmanager.shop.store.controller.product.facade.ProductFacade;
@@ -360,7 +361,8 @@ public class ProductApi {
   /**
    * Filtering product lists based on product attributes ?category=1 &manufacturer=2 &type=...
    * &lang=en|fr NOT REQUIRED, will use request language &start=0 NOT REQUIRED, can be used for
-   * pagination &count=10 NOT REQUIRED, can be used to limit item count
+   * pagination &count=10 NOT REQUIRED, can be used to limit item count &cursor= NOT REQUIRED, keyset
+   * pagination, empty for the first page then the nextCursor returned by the previous page
    *
    * @param request
    * @param response
@@ -381,6 +383,7 @@ public class ProductApi {
       @RequestParam(value = "owner", required = false) Long owner,
       @RequestParam(value = "start", required = false) Integer start,
       @RequestParam(value = "count", required = false) Integer count,
+      @RequestParam(value = "cursor", required = false) String cursor,
       @ApiIgnore MerchantStore merchantStore,
       @ApiIgnore Language language,
       HttpServletRequest request,
@@ -415,6 +418,9 @@ public class ProductApi {
     if (count != null) {
       criteria.setMaxCount(count);
     }
+    if (cursor != null) {
+      criteria.setCursor(cursor);
+    }
 
     // TODO
     // RENTAL add filter by owner
@@ -423,6 +429,9 @@ public class ProductApi {
     try {
       return productFacade.getProductListsByCriterias(merchantStore, language, criteria);
 
+    } catch (IllegalArgumentException e) {
+      // malformed cursor
+      throw new RestApiException(e.getMessage(), e);
     } catch (Exception e) {
 
       LOGGER.error("Error while filtering products product", e);
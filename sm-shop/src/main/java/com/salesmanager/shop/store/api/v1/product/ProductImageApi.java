@@ -16,8 +16,10 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.multipart.MultipartFile;
+import com.salesmanager.core.business.modules.cms.product.ProductImageDerivativeJob;
 import com.salesmanager.core.business.services.catalog.product.ProductService;
 import com.salesmanager.core.business.services.catalog.product.image.ProductImageService;
 import com.salesmanager.core.model.catalog.product.Product;
@@ -145,4 +147,33 @@ public class ProductImageApi {
       }
     }
   }
+
+  /**
+   * Status of the resized images of an uploaded image, the original is
+   * served until they are created
+   */
+  @RequestMapping(
+      value = {"/private/products/images/{id}/status", "/auth/products/images/{id}/status"},
+      method = RequestMethod.GET)
+  @ApiImplicitParams({
+    @ApiImplicitParam(name = "store", dataType = "String", defaultValue = "DEFAULT")
+  })
+  public @ResponseBody ProductImageDerivativeJob imageStatus(
+      @PathVariable Long id,
+      @ApiIgnore MerchantStore merchantStore) {
+
+    ProductImage productImage = productImageService.getById(id);
+    if (productImage == null) {
+      throw new ResourceNotFoundException("No ProductImage found for ID : " + id);
+    }
+    if (productImage.getProduct().getMerchantStore().getId().intValue() != merchantStore.getId().intValue()) {
+      throw new UnauthorizedException("Resource not authorized for this merchant");
+    }
+
+    ProductImageDerivativeJob job = productImageService.getDerivativeJob(productImage);
+    if (job == null) {
+      throw new ResourceNotFoundException("No recent image processing for ProductImage " + id);
+    }
+    return job;
+  }
 }
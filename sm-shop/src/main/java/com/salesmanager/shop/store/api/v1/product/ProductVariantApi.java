@@ -15,6 +15,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import com.salesmanager.core.business.services.catalog.product.PricingService;
@@ -125,7 +126,7 @@ public class ProductVariantApi {
   @ApiOperation(
       httpMethod = "GET",
       value = "Get all variation for all items in a given category",
-      notes = "",
+      notes = "Number of items of each variation, filtered on the selected option values",
       produces = "application/json",
       response = List.class)
   @ResponseBody
@@ -135,12 +136,13 @@ public class ProductVariantApi {
   })
   public List<ReadableProductVariant> categoryVariantList(
       @PathVariable final Long id, //category id
+      @RequestParam(value = "values", required = false) List<Long> values, //selected option value ids
       @ApiIgnore MerchantStore merchantStore,
       @ApiIgnore Language language,
       HttpServletResponse response)
       throws Exception {
     
-    return categoryFacade.categoryProductVariants(id, merchantStore, language);
+    return categoryFacade.categoryProductVariants(id, values, merchantStore, language);
     
   }
   
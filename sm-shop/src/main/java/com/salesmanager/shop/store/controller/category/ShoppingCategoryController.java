@@ -25,8 +25,11 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
 
 import com.salesmanager.core.business.services.catalog.category.CategoryService;
+import com.salesmanager.core.business.services.catalog.category.CategoryTree;
 import com.salesmanager.core.business.services.catalog.product.PricingService;
 import com.salesmanager.core.business.services.catalog.product.ProductService;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductListing;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductListingList;
 import com.salesmanager.core.business.services.catalog.product.manufacturer.ManufacturerService;
 import com.salesmanager.core.business.services.merchant.MerchantStoreService;
 import com.salesmanager.core.business.services.reference.language.LanguageService;
@@ -44,6 +47,7 @@ import com.salesmanager.shop.model.catalog.product.ReadableProduct;
 import com.salesmanager.shop.model.shop.Breadcrumb;
 import com.salesmanager.shop.model.shop.PageInformation;
 import com.salesmanager.shop.populator.catalog.ReadableCategoryPopulator;
+import com.salesmanager.shop.populator.catalog.ReadableProductListingPopulator;
 import com.salesmanager.shop.populator.catalog.ReadableProductPopulator;
 import com.salesmanager.shop.populator.manufacturer.ReadableManufacturerPopulator;
 import com.salesmanager.shop.store.controller.ControllerConstants;
@@ -331,30 +335,11 @@ public class ShoppingCategoryController {
 			return null;
 		}
 
-		List<Object[]> countProductsByCategories = categoryService.countProductsByCategories(store, subIds);
+		//own products and products of visible sub categories
+		CategoryTree tree = categoryService.getCategoryTree(store, null);
 		Map<Long, Long> countByCategories = new HashMap<Long,Long>();
-		
-		for(Object[] counts : countProductsByCategories) {
-			Category c = (Category)counts[0];
-			if(c.getParent()!=null) {
-				if(c.getParent().getId()==category.getId()) {
-					countByCategories.put(c.getId(), (Long)counts[1]);
-				} else {
-					//get lineage
-					String lin = c.getLineage();
-					String[] categoryPath = lin.split(Constants.CATEGORY_LINEAGE_DELIMITER);
-					for(int i=0 ; i<categoryPath.length; i++) {
-						String sId = categoryPath[i];
-						if(!StringUtils.isBlank(sId)) {
-								Long count = countByCategories.get(Long.parseLong(sId));
-								if(count!=null) {
-									count = count + (Long)counts[1];
-									countByCategories.put(Long.parseLong(sId), count);
-								}
-						}
-					}
-				}
-			}
+		for(Category child : tree.getChildren(category.getId())) {
+			countByCategories.put(child.getId(), tree.getRolledUpProductCount(child.getId()));
 		}
 		
 		return countByCategories;
@@ -666,17 +651,17 @@ public class ShoppingCategoryController {
 				}
 			}
 
-			com.salesmanager.core.model.catalog.product.ProductList products = productService.listByStore(merchantStore, lang, productCriteria);
+			ProductListingList products = productService.listListingsByStore(merchantStore, lang, productCriteria);
 
-			ReadableProductPopulator populator = new ReadableProductPopulator();
+			ReadableProductListingPopulator populator = new ReadableProductListingPopulator();
 			populator.setPricingService(pricingService);
 			populator.setimageUtils(imageUtils);
+			populator.setCategoryTree(categoryService.getCategoryTree(merchantStore, lang));
 			
 			ProductList productList = new ProductList();
-			for(Product product : products.getProducts()) {
+			for(ProductListing listing : products.getListings()) {
 
-				//create new proxy product
-				ReadableProduct  p = populator.populate(product, new ReadableProduct(), merchantStore, lang);
+				ReadableProduct  p = populator.populate(listing, new ReadableProduct(), merchantStore, lang);
 				productList.getProducts().add(p);
 				prices.add(p.getPrice());
 				
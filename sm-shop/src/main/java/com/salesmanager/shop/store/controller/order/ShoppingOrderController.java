@@ -36,6 +36,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.services.catalog.product.PricingService;
 import com.salesmanager.core.business.services.catalog.product.ProductService;
+import com.salesmanager.core.business.services.catalog.product.availability.InventoryService;
 import com.salesmanager.core.business.services.customer.CustomerService;
 import com.salesmanager.core.business.services.order.OrderService;
 import com.salesmanager.core.business.services.order.orderproduct.OrderProductDownloadService;
@@ -142,6 +143,9 @@ public class ShoppingOrderController extends AbstractController {
 	
 	@Inject
 	private ProductService productService;
+
+	@Inject
+	private InventoryService inventoryService;
 	
 	@Inject
 	private PasswordEncoder passwordEncoder;
@@ -219,6 +223,12 @@ public class ShoppingOrderController extends AbstractController {
         if(!allAvailables) {
         	shoppingCartFacade.saveOrUpdateShoppingCart(cart);
         }
+
+        //hold the quantities while the customer is in checkout
+        boolean reserved = inventoryService.reserve(cart, store);
+        if(!reserved) {
+        	LOGGER.info("Not enough stock for cart " + cart.getShoppingCartCode());
+        }
 	    
 	    super.setSessionAttribute(Constants.SHOPPING_CART, cart.getShoppingCartCode(), request);
 	
@@ -422,6 +432,10 @@ public class ShoppingOrderController extends AbstractController {
 		model.addAttribute("order",order);
 		model.addAttribute("paymentMethods", paymentMethods);
 		
+		if(!reserved) {
+			model.addAttribute("errorMessages", messages.getMessage("message.inventory.outofstock", locale));
+		}
+		
 		/** template **/
 		StringBuilder template = new StringBuilder().append(ControllerConstants.Tiles.Checkout.checkout).append(".").append(store.getStoreTemplate());
 		return template.toString();
@@ -931,6 +945,8 @@ public class ShoppingOrderController extends AbstractController {
             			String messageLabel = messages.getMessage(se.getMessageCode(), locale, defaultMessage);
             			model.addAttribute("errorMessages", messageLabel);
             		}
+            	} else if(se.getExceptionType()==ServiceException.EXCEPTION_INVENTORY_MISMATCH) {
+            		model.addAttribute("errorMessages", messages.getMessage("message.inventory.outofstock", locale, defaultMessage));
             	} else if(se.getExceptionType()==ServiceException.EXCEPTION_PAYMENT_DECLINED) {
             		String paymentDeclinedMessage = messages.getMessage("message.payment.declined", locale);
             		if(!StringUtils.isBlank(se.getMessageCode())) {
@@ -906,12 +906,13 @@ public class OrderFacadeImpl implements OrderFacade {
 	}
 
 	@Override
-	public ReadableOrderList getReadableOrderList(int start, int maxCount, MerchantStore store) {
+	public ReadableOrderList getReadableOrderList(int start, int maxCount, String cursor, MerchantStore store) {
 
 		try {
 			OrderCriteria criteria = new OrderCriteria();
 			criteria.setStartIndex(start);
 			criteria.setMaxCount(maxCount);
+			criteria.setCursor(cursor);
 	
 	        OrderList orderList = orderService.getOrders(criteria);
 	
@@ -933,6 +934,7 @@ public class OrderFacadeImpl implements OrderFacade {
 	        }
 	        returnList.setOrders(readableOrders);
 	        returnList.setTotal(orderList.getTotalCount());
+	        returnList.setNextCursor(orderList.getNextCursor());
 	
 	        returnList.setRecordsFiltered(orderList.getTotalCount());
 	        returnList.setRecordsTotal(orderList.getTotalCount());
@@ -940,6 +942,9 @@ public class OrderFacadeImpl implements OrderFacade {
 	
 	        return returnList;
         
+		} catch (IllegalArgumentException e) {
+			// malformed cursor, a bad request
+			throw e;
 		} catch (Exception e) {
 			throw new ServiceRuntimeException("Error while getting orders", e);
 		}
@@ -76,7 +76,7 @@ public class SearchFacadeImpl implements SearchFacade {
 	 * indexex manually restart ES and run this query
 	 */
 	@Override
-	@Async
+	@Async("indexingExecutor")
 	public void indexAllData(MerchantStore store) throws Exception {
 		List<Product> products = productService.listByStore(store);
 
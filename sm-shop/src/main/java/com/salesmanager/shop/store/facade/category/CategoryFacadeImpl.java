@@ -2,11 +2,8 @@ package com.salesmanager.shop.store.facade.category;
 
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Function;
@@ -21,12 +18,11 @@ import org.springframework.util.CollectionUtils;
 import com.salesmanager.core.business.exception.ConversionException;
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.services.catalog.category.CategoryService;
+import com.salesmanager.core.business.services.catalog.category.CategoryTree;
 import com.salesmanager.core.business.services.catalog.product.attribute.ProductAttributeService;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductFacet;
 import com.salesmanager.core.business.services.merchant.MerchantStoreService;
 import com.salesmanager.core.model.catalog.category.Category;
-import com.salesmanager.core.model.catalog.product.attribute.ProductAttribute;
-import com.salesmanager.core.model.catalog.product.attribute.ProductOption;
-import com.salesmanager.core.model.catalog.product.attribute.ProductOptionValue;
 import com.salesmanager.core.model.merchant.MerchantStore;
 import com.salesmanager.core.model.reference.language.Language;
 import com.salesmanager.shop.mapper.Mapper;
@@ -346,49 +342,45 @@ public class CategoryFacadeImpl implements CategoryFacade {
 	@Override
 	public List<ReadableProductVariant> categoryProductVariants(Long categoryId, MerchantStore store,
 			Language language) {
-		Category category = categoryService.getById(categoryId, store.getId());
+		return categoryProductVariants(categoryId, null, store, language);
+	}
 
-		List<ReadableProductVariant> variants = new ArrayList<ReadableProductVariant>();
+	@Override
+	public List<ReadableProductVariant> categoryProductVariants(Long categoryId, List<Long> selectedValues,
+			MerchantStore store, Language language) {
 
-		if (category == null) {
+		CategoryTree tree = categoryService.getCategoryTree(store, language);
+		if (tree.get(categoryId) == null) {
 			throw new ResourceNotFoundException("Category [" + categoryId + "] not found");
 		}
 
 		try {
-			List<ProductAttribute> attributes = productAttributeService.getProductAttributesByCategoryLineage(store,
-					category.getLineage(), language);
 
 			/**
-			 * Option NAME OptionValueName OptionValueName
+			 * products of the category lineage, counted from the
+			 * product listings of the store
 			 **/
-			Map<String, List<ProductOptionValue>> rawFacet = new HashMap<String, List<ProductOptionValue>>();
-			Map<String, ProductOption> references = new HashMap<String, ProductOption>();
-			for (ProductAttribute attr : attributes) {
-				references.put(attr.getProductOption().getCode(), attr.getProductOption());
-				List<ProductOptionValue> values = rawFacet.get(attr.getProductOption().getCode());
-				if (values == null) {
-					values = new ArrayList<ProductOptionValue>();
-					rawFacet.put(attr.getProductOption().getCode(), values);
-				}
-				values.add(attr.getProductOptionValue());
+			List<Long> categoryIds = new ArrayList<Long>();
+			categoryIds.add(categoryId);
+			for (Category descendant : tree.getDescendants(categoryId, false)) {
+				categoryIds.add(descendant.getId());
 			}
 
-			// for each reference set Option
-			Iterator<Entry<String, ProductOption>> it = references.entrySet().iterator();
-			while (it.hasNext()) {
-				@SuppressWarnings("rawtypes")
-				Map.Entry pair = (Map.Entry) it.next();
-				ProductOption option = (ProductOption) pair.getValue();
-				List<ProductOptionValue> values = rawFacet.get(option.getCode());
+			List<ProductFacet> facets = productAttributeService.getProductFacetsByCategories(store, categoryIds,
+					selectedValues, language);
 
+			List<ReadableProductVariant> variants = new ArrayList<ReadableProductVariant>();
+			for (ProductFacet facet : facets) {
 				ReadableProductVariant productVariant = new ReadableProductVariant();
-				productVariant.setName(option.getDescriptionsSettoList().get(0).getName());
+				productVariant.setName(facet.getName());
 				List<ReadableProductVariantValue> optionValues = new ArrayList<ReadableProductVariantValue>();
-				for (ProductOptionValue value : values) {
+				for (ProductFacet.Value value : facet.getValues()) {
 					ReadableProductVariantValue v = new ReadableProductVariantValue();
-					v.setName(value.getDescriptionsSettoList().get(0).getName());
-					v.setOption(option.getId());
-					v.setValue(value.getId());
+					v.setName(value.getName());
+					v.setOption(facet.getOptionId());
+					v.setValue(value.getValueId());
+					v.setCount(value.getCount());
+					v.setSelected(value.isSelected());
 					optionValues.add(v);
 				}
 				productVariant.setOptions(optionValues);
@@ -16,6 +16,8 @@ import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.services.catalog.category.CategoryService;
 import com.salesmanager.core.business.services.catalog.product.PricingService;
 import com.salesmanager.core.business.services.catalog.product.ProductService;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductListing;
+import com.salesmanager.core.business.services.catalog.product.listing.ProductListingList;
 import com.salesmanager.core.business.services.catalog.product.relationship.ProductRelationshipService;
 import com.salesmanager.core.business.services.catalog.product.review.ProductReviewService;
 import com.salesmanager.core.business.services.customer.CustomerService;
@@ -43,6 +45,7 @@ import com.salesmanager.shop.model.catalog.product.ReadableProductList;
 import com.salesmanager.shop.model.catalog.product.ReadableProductReview;
 import com.salesmanager.shop.populator.catalog.PersistableProductPopulator;
 import com.salesmanager.shop.populator.catalog.PersistableProductReviewPopulator;
+import com.salesmanager.shop.populator.catalog.ReadableProductListingPopulator;
 import com.salesmanager.shop.populator.catalog.ReadableProductPopulator;
 import com.salesmanager.shop.populator.catalog.ReadableProductReviewPopulator;
 import com.salesmanager.shop.store.api.exception.OperationNotAllowedException;
@@ -282,17 +285,12 @@ public class ProductFacadeImpl implements ProductFacade {
 						.getById(criterias.getCategoryIds().get(0));
 
 				if (category != null) {
-					String lineage = new StringBuilder().append(category.getLineage()).append(Constants.SLASH)
-							.toString();
-
 					List<com.salesmanager.core.model.catalog.category.Category> categories = categoryService
-							.getListByLineage(store, lineage);
+							.getCategoryTree(store, null).getDescendants(category.getId(), false);
 
 					List<Long> ids = new ArrayList<Long>();
-					if (categories != null && categories.size() > 0) {
-						for (com.salesmanager.core.model.catalog.category.Category c : categories) {
-							ids.add(c.getId());
-						}
+					for (com.salesmanager.core.model.catalog.category.Category c : categories) {
+						ids.add(c.getId());
 					}
 					ids.add(category.getId());
 					criterias.setCategoryIds(ids);
@@ -300,24 +298,25 @@ public class ProductFacadeImpl implements ProductFacade {
 			}
 		}
 
-		com.salesmanager.core.model.catalog.product.ProductList products = productService.listByStore(store, language,
-				criterias);
+		// listings of the product read model, products are not loaded
+		ProductListingList products = productService.listListingsByStore(store, language, criterias);
 
-		ReadableProductPopulator populator = new ReadableProductPopulator();
+		ReadableProductListingPopulator populator = new ReadableProductListingPopulator();
 		populator.setPricingService(pricingService);
 		populator.setimageUtils(imageUtils);
+		populator.setCategoryTree(categoryService.getCategoryTree(store, language));
 
 		ReadableProductList productList = new ReadableProductList();
-		for (Product product : products.getProducts()) {
+		for (ProductListing listing : products.getListings()) {
 
-			// create new proxy product
-			ReadableProduct readProduct = populator.populate(product, new ReadableProduct(), store, language);
+			ReadableProduct readProduct = populator.populate(listing, new ReadableProduct(), store, language);
 			productList.getProducts().add(readProduct);
 
 		}
 
 		// productList.setTotalPages(products.getTotalCount());
 		productList.setRecordsTotal(products.getTotalCount());
+		productList.setNextCursor(products.getNextCursor());
 		productList.setNumber(products.getTotalCount() >= criterias.getMaxCount() ? products.getTotalCount()
 				: criterias.getMaxCount());
 
@@ -1,10 +1,15 @@
 package com.salesmanager.shop.store.security;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Value;
@@ -53,6 +58,16 @@ public class JWTTokenUtil implements Serializable {
 	    @Value("${jwt.expiration}")
 	    private Long expiration;
 
+	    /** verified tokens kept, cleared when reached **/
+	    @Value("${jwt.cache.maxEntries:10000}")
+	    private int maxEntries = 10000;
+
+	    /**
+	     * Claims of tokens whose signature was verified, by digest of the token.
+	     * A token is parsed again once it expires.
+	     */
+	    private final transient Map<String, Claims> verified = new ConcurrentHashMap<String, Claims>();
+
 	    public String getUsernameFromToken(String token) {
 	        return getClaimFromToken(token, Claims::getSubject);
 	    }
@@ -70,10 +85,53 @@ public class JWTTokenUtil implements Serializable {
 	    }
 
 	    public <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver) {
-	        final Claims claims = getAllClaimsFromToken(token);
+	        final Claims claims = getVerifiedClaimsFromToken(token);
 	        return claimsResolver.apply(claims);
 	    }
 
+	    /**
+	     * Claims of a token, the signature of a token is verified once
+	     * until the token expires. The claims returned are shared and must not
+	     * be modified.
+	     */
+	    private Claims getVerifiedClaimsFromToken(String token) {
+	        if (token == null) {
+	            return getAllClaimsFromToken(token);
+	        }
+	        String digest = digest(token);
+	        Claims claims = verified.get(digest);
+	        if (claims != null) {
+	            if (claims.getExpiration() == null || claims.getExpiration().after(DateUtil.getDate())) {
+	                return claims;
+	            }
+	            //parsing again throws ExpiredJwtException
+	            verified.remove(digest);
+	        }
+	        claims = getAllClaimsFromToken(token);
+	        if (verified.size() >= maxEntries) {
+	            purgeExpired();
+	        }
+	        verified.put(digest, claims);
+	        return claims;
+	    }
+
+	    private void purgeExpired() {
+	        Date now = DateUtil.getDate();
+	        verified.values().removeIf(c -> c.getExpiration() != null && !c.getExpiration().after(now));
+	        if (verified.size() >= maxEntries) {
+	            verified.clear();
+	        }
+	    }
+
+	    private String digest(String token) {
+	        try {
+	            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+	            return Base64.getEncoder().encodeToString(hash);
+	        } catch (NoSuchAlgorithmException e) {
+	            throw new IllegalStateException(e);
+	        }
+	    }
+
 	    private Claims getAllClaimsFromToken(String token) {
 	        return Jwts.parser()
 	                .setSigningKey(secret)
@@ -172,12 +230,12 @@ public class JWTTokenUtil implements Serializable {
 
 	    public Boolean validateToken(String token, UserDetails userDetails) {
 	        JWTUser user = (JWTUser) userDetails;
-	        final String username = getUsernameFromToken(token);
-	        final Date created = getIssuedAtDateFromToken(token);
-	        //final Date expiration = getExpirationDateFromToken(token);
+	        final Claims claims = getVerifiedClaimsFromToken(token);
+	        final String username = claims.getSubject();
+	        final Date created = claims.getIssuedAt();
 	        
 	        boolean usernameEquals = username.equals(user.getUsername());
-	        boolean isTokenExpired = isTokenExpired(token);
+	        boolean isTokenExpired = claims.getExpiration().before(DateUtil.getDate());
 	        boolean isTokenCreatedBeforeLastPasswordReset = isCreatedBeforeLastPasswordReset(created, user.getLastPasswordResetDate());
 	        
 	        return (
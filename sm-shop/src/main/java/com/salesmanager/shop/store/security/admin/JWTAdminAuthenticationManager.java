@@ -13,9 +13,11 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
+import com.salesmanager.core.business.services.user.PrincipalRevisions;
 import com.salesmanager.shop.store.security.JWTTokenUtil;
 import com.salesmanager.shop.store.security.common.CustomAuthenticationException;
 import com.salesmanager.shop.store.security.common.CustomAuthenticationManager;
+import com.salesmanager.shop.store.security.common.JWTPrincipalCache;
 import static java.util.Optional.ofNullable;
 import static org.apache.commons.lang3.StringUtils.removeStart;
 import io.jsonwebtoken.ExpiredJwtException;
@@ -32,6 +34,9 @@ public class JWTAdminAuthenticationManager extends CustomAuthenticationManager {
   @Inject
   private UserDetailsService jwtAdminDetailsService;
 
+  @Inject
+  private JWTPrincipalCache jwtPrincipalCache;
+
   @Override
   public Authentication attemptAuthentication(HttpServletRequest request,
       HttpServletResponse response) throws AuthenticationException {
@@ -60,7 +65,7 @@ public class JWTAdminAuthenticationManager extends CustomAuthenticationManager {
       // It is not compelling necessary to load the use details from the database. You could also
       // store the information
       // in the token and read it from it. It's up to you ;)
-      UserDetails userDetails = this.jwtAdminDetailsService.loadUserByUsername(username);
+      UserDetails userDetails = jwtPrincipalCache.get(PrincipalRevisions.USER, username, jwtAdminDetailsService);
 
       // For simple validation it is completely sufficient to just check the token integrity. You
       // don't have to call
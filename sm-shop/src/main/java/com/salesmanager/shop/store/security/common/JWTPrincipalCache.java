@@ -0,0 +1,78 @@
+package com.salesmanager.shop.store.security.common;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.services.user.PrincipalRevisions;
+import com.salesmanager.shop.store.security.user.JWTUser;
+
+/**
+ * Principals and authorities of authenticated api calls, a request carrying
+ * a token does not load the user, its groups and permissions again until
+ * they change. Changes made on another node are seen after maxAge.
+ */
+@Component
+public class JWTPrincipalCache {
+
+	@Inject
+	private PrincipalRevisions principalRevisions;
+
+	@Value("${jwt.cache.principalMaxAge:300000}")
+	private long maxAge = 300000;
+
+	@Value("${jwt.cache.maxEntries:10000}")
+	private int maxEntries = 10000;
+
+	private final Map<String, Entry> principals = new ConcurrentHashMap<String, Entry>();
+
+	/**
+	 * @param realm PrincipalRevisions.USER or PrincipalRevisions.CUSTOMER
+	 */
+	public UserDetails get(String realm, String username, UserDetailsService userDetailsService) {
+
+		String key = realm + ":" + username;
+		Entry entry = principals.get(key);
+		if (entry != null && isCurrent(realm, entry)) {
+			return entry.user;
+		}
+
+		long revision = principalRevisions.current();
+		UserDetails user = userDetailsService.loadUserByUsername(username);
+		if (user instanceof JWTUser) {
+			if (principals.size() >= maxEntries) {
+				principals.clear();
+			}
+			principals.put(key, new Entry((JWTUser) user, revision));
+		}
+		return user;
+	}
+
+	private boolean isCurrent(String realm, Entry entry) {
+		return System.currentTimeMillis() - entry.loaded < maxAge
+				&& principalRevisions.getRevision(realm, entry.user.getId()) <= entry.revision;
+	}
+
+	public void setMaxAge(long maxAge) {
+		this.maxAge = maxAge;
+	}
+
+	private static class Entry {
+
+		private final JWTUser user;
+		private final long revision;
+		private final long loaded = System.currentTimeMillis();
+
+		Entry(JWTUser user, long revision) {
+			this.user = user;
+			this.revision = revision;
+		}
+	}
+
+}
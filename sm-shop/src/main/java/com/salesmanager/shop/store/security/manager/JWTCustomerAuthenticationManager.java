@@ -15,9 +15,11 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 
+import com.salesmanager.core.business.services.user.PrincipalRevisions;
 import com.salesmanager.shop.store.security.JWTTokenUtil;
 import com.salesmanager.shop.store.security.common.CustomAuthenticationException;
 import com.salesmanager.shop.store.security.common.CustomAuthenticationManager;
+import com.salesmanager.shop.store.security.common.JWTPrincipalCache;
 
 import io.jsonwebtoken.ExpiredJwtException;
 
@@ -32,6 +34,9 @@ public class JWTCustomerAuthenticationManager extends CustomAuthenticationManage
     @Inject
     private UserDetailsService jwtCustomerDetailsService;
 
+    @Inject
+    private JWTPrincipalCache jwtPrincipalCache;
+
 	@Override
 	public Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response)
 			throws AuthenticationException {
@@ -60,7 +65,7 @@ public class JWTCustomerAuthenticationManager extends CustomAuthenticationManage
 
             // It is not compelling necessary to load the use details from the database. You could also store the information
             // in the token and read it from it. It's up to you ;)
-            UserDetails userDetails = this.jwtCustomerDetailsService.loadUserByUsername(username);
+            UserDetails userDetails = jwtPrincipalCache.get(PrincipalRevisions.CUSTOMER, username, jwtCustomerDetailsService);
 
             // For simple validation it is completely sufficient to just check the token integrity. You don't have to call
             // the database compellingly. Again it's up to you ;)
@@ -0,0 +1,126 @@
+package com.salesmanager.shop.utils;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.salesmanager.core.business.modules.cms.common.ContentResource;
+
+/**
+ * Writes images and files served by the application. Answers conditional
+ * requests with 304, single byte ranges with 206 and streams the content
+ * from the CMS backend. Files are handed to the Tomcat sendfile support when
+ * available, they are otherwise transferred by their file channel.
+ */
+@Component
+public class ContentResourceWriter {
+
+	private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+	private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+	private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+	private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+	/** smaller files are written directly **/
+	private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+	@Value("${config.cms.cacheControl:public, max-age=86400}")
+	private String cacheControl = "public, max-age=86400";
+
+	public void write(ContentResource resource, HttpServletRequest request, HttpServletResponse response) throws IOException {
+		write(resource, cacheControl, request, response);
+	}
+
+	public void write(ContentResource resource, String cacheControl, HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+		String etag = "\"" + resource.getEtag() + "\"";
+		long lastModified = resource.getLastModified() > 0 ? resource.getLastModified() : -1;
+
+		if (cacheControl != null) {
+			response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+		}
+		response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+		if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+			return;
+		}
+
+		long length = resource.getLength();
+		long start = 0;
+		long end = length - 1;
+
+		String range = request.getHeader(HttpHeaders.RANGE);
+		if (range != null && ifRange(request, etag, lastModified)) {
+			List<HttpRange> ranges;
+			try {
+				ranges = HttpRange.parseRanges(range);
+			} catch (IllegalArgumentException e) {
+				ranges = Collections.emptyList();
+			}
+			// several ranges are answered with the whole content
+			if (ranges.size() == 1) {
+				start = ranges.get(0).getRangeStart(length);
+				end = Math.min(ranges.get(0).getRangeEnd(length), length - 1);
+				if (start >= length || start > end) {
+					response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+					response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+					return;
+				}
+				response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+			}
+		}
+
+		long count = end - start + 1;
+		response.setContentType(resource.getMimeType() != null ? resource.getMimeType() : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+		response.setContentLengthLong(count);
+
+		if ("HEAD".equals(request.getMethod()) || count <= 0) {
+			return;
+		}
+
+		if (resource.getPath() != null && count >= SENDFILE_MIN_SIZE
+				&& Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+			request.setAttribute(SENDFILE_FILENAME, resource.getPath().toAbsolutePath().toString());
+			request.setAttribute(SENDFILE_START, start);
+			request.setAttribute(SENDFILE_END, end + 1);
+			return;
+		}
+
+		resource.transferTo(start, count, Channels.newChannel(response.getOutputStream()));
+	}
+
+	/**
+	 * A range is only served when the If-Range validator, if any, matches
+	 */
+	private boolean ifRange(HttpServletRequest request, String etag, long lastModified) {
+		String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+		if (ifRange == null) {
+			return true;
+		}
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+			return ifRange.equals(etag);
+		}
+		try {
+			long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+			return lastModified > 0 && lastModified / 1000 <= date / 1000;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	public void setCacheControl(String cacheControl) {
+		this.cacheControl = cacheControl;
+	}
+
+}